@@ -0,0 +1,28 @@
+package com.wipro.bookservice.config;
+
+import com.wipro.bookservice.entity.Book;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the book_seq id table past the ids already handed out by the former AUTO_INCREMENT
+ * column, so pooled id blocks never collide with existing rows. Depends on the
+ * EntityManagerFactory so it runs after Hibernate has created the table.
+ */
+@Component
+public class BookIdSequenceInitializer {
+    private final JdbcTemplate jdbcTemplate;
+
+    public BookIdSequenceInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void alignWithExistingIds() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM books", Long.class);
+        long floor = maxId + Book.ID_ALLOCATION_SIZE;
+        jdbcTemplate.update("UPDATE book_seq SET next_val = ? WHERE next_val <= ?", floor + 1, floor);
+    }
+}
@@ -0,0 +1,123 @@
+package com.wipro.bookservice.config;
+
+import com.wipro.bookservice.service.BookService;
+import com.wipro.common.jdbc.NamedLock;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Rewrites ISBNs stored before writes normalized them (hyphens, spaces, a lower-case check
+ * digit) into the form that lookups and uk_books_isbn compare, then adds uk_books_isbn if
+ * Hibernate could not create it because of duplicates.
+ * <p>
+ * When a rewritten ISBN is already used by another book, the book already holding it keeps
+ * it; otherwise the oldest book wins. The other books have their ISBN cleared and get a new
+ * version, and each one is logged so it can be corrected by hand. Runs under a named lock so
+ * replicas starting together migrate once, and finds nothing to do afterwards. Depends on
+ * the EntityManagerFactory so it runs after Hibernate has updated the table.
+ */
+@Component
+public class IsbnNormalization {
+    private static final Logger logger = LoggerFactory.getLogger(IsbnNormalization.class);
+    private static final String LOCK_NAME = "book-service.isbn-normalization";
+    private static final Duration LOCK_TIMEOUT = Duration.ofMinutes(5);
+    private static final String DUPLICATES = "SELECT isbn, MIN(id) AS keep_id FROM books " +
+            "WHERE isbn IS NOT NULL GROUP BY isbn HAVING COUNT(*) > 1";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final NamedLock namedLock;
+
+    public IsbnNormalization(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                             EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.namedLock = new NamedLock(jdbcTemplate);
+    }
+
+    @PostConstruct
+    public void migrate() {
+        namedLock.runExclusively(LOCK_NAME, LOCK_TIMEOUT, () -> {
+            transactionTemplate.executeWithoutResult(status -> normalizeStoredIsbns());
+            if (!uniqueKeyExists()) {
+                transactionTemplate.executeWithoutResult(status -> clearExactDuplicates());
+                jdbcTemplate.execute("ALTER TABLE books ADD CONSTRAINT uk_books_isbn UNIQUE (isbn)");
+                logger.info("Added uk_books_isbn");
+            }
+            return null;
+        });
+    }
+
+    private void normalizeStoredIsbns() {
+        // Every stored ISBN that contains anything but digits and an upper-case X
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT id, isbn FROM books WHERE isbn = '' OR REGEXP_LIKE(isbn, '[^0-9X]', 'c') ORDER BY id");
+        int rewritten = 0;
+        int cleared = 0;
+        for (Map<String, Object> row : rows) {
+            long id = ((Number) row.get("id")).longValue();
+            String isbn = (String) row.get("isbn");
+            String normalized = BookService.normalizeIsbn(isbn);
+            if (Objects.equals(normalized, isbn)) {
+                continue;
+            }
+            if (normalized != null) {
+                List<Long> owners = jdbcTemplate.queryForList(
+                        "SELECT id FROM books WHERE isbn = ? AND id <> ? ORDER BY id LIMIT 1 FOR UPDATE",
+                        Long.class, normalized, id);
+                if (owners.isEmpty() && setIsbn(id, normalized)) {
+                    rewritten++;
+                    continue;
+                }
+                logger.warn("Book {} has ISBN {}, which is already used by book {}; clearing its ISBN", id, isbn,
+                        owners.isEmpty() ? "(unknown)" : owners.get(0));
+            }
+            setIsbn(id, null);
+            cleared++;
+        }
+        if (rewritten + cleared > 0) {
+            logger.info("Normalized {} stored ISBNs and cleared {} duplicates or blanks", rewritten, cleared);
+        }
+    }
+
+    private void clearExactDuplicates() {
+        List<Map<String, Object>> duplicates = jdbcTemplate.queryForList("SELECT b.id, b.isbn, d.keep_id FROM books b " +
+                "JOIN (" + DUPLICATES + ") d ON b.isbn = d.isbn AND b.id <> d.keep_id ORDER BY b.id");
+        for (Map<String, Object> duplicate : duplicates) {
+            logger.warn("Book {} has ISBN {}, which is already used by book {}; clearing its ISBN",
+                    duplicate.get("id"), duplicate.get("isbn"), duplicate.get("keep_id"));
+        }
+        jdbcTemplate.update("UPDATE books b JOIN (" + DUPLICATES + ") d ON b.isbn = d.isbn AND b.id <> d.keep_id " +
+                "SET b.isbn = NULL, b.version = b.version + 1");
+    }
+
+    /**
+     * Returns false when another book took the ISBN in the meantime.
+     */
+    private boolean setIsbn(long id, String isbn) {
+        try {
+            jdbcTemplate.update("UPDATE books SET isbn = ?, version = version + 1 WHERE id = ?", isbn, id);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    private boolean uniqueKeyExists() {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.statistics " +
+                "WHERE table_schema = DATABASE() AND table_name = 'books' AND index_name = 'uk_books_isbn'",
+                Integer.class);
+        return count != null && count > 0;
+    }
+}
@@ -1,25 +1,68 @@
 package com.wipro.bookservice.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wipro.bookservice.dto.BookFacets;
+import com.wipro.bookservice.dto.BookImportResult;
+import com.wipro.bookservice.dto.BookPage;
+import com.wipro.bookservice.dto.BookSuggestion;
+import com.wipro.bookservice.dto.BookSuggestions;
 import com.wipro.bookservice.entity.Book;
+import com.wipro.bookservice.exception.PreconditionFailedException;
+import com.wipro.bookservice.repository.BookStreamRepository;
+import com.wipro.bookservice.service.BookImportService;
 import com.wipro.bookservice.service.BookService;
+import com.wipro.bookservice.service.BookSuggester;
+import com.wipro.common.dto.BatchLookupResult;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/books")
 @Tag(name = "Book API", description = "Operations related to book management")
 public class BookController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String SUGGEST_TRUNCATED_HEADER = "X-Suggest-Truncated";
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int STREAM_FLUSH_INTERVAL = 500;
+    private static final int MAX_SUGGESTIONS = 50;
+    private static final int MAX_BATCH_IDS = 500;
+
     private final BookService bookService;
-    public BookController(BookService bookService) { this.bookService = bookService; }
+    private final BookImportService bookImportService;
+    private final BookSuggester bookSuggester;
+    private final BookStreamRepository bookStreamRepository;
+    private final ObjectMapper objectMapper;
+
+    public BookController(BookService bookService, BookImportService bookImportService, BookSuggester bookSuggester,
+                          BookStreamRepository bookStreamRepository, ObjectMapper objectMapper) {
+        this.bookService = bookService;
+        this.bookImportService = bookImportService;
+        this.bookSuggester = bookSuggester;
+        this.bookStreamRepository = bookStreamRepository;
+        this.objectMapper = objectMapper;
+    }
 
     @Operation(
         summary = "Add a new book",
@@ -44,7 +87,8 @@ public class BookController {
         responses = {
             @ApiResponse(responseCode = "200", description = "Book created successfully",
                 content = @Content(schema = @Schema(implementation = Book.class))),
-            @ApiResponse(responseCode = "400", description = "Invalid input data")
+            @ApiResponse(responseCode = "400", description = "Invalid input data"),
+            @ApiResponse(responseCode = "409", description = "ISBN already in use")
         }
     )
     @PostMapping
@@ -52,18 +96,171 @@ public class BookController {
         return ResponseEntity.ok(bookService.addBook(book));
     }
 
+    @Operation(
+        summary = "Bulk import books from JSON",
+        description = "Imports a JSON array of books. Rows are parsed incrementally, validated one by one " +
+                "and inserted in batches; invalid rows are reported by position and do not stop the import",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Import finished",
+                content = @Content(schema = @Schema(implementation = BookImportResult.class))),
+            @ApiResponse(responseCode = "400", description = "Body is not a JSON array")
+        }
+    )
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BookImportResult> importBooksJson(InputStream body) throws IOException {
+        return ResponseEntity.ok(bookImportService.importJson(body));
+    }
+
+    @Operation(
+        summary = "Bulk import books from CSV",
+        description = "Imports a CSV file whose header names the columns (title, author, category, isbn, " +
+                "publisher, publishedYear). Rows are parsed incrementally and inserted in batches",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Import finished",
+                content = @Content(schema = @Schema(implementation = BookImportResult.class))),
+            @ApiResponse(responseCode = "400", description = "CSV header has no title column")
+        }
+    )
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<BookImportResult> importBooksCsv(InputStream body) throws IOException {
+        return ResponseEntity.ok(bookImportService.importCsv(body));
+    }
+
     @Operation(
         summary = "Get all books",
-        description = "Fetches all books, with optional filtering by title, author, or category",
+        description = "Fetches all books, with optional filtering by title, author, or category. " +
+                "Passing limit or after switches to keyset pagination ordered by id; the cursor for " +
+                "the next page is returned in the X-Next-Cursor header and is absent on the last page.",
         responses = @ApiResponse(responseCode = "200", description = "List of books",
             content = @Content(schema = @Schema(implementation = Book.class)))
     )
     @GetMapping
     public ResponseEntity<List<Book>> getAllBooks(
+            @RequestParam(required = false) String title,
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) String category,
+            @Parameter(description = "Page size (1-1000)", example = "50")
+            @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Opaque cursor from a previous X-Next-Cursor header")
+            @RequestParam(required = false) String after) {
+        if (limit == null && after == null) {
+            return ResponseEntity.ok(bookService.getAllBooks(title, author, category));
+        }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        BookPage page = bookService.getBooksPage(title, author, category, decodeCursor(after), pageSize);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextAfterId() != null) {
+            response.header(NEXT_CURSOR_HEADER, encodeCursor(page.getNextAfterId()));
+        }
+        return response.body(page.getItems());
+    }
+
+    @Operation(
+        summary = "Stream books as NDJSON",
+        description = "Streams every book matching the optional filters as newline-delimited JSON, " +
+                "ordered by id, reading rows from a database cursor as they are written",
+        responses = @ApiResponse(responseCode = "200", description = "One book per line",
+            content = @Content(mediaType = NDJSON, schema = @Schema(implementation = Book.class)))
+    )
+    @GetMapping(value = "/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamBooks(
             @RequestParam(required = false) String title,
             @RequestParam(required = false) String author,
             @RequestParam(required = false) String category) {
-        return ResponseEntity.ok(bookService.getAllBooks(title, author, category));
+        StreamingResponseBody body = out -> {
+            int[] written = {0};
+            try {
+                bookStreamRepository.streamByTitleAuthorCategory(title, author, category, book -> {
+                    writeLine(out, book);
+                    if (++written[0] % STREAM_FLUSH_INTERVAL == 0) {
+                        flush(out);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+
+    @Operation(
+        summary = "Get facet counts",
+        description = "Counts the books matching the optional title, author and category filters by " +
+                "category, author and published year, largest counts first. Counts come from the " +
+                "in-memory search index, so at least one filter needs 3 or more characters",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Facet counts",
+                content = @Content(schema = @Schema(implementation = BookFacets.class))),
+            @ApiResponse(responseCode = "400", description = "Every filter is shorter than 3 characters"),
+            @ApiResponse(responseCode = "503", description = "Search index is still being built")
+        }
+    )
+    @GetMapping("/facets")
+    public ResponseEntity<BookFacets> getFacets(
+            @RequestParam(required = false) String title,
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) String category,
+            @Parameter(description = "Maximum number of values per facet (1-1000)", example = "20")
+            @RequestParam(defaultValue = "20") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return ResponseEntity.ok(bookService.getFacets(title, author, category, limit));
+    }
+
+    @Operation(
+        summary = "Suggest titles and authors",
+        description = "Returns the top completions for a prefix from an in-memory prefix map. " +
+                "Prefixes match the start of a title or author or the start of a later word in it. " +
+                "At most book.suggest.scan-limit (default 5000) keys are scanned per field; when a prefix " +
+                "has more, the completions are the best of that alphabetical window only and the " +
+                "X-Suggest-Truncated header carries the scan limit",
+        responses = @ApiResponse(responseCode = "200", description = "Completions, best first",
+            content = @Content(schema = @Schema(implementation = BookSuggestion.class)))
+    )
+    @GetMapping("/suggest")
+    public ResponseEntity<List<BookSuggestion>> suggest(
+            @Parameter(description = "Text typed so far", example = "effec") @RequestParam String prefix,
+            @Parameter(description = "title, author or all", example = "all")
+            @RequestParam(defaultValue = "all") String field,
+            @Parameter(description = "Maximum number of completions (1-50)", example = "10")
+            @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_SUGGESTIONS);
+        }
+        boolean titles = field.equals("all") || field.equals("title");
+        boolean authors = field.equals("all") || field.equals("author");
+        if (!titles && !authors) {
+            throw new IllegalArgumentException("field must be title, author or all");
+        }
+        BookSuggestions suggestions = bookSuggester.suggest(prefix, titles, authors, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (suggestions.isTruncated()) {
+            response.header(SUGGEST_TRUNCATED_HEADER, String.valueOf(bookSuggester.getScanLimit()));
+        }
+        return response.body(suggestions.getItems());
+    }
+
+    @Operation(
+        summary = "Get books by ID list",
+        description = "Fetches up to 500 books in one call. The result is keyed by id in request order; " +
+                "ids without a book are marked NOT_FOUND",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Lookup results keyed by id"),
+            @ApiResponse(responseCode = "400", description = "Too many ids")
+        }
+    )
+    @GetMapping("/batch")
+    public ResponseEntity<Map<Long, BatchLookupResult<Book>>> getBooksByIds(
+            @Parameter(description = "Comma-separated book ids", example = "1,2,3") @RequestParam List<Long> ids) {
+        if (ids.size() > MAX_BATCH_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_IDS + " ids can be requested at once");
+        }
+        return ResponseEntity.ok(bookService.getBooksByIds(ids));
     }
 
     @Operation(
@@ -72,12 +269,33 @@ public class BookController {
         responses = {
             @ApiResponse(responseCode = "200", description = "Book found",
                 content = @Content(schema = @Schema(implementation = Book.class))),
+            @ApiResponse(responseCode = "304", description = "Book unchanged since the If-None-Match ETag"),
             @ApiResponse(responseCode = "404", description = "Book not found")
         }
     )
     @GetMapping("/{id}")
-    public ResponseEntity<Book> getBookById(@PathVariable Long id) {
-        return ResponseEntity.ok(bookService.getBookById(id));
+    public ResponseEntity<Book> getBookById(@PathVariable Long id, WebRequest request) {
+        Book book = bookService.getBookById(id);
+        String etag = etag(book);
+        if (request.checkNotModified(etag)) {
+            // 304 with the ETag header, no body is serialized
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(book);
+    }
+
+    @Operation(
+        summary = "Get book by ISBN",
+        description = "Fetches a single book by its ISBN; hyphens and spaces are ignored",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Book found",
+                content = @Content(schema = @Schema(implementation = Book.class))),
+            @ApiResponse(responseCode = "404", description = "Book not found")
+        }
+    )
+    @GetMapping("/isbn/{isbn}")
+    public ResponseEntity<Book> getBookByIsbn(@PathVariable String isbn) {
+        return ResponseEntity.ok(bookService.getBookByIsbn(isbn));
     }
 
     @Operation(
@@ -102,12 +320,19 @@ public class BookController {
         responses = {
             @ApiResponse(responseCode = "200", description = "Book updated successfully",
                 content = @Content(schema = @Schema(implementation = Book.class))),
-            @ApiResponse(responseCode = "404", description = "Book not found")
+            @ApiResponse(responseCode = "404", description = "Book not found"),
+            @ApiResponse(responseCode = "409", description = "ISBN already in use"),
+            @ApiResponse(responseCode = "412", description = "Book changed since the If-Match ETag")
         }
     )
     @PutMapping("/{id}")
-    public ResponseEntity<Book> updateBook(@PathVariable Long id, @RequestBody Book updatedBook) {
-        return ResponseEntity.ok(bookService.updateBook(id, updatedBook));
+    public ResponseEntity<Book> updateBook(
+            @PathVariable Long id,
+            @RequestBody Book updatedBook,
+            @Parameter(description = "ETag of the version being replaced")
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        Book savedBook = bookService.updateBook(id, updatedBook, parseIfMatch(ifMatch));
+        return ResponseEntity.ok().eTag(etag(savedBook)).body(savedBook);
     }
 
     @Operation(
@@ -123,4 +348,58 @@ public class BookController {
         bookService.deleteBook(id);
         return ResponseEntity.noContent().build();
     }
+
+    private void writeLine(OutputStream out, Book book) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(book));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void flush(OutputStream out) {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String etag(Book book) {
+        return "\"" + book.getVersion() + "\"";
+    }
+
+    /**
+     * Returns the version named by a strong If-Match ETag, or null for a missing header or "*".
+     */
+    private static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String value = ifMatch.trim();
+        if (value.startsWith("W/") || value.length() < 2 || !value.startsWith("\"") || !value.endsWith("\"")) {
+            throw new PreconditionFailedException("If-Match must be a single strong ETag");
+        }
+        try {
+            return Long.valueOf(value.substring(1, value.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException("Unknown ETag: " + value);
+        }
+    }
+
+    private static String encodeCursor(Long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Long decodeCursor(String cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
 }
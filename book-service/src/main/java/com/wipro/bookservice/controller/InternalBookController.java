@@ -0,0 +1,30 @@
+package com.wipro.bookservice.controller;
+
+import com.wipro.bookservice.service.BookService;
+import io.swagger.v3.oas.annotations.Hidden;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Instance-to-instance endpoints. Not routed by the api-gateway.
+ */
+@Hidden
+@RestController
+@RequestMapping("/internal/books")
+public class InternalBookController {
+
+    private final BookService bookService;
+
+    public InternalBookController(BookService bookService) {
+        this.bookService = bookService;
+    }
+
+    @PostMapping("/{id}/invalidate")
+    public ResponseEntity<Void> invalidate(@PathVariable Long id) {
+        bookService.refreshFromPeer(id);
+        return ResponseEntity.noContent().build();
+    }
+}
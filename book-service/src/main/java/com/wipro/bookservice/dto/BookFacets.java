@@ -0,0 +1,53 @@
+package com.wipro.bookservice.dto;
+
+import java.util.Map;
+
+public class BookFacets {
+    private long total;
+    private Map<String, Long> categories;
+    private Map<String, Long> authors;
+    private Map<Integer, Long> publishedYears;
+
+    public BookFacets() {
+    }
+
+    public BookFacets(long total, Map<String, Long> categories, Map<String, Long> authors,
+                      Map<Integer, Long> publishedYears) {
+        this.total = total;
+        this.categories = categories;
+        this.authors = authors;
+        this.publishedYears = publishedYears;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public Map<String, Long> getCategories() {
+        return categories;
+    }
+
+    public void setCategories(Map<String, Long> categories) {
+        this.categories = categories;
+    }
+
+    public Map<String, Long> getAuthors() {
+        return authors;
+    }
+
+    public void setAuthors(Map<String, Long> authors) {
+        this.authors = authors;
+    }
+
+    public Map<Integer, Long> getPublishedYears() {
+        return publishedYears;
+    }
+
+    public void setPublishedYears(Map<Integer, Long> publishedYears) {
+        this.publishedYears = publishedYears;
+    }
+}
@@ -0,0 +1,30 @@
+package com.wipro.bookservice.dto;
+
+public class BookImportError {
+    private long row;
+    private String message;
+
+    public BookImportError() {
+    }
+
+    public BookImportError(long row, String message) {
+        this.row = row;
+        this.message = message;
+    }
+
+    public long getRow() {
+        return row;
+    }
+
+    public void setRow(long row) {
+        this.row = row;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
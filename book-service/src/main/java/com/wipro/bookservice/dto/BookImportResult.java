@@ -0,0 +1,52 @@
+package com.wipro.bookservice.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BookImportResult {
+    private long totalRows;
+    private long imported;
+    private long failed;
+    private boolean errorsTruncated;
+    private List<BookImportError> errors = new ArrayList<>();
+
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    public void setTotalRows(long totalRows) {
+        this.totalRows = totalRows;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public boolean isErrorsTruncated() {
+        return errorsTruncated;
+    }
+
+    public void setErrorsTruncated(boolean errorsTruncated) {
+        this.errorsTruncated = errorsTruncated;
+    }
+
+    public List<BookImportError> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<BookImportError> errors) {
+        this.errors = errors;
+    }
+}
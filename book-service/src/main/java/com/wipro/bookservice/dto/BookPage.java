@@ -0,0 +1,34 @@
+package com.wipro.bookservice.dto;
+
+import com.wipro.bookservice.entity.Book;
+
+import java.util.List;
+
+public class BookPage {
+    private List<Book> items;
+    private Long nextAfterId;
+
+    public BookPage() {
+    }
+
+    public BookPage(List<Book> items, Long nextAfterId) {
+        this.items = items;
+        this.nextAfterId = nextAfterId;
+    }
+
+    public List<Book> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Book> items) {
+        this.items = items;
+    }
+
+    public Long getNextAfterId() {
+        return nextAfterId;
+    }
+
+    public void setNextAfterId(Long nextAfterId) {
+        this.nextAfterId = nextAfterId;
+    }
+}
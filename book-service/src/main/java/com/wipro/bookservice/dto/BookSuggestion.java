@@ -0,0 +1,40 @@
+package com.wipro.bookservice.dto;
+
+public class BookSuggestion {
+    private String text;
+    private String field;
+    private int weight;
+
+    public BookSuggestion() {
+    }
+
+    public BookSuggestion(String text, String field, int weight) {
+        this.text = text;
+        this.field = field;
+        this.weight = weight;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public void setField(String field) {
+        this.field = field;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public void setWeight(int weight) {
+        this.weight = weight;
+    }
+}
@@ -0,0 +1,32 @@
+package com.wipro.bookservice.dto;
+
+import java.util.List;
+
+public class BookSuggestions {
+    private List<BookSuggestion> items;
+    private boolean truncated;
+
+    public BookSuggestions() {
+    }
+
+    public BookSuggestions(List<BookSuggestion> items, boolean truncated) {
+        this.items = items;
+        this.truncated = truncated;
+    }
+
+    public List<BookSuggestion> getItems() {
+        return items;
+    }
+
+    public void setItems(List<BookSuggestion> items) {
+        this.items = items;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+}
@@ -1,16 +1,24 @@
 package com.wipro.bookservice.entity;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 
 @Entity
-@Table(name = "books")
+@Table(name = "books", uniqueConstraints = @UniqueConstraint(name = "uk_books_isbn", columnNames = "isbn"))
 public class Book {
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // A pooled sequence (a table on MySQL) instead of IDENTITY so Hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
     private String title;
     private String author;
@@ -18,6 +26,9 @@ public class Book {
     private String isbn;
     private String publisher;
     private int publishedYear;
+    @Version
+    @Column(columnDefinition = "bigint not null default 0")
+    private long version;
 
     // Getters and Setters
     public Long getId() { return id; }
@@ -34,4 +45,6 @@ public class Book {
     public void setPublisher(String publisher) { this.publisher = publisher; }
     public int getPublishedYear() { return publishedYear; }
     public void setPublishedYear(int publishedYear) { this.publishedYear = publishedYear; }
-}
\ No newline at end of file
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+}
@@ -0,0 +1,17 @@
+package com.wipro.bookservice.entity;
+
+import com.wipro.common.outbox.AbstractOutboxEvent;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * A notification of book-service waiting in the book_outbox table, see {@link AbstractOutboxEvent}.
+ */
+@Entity
+@Table(name = "book_outbox", indexes = {
+        @Index(name = "idx_book_outbox_aggregate", columnList = "aggregateType, aggregateId, id"),
+        @Index(name = "idx_book_outbox_next_attempt", columnList = "nextAttemptAt, id")
+})
+public class OutboxEvent extends AbstractOutboxEvent {
+}
@@ -1,11 +1,14 @@
 package com.wipro.bookservice.repository;
 
 import com.wipro.bookservice.entity.Book;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface BookRepository extends JpaRepository<Book, Long> {
@@ -13,4 +16,20 @@ public interface BookRepository extends JpaRepository<Book, Long> {
            "AND (:author IS NULL OR b.author LIKE %:author%) " +
            "AND (:category IS NULL OR b.category LIKE %:category%)")
     List<Book> findByTitleAuthorCategory(String title, String author, String category);
-}
\ No newline at end of file
+
+    @Query("SELECT b FROM Book b WHERE b.id > :afterId " +
+           "AND (:title IS NULL OR b.title LIKE %:title%) " +
+           "AND (:author IS NULL OR b.author LIKE %:author%) " +
+           "AND (:category IS NULL OR b.category LIKE %:category%) ORDER BY b.id")
+    List<Book> findPageByTitleAuthorCategory(Long afterId, String title, String author, String category, Pageable pageable);
+
+    List<Book> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    Optional<Book> findByIsbn(String isbn);
+
+    @Query("SELECT b.isbn FROM Book b WHERE b.isbn IN :isbns")
+    List<String> findExistingIsbns(Collection<String> isbns);
+
+    @Query("SELECT b.id, b.isbn FROM Book b WHERE b.id > :afterId ORDER BY b.id")
+    List<Object[]> findIsbnPage(Long afterId, Pageable pageable);
+}
@@ -0,0 +1,69 @@
+package com.wipro.bookservice.repository;
+
+import com.wipro.bookservice.entity.Book;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads books through a forward-only JDBC cursor so callers can handle one row at a time
+ * instead of materializing the whole result as entities.
+ */
+@Repository
+public class BookStreamRepository {
+    // Makes MySQL Connector/J stream rows from the server instead of buffering the result set
+    private static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BookStreamRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void streamByTitleAuthorCategory(String title, String author, String category, Consumer<Book> consumer) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT id, title, author, category, isbn, publisher, published_year, version FROM books WHERE 1 = 1");
+        List<String> args = new ArrayList<>();
+        appendLike(sql, args, "title", title);
+        appendLike(sql, args, "author", author);
+        appendLike(sql, args, "category", category);
+        sql.append(" ORDER BY id");
+
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(STREAMING_FETCH_SIZE);
+            for (int i = 0; i < args.size(); i++) {
+                statement.setString(i + 1, args.get(i));
+            }
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(mapRow(rs)));
+    }
+
+    private static void appendLike(StringBuilder sql, List<String> args, String column, String value) {
+        if (value != null) {
+            sql.append(" AND ").append(column).append(" LIKE ?");
+            args.add("%" + value + "%");
+        }
+    }
+
+    static Book mapRow(ResultSet rs) throws SQLException {
+        Book book = new Book();
+        book.setId(rs.getLong("id"));
+        book.setTitle(rs.getString("title"));
+        book.setAuthor(rs.getString("author"));
+        book.setCategory(rs.getString("category"));
+        book.setIsbn(rs.getString("isbn"));
+        book.setPublisher(rs.getString("publisher"));
+        book.setPublishedYear(rs.getInt("published_year"));
+        book.setVersion(rs.getLong("version"));
+        return book;
+    }
+}
@@ -0,0 +1,9 @@
+package com.wipro.bookservice.repository;
+
+import com.wipro.common.outbox.OutboxEventStore;
+import com.wipro.bookservice.entity.OutboxEvent;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboxEventRepository extends OutboxEventStore<OutboxEvent> {
+}
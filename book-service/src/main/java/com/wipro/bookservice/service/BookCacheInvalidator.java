@@ -0,0 +1,64 @@
+package com.wipro.bookservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Tells the other book-service instances registered in Eureka that a book changed, so they
+ * drop it from their cache and re-index it. Delivery is best effort and asynchronous; a peer
+ * that misses a message serves the stale entry until its cache TTL expires.
+ */
+@Component
+public class BookCacheInvalidator {
+    private static final Logger logger = LoggerFactory.getLogger(BookCacheInvalidator.class);
+
+    private final DiscoveryClient discoveryClient;
+    private final ObjectProvider<Registration> registration;
+    private final RestTemplate restTemplate;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "book-cache-invalidator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public BookCacheInvalidator(DiscoveryClient discoveryClient, ObjectProvider<Registration> registration,
+                                RestTemplate restTemplate) {
+        this.discoveryClient = discoveryClient;
+        this.registration = registration;
+        this.restTemplate = restTemplate;
+    }
+
+    public void publish(Long bookId) {
+        executor.execute(() -> {
+            Registration self = registration.getIfAvailable();
+            if (self == null) {
+                return;
+            }
+            for (ServiceInstance instance : discoveryClient.getInstances(self.getServiceId())) {
+                if (self.getInstanceId() != null && self.getInstanceId().equals(instance.getInstanceId())) {
+                    continue;
+                }
+                try {
+                    restTemplate.postForLocation(instance.getUri() + "/internal/books/{id}/invalidate", null, bookId);
+                } catch (Exception e) {
+                    logger.warn("Failed to invalidate book {} on {}: {}", bookId, instance.getUri(), e.getMessage());
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,75 @@
+package com.wipro.bookservice.service;
+
+import com.wipro.bookservice.dto.BookFacets;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Catalog-wide book counts per category, author and published year. {@link BookSearchIndex}
+ * keeps them in step with its documents, so they change with every indexed add, update and
+ * delete and answer unfiltered facet queries without touching the database. Books without a
+ * category or author are left out of that facet.
+ */
+@Component
+public class BookFacetCounts {
+    private final AtomicLong total = new AtomicLong();
+    private final Map<String, Long> categories = new ConcurrentHashMap<>();
+    private final Map<String, Long> authors = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> publishedYears = new ConcurrentHashMap<>();
+
+    void add(String category, String author, int publishedYear) {
+        total.incrementAndGet();
+        increment(categories, category);
+        increment(authors, author);
+        increment(publishedYears, publishedYear);
+    }
+
+    void remove(String category, String author, int publishedYear) {
+        total.decrementAndGet();
+        decrement(categories, category);
+        decrement(authors, author);
+        decrement(publishedYears, publishedYear);
+    }
+
+    public BookFacets snapshot(int limit) {
+        return new BookFacets(total.get(), top(categories, limit), top(authors, limit), top(publishedYears, limit));
+    }
+
+    static <K> Map<K, Long> top(Map<K, Long> counts, int limit) {
+        // Bounded min-heap keeps the cost at O(n log limit) for large author maps
+        PriorityQueue<Map.Entry<K, Long>> heap = new PriorityQueue<>(Map.Entry.comparingByValue());
+        for (Map.Entry<K, Long> entry : counts.entrySet()) {
+            heap.offer(Map.entry(entry.getKey(), entry.getValue()));
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+        List<Map.Entry<K, Long>> entries = new ArrayList<>(heap);
+        entries.sort(Map.Entry.<K, Long>comparingByValue(Comparator.reverseOrder()));
+        Map<K, Long> top = new LinkedHashMap<>();
+        for (Map.Entry<K, Long> entry : entries) {
+            top.put(entry.getKey(), entry.getValue());
+        }
+        return top;
+    }
+
+    private static <K> void increment(Map<K, Long> counts, K key) {
+        if (key != null) {
+            counts.merge(key, 1L, Long::sum);
+        }
+    }
+
+    private static <K> void decrement(Map<K, Long> counts, K key) {
+        if (key != null) {
+            counts.computeIfPresent(key, (k, count) -> count <= 1 ? null : count - 1);
+        }
+    }
+}
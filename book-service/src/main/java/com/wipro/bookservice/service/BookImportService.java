@@ -0,0 +1,269 @@
+package com.wipro.bookservice.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wipro.bookservice.dto.BookImportError;
+import com.wipro.bookservice.dto.BookImportResult;
+import com.wipro.bookservice.entity.Book;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Imports publisher feeds row by row. Rows are parsed incrementally from the request body,
+ * validated individually and written in batches of {@code book.import.batch-size}; the whole
+ * import sends a single summary notification.
+ */
+@Service
+public class BookImportService {
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final BookService bookService;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+
+    public BookImportService(BookService bookService, ObjectMapper objectMapper,
+                             @Value("${book.import.batch-size:500}") int batchSize) {
+        this.bookService = bookService;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+    }
+
+    public BookImportResult importJson(InputStream in) throws IOException {
+        ImportRun run = new ImportRun();
+        try (JsonParser parser = objectMapper.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Expected a JSON array of books");
+            }
+            long row = 0;
+            try {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    row++;
+                    JsonNode node = objectMapper.readTree(parser);
+                    try {
+                        run.accept(row, objectMapper.treeToValue(node, Book.class));
+                    } catch (JsonProcessingException e) {
+                        run.reject(row, "Invalid book: " + e.getOriginalMessage());
+                    } catch (IllegalArgumentException e) {
+                        run.reject(row, "Invalid book: " + e.getMessage());
+                    }
+                }
+            } catch (IOException e) {
+                run.reject(row, "Malformed JSON, import stopped: " + e.getMessage());
+            }
+        }
+        return run.finish();
+    }
+
+    public BookImportResult importCsv(InputStream in) throws IOException {
+        ImportRun run = new ImportRun();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            List<String> header = readRecord(reader);
+            if (header == null) {
+                return run.finish();
+            }
+            Map<String, Integer> columns = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim().replace("_", "").toLowerCase(Locale.ROOT), i);
+            }
+            if (!columns.containsKey("title")) {
+                throw new IllegalArgumentException("CSV header must contain a title column");
+            }
+            long row = 0;
+            List<String> values;
+            while ((values = readRecord(reader)) != null) {
+                row++;
+                try {
+                    run.accept(row, toBook(columns, values));
+                } catch (IllegalArgumentException e) {
+                    run.reject(row, e.getMessage());
+                }
+            }
+        }
+        return run.finish();
+    }
+
+    private static Book toBook(Map<String, Integer> columns, List<String> values) {
+        Book book = new Book();
+        book.setTitle(column(columns, values, "title"));
+        book.setAuthor(column(columns, values, "author"));
+        book.setCategory(column(columns, values, "category"));
+        book.setIsbn(column(columns, values, "isbn"));
+        book.setPublisher(column(columns, values, "publisher"));
+        String year = column(columns, values, "publishedyear");
+        if (year != null && !year.isBlank()) {
+            try {
+                book.setPublishedYear(Integer.parseInt(year.trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("publishedYear is not a number: " + year);
+            }
+        }
+        return book;
+    }
+
+    private static String column(Map<String, Integer> columns, List<String> values, String name) {
+        Integer index = columns.get(name);
+        return index == null || index >= values.size() ? null : values.get(index);
+    }
+
+    /**
+     * Reads one RFC 4180 record, following quoted fields across line breaks. Returns null at
+     * end of input.
+     */
+    private static List<String> readRecord(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        while (line != null && line.isEmpty()) {
+            line = reader.readLine();
+        }
+        if (line == null) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (!quoted) {
+                break;
+            }
+            line = reader.readLine();
+            if (line == null) {
+                break;
+            }
+            field.append('\n');
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String validate(Book book) {
+        if (book.getTitle() == null || book.getTitle().isBlank()) {
+            return "title is required";
+        }
+        if (book.getAuthor() == null || book.getAuthor().isBlank()) {
+            return "author is required";
+        }
+        int maxYear = Year.now().getValue() + 1;
+        if (book.getPublishedYear() < 0 || book.getPublishedYear() > maxYear) {
+            return "publishedYear must be between 0 and " + maxYear;
+        }
+        return null;
+    }
+
+    private class ImportRun {
+        private final BookImportResult result = new BookImportResult();
+        private final List<Book> batch = new ArrayList<>(batchSize);
+        private final List<Long> batchRows = new ArrayList<>(batchSize);
+
+        void accept(long row, Book book) {
+            result.setTotalRows(result.getTotalRows() + 1);
+            String error = validate(book);
+            if (error != null) {
+                recordError(row, error);
+                return;
+            }
+            book.setId(null);
+            book.setVersion(0);
+            book.setIsbn(BookService.normalizeIsbn(book.getIsbn()));
+            batch.add(book);
+            batchRows.add(row);
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void reject(long row, String message) {
+            result.setTotalRows(result.getTotalRows() + 1);
+            recordError(row, message);
+        }
+
+        BookImportResult finish() {
+            flush();
+            bookService.notifyBooksImported(result.getImported(), result.getFailed());
+            return result;
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<Book> accepted = new ArrayList<>(batch.size());
+            List<Long> acceptedRows = new ArrayList<>(batch.size());
+            try {
+                Set<String> batchIsbns = new HashSet<>();
+                for (Book book : batch) {
+                    if (book.getIsbn() != null) {
+                        batchIsbns.add(book.getIsbn());
+                    }
+                }
+                Set<String> existingIsbns = bookService.findExistingIsbns(batchIsbns);
+                Set<String> seenIsbns = new HashSet<>();
+                for (int i = 0; i < batch.size(); i++) {
+                    String isbn = batch.get(i).getIsbn();
+                    if (isbn != null && existingIsbns.contains(isbn)) {
+                        recordError(batchRows.get(i), "ISBN " + isbn + " already exists");
+                    } else if (isbn != null && !seenIsbns.add(isbn)) {
+                        recordError(batchRows.get(i), "ISBN " + isbn + " appears more than once in the feed");
+                    } else {
+                        accepted.add(batch.get(i));
+                        acceptedRows.add(batchRows.get(i));
+                    }
+                }
+                if (!accepted.isEmpty()) {
+                    bookService.addBooks(accepted);
+                    result.setImported(result.getImported() + accepted.size());
+                }
+            } catch (Exception e) {
+                for (Long row : acceptedRows) {
+                    recordError(row, "Batch insert failed: " + e.getMessage());
+                }
+            }
+            batch.clear();
+            batchRows.clear();
+        }
+
+        private void recordError(long row, String message) {
+            result.setFailed(result.getFailed() + 1);
+            if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+                result.getErrors().add(new BookImportError(row, message));
+            } else {
+                result.setErrorsTruncated(true);
+            }
+        }
+    }
+}
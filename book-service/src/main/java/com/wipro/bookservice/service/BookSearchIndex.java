@@ -0,0 +1,324 @@
+package com.wipro.bookservice.service;
+
+import com.wipro.bookservice.dto.BookFacets;
+import com.wipro.bookservice.entity.Book;
+import com.wipro.bookservice.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory trigram index over the title, author and category of every book.
+ * <p>
+ * A filter value matches the same rows as {@code LIKE %value%} (case-insensitive): trigram
+ * postings narrow the candidates and every candidate is verified against the indexed text.
+ * Filters shorter than three characters are only verified, so at least one filter must be
+ * three characters or longer for the index to answer; otherwise the caller falls back to the
+ * database query.
+ * <p>
+ * Consistency: the index is local to this instance. {@link BookService} applies a write after
+ * the repository call has committed, so a search issued after a write returns on this instance
+ * sees that write. Writes made through other replicas are re-read from the database when
+ * their invalidation message arrives ({@link BookCacheInvalidator}), so they become visible
+ * here shortly after, or on the next restart if the message is lost. The index only answers
+ * queries after the startup rebuild has finished; writes that arrive during the rebuild take
+ * precedence over the rows it reads.
+ */
+@Component
+public class BookSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(BookSearchIndex.class);
+    static final int GRAM_SIZE = 3;
+
+    enum Field { TITLE, AUTHOR, CATEGORY }
+
+    private final BookRepository bookRepository;
+    private final BookFacetCounts facetCounts;
+    private final BookSuggester suggester;
+    private final int rebuildBatchSize;
+
+    private final Map<Long, IndexedBook> documents = new ConcurrentHashMap<>();
+    private final Map<Field, Map<String, Set<Long>>> postings = new EnumMap<>(Field.class);
+    private final Set<Long> writtenDuringRebuild = ConcurrentHashMap.newKeySet();
+    private volatile boolean rebuilding;
+    private volatile boolean ready;
+
+    public BookSearchIndex(BookRepository bookRepository, BookFacetCounts facetCounts, BookSuggester suggester,
+                           @Value("${book.search.index.rebuild-batch-size:1000}") int rebuildBatchSize) {
+        this.bookRepository = bookRepository;
+        this.facetCounts = facetCounts;
+        this.suggester = suggester;
+        this.rebuildBatchSize = rebuildBatchSize;
+        for (Field field : Field.values()) {
+            postings.put(field, new ConcurrentHashMap<>());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        rebuilding = true;
+        try {
+            long lastId = 0L;
+            List<Book> page;
+            do {
+                page = bookRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, rebuildBatchSize));
+                for (Book book : page) {
+                    synchronized (this) {
+                        if (!writtenDuringRebuild.contains(book.getId())) {
+                            index(book);
+                        }
+                    }
+                    lastId = book.getId();
+                }
+            } while (page.size() == rebuildBatchSize);
+            ready = true;
+            logger.info("Book search index built with {} books in {} ms", documents.size(), System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            logger.error("Failed to build book search index, searches will use the database: {}", e.getMessage());
+        } finally {
+            rebuilding = false;
+            writtenDuringRebuild.clear();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public synchronized void put(Book book) {
+        if (rebuilding) {
+            writtenDuringRebuild.add(book.getId());
+        }
+        index(book);
+    }
+
+    public synchronized void remove(Long id) {
+        if (rebuilding) {
+            writtenDuringRebuild.add(id);
+        }
+        IndexedBook previous = documents.remove(id);
+        if (previous != null) {
+            unlink(previous);
+        }
+    }
+
+    /**
+     * Returns the ids of the books matching every non-null filter, best match first, or an
+     * empty optional when the index cannot answer the query.
+     */
+    public Optional<List<Long>> search(String title, String author, String category) {
+        return match(title, author, category).map(scores -> {
+            List<Long> ranked = new ArrayList<>(scores.keySet());
+            ranked.sort(Comparator.<Long>comparingInt(scores::get).reversed().thenComparing(Comparator.naturalOrder()));
+            return ranked;
+        });
+    }
+
+    /**
+     * Counts the books matching the filters by category, author and published year, or returns
+     * an empty optional when the index cannot answer the query. Without filters the
+     * precomputed catalog-wide counts are returned.
+     */
+    public Optional<BookFacets> facets(String title, String author, String category, int limit) {
+        if (title == null && author == null && category == null) {
+            return ready ? Optional.of(facetCounts.snapshot(limit)) : Optional.empty();
+        }
+        return match(title, author, category).map(scores -> {
+            Map<String, Long> categories = new HashMap<>();
+            Map<String, Long> authors = new HashMap<>();
+            Map<Integer, Long> publishedYears = new HashMap<>();
+            long total = 0;
+            for (Long id : scores.keySet()) {
+                IndexedBook document = documents.get(id);
+                if (document == null) {
+                    continue;
+                }
+                total++;
+                if (document.categoryValue() != null) {
+                    categories.merge(document.categoryValue(), 1L, Long::sum);
+                }
+                if (document.authorValue() != null) {
+                    authors.merge(document.authorValue(), 1L, Long::sum);
+                }
+                publishedYears.merge(document.publishedYear(), 1L, Long::sum);
+            }
+            return new BookFacets(total, BookFacetCounts.top(categories, limit), BookFacetCounts.top(authors, limit),
+                    BookFacetCounts.top(publishedYears, limit));
+        });
+    }
+
+    private Optional<Map<Long, Integer>> match(String title, String author, String category) {
+        Map<Field, String> filters = new EnumMap<>(Field.class);
+        putFilter(filters, Field.TITLE, title);
+        putFilter(filters, Field.AUTHOR, author);
+        putFilter(filters, Field.CATEGORY, category);
+        if (!ready || filters.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Set<Long> candidates = null;
+        for (Map.Entry<Field, String> filter : filters.entrySet()) {
+            if (filter.getValue().length() >= GRAM_SIZE) {
+                candidates = intersect(candidates, filter.getKey(), filter.getValue());
+                if (candidates.isEmpty()) {
+                    return Optional.of(Map.of());
+                }
+            }
+        }
+        if (candidates == null) {
+            return Optional.empty();
+        }
+
+        Map<Long, Integer> scores = new HashMap<>();
+        for (Long id : candidates) {
+            IndexedBook document = documents.get(id);
+            if (document == null) {
+                continue;
+            }
+            int score = 0;
+            for (Map.Entry<Field, String> filter : filters.entrySet()) {
+                int fieldScore = score(document.text(filter.getKey()), filter.getValue());
+                if (fieldScore == 0) {
+                    score = 0;
+                    break;
+                }
+                score += fieldScore;
+            }
+            if (score > 0) {
+                scores.put(id, score);
+            }
+        }
+        return Optional.of(scores);
+    }
+
+    private void putFilter(Map<Field, String> filters, Field field, String value) {
+        if (value != null) {
+            filters.put(field, normalize(value));
+        }
+    }
+
+    private Set<Long> intersect(Set<Long> candidates, Field field, String value) {
+        List<Set<Long>> lists = new ArrayList<>();
+        for (String gram : grams(value)) {
+            Set<Long> posting = postings.get(field).get(gram);
+            if (posting == null) {
+                return Set.of();
+            }
+            lists.add(posting);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+
+        Set<Long> result = new HashSet<>();
+        for (Long id : lists.get(0)) {
+            if (candidates == null || candidates.contains(id)) {
+                result.add(id);
+            }
+        }
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+            result.retainAll(lists.get(i));
+        }
+        return result;
+    }
+
+    private static int score(String text, String value) {
+        if (text == null) {
+            return 0;
+        }
+        if (text.equals(value)) {
+            return 4;
+        }
+        if (text.startsWith(value)) {
+            return 3;
+        }
+        int index = text.indexOf(value);
+        if (index < 0) {
+            return 0;
+        }
+        while (index >= 0) {
+            if (!Character.isLetterOrDigit(text.charAt(index - 1))) {
+                return 2;
+            }
+            index = text.indexOf(value, index + 1);
+        }
+        return 1;
+    }
+
+    private void index(Book book) {
+        IndexedBook document = new IndexedBook(book.getId(), normalize(book.getTitle()),
+                normalize(book.getAuthor()), normalize(book.getCategory()),
+                book.getTitle(), book.getAuthor(), book.getCategory(), book.getPublishedYear());
+        IndexedBook previous = documents.put(book.getId(), document);
+        if (previous != null) {
+            unlink(previous);
+        }
+        facetCounts.add(document.categoryValue(), document.authorValue(), document.publishedYear());
+        suggester.add(document.titleValue(), document.authorValue());
+        for (Field field : Field.values()) {
+            String text = document.text(field);
+            if (text != null) {
+                for (String gram : grams(text)) {
+                    postings.get(field).computeIfAbsent(gram, key -> ConcurrentHashMap.newKeySet()).add(document.id());
+                }
+            }
+        }
+    }
+
+    private void unlink(IndexedBook document) {
+        facetCounts.remove(document.categoryValue(), document.authorValue(), document.publishedYear());
+        suggester.remove(document.titleValue(), document.authorValue());
+        for (Field field : Field.values()) {
+            String text = document.text(field);
+            if (text != null) {
+                for (String gram : grams(text)) {
+                    postings.get(field).computeIfPresent(gram, (key, ids) -> {
+                        ids.remove(document.id());
+                        return ids.isEmpty() ? null : ids;
+                    });
+                }
+            }
+        }
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_SIZE <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM_SIZE));
+        }
+        return grams;
+    }
+
+    static String normalize(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Normalized text used for matching, plus the original values used for facet counts and
+     * suggestions.
+     */
+    record IndexedBook(Long id, String title, String author, String category,
+                       String titleValue, String authorValue, String categoryValue, int publishedYear) {
+        String text(Field field) {
+            return switch (field) {
+                case TITLE -> title;
+                case AUTHOR -> author;
+                case CATEGORY -> category;
+            };
+        }
+    }
+}
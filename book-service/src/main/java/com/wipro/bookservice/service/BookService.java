@@ -1,65 +1,320 @@
 package com.wipro.bookservice.service;
 
-import com.wipro.bookservice.dto.NotificationRequest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wipro.bookservice.dto.BookFacets;
+import com.wipro.bookservice.dto.BookPage;
 import com.wipro.bookservice.entity.Book;
 import com.wipro.bookservice.repository.BookRepository;
 import com.wipro.bookservice.exception.BookNotFoundException;
+import com.wipro.bookservice.exception.DuplicateIsbnException;
+import com.wipro.bookservice.exception.FacetsUnavailableException;
+import com.wipro.bookservice.exception.PreconditionFailedException;
+import com.wipro.common.dto.BatchLookupResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class BookService {
+    private static final int ID_LOOKUP_CHUNK_SIZE = 1000;
+
     private final BookRepository bookRepository;
-    private final RestTemplate restTemplate;
-    private final String notificationServiceUrl = "http://localhost:8085/notifications";
+    private final BookSearchIndex bookSearchIndex;
+    private final BookCacheInvalidator bookCacheInvalidator;
+    private final IsbnBloomFilter isbnBloomFilter;
+    private final OutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final Cache<Long, Book> bookCache;
 
-    public BookService(BookRepository bookRepository, RestTemplate restTemplate) {
+    public BookService(BookRepository bookRepository, BookSearchIndex bookSearchIndex,
+                       BookCacheInvalidator bookCacheInvalidator, IsbnBloomFilter isbnBloomFilter,
+                       OutboxService outboxService,
+                       TransactionTemplate transactionTemplate, EntityManager entityManager,
+                       MeterRegistry meterRegistry,
+                       @Value("${book.cache.maximum-size:10000}") long cacheMaximumSize,
+                       @Value("${book.cache.ttl:10m}") Duration cacheTtl) {
         this.bookRepository = bookRepository;
-        this.restTemplate = restTemplate;
+        this.bookSearchIndex = bookSearchIndex;
+        this.bookCacheInvalidator = bookCacheInvalidator;
+        this.isbnBloomFilter = isbnBloomFilter;
+        this.outboxService = outboxService;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.bookCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaximumSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, bookCache, "books");
     }
 
-    private void sendNotification(String message) {
-        try {
-            restTemplate.postForObject(notificationServiceUrl, new NotificationRequest(message), Void.class);
-        } catch (Exception e) {
-            // Log the error, but don't fail the main operation
-            System.err.println("Failed to send notification: " + e.getMessage());
+    public Book addBook(Book book) {
+        book.setIsbn(normalizeIsbn(book.getIsbn()));
+        ensureIsbnAvailable(book.getIsbn(), null);
+        // The book and its notification event commit together
+        Book savedBook = transactionTemplate.execute(status -> {
+            Book saved = bookRepository.save(book);
+            outboxService.record("Book", saved.getId(), "Book added: " + saved.getTitle());
+            return saved;
+        });
+        trackIsbn(savedBook);
+        bookSearchIndex.put(savedBook);
+        return savedBook;
+    }
+
+    /**
+     * Inserts the books in one transaction using JDBC batching, without per-book notifications.
+     * The persistence context is cleared afterwards so long imports do not accumulate entities.
+     * ISBNs are expected to be normalized and checked with {@link #findExistingIsbns}.
+     */
+    public List<Book> addBooks(List<Book> books) {
+        List<Book> savedBooks = transactionTemplate.execute(status -> {
+            List<Book> saved = bookRepository.saveAll(books);
+            entityManager.flush();
+            return saved;
+        });
+        entityManager.clear();
+        for (Book book : savedBooks) {
+            trackIsbn(book);
+            bookSearchIndex.put(book);
         }
+        return savedBooks;
     }
 
-    public Book addBook(Book book) {
-        Book savedBook = bookRepository.save(book);
-        sendNotification("Book added: " + book.getTitle());
-        return savedBook;
+    /**
+     * Returns the given ISBNs that are already stored, with a single query. The Bloom filter is
+     * not consulted: it only knows the ISBNs this instance has seen, and one ISBN it missed
+     * would fail the whole import batch on uk_books_isbn.
+     */
+    public Set<String> findExistingIsbns(Collection<String> isbns) {
+        return isbns.isEmpty() ? Set.of() : new HashSet<>(bookRepository.findExistingIsbns(isbns));
+    }
+
+    public void notifyBooksImported(long imported, long failed) {
+        transactionTemplate.executeWithoutResult(status -> outboxService.record("BookImport", 0L,
+                "Book import finished: " + imported + " imported, " + failed + " failed"));
     }
 
     public List<Book> getAllBooks(String title, String author, String category) {
-        return bookRepository.findByTitleAuthorCategory(title, author, category);
+        return bookSearchIndex.search(title, author, category)
+                .map(this::findAllByIdInOrder)
+                .orElseGet(() -> bookRepository.findByTitleAuthorCategory(title, author, category));
+    }
+
+    public BookPage getBooksPage(String title, String author, String category, Long afterId, int limit) {
+        long after = afterId == null ? 0L : afterId;
+        List<Book> books = bookSearchIndex.search(title, author, category)
+                .map(ids -> findAllByIdInOrder(nextIds(ids, after, limit + 1)))
+                .orElseGet(() -> bookRepository.findPageByTitleAuthorCategory(
+                        after, title, author, category, PageRequest.of(0, limit + 1)));
+        if (books.size() <= limit) {
+            return new BookPage(books, null);
+        }
+        List<Book> items = books.subList(0, limit);
+        return new BookPage(items, items.get(items.size() - 1).getId());
+    }
+
+    /**
+     * Facets are answered by the search index only: the maintained counts without filters, the
+     * matching documents otherwise. Queries the index cannot answer are rejected instead of
+     * falling back to GROUP BY scans over the whole table.
+     */
+    public BookFacets getFacets(String title, String author, String category, int limit) {
+        if (!bookSearchIndex.isReady()) {
+            throw new FacetsUnavailableException("Facet counts are available once the search index has been built");
+        }
+        return bookSearchIndex.facets(blankToNull(title), blankToNull(author), blankToNull(category), limit)
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "At least one facet filter must have " + BookSearchIndex.GRAM_SIZE + " or more characters"));
     }
 
     public Book getBookById(Long id) {
-        return bookRepository.findById(id)
-                .orElseThrow(() -> new BookNotFoundException("Book not found with id: " + id));
+        Book book = bookCache.get(id, key -> bookRepository.findById(key).orElse(null));
+        if (book == null) {
+            throw new BookNotFoundException("Book not found with id: " + id);
+        }
+        return book;
+    }
+
+    /**
+     * Resolves the ids through the cache, which loads all misses with a single IN query as one
+     * bulk load, the same way {@link #getBookById} loads a single miss. The result follows the
+     * request order and marks ids that do not exist.
+     */
+    public Map<Long, BatchLookupResult<Book>> getBooksByIds(Collection<Long> ids) {
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        Map<Long, Book> books = bookCache.getAll(uniqueIds, misses -> {
+            Map<Long, Book> loaded = new HashMap<>();
+            for (Book book : bookRepository.findAllById(new ArrayList<>(misses))) {
+                loaded.put(book.getId(), book);
+            }
+            return loaded;
+        });
+        Map<Long, BatchLookupResult<Book>> results = new LinkedHashMap<>();
+        for (Long id : uniqueIds) {
+            Book book = books.get(id);
+            results.put(id, book == null ? BatchLookupResult.notFound() : BatchLookupResult.found(book));
+        }
+        return results;
+    }
+
+    public Book getBookByIsbn(String isbn) {
+        String normalized = normalizeIsbn(isbn);
+        if (normalized == null) {
+            throw new BookNotFoundException("Book not found with isbn: " + isbn);
+        }
+        return bookRepository.findByIsbn(normalized)
+                .orElseThrow(() -> new BookNotFoundException("Book not found with isbn: " + isbn));
     }
 
     public Book updateBook(Long id, Book updatedBook) {
-        Book existingBook = getBookById(id);
+        return updateBook(id, updatedBook, null);
+    }
+
+    /**
+     * Updates the book if its current version equals {@code expectedVersion} (any version when
+     * null). The version column also guards the write itself, so a concurrent update between
+     * the check and the flush fails instead of being overwritten.
+     */
+    public Book updateBook(Long id, Book updatedBook, Long expectedVersion) {
+        String isbn = normalizeIsbn(updatedBook.getIsbn());
+        ensureIsbnAvailable(isbn, id);
+        // Load a fresh instance: the cached one is shared with concurrent readers
+        Book existingBook = findBook(id);
+        if (expectedVersion != null && existingBook.getVersion() != expectedVersion) {
+            throw new PreconditionFailedException("Book " + id + " has changed (version " + existingBook.getVersion() + ")");
+        }
         existingBook.setTitle(updatedBook.getTitle());
         existingBook.setAuthor(updatedBook.getAuthor());
         existingBook.setCategory(updatedBook.getCategory());
-        existingBook.setIsbn(updatedBook.getIsbn());
+        existingBook.setIsbn(isbn);
         existingBook.setPublisher(updatedBook.getPublisher());
         existingBook.setPublishedYear(updatedBook.getPublishedYear());
-        Book savedBook = bookRepository.save(existingBook);
-        sendNotification("Book updated: " + existingBook.getTitle());
+        Book savedBook = transactionTemplate.execute(status -> {
+            Book saved = bookRepository.save(existingBook);
+            outboxService.record("Book", id, "Book updated: " + saved.getTitle());
+            return saved;
+        });
+        trackIsbn(savedBook);
+        bookSearchIndex.put(savedBook);
+        evict(id);
         return savedBook;
     }
 
     public void deleteBook(Long id) {
-        Book book = getBookById(id);
-        bookRepository.delete(book);
-        sendNotification("Book deleted: " + book.getTitle());
+        Book book = findBook(id);
+        transactionTemplate.executeWithoutResult(status -> {
+            bookRepository.delete(book);
+            outboxService.record("Book", id, "Book deleted: " + book.getTitle());
+        });
+        bookSearchIndex.remove(id);
+        evict(id);
+    }
+
+    /**
+     * Applies a change made on another instance: drops the cached copy and re-reads the row
+     * for the search index.
+     */
+    public void refreshFromPeer(Long id) {
+        bookCache.invalidate(id);
+        bookRepository.findById(id).ifPresentOrElse(book -> {
+            trackIsbn(book);
+            bookSearchIndex.put(book);
+        }, () -> bookSearchIndex.remove(id));
+    }
+
+    /**
+     * Strips hyphens and spaces and upper-cases the X check digit, so that differently
+     * formatted copies of the same ISBN collide on the unique index. Blank values become null.
+     */
+    public static String normalizeIsbn(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        String normalized = isbn.replace("-", "").replace(" ", "").trim().toUpperCase(Locale.ROOT);
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    /**
+     * Rejects an ISBN used by another book with a clear message. The Bloom filter is only a hint
+     * that lets most new ISBNs skip the query; uk_books_isbn rejects a duplicate it missed.
+     */
+    private void ensureIsbnAvailable(String isbn, Long bookId) {
+        if (isbn == null || !isbnBloomFilter.mightContain(isbn)) {
+            return;
+        }
+        bookRepository.findByIsbn(isbn)
+                .filter(existing -> !existing.getId().equals(bookId))
+                .ifPresent(existing -> {
+                    throw new DuplicateIsbnException("ISBN " + isbn + " is already used by book " + existing.getId());
+                });
+    }
+
+    private void trackIsbn(Book book) {
+        if (book.getIsbn() != null) {
+            isbnBloomFilter.put(book.getIsbn());
+        }
+    }
+
+    private Book findBook(Long id) {
+        return bookRepository.findById(id)
+                .orElseThrow(() -> new BookNotFoundException("Book not found with id: " + id));
+    }
+
+    private void evict(Long id) {
+        bookCache.invalidate(id);
+        bookCacheInvalidator.publish(id);
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    private static List<Long> nextIds(List<Long> rankedIds, long afterId, int count) {
+        List<Long> ids = new ArrayList<>();
+        for (Long id : rankedIds) {
+            if (id > afterId) {
+                ids.add(id);
+            }
+        }
+        Collections.sort(ids);
+        return ids.subList(0, Math.min(count, ids.size()));
+    }
+
+    private List<Book> findAllByIdInOrder(List<Long> ids) {
+        Map<Long, Book> booksById = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += ID_LOOKUP_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + ID_LOOKUP_CHUNK_SIZE, ids.size()));
+            for (Book book : bookRepository.findAllById(chunk)) {
+                booksById.put(book.getId(), book);
+            }
+        }
+        List<Book> books = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Book book = booksById.get(id);
+            if (book != null) {
+                books.add(book);
+            }
+        }
+        return books;
     }
-}
\ No newline at end of file
+}
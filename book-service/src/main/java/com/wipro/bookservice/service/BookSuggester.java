@@ -0,0 +1,141 @@
+package com.wipro.bookservice.service;
+
+import com.wipro.bookservice.dto.BookSuggestion;
+import com.wipro.bookservice.dto.BookSuggestions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Sorted prefix maps over book titles and authors for search-as-you-type. Each value is
+ * reachable from its start and from the start of up to {@value #MAX_WORD_STARTS} later words
+ * of three or more characters, so "java" completes "Effective Java". The weight of a completion
+ * is the number of books carrying that exact title or author.
+ * <p>
+ * A lookup walks the key range of the prefix in key order, visiting at most
+ * {@code book.suggest.scan-limit} keys per map, and keeps the heaviest completions. The result is
+ * approximate when a prefix has more keys than that: heavier completions that sort after the
+ * window are never seen, so a short prefix can miss the most common title starting with it. Such
+ * results are marked truncated. Raising the limit trades lookup time for exactness.
+ * {@link BookSearchIndex} applies every indexed write here under its own lock, so the maps only
+ * ever have one writer.
+ */
+@Component
+public class BookSuggester {
+    static final int MAX_WORD_STARTS = 3;
+    private static final char KEY_SEPARATOR = '\u0000';
+    private static final Comparator<BookSuggestion> RANKING = Comparator
+            .comparingInt(BookSuggestion::getWeight).reversed()
+            .thenComparingInt(suggestion -> suggestion.getText().length())
+            .thenComparing(BookSuggestion::getText);
+
+    private final NavigableMap<String, Completion> titles = new ConcurrentSkipListMap<>();
+    private final NavigableMap<String, Completion> authors = new ConcurrentSkipListMap<>();
+    private final int scanLimit;
+
+    public BookSuggester(@Value("${book.suggest.scan-limit:5000}") int scanLimit) {
+        this.scanLimit = scanLimit;
+    }
+
+    void add(String title, String author) {
+        adjust(titles, title, 1);
+        adjust(authors, author, 1);
+    }
+
+    void remove(String title, String author) {
+        adjust(titles, title, -1);
+        adjust(authors, author, -1);
+    }
+
+    public int getScanLimit() {
+        return scanLimit;
+    }
+
+    public BookSuggestions suggest(String prefix, boolean includeTitles, boolean includeAuthors, int limit) {
+        String normalized = BookSearchIndex.normalize(prefix.strip());
+        if (normalized.isEmpty()) {
+            return new BookSuggestions(List.of(), false);
+        }
+        PriorityQueue<BookSuggestion> best = new PriorityQueue<>(RANKING.reversed());
+        boolean truncated = false;
+        if (includeTitles) {
+            truncated |= collect(titles, normalized, "title", limit, best);
+        }
+        if (includeAuthors) {
+            truncated |= collect(authors, normalized, "author", limit, best);
+        }
+        List<BookSuggestion> suggestions = new ArrayList<>(best);
+        suggestions.sort(RANKING);
+        return new BookSuggestions(suggestions, truncated);
+    }
+
+    /**
+     * Offers the completions under the prefix to {@code best}. Returns whether the scan limit cut
+     * the key range short.
+     */
+    private boolean collect(NavigableMap<String, Completion> map, String prefix, String field, int limit,
+                            PriorityQueue<BookSuggestion> best) {
+        Set<String> seen = new HashSet<>();
+        int scanned = 0;
+        for (Map.Entry<String, Completion> entry : map.subMap(prefix, true, prefix + Character.MAX_VALUE, false).entrySet()) {
+            if (++scanned > scanLimit) {
+                return true;
+            }
+            Completion completion = entry.getValue();
+            if (!seen.add(completion.text())) {
+                continue;
+            }
+            best.offer(new BookSuggestion(completion.text(), field, completion.weight()));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        return false;
+    }
+
+    private static void adjust(NavigableMap<String, Completion> map, String value, int delta) {
+        if (value == null || value.isBlank()) {
+            return;
+        }
+        String text = value.strip();
+        String normalized = BookSearchIndex.normalize(text);
+        for (String start : wordStarts(normalized)) {
+            String key = start + KEY_SEPARATOR + normalized;
+            Completion current = map.get(key);
+            int weight = (current == null ? 0 : current.weight()) + delta;
+            if (weight <= 0) {
+                map.remove(key);
+            } else {
+                map.put(key, new Completion(current == null ? text : current.text(), weight));
+            }
+        }
+    }
+
+    private static Set<String> wordStarts(String normalized) {
+        Set<String> starts = new LinkedHashSet<>();
+        starts.add(normalized);
+        int index = normalized.indexOf(' ');
+        while (index >= 0 && starts.size() <= MAX_WORD_STARTS) {
+            String rest = normalized.substring(index + 1);
+            int wordEnd = rest.indexOf(' ');
+            if ((wordEnd < 0 ? rest.length() : wordEnd) >= 3) {
+                starts.add(rest);
+            }
+            index = normalized.indexOf(' ', index + 1);
+        }
+        return starts;
+    }
+
+    private record Completion(String text, int weight) {
+    }
+}
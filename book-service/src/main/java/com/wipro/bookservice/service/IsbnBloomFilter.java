@@ -0,0 +1,117 @@
+package com.wipro.bookservice.service;
+
+import com.wipro.bookservice.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over the ISBNs this instance has seen: the books table at startup, its own
+ * writes and the writes of other replicas once their invalidation message arrives. A negative
+ * answer is therefore only a hint that the ISBN is free. It lets the single-book write path
+ * skip the duplicate pre-check, with uk_books_isbn as the guarantee, and is never used to
+ * answer a lookup. Deleted ISBNs are never removed and only raise the false positive rate
+ * until the next restart rebuilds the filter. Until the startup rebuild has finished every
+ * ISBN is reported as possibly present.
+ */
+@Component
+public class IsbnBloomFilter {
+    private static final Logger logger = LoggerFactory.getLogger(IsbnBloomFilter.class);
+
+    private final BookRepository bookRepository;
+    private final int rebuildBatchSize;
+    private final long bitCount;
+    private final int hashCount;
+    private final AtomicLongArray bits;
+    private volatile boolean ready;
+
+    public IsbnBloomFilter(BookRepository bookRepository,
+                           @Value("${book.isbn-filter.expected-insertions:2000000}") long expectedInsertions,
+                           @Value("${book.isbn-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                           @Value("${book.search.index.rebuild-batch-size:1000}") int rebuildBatchSize) {
+        this.bookRepository = bookRepository;
+        this.rebuildBatchSize = rebuildBatchSize;
+        long bitsNeeded = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = new AtomicLongArray((int) ((bitsNeeded + 63) / 64));
+        this.bitCount = bits.length() * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            long lastId = 0L;
+            long count = 0;
+            List<Object[]> page;
+            do {
+                page = bookRepository.findIsbnPage(lastId, PageRequest.of(0, rebuildBatchSize));
+                for (Object[] row : page) {
+                    lastId = (Long) row[0];
+                    String isbn = BookService.normalizeIsbn((String) row[1]);
+                    if (isbn != null) {
+                        put(isbn);
+                        count++;
+                    }
+                }
+            } while (page.size() == rebuildBatchSize);
+            ready = true;
+            logger.info("ISBN filter built with {} ISBNs ({} bits, {} hashes)", count, bitCount, hashCount);
+        } catch (Exception e) {
+            logger.error("Failed to build ISBN filter, every ISBN will be checked in the database: {}", e.getMessage());
+        }
+    }
+
+    public void put(String isbn) {
+        long hash = hash(isbn);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = bits.get(word);
+            } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    public boolean mightContain(String isbn) {
+        if (!ready) {
+            return true;
+        }
+        long hash = hash(isbn);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // FNV-1a followed by the MurmurHash3 finalizer
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
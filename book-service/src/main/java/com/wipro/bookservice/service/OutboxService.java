@@ -0,0 +1,18 @@
+package com.wipro.bookservice.service;
+
+import com.wipro.common.outbox.AbstractOutboxService;
+import com.wipro.bookservice.entity.OutboxEvent;
+import com.wipro.bookservice.repository.OutboxEventRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Records notifications in the book_outbox table, see {@link AbstractOutboxService}.
+ */
+@Service
+public class OutboxService extends AbstractOutboxService<OutboxEvent> {
+
+    public OutboxService(OutboxEventRepository outboxEventRepository, JdbcTemplate jdbcTemplate) {
+        super(outboxEventRepository, jdbcTemplate, "book_outbox", OutboxEvent::new);
+    }
+}
@@ -0,0 +1,190 @@
+package com.wipro.bookservice.controller;
+
+import com.wipro.bookservice.dto.BookPage;
+import com.wipro.bookservice.dto.BookSuggestion;
+import com.wipro.bookservice.dto.BookSuggestions;
+import com.wipro.bookservice.entity.Book;
+import com.wipro.bookservice.exception.PreconditionFailedException;
+import com.wipro.bookservice.repository.BookStreamRepository;
+import com.wipro.bookservice.service.BookImportService;
+import com.wipro.bookservice.service.BookService;
+import com.wipro.bookservice.service.BookSuggester;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(BookController.class)
+class BookControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @MockitoBean
+    private BookService bookService;
+    @MockitoBean
+    private BookImportService bookImportService;
+    @MockitoBean
+    private BookSuggester bookSuggester;
+    @MockitoBean
+    private BookStreamRepository bookStreamRepository;
+
+    @Test
+    void nextCursorResumesAfterTheLastBook() throws Exception {
+        when(bookService.getBooksPage(null, null, null, null, 2)).thenReturn(new BookPage(List.of(book(1L), book(2L)), 2L));
+        when(bookService.getBooksPage(null, null, null, 2L, 2)).thenReturn(new BookPage(List.of(book(3L)), null));
+
+        String cursor = mockMvc.perform(get("/books").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andReturn().getResponse().getHeader("X-Next-Cursor");
+        assertThat(cursor).isNotBlank();
+
+        mockMvc.perform(get("/books").param("limit", "2").param("after", cursor))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                .andExpect(jsonPath("$[0].id").value(3));
+    }
+
+    @Test
+    void malformedCursorIsRejected() throws Exception {
+        mockMvc.perform(get("/books").param("after", "%%%"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void limitOutOfRangeIsRejected() throws Exception {
+        mockMvc.perform(get("/books").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/books").param("limit", "1001"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamWritesOneBookPerLineWithItsVersion() throws Exception {
+        Book first = book(1L);
+        first.setVersion(4);
+        Book second = book(2L);
+        doAnswer(invocation -> {
+            Consumer<Book> consumer = invocation.getArgument(3);
+            consumer.accept(first);
+            consumer.accept(second);
+            return null;
+        }).when(bookStreamRepository).streamByTitleAuthorCategory(isNull(), isNull(), isNull(), any(Consumer.class));
+
+        MvcResult result = mockMvc.perform(get("/books/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).contains("\"id\":1").contains("\"version\":4");
+        assertThat(lines[1]).contains("\"id\":2").contains("\"version\":0");
+    }
+
+    @Test
+    void truncatedSuggestionsCarryTheScanLimitHeader() throws Exception {
+        when(bookSuggester.suggest("a", true, true, 10))
+                .thenReturn(new BookSuggestions(List.of(new BookSuggestion("Aa", "title", 1)), true));
+        when(bookSuggester.getScanLimit()).thenReturn(5000);
+        when(bookSuggester.suggest("aa", true, true, 10))
+                .thenReturn(new BookSuggestions(List.of(new BookSuggestion("Aa", "title", 1)), false));
+
+        mockMvc.perform(get("/books/suggest").param("prefix", "a"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Suggest-Truncated", "5000"))
+                .andExpect(jsonPath("$[0].text").value("Aa"));
+        mockMvc.perform(get("/books/suggest").param("prefix", "aa"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Suggest-Truncated"));
+    }
+
+    @Test
+    void bookCarriesItsVersionAsETag() throws Exception {
+        Book book = book(3L);
+        book.setVersion(5L);
+        when(bookService.getBookById(3L)).thenReturn(book);
+
+        mockMvc.perform(get("/books/3"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"5\""));
+        mockMvc.perform(get("/books/3").header("If-None-Match", "\"5\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"5\""));
+        mockMvc.perform(get("/books/3").header("If-None-Match", "\"4\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(3));
+    }
+
+    @Test
+    void ifMatchVersionIsPassedToTheUpdate() throws Exception {
+        Book saved = book(3L);
+        saved.setVersion(6L);
+        when(bookService.updateBook(eq(3L), any(Book.class), eq(5L))).thenReturn(saved);
+
+        mockMvc.perform(put("/books/3").header("If-Match", "\"5\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"Book 3\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"6\""));
+    }
+
+    @Test
+    void updateWithoutIfMatchReplacesAnyVersion() throws Exception {
+        when(bookService.updateBook(eq(3L), any(Book.class), isNull())).thenReturn(book(3L));
+
+        mockMvc.perform(put("/books/3").contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"Book 3\"}"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void staleIfMatchFailsWithPreconditionFailed() throws Exception {
+        when(bookService.updateBook(eq(3L), any(Book.class), eq(4L)))
+                .thenThrow(new PreconditionFailedException("Book 3 has changed (version 5)"));
+
+        mockMvc.perform(put("/books/3").header("If-Match", "\"4\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"Book 3\"}"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void weakOrMalformedIfMatchIsRejected() throws Exception {
+        for (String ifMatch : List.of("W/\"5\"", "5", "\"five\"")) {
+            mockMvc.perform(put("/books/3").header("If-Match", ifMatch)
+                            .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"Book 3\"}"))
+                    .andExpect(status().isPreconditionFailed());
+        }
+        verify(bookService, never()).updateBook(any(), any(), any());
+    }
+
+    private static Book book(Long id) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle("Book " + id);
+        book.setAuthor("Author " + id);
+        return book;
+    }
+}
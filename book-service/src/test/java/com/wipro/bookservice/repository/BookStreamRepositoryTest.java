@@ -0,0 +1,37 @@
+package com.wipro.bookservice.repository;
+
+import com.wipro.bookservice.entity.Book;
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BookStreamRepositoryTest {
+
+    @Test
+    void mapRowReadsEveryColumnIncludingVersion() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(7L);
+        when(rs.getString("title")).thenReturn("Dune");
+        when(rs.getString("author")).thenReturn("Frank Herbert");
+        when(rs.getString("category")).thenReturn("Science Fiction");
+        when(rs.getString("isbn")).thenReturn("9780441013593");
+        when(rs.getString("publisher")).thenReturn("Ace");
+        when(rs.getInt("published_year")).thenReturn(1965);
+        when(rs.getLong("version")).thenReturn(3L);
+
+        Book book = BookStreamRepository.mapRow(rs);
+
+        assertThat(book.getId()).isEqualTo(7L);
+        assertThat(book.getTitle()).isEqualTo("Dune");
+        assertThat(book.getAuthor()).isEqualTo("Frank Herbert");
+        assertThat(book.getCategory()).isEqualTo("Science Fiction");
+        assertThat(book.getIsbn()).isEqualTo("9780441013593");
+        assertThat(book.getPublisher()).isEqualTo("Ace");
+        assertThat(book.getPublishedYear()).isEqualTo(1965);
+        assertThat(book.getVersion()).isEqualTo(3L);
+    }
+}
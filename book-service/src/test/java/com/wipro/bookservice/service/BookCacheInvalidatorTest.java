@@ -0,0 +1,88 @@
+package com.wipro.bookservice.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class BookCacheInvalidatorTest {
+    private static final String PATH = "/internal/books/{id}/invalidate";
+
+    private final DiscoveryClient discoveryClient = mock(DiscoveryClient.class);
+    @SuppressWarnings("unchecked")
+    private final ObjectProvider<Registration> registration = mock(ObjectProvider.class);
+    private final RestTemplate restTemplate = mock(RestTemplate.class);
+    private BookCacheInvalidator invalidator;
+
+    @BeforeEach
+    void setUp() {
+        Registration self = mock(Registration.class);
+        when(self.getServiceId()).thenReturn("book-service");
+        when(self.getInstanceId()).thenReturn("book-a");
+        when(registration.getIfAvailable()).thenReturn(self);
+        invalidator = new BookCacheInvalidator(discoveryClient, registration, restTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        invalidator.shutdown();
+    }
+
+    @Test
+    void everyPeerButThisInstanceIsInvalidated() {
+        when(discoveryClient.getInstances("book-service")).thenReturn(List.of(
+                instance("book-a", "http://a:8081"), instance("book-b", "http://b:8081"), instance("book-c", "http://c:8081")));
+
+        invalidator.publish(4L);
+
+        verify(restTemplate, timeout(1000)).postForLocation("http://b:8081" + PATH, null, 4L);
+        verify(restTemplate, timeout(1000)).postForLocation("http://c:8081" + PATH, null, 4L);
+        verify(restTemplate, never()).postForLocation(eq("http://a:8081" + PATH), any(), any(Object[].class));
+    }
+
+    @Test
+    void unreachablePeerDoesNotStopTheOthers() {
+        when(discoveryClient.getInstances("book-service")).thenReturn(List.of(
+                instance("book-b", "http://b:8081"), instance("book-c", "http://c:8081")));
+        when(restTemplate.postForLocation("http://b:8081" + PATH, null, 4L))
+                .thenThrow(new ResourceAccessException("Connection refused"));
+
+        invalidator.publish(4L);
+
+        verify(restTemplate, timeout(1000)).postForLocation("http://c:8081" + PATH, null, 4L);
+    }
+
+    @Test
+    void nothingIsSentWithoutARegistration() {
+        when(registration.getIfAvailable()).thenReturn(null);
+
+        invalidator.publish(4L);
+
+        verify(registration, timeout(1000)).getIfAvailable();
+        verifyNoInteractions(discoveryClient, restTemplate);
+    }
+
+    private static ServiceInstance instance(String id, String uri) {
+        ServiceInstance instance = mock(ServiceInstance.class);
+        when(instance.getInstanceId()).thenReturn(id);
+        when(instance.getUri()).thenReturn(URI.create(uri));
+        return instance;
+    }
+}
@@ -0,0 +1,164 @@
+package com.wipro.bookservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wipro.bookservice.dto.BookImportError;
+import com.wipro.bookservice.dto.BookImportResult;
+import com.wipro.bookservice.entity.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BookImportServiceTest {
+    @Mock
+    private BookService bookService;
+
+    private BookImportService bookImportService;
+
+    @BeforeEach
+    void setUp() {
+        bookImportService = new BookImportService(bookService, new ObjectMapper(), 2);
+    }
+
+    @Test
+    void csvQuotedFieldsKeepCommasQuotesAndLineBreaks() throws Exception {
+        stubWrites(Set.of());
+        String csv = "Title,Author,Published_Year\n"
+                + "\"War, and Peace\",Tolstoy,1869\n"
+                + "\"The \"\"Quoted\"\" Book\",Someone,2001\n"
+                + "\n"
+                + "\"Multi\nLine\",Writer,1999\n";
+
+        BookImportResult result = bookImportService.importCsv(stream(csv));
+
+        assertThat(result.getTotalRows()).isEqualTo(3);
+        assertThat(result.getImported()).isEqualTo(3);
+        assertThat(result.getFailed()).isZero();
+        List<Book> books = importedBooks(2);
+        assertThat(books).extracting(Book::getTitle)
+                .containsExactly("War, and Peace", "The \"Quoted\" Book", "Multi\nLine");
+        assertThat(books).extracting(Book::getPublishedYear).containsExactly(1869, 2001, 1999);
+        verify(bookService).notifyBooksImported(3, 0);
+    }
+
+    @Test
+    void csvRowErrorsAreReportedWithTheirRowNumber() throws Exception {
+        stubWrites(Set.of());
+        String csv = "title,author,publishedYear\n"
+                + "Good,Writer,2000\n"
+                + "No Author,,2000\n"
+                + "Bad Year,Writer,soon\n"
+                + "Short Row\n";
+
+        BookImportResult result = bookImportService.importCsv(stream(csv));
+
+        assertThat(result.getTotalRows()).isEqualTo(4);
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(result.getFailed()).isEqualTo(3);
+        assertThat(result.getErrors()).extracting(BookImportError::getRow).containsExactly(2L, 3L, 4L);
+        assertThat(result.getErrors().get(0).getMessage()).isEqualTo("author is required");
+        assertThat(result.getErrors().get(1).getMessage()).contains("publishedYear is not a number");
+    }
+
+    @Test
+    void csvWithoutTitleColumnIsRejected() {
+        assertThatThrownBy(() -> bookImportService.importCsv(stream("author,isbn\nWriter,123\n")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("title");
+    }
+
+    @Test
+    void emptyCsvImportsNothing() throws Exception {
+        BookImportResult result = bookImportService.importCsv(stream(""));
+
+        assertThat(result.getTotalRows()).isZero();
+        verify(bookService).notifyBooksImported(0, 0);
+    }
+
+    @Test
+    void isbnsAlreadyStoredOrRepeatedInTheFeedAreRejected() throws Exception {
+        stubWrites(Set.of("9780000000001"));
+        // One batch, so the repeat is caught in memory rather than by the database lookup
+        bookImportService = new BookImportService(bookService, new ObjectMapper(), 10);
+        String csv = "title,author,isbn\n"
+                + "Existing,Writer,978-0-00-000000-1\n"
+                + "First,Writer,9780000000002\n"
+                + "Repeat,Writer,978 0000000002\n";
+
+        BookImportResult result = bookImportService.importCsv(stream(csv));
+
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(result.getErrors()).extracting(BookImportError::getRow).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(result.getErrors()).extracting(BookImportError::getMessage)
+                .anySatisfy(message -> assertThat(message).contains("already exists"))
+                .anySatisfy(message -> assertThat(message).contains("more than once"));
+    }
+
+    @Test
+    void jsonInvalidElementsDoNotStopTheImport() throws Exception {
+        stubWrites(Set.of());
+        String json = "[{\"title\":\"One\",\"author\":\"A\"},"
+                + "{\"title\":\"Two\",\"author\":\"B\",\"publishedYear\":\"x\"},"
+                + "{\"title\":\"Three\",\"author\":\"C\"}]";
+
+        BookImportResult result = bookImportService.importJson(stream(json));
+
+        assertThat(result.getTotalRows()).isEqualTo(3);
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getErrors()).extracting(BookImportError::getRow).containsExactly(2L);
+        assertThat(importedBooks(1)).extracting(Book::getTitle).containsExactly("One", "Three");
+    }
+
+    @Test
+    void jsonThatIsNotAnArrayIsRejected() {
+        assertThatThrownBy(() -> bookImportService.importJson(stream("{\"title\":\"One\"}")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void truncatedJsonKeepsTheRowsReadSoFar() throws Exception {
+        stubWrites(Set.of());
+
+        BookImportResult result = bookImportService.importJson(stream("[{\"title\":\"One\",\"author\":\"A\"}, {\"title\":"));
+
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(result.getErrors()).extracting(BookImportError::getMessage)
+                .singleElement().asString().startsWith("Malformed JSON");
+    }
+
+    private void stubWrites(Set<String> existingIsbns) {
+        when(bookService.findExistingIsbns(any())).thenReturn(existingIsbns);
+        when(bookService.addBooks(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Book> importedBooks(int batches) {
+        ArgumentCaptor<List<Book>> captor = ArgumentCaptor.forClass(List.class);
+        verify(bookService, times(batches)).addBooks(captor.capture());
+        List<Book> books = new ArrayList<>();
+        captor.getAllValues().forEach(books::addAll);
+        return books;
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
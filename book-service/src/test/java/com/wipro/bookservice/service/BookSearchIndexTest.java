@@ -0,0 +1,127 @@
+package com.wipro.bookservice.service;
+
+import com.wipro.bookservice.entity.Book;
+import com.wipro.bookservice.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BookSearchIndexTest {
+    private final BookRepository bookRepository = mock(BookRepository.class);
+    private final List<Book> books = new ArrayList<>(List.of(
+            book(1L, "Dune", "Frank Herbert", "Science Fiction"),
+            book(2L, "Dune Messiah", "Frank Herbert", "Science Fiction"),
+            book(3L, "The Hobbit", "J.R.R. Tolkien", "Fantasy"),
+            book(4L, "The Lord of the Rings", "J.R.R. Tolkien", "Fantasy"),
+            book(5L, "Children of Dune", "Frank Herbert", null),
+            book(6L, "Sanddune Atlas", "Herbertson", "Geography"),
+            book(7L, "Neuromancer", null, "Science Fiction")));
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        // Pages of two, so the rebuild has to follow its cursor
+        when(bookRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            int size = invocation.<Pageable>getArgument(1).getPageSize();
+            return books.stream().filter(book -> book.getId() > afterId).limit(size).toList();
+        });
+        index = new BookSearchIndex(bookRepository, new BookFacetCounts(), new BookSuggester(5000), 2);
+    }
+
+    @Test
+    void indexAnswersOnlyOnceBuilt() {
+        assertThat(index.search("dune", null, null)).isEmpty();
+
+        index.rebuild();
+
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.search("dune", null, null)).isPresent();
+    }
+
+    @Test
+    void exactMatchesRankBeforePrefixWordAndInfixMatches() {
+        index.rebuild();
+
+        assertThat(index.search("dune", null, null)).contains(List.of(1L, 2L, 5L, 6L));
+    }
+
+    @Test
+    void equalScoresKeepIdOrder() {
+        index.rebuild();
+
+        assertThat(index.search(null, "frank herbert", null)).contains(List.of(1L, 2L, 5L));
+    }
+
+    @Test
+    void matchesTheSameBooksAsLike() {
+        index.rebuild();
+        String[][] queries = {
+                {"dun", null, null}, {"DUNE", null, null}, {"une m", null, null}, {null, "herbert", null},
+                {"the", "tolk", null}, {"the", null, "fa"}, {null, null, "science"}, {"o", "herbert", null},
+                {"dune", null, "fiction"}, {"zzz", null, null}, {"rings", "herbert", null}};
+
+        for (String[] query : queries) {
+            List<Long> ids = index.search(query[0], query[1], query[2]).orElseThrow();
+            assertThat(ids).as(String.join("|", String.valueOf(query[0]), String.valueOf(query[1]), String.valueOf(query[2])))
+                    .containsExactlyInAnyOrderElementsOf(like(query[0], query[1], query[2]));
+        }
+    }
+
+    @Test
+    void filtersShorterThanAGramAreLeftToTheDatabase() {
+        index.rebuild();
+
+        assertThat(index.search("du", null, null)).isEmpty();
+        assertThat(index.search(null, "fr", "sc")).isEmpty();
+        assertThat(index.search(null, null, null)).isEmpty();
+    }
+
+    @Test
+    void updatesAndDeletesAreSearchableAtOnce() {
+        index.rebuild();
+
+        index.put(book(3L, "Dune Encyclopedia", "Willis McNelly", "Reference"));
+        index.remove(1L);
+
+        assertThat(index.search("dune", null, null)).contains(List.of(2L, 3L, 5L, 6L));
+        assertThat(index.search("hobbit", null, null)).contains(List.of());
+    }
+
+    private List<Long> like(String title, String author, String category) {
+        return books.stream()
+                .filter(book -> like(book.getTitle(), title) && like(book.getAuthor(), author)
+                        && like(book.getCategory(), category))
+                .map(Book::getId)
+                .toList();
+    }
+
+    /**
+     * {@code column LIKE %value%} under the case-insensitive collation; a null filter is not applied.
+     */
+    private static boolean like(String column, String value) {
+        return value == null || column != null
+                && column.toLowerCase(Locale.ROOT).contains(value.toLowerCase(Locale.ROOT));
+    }
+
+    private static Book book(Long id, String title, String author, String category) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setCategory(category);
+        book.setPublishedYear(1965);
+        return book;
+    }
+}
@@ -0,0 +1,261 @@
+package com.wipro.bookservice.service;
+
+import com.wipro.bookservice.dto.BookFacets;
+import com.wipro.bookservice.dto.BookPage;
+import com.wipro.bookservice.entity.Book;
+import com.wipro.bookservice.exception.BookNotFoundException;
+import com.wipro.bookservice.exception.DuplicateIsbnException;
+import com.wipro.bookservice.exception.FacetsUnavailableException;
+import com.wipro.bookservice.repository.BookRepository;
+import com.wipro.common.dto.BatchLookupResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BookServiceTest {
+    @Mock
+    private BookRepository bookRepository;
+    @Mock
+    private BookSearchIndex bookSearchIndex;
+    @Mock
+    private BookCacheInvalidator bookCacheInvalidator;
+    @Mock
+    private IsbnBloomFilter isbnBloomFilter;
+    @Mock
+    private OutboxService outboxService;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private EntityManager entityManager;
+
+    private BookService bookService;
+
+    @BeforeEach
+    void setUp() {
+        bookService = new BookService(bookRepository, bookSearchIndex, bookCacheInvalidator, isbnBloomFilter,
+                outboxService, transactionTemplate, entityManager, new SimpleMeterRegistry(), 100, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void databasePageReturnsCursorOfLastItemWhenMoreRowsFollow() {
+        when(bookSearchIndex.search(null, null, null)).thenReturn(Optional.empty());
+        when(bookRepository.findPageByTitleAuthorCategory(10L, null, null, null, PageRequest.of(0, 3)))
+                .thenReturn(List.of(book(11L), book(12L), book(13L)));
+
+        BookPage page = bookService.getBooksPage(null, null, null, 10L, 2);
+
+        assertThat(page.getItems()).extracting(Book::getId).containsExactly(11L, 12L);
+        assertThat(page.getNextAfterId()).isEqualTo(12L);
+    }
+
+    @Test
+    void lastDatabasePageHasNoCursor() {
+        when(bookSearchIndex.search(null, null, null)).thenReturn(Optional.empty());
+        when(bookRepository.findPageByTitleAuthorCategory(0L, null, null, null, PageRequest.of(0, 3)))
+                .thenReturn(List.of(book(1L), book(2L)));
+
+        BookPage page = bookService.getBooksPage(null, null, null, null, 2);
+
+        assertThat(page.getItems()).extracting(Book::getId).containsExactly(1L, 2L);
+        assertThat(page.getNextAfterId()).isNull();
+    }
+
+    @Test
+    void indexPageContinuesInIdOrderAfterTheCursor() {
+        when(bookSearchIndex.search("dune", null, null)).thenReturn(Optional.of(List.of(9L, 3L, 7L, 5L)));
+        when(bookRepository.findAllById(List.of(5L, 7L, 9L))).thenReturn(List.of(book(9L), book(5L), book(7L)));
+
+        BookPage page = bookService.getBooksPage("dune", null, null, 3L, 2);
+
+        assertThat(page.getItems()).extracting(Book::getId).containsExactly(5L, 7L);
+        assertThat(page.getNextAfterId()).isEqualTo(7L);
+    }
+
+    @Test
+    void facetsAreServedFromTheIndexWithBlankFiltersIgnored() {
+        BookFacets facets = new BookFacets(1, Map.of("Fiction", 1L), Map.of(), Map.of(2001, 1L));
+        when(bookSearchIndex.isReady()).thenReturn(true);
+        when(bookSearchIndex.facets("tolkien", null, null, 20)).thenReturn(Optional.of(facets));
+
+        assertThat(bookService.getFacets("tolkien", " ", "", 20)).isSameAs(facets);
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void facetsAreUnavailableUntilTheIndexIsBuilt() {
+        when(bookSearchIndex.isReady()).thenReturn(false);
+
+        assertThatThrownBy(() -> bookService.getFacets(null, null, null, 20))
+                .isInstanceOf(FacetsUnavailableException.class);
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void facetFiltersTheIndexCannotAnswerAreRejected() {
+        when(bookSearchIndex.isReady()).thenReturn(true);
+        when(bookSearchIndex.facets("ab", null, null, 20)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> bookService.getFacets("ab", null, null, 20))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void batchLookupLoadsMissesOnceThroughTheCache() {
+        when(bookRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(book(1L)));
+
+        Map<Long, BatchLookupResult<Book>> first = bookService.getBooksByIds(List.of(1L, 2L, 1L));
+        Map<Long, BatchLookupResult<Book>> second = bookService.getBooksByIds(List.of(1L));
+
+        assertThat(first).containsOnlyKeys(1L, 2L);
+        assertThat(first.get(1L).getStatus()).isEqualTo(BatchLookupResult.Status.FOUND);
+        assertThat(first.get(2L).getStatus()).isEqualTo(BatchLookupResult.Status.NOT_FOUND);
+        assertThat(second.get(1L).getItem()).isSameAs(first.get(1L).getItem());
+        verify(bookRepository, times(1)).findAllById(List.of(1L, 2L));
+    }
+
+    @Test
+    void bookIsReadThroughTheCache() {
+        Book book = book(4L);
+        when(bookRepository.findById(4L)).thenReturn(Optional.of(book));
+
+        assertThat(bookService.getBookById(4L)).isSameAs(book);
+        assertThat(bookService.getBookById(4L)).isSameAs(book);
+        verify(bookRepository, times(1)).findById(4L);
+    }
+
+    @Test
+    void updateEvictsTheCachedBookAndTellsThePeers() {
+        Book cached = book(4L);
+        Book stored = book(4L);
+        when(bookRepository.findById(4L)).thenReturn(Optional.of(cached), Optional.of(stored));
+        when(bookRepository.save(stored)).thenReturn(stored);
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<Object>>getArgument(0).doInTransaction(null));
+        bookService.getBookById(4L);
+        Book update = book(null);
+        update.setTitle("Renamed");
+
+        bookService.updateBook(4L, update);
+
+        verify(bookSearchIndex).put(stored);
+        verify(bookCacheInvalidator).publish(4L);
+        Book reread = bookService.getBookById(4L);
+        assertThat(reread).isSameAs(stored);
+        assertThat(reread.getTitle()).isEqualTo("Renamed");
+        verify(bookRepository, times(3)).findById(4L);
+    }
+
+    @Test
+    void deleteEvictsTheCachedBookAndTellsThePeers() {
+        Book book = book(4L);
+        when(bookRepository.findById(4L)).thenReturn(Optional.of(book), Optional.of(book), Optional.empty());
+        bookService.getBookById(4L);
+
+        bookService.deleteBook(4L);
+
+        verify(bookSearchIndex).remove(4L);
+        verify(bookCacheInvalidator).publish(4L);
+        assertThatThrownBy(() -> bookService.getBookById(4L)).isInstanceOf(BookNotFoundException.class);
+    }
+
+    @Test
+    void peerChangeReloadsTheBookWithoutNotifyingThePeersAgain() {
+        Book cached = book(4L);
+        Book changed = book(4L);
+        changed.setTitle("Changed elsewhere");
+        when(bookRepository.findById(4L)).thenReturn(Optional.of(cached), Optional.of(changed));
+        bookService.getBookById(4L);
+
+        bookService.refreshFromPeer(4L);
+
+        verify(bookSearchIndex).put(changed);
+        assertThat(bookService.getBookById(4L)).isSameAs(changed);
+        verify(bookCacheInvalidator, never()).publish(any());
+    }
+
+    @Test
+    void peerDeleteRemovesTheBookFromTheIndex() {
+        when(bookRepository.findById(4L)).thenReturn(Optional.empty());
+
+        bookService.refreshFromPeer(4L);
+
+        verify(bookSearchIndex).remove(4L);
+        verify(bookSearchIndex, never()).put(any());
+    }
+
+    @Test
+    void isbnsAreNormalized() {
+        assertThat(BookService.normalizeIsbn("978-0-306-40615-x")).isEqualTo("978030640615X");
+        assertThat(BookService.normalizeIsbn(" 978 0306 ")).isEqualTo("9780306");
+        assertThat(BookService.normalizeIsbn(" - ")).isNull();
+        assertThat(BookService.normalizeIsbn(null)).isNull();
+    }
+
+    @Test
+    void isbnLookupAlwaysQueriesTheDatabase() {
+        Book book = book(4L);
+        when(bookRepository.findByIsbn("978030640615X")).thenReturn(Optional.of(book));
+
+        assertThat(bookService.getBookByIsbn("978-0-306-40615-x")).isSameAs(book);
+        verifyNoInteractions(isbnBloomFilter);
+    }
+
+    @Test
+    void unknownIsbnIsNotFound() {
+        when(bookRepository.findByIsbn("9780000000001")).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> bookService.getBookByIsbn("9780000000001"))
+                .isInstanceOf(BookNotFoundException.class);
+    }
+
+    @Test
+    void existingIsbnsAreCheckedInTheDatabaseRegardlessOfTheFilter() {
+        List<String> isbns = List.of("9780000000001", "9780000000002");
+        when(bookRepository.findExistingIsbns(isbns)).thenReturn(List.of("9780000000002"));
+
+        assertThat(bookService.findExistingIsbns(isbns)).containsExactly("9780000000002");
+        verifyNoInteractions(isbnBloomFilter);
+    }
+
+    @Test
+    void duplicateIsbnIsRejectedWhenTheFilterMightContainIt() {
+        when(isbnBloomFilter.mightContain("9780000000001")).thenReturn(true);
+        when(bookRepository.findByIsbn("9780000000001")).thenReturn(Optional.of(book(8L)));
+        Book book = book(null);
+        book.setIsbn("978-0-00-000000-1");
+
+        assertThatThrownBy(() -> bookService.addBook(book)).isInstanceOf(DuplicateIsbnException.class);
+        verify(bookRepository, never()).save(book);
+    }
+
+    static Book book(Long id) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle("Book " + id);
+        book.setAuthor("Author " + id);
+        return book;
+    }
+}
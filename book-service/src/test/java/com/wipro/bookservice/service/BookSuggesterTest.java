@@ -0,0 +1,60 @@
+package com.wipro.bookservice.service;
+
+import com.wipro.bookservice.dto.BookSuggestion;
+import com.wipro.bookservice.dto.BookSuggestions;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class BookSuggesterTest {
+
+    @Test
+    void completesTitleAndAuthorStartsHeaviestFirst() {
+        BookSuggester suggester = new BookSuggester(5000);
+        suggester.add("Effective Java", "Joshua Bloch");
+        suggester.add("Java Concurrency in Practice", "Brian Goetz");
+        suggester.add("Java Concurrency in Practice", "Brian Goetz");
+
+        BookSuggestions suggestions = suggester.suggest("Jav", true, true, 10);
+
+        assertThat(suggestions.isTruncated()).isFalse();
+        assertThat(suggestions.getItems()).extracting(BookSuggestion::getText, BookSuggestion::getWeight)
+                .containsExactly(
+                        tuple("Java Concurrency in Practice", 2),
+                        tuple("Effective Java", 1));
+        assertThat(suggester.suggest("jos", true, true, 10).getItems())
+                .extracting(BookSuggestion::getField).containsExactly("author");
+    }
+
+    @Test
+    void removedBooksLoseTheirWeight() {
+        BookSuggester suggester = new BookSuggester(5000);
+        suggester.add("Dune", "Frank Herbert");
+        suggester.add("Dune", "Frank Herbert");
+        suggester.remove("Dune", "Frank Herbert");
+
+        assertThat(suggester.suggest("dun", true, false, 10).getItems())
+                .extracting(BookSuggestion::getWeight).containsExactly(1);
+
+        suggester.remove("Dune", "Frank Herbert");
+
+        assertThat(suggester.suggest("dun", true, false, 10).getItems()).isEmpty();
+    }
+
+    @Test
+    void resultIsMarkedTruncatedWhenThePrefixHasMoreKeysThanTheScanLimit() {
+        BookSuggester suggester = new BookSuggester(2);
+        suggester.add("Aa", null);
+        suggester.add("Ab", null);
+        suggester.add("Ac", null);
+        suggester.add("Ac", null);
+
+        BookSuggestions suggestions = suggester.suggest("a", true, false, 1);
+
+        assertThat(suggestions.isTruncated()).isTrue();
+        // The heaviest completion sorts after the scanned window
+        assertThat(suggestions.getItems()).extracting(BookSuggestion::getText).containsExactly("Aa");
+        assertThat(suggester.suggest("ac", true, false, 1).isTruncated()).isFalse();
+    }
+}
@@ -0,0 +1,100 @@
+package com.wipro.bookservice.service;
+
+import com.wipro.bookservice.repository.BookRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IsbnBloomFilterTest {
+    private final BookRepository bookRepository = mock(BookRepository.class);
+
+    @Test
+    void everyIsbnMightBePresentUntilTheRebuildFinishes() {
+        IsbnBloomFilter filter = new IsbnBloomFilter(bookRepository, 1000, 0.01, 1000);
+
+        assertThat(filter.mightContain("9780000000001")).isTrue();
+    }
+
+    @Test
+    void rebuildReadsEveryPageAndNormalizesIsbns() {
+        when(bookRepository.findIsbnPage(0L, PageRequest.of(0, 2)))
+                .thenReturn(rows(new Object[] {1L, "978-0-00-000000-1"}, new Object[] {2L, null}));
+        when(bookRepository.findIsbnPage(2L, PageRequest.of(0, 2)))
+                .thenReturn(rows(new Object[] {5L, "978 0000000005"}));
+        IsbnBloomFilter filter = new IsbnBloomFilter(bookRepository, 1000, 0.01, 2);
+
+        filter.rebuild();
+
+        assertThat(filter.mightContain("9780000000001")).isTrue();
+        assertThat(filter.mightContain("9780000000005")).isTrue();
+    }
+
+    @Test
+    void hasNoFalseNegativesAndFewFalsePositives() {
+        IsbnBloomFilter filter = readyFilter(10_000);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(isbn(i));
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain(isbn(i))).isTrue();
+        }
+        int falsePositives = 0;
+        for (int i = 10_000; i < 110_000; i++) {
+            if (filter.mightContain(isbn(i))) {
+                falsePositives++;
+            }
+        }
+        // Configured for 1%
+        assertThat(falsePositives / 100_000.0).isLessThan(0.03);
+    }
+
+    @Test
+    void concurrentPutsDoNotLoseBits() {
+        IsbnBloomFilter filter = readyFilter(40_000);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<CompletableFuture<Void>> writers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int offset = t * 10_000;
+                writers.add(CompletableFuture.runAsync(() -> {
+                    for (int i = offset; i < offset + 10_000; i++) {
+                        filter.put(isbn(i));
+                    }
+                }, executor));
+            }
+            CompletableFuture.allOf(writers.toArray(new CompletableFuture[0])).join();
+        } finally {
+            executor.shutdown();
+        }
+
+        for (int i = 0; i < 40_000; i++) {
+            assertThat(filter.mightContain(isbn(i))).isTrue();
+        }
+    }
+
+    private IsbnBloomFilter readyFilter(long expectedInsertions) {
+        when(bookRepository.findIsbnPage(0L, PageRequest.of(0, 1000))).thenReturn(rows());
+        IsbnBloomFilter filter = new IsbnBloomFilter(bookRepository, expectedInsertions, 0.01, 1000);
+        filter.rebuild();
+        return filter;
+    }
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return Arrays.asList(rows);
+    }
+
+    private static String isbn(int i) {
+        return String.format("978%010d", i);
+    }
+}
@@ -0,0 +1,28 @@
+package com.wipro.fineservice.config;
+
+import com.wipro.fineservice.entity.Fine;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the fine_seq id table past the ids already handed out by the former AUTO_INCREMENT
+ * column, so pooled id blocks never collide with existing rows. Depends on the
+ * EntityManagerFactory so it runs after Hibernate has created the table.
+ */
+@Component
+public class FineIdSequenceInitializer {
+    private final JdbcTemplate jdbcTemplate;
+
+    public FineIdSequenceInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void alignWithExistingIds() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM fines", Long.class);
+        long floor = maxId + Fine.ID_ALLOCATION_SIZE;
+        jdbcTemplate.update("UPDATE fine_seq SET next_val = ? WHERE next_val <= ?", floor + 1, floor);
+    }
+}
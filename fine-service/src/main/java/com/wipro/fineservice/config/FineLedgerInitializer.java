@@ -0,0 +1,90 @@
+package com.wipro.fineservice.config;
+
+import com.wipro.common.jdbc.NamedLock;
+import com.wipro.fineservice.service.FineService;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts fines.amount from the former DOUBLE column to DECIMAL(12,2), which Hibernate's
+ * schema update does not do, then rebuilds user_balances from the unpaid fines. Depends on the
+ * EntityManagerFactory so it runs after Hibernate has created the tables.
+ * <p>
+ * The conversion runs under a named lock and refuses to start while any amount has more than
+ * two decimals, since the ALTER would round it silently. The rebuild runs on every start
+ * unless {@code fine.ledger.rebuild-on-startup} is false. A replica still on the version
+ * without the ledger writes fines without touching it, so after such a rolling deploy call
+ * POST /payments/balances/rebuild once the last old replica is gone.
+ */
+@Component
+public class FineLedgerInitializer {
+    private static final Logger logger = LoggerFactory.getLogger(FineLedgerInitializer.class);
+    private static final String LOCK_NAME = "fine-service.amount-migration";
+    private static final Duration LOCK_TIMEOUT = Duration.ofMinutes(5);
+    private static final int MAX_REPORTED_ROWS = 20;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FineService fineService;
+    private final NamedLock namedLock;
+    private final boolean rebuildOnStartup;
+
+    public FineLedgerInitializer(JdbcTemplate jdbcTemplate, FineService fineService,
+                                 EntityManagerFactory entityManagerFactory,
+                                 @Value("${fine.ledger.rebuild-on-startup:true}") boolean rebuildOnStartup) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fineService = fineService;
+        this.namedLock = new NamedLock(jdbcTemplate);
+        this.rebuildOnStartup = rebuildOnStartup;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        if (!amountIsDecimal()) {
+            namedLock.runExclusively(LOCK_NAME, LOCK_TIMEOUT, () -> {
+                // Another replica may have converted the column while this one waited
+                if (!amountIsDecimal()) {
+                    convertAmount();
+                }
+                return null;
+            });
+        }
+        if (rebuildOnStartup) {
+            int users = fineService.rebuildBalances();
+            logger.info("Rebuilt the balance ledger for {} users", users);
+        }
+    }
+
+    private void convertAmount() {
+        List<Map<String, Object>> inexact = jdbcTemplate.queryForList(
+                "SELECT id, amount FROM fines WHERE amount <> ROUND(amount, 2) ORDER BY id LIMIT " + MAX_REPORTED_ROWS);
+        if (!inexact.isEmpty()) {
+            Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM fines WHERE amount <> ROUND(amount, 2)", Long.class);
+            logger.error("{} fines have amounts with more than two decimals, for example {}", count, inexact);
+            throw new IllegalStateException(count + " fines have amounts with more than two decimals; round them " +
+                    "before fines.amount is converted to DECIMAL(12,2)");
+        }
+        String type = amountType();
+        jdbcTemplate.execute("ALTER TABLE fines MODIFY amount DECIMAL(12,2) NOT NULL");
+        logger.info("Converted fines.amount from {} to DECIMAL(12,2)", type);
+    }
+
+    private boolean amountIsDecimal() {
+        String type = amountType();
+        return type == null || type.equalsIgnoreCase("decimal");
+    }
+
+    private String amountType() {
+        List<String> types = jdbcTemplate.queryForList("SELECT data_type FROM information_schema.columns " +
+                "WHERE table_schema = DATABASE() AND table_name = 'fines' AND column_name = 'amount'", String.class);
+        return types.isEmpty() ? null : types.get(0);
+    }
+}
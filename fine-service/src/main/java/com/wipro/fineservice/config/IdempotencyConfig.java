@@ -0,0 +1,24 @@
+package com.wipro.fineservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wipro.common.idempotency.IdempotencyService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+
+@Configuration
+public class IdempotencyConfig {
+    /**
+     * Idempotency keys of this service, kept in the fine_idempotency_keys table.
+     */
+    @Bean
+    public IdempotencyService idempotencyService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                                                 @Value("${idempotency.ttl:24h}") Duration ttl,
+                                                 @Value("${idempotency.wait-timeout:10s}") Duration waitTimeout,
+                                                 @Value("${idempotency.abandon-after:5m}") Duration abandonAfter) {
+        return new IdempotencyService(jdbcTemplate, objectMapper, "fine_idempotency_keys", ttl, waitTimeout, abandonAfter);
+    }
+}
@@ -1,27 +1,69 @@
 package com.wipro.fineservice.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wipro.common.dto.BatchLookupResult;
+import com.wipro.common.idempotency.IdempotencyService;
+import com.wipro.fineservice.dto.FineBatchResult;
+import com.wipro.fineservice.dto.FinePage;
+import com.wipro.fineservice.dto.FineRequest;
+import com.wipro.fineservice.dto.FineSettlementResult;
 import com.wipro.fineservice.entity.Fine;
+import com.wipro.fineservice.entity.UserBalance;
+import com.wipro.fineservice.repository.FineHistoryFilter;
 import com.wipro.fineservice.service.FineService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/payments")
 @Tag(name = "Fine API", description = "Operations related to fines and payments")
 public class FineController {
 
+    private static final int MAX_BATCH_IDS = 500;
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final TypeReference<Fine> FINE = new TypeReference<>() {};
+    private static final TypeReference<FineSettlementResult> SETTLEMENT = new TypeReference<>() {};
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+    private static final String CSV_HEADER = "id,userId,bookId,amount,paid,fineDate,paymentDate,externalRef\n";
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int STREAM_FLUSH_INTERVAL = 500;
+
     private final FineService fineService;
+    private final IdempotencyService idempotencyService;
+    private final ObjectMapper objectMapper;
 
-    public FineController(FineService fineService) {
+    public FineController(FineService fineService, IdempotencyService idempotencyService, ObjectMapper objectMapper) {
         this.fineService = fineService;
+        this.idempotencyService = idempotencyService;
+        this.objectMapper = objectMapper;
     }
 
     @Operation(
@@ -37,8 +79,31 @@ public class FineController {
     public ResponseEntity<Fine> createFine(
             @RequestParam Long userId,
             @RequestParam Long bookId,
-            @RequestParam double amount) {
-        return ResponseEntity.ok(fineService.createFine(userId, bookId, amount));
+            @Parameter(description = "Fine amount, at most two decimal places", example = "50.00")
+            @RequestParam BigDecimal amount,
+            @Parameter(description = "Key identifying this request; a retry with the same key returns the first response")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return ResponseEntity.ok(idempotencyService.execute(idempotencyKey, "create", userId + ":" + bookId + ":" + amount.toPlainString(), FINE,
+                () -> fineService.createFine(userId, bookId, amount)));
+    }
+
+    @Operation(
+        summary = "Create several fines",
+        description = "Creates up to 500 fines in one database transaction with batched inserts and sends a " +
+                "single notification. Requests whose externalRef already exists are skipped, so a batch can be " +
+                "resent safely",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Number of fines created and skipped",
+                content = @Content(schema = @Schema(implementation = FineBatchResult.class))),
+            @ApiResponse(responseCode = "400", description = "Too many fines")
+        }
+    )
+    @PostMapping("/batch")
+    public ResponseEntity<FineBatchResult> createFines(@RequestBody List<FineRequest> requests) {
+        if (requests.size() > MAX_BATCH_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_IDS + " fines can be created at once");
+        }
+        return ResponseEntity.ok(fineService.createFines(requests));
     }
 
     @Operation(
@@ -55,6 +120,52 @@ public class FineController {
         return ResponseEntity.ok(fineService.getFinesByUser(userId));
     }
 
+    @Operation(
+        summary = "Get a user's outstanding balance",
+        description = "Returns the sum and number of the user's unpaid fines from the balance ledger, without " +
+                "reading the fines. Users without fines have a zero balance",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Outstanding balance",
+                content = @Content(schema = @Schema(implementation = UserBalance.class)))
+        }
+    )
+    @GetMapping("/users/{userId}/balance")
+    public ResponseEntity<UserBalance> getBalance(
+            @Parameter(description = "ID of the user", example = "1") @PathVariable Long userId) {
+        return ResponseEntity.ok(fineService.getBalance(userId));
+    }
+
+    @Operation(
+        summary = "Rebuild the balance ledger",
+        description = "Recomputes every user's outstanding balance from the unpaid fines. Call it once the last " +
+                "replica running a version without the ledger has stopped",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Number of users with an outstanding balance")
+        }
+    )
+    @PostMapping("/balances/rebuild")
+    public ResponseEntity<Integer> rebuildBalances() {
+        return ResponseEntity.ok(fineService.rebuildBalances());
+    }
+
+    @Operation(
+        summary = "Get fines by ID list",
+        description = "Fetches up to 500 fines in one call. The result is keyed by fine id in request order; " +
+                "ids without a fine are marked NOT_FOUND",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Lookup results keyed by fine id"),
+            @ApiResponse(responseCode = "400", description = "Too many ids")
+        }
+    )
+    @GetMapping("/batch")
+    public ResponseEntity<Map<Long, BatchLookupResult<Fine>>> getFinesByIds(
+            @Parameter(description = "Comma-separated fine ids", example = "1,2,3") @RequestParam List<Long> ids) {
+        if (ids.size() > MAX_BATCH_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_IDS + " ids can be requested at once");
+        }
+        return ResponseEntity.ok(fineService.getFinesByIds(ids));
+    }
+
     @Operation(
         summary = "Mark fine as paid",
         description = "Marks a specific fine as paid",
@@ -65,20 +176,209 @@ public class FineController {
         }
     )
     @PutMapping("/{fineId}/pay")
-    public ResponseEntity<Fine> markFineAsPaid(@PathVariable Long fineId) {
-        return ResponseEntity.ok(fineService.markFineAsPaid(fineId));
+    public ResponseEntity<Fine> markFineAsPaid(
+            @PathVariable Long fineId,
+            @Parameter(description = "Key identifying this request; a retry with the same key returns the first response")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return ResponseEntity.ok(idempotencyService.execute(idempotencyKey, "pay", String.valueOf(fineId), FINE,
+                () -> fineService.markFineAsPaid(fineId)));
+    }
+
+    @Operation(
+        summary = "Pay several fines",
+        description = "Pays up to 500 fines in one database transaction with a single UPDATE, deducts them from " +
+                "the users' balances and sends a single summary notification. The outcome of each fine is PAID, " +
+                "ALREADY_PAID or NOT_FOUND",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Outcome per fine id, in request order",
+                content = @Content(schema = @Schema(implementation = FineSettlementResult.class))),
+            @ApiResponse(responseCode = "400", description = "No fine ids, a null id or too many fine ids")
+        }
+    )
+    @PostMapping("/pay")
+    public ResponseEntity<FineSettlementResult> settleFines(
+            @RequestBody List<Long> fineIds,
+            @Parameter(description = "Key identifying this request; a retry with the same key returns the first response")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        if (fineIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one fine id is required");
+        }
+        if (fineIds.size() > MAX_BATCH_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_IDS + " fines can be paid at once");
+        }
+        if (fineIds.contains(null)) {
+            throw new IllegalArgumentException("Fine ids must not be null");
+        }
+        return ResponseEntity.ok(idempotencyService.execute(idempotencyKey, "pay-batch", fineIds.toString(), SETTLEMENT,
+                () -> fineService.settleFines(fineIds)));
+    }
+
+    @Operation(
+        summary = "Pay all unpaid fines of a user",
+        description = "Pays every unpaid fine of the user in one database transaction with a single UPDATE and " +
+                "sends a single summary notification",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "The fines paid, keyed by fine id",
+                content = @Content(schema = @Schema(implementation = FineSettlementResult.class)))
+        }
+    )
+    @PostMapping("/users/{userId}/pay")
+    public ResponseEntity<FineSettlementResult> settleUserFines(
+            @Parameter(description = "ID of the user", example = "1") @PathVariable Long userId,
+            @Parameter(description = "Key identifying this request; a retry with the same key returns the first response")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return ResponseEntity.ok(idempotencyService.execute(idempotencyKey, "pay-user", String.valueOf(userId), SETTLEMENT,
+                () -> fineService.settleUserFines(userId)));
     }
 
     @Operation(
         summary = "Get payment history",
-        description = "Retrieves all payment transactions for all users",
+        description = "Returns one page of fines matching the filters, ordered by the chosen date and then id. " +
+                "The cursor for the next page is returned in the X-Next-Cursor header and is absent on the last page. " +
+                "Use /payments/history/export to read the whole history",
         responses = {
             @ApiResponse(responseCode = "200", description = "Payment history retrieved successfully",
-                content = @Content(schema = @Schema(implementation = Fine.class)))
+                content = @Content(schema = @Schema(implementation = Fine.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid filter, limit or cursor")
         }
     )
     @GetMapping("/history")
-    public ResponseEntity<List<Fine>> getPaymentHistory() {
-        return ResponseEntity.ok(fineService.getAllPayments());
+    public ResponseEntity<List<Fine>> getPaymentHistory(
+            @Parameter(description = "Date to filter and order by: fineDate or paymentDate. paymentDate only returns paid fines",
+                    example = "fineDate")
+            @RequestParam(defaultValue = "fineDate") String dateField,
+            @Parameter(description = "Start of the date range (optional, ISO format)", example = "2025-08-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "End of the date range (optional, ISO format)", example = "2025-08-31T23:59:59")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Only fines of this user", example = "1") @RequestParam(required = false) Long userId,
+            @Parameter(description = "Only paid or only unpaid fines") @RequestParam(required = false) Boolean paid,
+            @Parameter(description = "Page size (1-1000)", example = "50")
+            @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Opaque cursor from a previous X-Next-Cursor header")
+            @RequestParam(required = false) String after) {
+        FineHistoryFilter filter = toFilter(dateField, from, to, userId, paid);
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        LocalDateTime afterDate = null;
+        Long afterId = null;
+        if (after != null) {
+            try {
+                String[] cursor = new String(Base64.getUrlDecoder().decode(after), StandardCharsets.UTF_8).split("\\|", 2);
+                afterDate = LocalDateTime.parse(cursor[0]);
+                afterId = Long.valueOf(cursor[1]);
+            } catch (IllegalArgumentException | DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + after);
+            }
+        }
+        FinePage page = fineService.getHistoryPage(filter, afterDate, afterId, pageSize);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getLast() != null) {
+            response.header(NEXT_CURSOR_HEADER, encodeCursor(filter, page.getLast()));
+        }
+        return response.body(page.getItems());
+    }
+
+    @Operation(
+        summary = "Export payment history",
+        description = "Streams every fine matching the filters as newline-delimited JSON or CSV, ordered by the " +
+                "chosen date and then id. Rows are read from a database cursor as they are written, so the export " +
+                "size does not affect memory use",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "One fine per line",
+                content = {
+                    @Content(mediaType = NDJSON, schema = @Schema(implementation = Fine.class)),
+                    @Content(mediaType = CSV)
+                }),
+            @ApiResponse(responseCode = "400", description = "Invalid filter or format")
+        }
+    )
+    @GetMapping("/history/export")
+    public ResponseEntity<StreamingResponseBody> exportPaymentHistory(
+            @Parameter(description = "ndjson or csv", example = "csv") @RequestParam(defaultValue = "ndjson") String format,
+            @Parameter(description = "Date to filter and order by: fineDate or paymentDate", example = "paymentDate")
+            @RequestParam(defaultValue = "fineDate") String dateField,
+            @Parameter(description = "Start of the date range (optional, ISO format)", example = "2025-08-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "End of the date range (optional, ISO format)", example = "2025-08-31T23:59:59")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Only fines of this user", example = "1") @RequestParam(required = false) Long userId,
+            @Parameter(description = "Only paid or only unpaid fines") @RequestParam(required = false) Boolean paid) {
+        FineHistoryFilter filter = toFilter(dateField, from, to, userId, paid);
+        boolean csv;
+        if ("csv".equalsIgnoreCase(format)) {
+            csv = true;
+        } else if ("ndjson".equalsIgnoreCase(format)) {
+            csv = false;
+        } else {
+            throw new IllegalArgumentException("format must be ndjson or csv");
+        }
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            if (csv) {
+                writer.write(CSV_HEADER);
+            }
+            int[] written = {0};
+            try {
+                fineService.streamHistory(filter, fine -> {
+                    try {
+                        writer.write(csv ? toCsvLine(fine) : objectMapper.writeValueAsString(fine) + "\n");
+                        if (++written[0] % STREAM_FLUSH_INTERVAL == 0) {
+                            writer.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.flush();
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(csv ? CSV + ";charset=UTF-8" : NDJSON));
+        if (csv) {
+            response.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"payment-history.csv\"");
+        }
+        return response.body(body);
+    }
+
+    private static FineHistoryFilter toFilter(String dateField, LocalDateTime from, LocalDateTime to, Long userId,
+                                              Boolean paid) {
+        FineHistoryFilter.DateField field;
+        if ("fineDate".equals(dateField)) {
+            field = FineHistoryFilter.DateField.FINE_DATE;
+        } else if ("paymentDate".equals(dateField)) {
+            field = FineHistoryFilter.DateField.PAYMENT_DATE;
+        } else {
+            throw new IllegalArgumentException("dateField must be fineDate or paymentDate");
+        }
+        return new FineHistoryFilter(field, from, to, userId, paid);
+    }
+
+    private static String encodeCursor(FineHistoryFilter filter, Fine last) {
+        LocalDateTime date = filter.getDateField() == FineHistoryFilter.DateField.PAYMENT_DATE
+                ? last.getPaymentDate() : last.getFineDate();
+        String position = date + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String toCsvLine(Fine fine) {
+        return fine.getId() + "," + csvValue(fine.getUserId()) + "," + csvValue(fine.getBookId()) + ","
+                + fine.getAmount().toPlainString() + "," + fine.isPaid() + "," + csvValue(fine.getFineDate()) + ","
+                + csvValue(fine.getPaymentDate()) + "," + csvValue(fine.getExternalRef()) + "\n";
+    }
+
+    private static String csvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
     }
 }
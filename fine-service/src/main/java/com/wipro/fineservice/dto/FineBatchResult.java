@@ -0,0 +1,33 @@
+package com.wipro.fineservice.dto;
+
+public class FineBatchResult {
+    private int created;
+    private int duplicates;
+
+    public FineBatchResult() {
+    }
+
+    public FineBatchResult(int created, int duplicates) {
+        this.created = created;
+        this.duplicates = duplicates;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public void setCreated(int created) {
+        this.created = created;
+    }
+
+    /**
+     * Requests skipped because a fine with the same externalRef already exists.
+     */
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    public void setDuplicates(int duplicates) {
+        this.duplicates = duplicates;
+    }
+}
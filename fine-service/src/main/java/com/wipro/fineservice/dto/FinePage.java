@@ -0,0 +1,37 @@
+package com.wipro.fineservice.dto;
+
+import com.wipro.fineservice.entity.Fine;
+
+import java.util.List;
+
+public class FinePage {
+    private List<Fine> items;
+    private Fine last;
+
+    public FinePage() {
+    }
+
+    public FinePage(List<Fine> items, Fine last) {
+        this.items = items;
+        this.last = last;
+    }
+
+    public List<Fine> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Fine> items) {
+        this.items = items;
+    }
+
+    /**
+     * The last fine of this page when another page follows, otherwise null.
+     */
+    public Fine getLast() {
+        return last;
+    }
+
+    public void setLast(Fine last) {
+        this.last = last;
+    }
+}
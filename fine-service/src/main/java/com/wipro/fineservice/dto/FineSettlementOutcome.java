@@ -0,0 +1,34 @@
+package com.wipro.fineservice.dto;
+
+import com.wipro.fineservice.entity.Fine;
+
+public class FineSettlementOutcome {
+    public enum Status { PAID, ALREADY_PAID, NOT_FOUND }
+
+    private Status status;
+    private Fine fine;
+
+    public FineSettlementOutcome() {
+    }
+
+    public FineSettlementOutcome(Status status, Fine fine) {
+        this.status = status;
+        this.fine = fine;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Fine getFine() {
+        return fine;
+    }
+
+    public void setFine(Fine fine) {
+        this.fine = fine;
+    }
+}
@@ -0,0 +1,49 @@
+package com.wipro.fineservice.dto;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+public class FineSettlementResult {
+    private int paid;
+    private BigDecimal amountPaid;
+    private Map<Long, FineSettlementOutcome> outcomes;
+
+    public FineSettlementResult() {
+    }
+
+    public FineSettlementResult(int paid, BigDecimal amountPaid, Map<Long, FineSettlementOutcome> outcomes) {
+        this.paid = paid;
+        this.amountPaid = amountPaid;
+        this.outcomes = outcomes;
+    }
+
+    /**
+     * Fines paid by this request.
+     */
+    public int getPaid() {
+        return paid;
+    }
+
+    public void setPaid(int paid) {
+        this.paid = paid;
+    }
+
+    public BigDecimal getAmountPaid() {
+        return amountPaid;
+    }
+
+    public void setAmountPaid(BigDecimal amountPaid) {
+        this.amountPaid = amountPaid;
+    }
+
+    /**
+     * Outcome per fine id, in request order.
+     */
+    public Map<Long, FineSettlementOutcome> getOutcomes() {
+        return outcomes;
+    }
+
+    public void setOutcomes(Map<Long, FineSettlementOutcome> outcomes) {
+        this.outcomes = outcomes;
+    }
+}
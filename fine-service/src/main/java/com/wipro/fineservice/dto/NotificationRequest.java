@@ -1,20 +0,0 @@
-package com.wipro.fineservice.dto;
-
-public class NotificationRequest {
-    private String message;
-
-    public NotificationRequest() {
-    }
-
-    public NotificationRequest(String message) {
-        this.message = message;
-    }
-
-    public String getMessage() {
-        return message;
-    }
-
-    public void setMessage(String message) {
-        this.message = message;
-    }
-}
@@ -1,22 +1,36 @@
 package com.wipro.fineservice.entity;
 
-
-
 import jakarta.persistence.*;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "fines")
+@Table(name = "fines", uniqueConstraints = @UniqueConstraint(name = "uk_fines_external_ref", columnNames = "externalRef"),
+        indexes = {
+            @Index(name = "idx_fines_user", columnList = "userId, id"),
+            @Index(name = "idx_fines_user_fine_date", columnList = "userId, fineDate, id"),
+            @Index(name = "idx_fines_user_payment_date", columnList = "userId, paymentDate, id"),
+            @Index(name = "idx_fines_fine_date", columnList = "fineDate, id"),
+            @Index(name = "idx_fines_paid_fine_date", columnList = "paid, fineDate, id"),
+            @Index(name = "idx_fines_payment_date", columnList = "paymentDate, id")
+        })
 public class Fine {
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // A pooled sequence (a table on MySQL) instead of IDENTITY so Hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "fine_seq")
+    @SequenceGenerator(name = "fine_seq", sequenceName = "fine_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
     private Long userId;
     private Long bookId;
-    private double amount;
+    // Exact fixed-point money, so balances summed incrementally never drift
+    @Column(nullable = false, precision = 12, scale = 2)
+    private BigDecimal amount;
     private boolean paid;
     private LocalDateTime fineDate;
     private LocalDateTime paymentDate;
+    private String externalRef;
 
     // Getters and Setters
     public Long getId() { return id; }
@@ -25,12 +39,14 @@ public class Fine {
     public void setUserId(Long userId) { this.userId = userId; }
     public Long getBookId() { return bookId; }
     public void setBookId(Long bookId) { this.bookId = bookId; }
-    public double getAmount() { return amount; }
-    public void setAmount(double amount) { this.amount = amount; }
+    public BigDecimal getAmount() { return amount; }
+    public void setAmount(BigDecimal amount) { this.amount = amount; }
     public boolean isPaid() { return paid; }
     public void setPaid(boolean paid) { this.paid = paid; }
     public LocalDateTime getFineDate() { return fineDate; }
     public void setFineDate(LocalDateTime fineDate) { this.fineDate = fineDate; }
     public LocalDateTime getPaymentDate() { return paymentDate; }
     public void setPaymentDate(LocalDateTime paymentDate) { this.paymentDate = paymentDate; }
+    public String getExternalRef() { return externalRef; }
+    public void setExternalRef(String externalRef) { this.externalRef = externalRef; }
 }
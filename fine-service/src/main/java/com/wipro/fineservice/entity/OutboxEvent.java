@@ -0,0 +1,17 @@
+package com.wipro.fineservice.entity;
+
+import com.wipro.common.outbox.AbstractOutboxEvent;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * A notification of fine-service waiting in the fine_outbox table, see {@link AbstractOutboxEvent}.
+ */
+@Entity
+@Table(name = "fine_outbox", indexes = {
+        @Index(name = "idx_fine_outbox_aggregate", columnList = "aggregateType, aggregateId, id"),
+        @Index(name = "idx_fine_outbox_next_attempt", columnList = "nextAttemptAt, id")
+})
+public class OutboxEvent extends AbstractOutboxEvent {
+}
@@ -0,0 +1,41 @@
+package com.wipro.fineservice.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Running total of a user's unpaid fines, kept in step with the fines table by
+ * {@link com.wipro.fineservice.repository.UserBalanceRepository}.
+ */
+@Entity
+@Table(name = "user_balances")
+public class UserBalance {
+    @Id
+    private Long userId;
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal outstanding;
+    private long unpaidFines;
+    private LocalDateTime updatedAt;
+
+    public UserBalance() {
+    }
+
+    public UserBalance(Long userId, BigDecimal outstanding, long unpaidFines, LocalDateTime updatedAt) {
+        this.userId = userId;
+        this.outstanding = outstanding;
+        this.unpaidFines = unpaidFines;
+        this.updatedAt = updatedAt;
+    }
+
+    // Getters and Setters
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    public BigDecimal getOutstanding() { return outstanding; }
+    public void setOutstanding(BigDecimal outstanding) { this.outstanding = outstanding; }
+    public long getUnpaidFines() { return unpaidFines; }
+    public void setUnpaidFines(long unpaidFines) { this.unpaidFines = unpaidFines; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,35 @@
+package com.wipro.fineservice.repository;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Changes to user balances, summed per user before they are written so a batch touching the
+ * same user several times issues one upsert. Users are kept in id order, so concurrent
+ * batches lock their balance rows in the same order and cannot deadlock on them.
+ */
+public class BalanceDelta {
+    final Map<Long, BigDecimal> amounts = new TreeMap<>();
+    final Map<Long, Long> counts = new TreeMap<>();
+
+    public void fined(Long userId, BigDecimal amount) {
+        add(userId, amount, 1);
+    }
+
+    public void paid(Long userId, BigDecimal amount) {
+        add(userId, amount.negate(), -1);
+    }
+
+    public boolean isEmpty() {
+        return amounts.isEmpty();
+    }
+
+    private void add(Long userId, BigDecimal amount, long count) {
+        if (userId == null) {
+            return;
+        }
+        amounts.merge(userId, amount, BigDecimal::add);
+        counts.merge(userId, count, Long::sum);
+    }
+}
@@ -0,0 +1,60 @@
+package com.wipro.fineservice.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filters for the payment history. Rows are selected and ordered by one of the two dates;
+ * filtering by payment date only returns paid fines.
+ */
+public class FineHistoryFilter {
+    static final LocalDateTime MIN_DATE = LocalDateTime.of(1970, 1, 1, 0, 0);
+    static final LocalDateTime MAX_DATE = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    public enum DateField {
+        FINE_DATE("fine_date"),
+        PAYMENT_DATE("payment_date");
+
+        final String column;
+
+        DateField(String column) {
+            this.column = column;
+        }
+    }
+
+    private final DateField dateField;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final Long userId;
+    private final Boolean paid;
+
+    public FineHistoryFilter(DateField dateField, LocalDateTime from, LocalDateTime to, Long userId, Boolean paid) {
+        this.dateField = dateField;
+        this.from = from == null ? MIN_DATE : from;
+        this.to = to == null ? MAX_DATE : to;
+        this.userId = userId;
+        this.paid = paid;
+        if (this.from.isAfter(this.to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+    }
+
+    public DateField getDateField() {
+        return dateField;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Boolean getPaid() {
+        return paid;
+    }
+}
@@ -0,0 +1,107 @@
+package com.wipro.fineservice.repository;
+
+import com.wipro.fineservice.entity.Fine;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads the payment history ordered by (date, id), where the date is the fine date or the
+ * payment date. Both orders are served by an index (idx_fines_fine_date, idx_fines_paid_fine_date,
+ * idx_fines_payment_date, and idx_fines_user_fine_date or idx_fines_user_payment_date when
+ * filtering by user), so a page is a range scan that starts at the cursor and stops after
+ * {@code limit} rows, and an export never sorts.
+ */
+@Repository
+public class FineHistoryRepository {
+    // Makes MySQL Connector/J stream rows from the server instead of buffering the result set
+    private static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public FineHistoryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Returns up to {@code limit} fines matching the filter that come after the (afterDate,
+     * afterId) cursor position; a null cursor starts at the beginning of the range.
+     */
+    public List<Fine> findPage(FineHistoryFilter filter, LocalDateTime afterDate, Long afterId, int limit) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = select(filter, args);
+        if (afterDate != null) {
+            String column = filter.getDateField().column;
+            sql.append(" AND (").append(column).append(" > ? OR (").append(column).append(" = ? AND id > ?))");
+            args.add(Timestamp.valueOf(afterDate));
+            args.add(Timestamp.valueOf(afterDate));
+            args.add(afterId);
+        }
+        sql.append(orderBy(filter)).append(" LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> mapRow(rs), args.toArray());
+    }
+
+    /**
+     * Passes every fine matching the filter to the consumer, in history order, reading them
+     * through a forward-only cursor.
+     */
+    public void stream(FineHistoryFilter filter, Consumer<Fine> consumer) {
+        List<Object> args = new ArrayList<>();
+        String sql = select(filter, args).append(orderBy(filter)).toString();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(STREAMING_FETCH_SIZE);
+            for (int i = 0; i < args.size(); i++) {
+                statement.setObject(i + 1, args.get(i));
+            }
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(mapRow(rs)));
+    }
+
+    private static StringBuilder select(FineHistoryFilter filter, List<Object> args) {
+        String column = filter.getDateField().column;
+        StringBuilder sql = new StringBuilder("SELECT id, user_id, book_id, amount, paid, fine_date, payment_date, " +
+                "external_ref FROM fines WHERE ").append(column).append(" BETWEEN ? AND ?");
+        args.add(Timestamp.valueOf(filter.getFrom()));
+        args.add(Timestamp.valueOf(filter.getTo()));
+        if (filter.getUserId() != null) {
+            sql.append(" AND user_id = ?");
+            args.add(filter.getUserId());
+        }
+        if (filter.getPaid() != null) {
+            sql.append(" AND paid = ?");
+            args.add(filter.getPaid());
+        }
+        return sql;
+    }
+
+    private static String orderBy(FineHistoryFilter filter) {
+        return " ORDER BY " + filter.getDateField().column + ", id";
+    }
+
+    private static Fine mapRow(ResultSet rs) throws SQLException {
+        Fine fine = new Fine();
+        fine.setId(rs.getLong("id"));
+        fine.setUserId(rs.getObject("user_id", Long.class));
+        fine.setBookId(rs.getObject("book_id", Long.class));
+        fine.setAmount(rs.getBigDecimal("amount"));
+        fine.setPaid(rs.getBoolean("paid"));
+        Timestamp fineDate = rs.getTimestamp("fine_date");
+        fine.setFineDate(fineDate == null ? null : fineDate.toLocalDateTime());
+        Timestamp paymentDate = rs.getTimestamp("payment_date");
+        fine.setPaymentDate(paymentDate == null ? null : paymentDate.toLocalDateTime());
+        fine.setExternalRef(rs.getString("external_ref"));
+        return fine;
+    }
+}
@@ -1,16 +1,46 @@
 package com.wipro.fineservice.repository;
 
-
-
-
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.wipro.fineservice.entity.Fine;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface FineRepository extends JpaRepository<Fine, Long> {
     List<Fine> findByUserId(Long userId);
+
+    @Query("SELECT f.externalRef FROM Fine f WHERE f.externalRef IN :externalRefs")
+    List<String> findExistingExternalRefs(Collection<String> externalRefs);
+
+    /**
+     * Marks the fine paid unless it already is. Returns 0 when another request paid it first,
+     * so a fine is only deducted from the balance once.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Fine f SET f.paid = true, f.paymentDate = :paymentDate WHERE f.id = :id AND f.paid = false")
+    int markPaid(Long id, LocalDateTime paymentDate);
+
+    /**
+     * Locks the fines in id order, so concurrent settlements of overlapping fines wait for
+     * each other instead of deadlocking.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT f FROM Fine f WHERE f.id IN :ids ORDER BY f.id")
+    List<Fine> lockByIds(Collection<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT f FROM Fine f WHERE f.userId = :userId AND f.paid = false ORDER BY f.id")
+    List<Fine> lockUnpaidByUserId(Long userId);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Fine f SET f.paid = true, f.paymentDate = :paymentDate WHERE f.id IN :ids AND f.paid = false")
+    int markAllPaid(Collection<Long> ids, LocalDateTime paymentDate);
 }
\ No newline at end of file
@@ -0,0 +1,9 @@
+package com.wipro.fineservice.repository;
+
+import com.wipro.common.outbox.OutboxEventStore;
+import com.wipro.fineservice.entity.OutboxEvent;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboxEventRepository extends OutboxEventStore<OutboxEvent> {
+}
@@ -0,0 +1,68 @@
+package com.wipro.fineservice.repository;
+
+import com.wipro.fineservice.entity.UserBalance;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Reads and writes the per-user outstanding balance (user_balances). Writes are additive
+ * upserts, so concurrent fines and payments of the same user never overwrite each other and
+ * the balance row does not have to be read first.
+ */
+@Repository
+public class UserBalanceRepository {
+    private static final String UPSERT =
+            "INSERT INTO user_balances (user_id, outstanding, unpaid_fines, updated_at) VALUES (?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE outstanding = outstanding + VALUES(outstanding), " +
+            "unpaid_fines = unpaid_fines + VALUES(unpaid_fines), updated_at = VALUES(updated_at)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserBalanceRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Adds the delta to the balances. Call it inside the transaction that writes the
+     * corresponding fine rows.
+     */
+    public void apply(BalanceDelta delta) {
+        if (delta.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(delta.amounts.size());
+        for (Map.Entry<Long, BigDecimal> entry : delta.amounts.entrySet()) {
+            rows.add(new Object[] {entry.getKey(), entry.getValue(), delta.counts.get(entry.getKey()), now});
+        }
+        jdbcTemplate.batchUpdate(UPSERT, rows);
+    }
+
+    public Optional<UserBalance> findByUserId(Long userId) {
+        return jdbcTemplate.query(
+                "SELECT user_id, outstanding, unpaid_fines, updated_at FROM user_balances WHERE user_id = ?",
+                (rs, rowNum) -> new UserBalance(rs.getLong("user_id"), rs.getBigDecimal("outstanding"),
+                        rs.getLong("unpaid_fines"), rs.getTimestamp("updated_at").toLocalDateTime()),
+                userId).stream().findFirst();
+    }
+
+    /**
+     * Recomputes every balance from the unpaid fines. Run it in a transaction: the
+     * INSERT ... SELECT locks the fines it reads, so fines written meanwhile wait for it.
+     */
+    public int rebuild() {
+        jdbcTemplate.update("DELETE FROM user_balances");
+        return jdbcTemplate.update(
+                "INSERT INTO user_balances (user_id, outstanding, unpaid_fines, updated_at) " +
+                "SELECT user_id, SUM(amount), COUNT(*), ? FROM fines WHERE paid = false AND user_id IS NOT NULL " +
+                "GROUP BY user_id", Timestamp.valueOf(LocalDateTime.now()));
+    }
+}
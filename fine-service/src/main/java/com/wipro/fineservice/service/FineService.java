@@ -1,64 +1,268 @@
 package com.wipro.fineservice.service;
 
-
-
-
-import com.wipro.fineservice.dto.NotificationRequest;
+import com.wipro.common.dto.BatchLookupResult;
+import com.wipro.common.jdbc.NamedLock;
+import com.wipro.fineservice.dto.FineBatchResult;
+import com.wipro.fineservice.dto.FinePage;
+import com.wipro.fineservice.dto.FineRequest;
+import com.wipro.fineservice.dto.FineSettlementOutcome;
+import com.wipro.fineservice.dto.FineSettlementResult;
 import com.wipro.fineservice.entity.Fine;
+import com.wipro.fineservice.entity.UserBalance;
+import com.wipro.fineservice.repository.BalanceDelta;
+import com.wipro.fineservice.repository.FineHistoryFilter;
+import com.wipro.fineservice.repository.FineHistoryRepository;
 import com.wipro.fineservice.repository.FineRepository;
+import com.wipro.fineservice.repository.UserBalanceRepository;
 import com.wipro.fineservice.exception.FineNotFoundException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 public class FineService {
+    private static final String LEDGER_LOCK = "fine-service.ledger-rebuild";
+    private static final Duration LEDGER_LOCK_TIMEOUT = Duration.ofMinutes(5);
+
     private final FineRepository fineRepository;
-    private final RestTemplate restTemplate;
-    private final String notificationServiceUrl = "http://localhost:8085/notifications";
+    private final UserBalanceRepository userBalanceRepository;
+    private final FineHistoryRepository fineHistoryRepository;
+    private final OutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
+    private final NamedLock namedLock;
 
-    public FineService(FineRepository fineRepository, RestTemplate restTemplate) {
+    public FineService(FineRepository fineRepository, UserBalanceRepository userBalanceRepository,
+                       FineHistoryRepository fineHistoryRepository, OutboxService outboxService,
+                       TransactionTemplate transactionTemplate, JdbcTemplate jdbcTemplate) {
         this.fineRepository = fineRepository;
-        this.restTemplate = restTemplate;
+        this.userBalanceRepository = userBalanceRepository;
+        this.fineHistoryRepository = fineHistoryRepository;
+        this.outboxService = outboxService;
+        this.transactionTemplate = transactionTemplate;
+        this.namedLock = new NamedLock(jdbcTemplate);
     }
 
-    private void sendNotification(String message) {
-        try {
-            restTemplate.postForObject(notificationServiceUrl, new NotificationRequest(message), Void.class);
-        } catch (Exception e) {
-            System.err.println("Failed to send notification: " + e.getMessage());
-        }
-    }
-
-    public Fine createFine(Long userId, Long bookId, double amount) {
+    @Transactional
+    public Fine createFine(Long userId, Long bookId, BigDecimal amount) {
         Fine fine = new Fine();
         fine.setUserId(userId);
         fine.setBookId(bookId);
-        fine.setAmount(amount);
+        fine.setAmount(toMoney(amount));
         fine.setPaid(false);
         fine.setFineDate(LocalDateTime.now());
         Fine savedFine = fineRepository.save(fine);
-        sendNotification("Fine created for user: " + userId + ", book: " + bookId);
+        BalanceDelta delta = new BalanceDelta();
+        delta.fined(userId, savedFine.getAmount());
+        userBalanceRepository.apply(delta);
+        outboxService.record("Fine", savedFine.getId(), "Fine created for user: " + userId + ", book: " + bookId);
         return savedFine;
     }
 
+    /**
+     * Creates the requested fines with batched inserts and records one notification event. Requests
+     * whose externalRef already exists, in the database or earlier in the list, are skipped,
+     * so a batch can be resent safely.
+     */
+    @Transactional
+    public FineBatchResult createFines(List<FineRequest> requests) {
+        Set<String> externalRefs = new HashSet<>();
+        for (FineRequest request : requests) {
+            if (request.getExternalRef() != null) {
+                externalRefs.add(request.getExternalRef());
+            }
+        }
+        Set<String> seen = externalRefs.isEmpty()
+                ? new HashSet<>() : new HashSet<>(fineRepository.findExistingExternalRefs(externalRefs));
+        LocalDateTime now = LocalDateTime.now();
+        List<Fine> fines = new ArrayList<>(requests.size());
+        BalanceDelta delta = new BalanceDelta();
+        for (FineRequest request : requests) {
+            if (request.getExternalRef() != null && !seen.add(request.getExternalRef())) {
+                continue;
+            }
+            Fine fine = new Fine();
+            fine.setUserId(request.getUserId());
+            fine.setBookId(request.getBookId());
+            fine.setAmount(toMoney(request.getAmount()));
+            fine.setPaid(false);
+            fine.setFineDate(now);
+            fine.setExternalRef(request.getExternalRef());
+            fines.add(fine);
+            delta.fined(fine.getUserId(), fine.getAmount());
+        }
+        fineRepository.saveAll(fines);
+        userBalanceRepository.apply(delta);
+        if (!fines.isEmpty()) {
+            outboxService.record("Fine", fines.get(0).getId(), "Fines created: " + fines.size());
+        }
+        return new FineBatchResult(fines.size(), requests.size() - fines.size());
+    }
+
+    /**
+     * Pays the given fines with one UPDATE, deducts them from the balances and records one
+     * notification event. Fines that are already paid or do not exist are reported and left
+     * unchanged.
+     */
+    @Transactional
+    public FineSettlementResult settleFines(Collection<Long> fineIds) {
+        Set<Long> uniqueIds = new LinkedHashSet<>(fineIds);
+        return settle(uniqueIds, uniqueIds.isEmpty() ? List.of() : fineRepository.lockByIds(uniqueIds));
+    }
+
+    /**
+     * Pays every unpaid fine of the user, as {@link #settleFines(Collection)} does.
+     */
+    @Transactional
+    public FineSettlementResult settleUserFines(Long userId) {
+        List<Fine> fines = fineRepository.lockUnpaidByUserId(userId);
+        Set<Long> ids = new LinkedHashSet<>();
+        for (Fine fine : fines) {
+            ids.add(fine.getId());
+        }
+        return settle(ids, fines);
+    }
+
+    private FineSettlementResult settle(Set<Long> requestedIds, List<Fine> lockedFines) {
+        Map<Long, Fine> fines = new HashMap<>();
+        List<Long> unpaidIds = new ArrayList<>();
+        BalanceDelta delta = new BalanceDelta();
+        BigDecimal amountPaid = BigDecimal.ZERO.setScale(2);
+        for (Fine fine : lockedFines) {
+            fines.put(fine.getId(), fine);
+            if (!fine.isPaid()) {
+                unpaidIds.add(fine.getId());
+                delta.paid(fine.getUserId(), fine.getAmount());
+                amountPaid = amountPaid.add(fine.getAmount());
+            }
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (!unpaidIds.isEmpty()) {
+            // The rows are locked, so every unpaid fine read above must be updated here
+            int updated = fineRepository.markAllPaid(unpaidIds, now);
+            if (updated != unpaidIds.size()) {
+                throw new IllegalStateException("Expected to pay " + unpaidIds.size() + " fines but paid " + updated
+                        + ", rolling back the settlement");
+            }
+            userBalanceRepository.apply(delta);
+            outboxService.record("Fine", unpaidIds.get(0), "Fines paid: " + unpaidIds.size() + ", total " + amountPaid);
+        }
+
+        Map<Long, FineSettlementOutcome> outcomes = new LinkedHashMap<>();
+        for (Long fineId : requestedIds) {
+            Fine fine = fines.get(fineId);
+            if (fine == null) {
+                outcomes.put(fineId, new FineSettlementOutcome(FineSettlementOutcome.Status.NOT_FOUND, null));
+            } else if (fine.isPaid()) {
+                outcomes.put(fineId, new FineSettlementOutcome(FineSettlementOutcome.Status.ALREADY_PAID, fine));
+            } else {
+                fine.setPaid(true);
+                fine.setPaymentDate(now);
+                outcomes.put(fineId, new FineSettlementOutcome(FineSettlementOutcome.Status.PAID, fine));
+            }
+        }
+        return new FineSettlementResult(unpaidIds.size(), amountPaid, outcomes);
+    }
+
     public List<Fine> getFinesByUser(Long userId) {
         return fineRepository.findByUserId(userId);
     }
 
+    /**
+     * Returns the user's outstanding balance from the ledger, a single primary-key read. Users
+     * without fines have a zero balance.
+     */
+    public UserBalance getBalance(Long userId) {
+        return userBalanceRepository.findByUserId(userId)
+                .orElseGet(() -> new UserBalance(userId, BigDecimal.ZERO.setScale(2), 0, null));
+    }
+
+    /**
+     * Recomputes every balance from the unpaid fines, to repair the ledger. Replicas rebuilding
+     * at the same time take turns on a named lock, held until the rebuild has committed.
+     */
+    public int rebuildBalances() {
+        Integer users = namedLock.runExclusively(LEDGER_LOCK, LEDGER_LOCK_TIMEOUT,
+                () -> transactionTemplate.execute(status -> userBalanceRepository.rebuild()));
+        return users == null ? 0 : users;
+    }
+
+    public Map<Long, BatchLookupResult<Fine>> getFinesByIds(Collection<Long> fineIds) {
+        Set<Long> uniqueIds = new LinkedHashSet<>(fineIds);
+        Map<Long, Fine> fines = new HashMap<>();
+        for (Fine fine : fineRepository.findAllById(uniqueIds)) {
+            fines.put(fine.getId(), fine);
+        }
+        Map<Long, BatchLookupResult<Fine>> results = new LinkedHashMap<>();
+        for (Long fineId : uniqueIds) {
+            Fine fine = fines.get(fineId);
+            results.put(fineId, fine == null ? BatchLookupResult.notFound() : BatchLookupResult.found(fine));
+        }
+        return results;
+    }
+
+    /**
+     * Marks the fine paid and deducts it from the user's balance. Paying a fine that is already
+     * paid returns it unchanged.
+     */
+    @Transactional
     public Fine markFineAsPaid(Long fineId) {
         Fine fine = fineRepository.findById(fineId)
                 .orElseThrow(() -> new FineNotFoundException("Fine not found with id: " + fineId));
-        fine.setPaid(true);
-        fine.setPaymentDate(LocalDateTime.now());
-        Fine updatedFine = fineRepository.save(fine);
-        sendNotification("Fine paid: " + fineId);
-        return updatedFine;
+        if (fineRepository.markPaid(fineId, LocalDateTime.now()) == 0) {
+            return fineRepository.findById(fineId).orElse(fine);
+        }
+        BalanceDelta delta = new BalanceDelta();
+        delta.paid(fine.getUserId(), fine.getAmount());
+        userBalanceRepository.apply(delta);
+        outboxService.record("Fine", fineId, "Fine paid: " + fineId);
+        return fineRepository.findById(fineId).orElse(fine);
+    }
+
+    /**
+     * Returns up to {@code limit} fines of the history, oldest first, that come after the
+     * (afterDate, afterId) cursor position; a null cursor starts at the beginning of the range.
+     */
+    public FinePage getHistoryPage(FineHistoryFilter filter, LocalDateTime afterDate, Long afterId, int limit) {
+        List<Fine> fines = fineHistoryRepository.findPage(filter, afterDate, afterId, limit + 1);
+        if (fines.size() <= limit) {
+            return new FinePage(fines, null);
+        }
+        List<Fine> items = fines.subList(0, limit);
+        return new FinePage(items, items.get(items.size() - 1));
     }
 
-    public List<Fine> getAllPayments() {
-        return fineRepository.findAll();
+    public void streamHistory(FineHistoryFilter filter, Consumer<Fine> consumer) {
+        fineHistoryRepository.stream(filter, consumer);
+    }
+
+    /**
+     * Normalizes an amount to two decimal places, rejecting amounts that are not positive or
+     * would need rounding.
+     */
+    static BigDecimal toMoney(BigDecimal amount) {
+        if (amount == null || amount.signum() <= 0) {
+            throw new IllegalArgumentException("amount must be positive");
+        }
+        try {
+            return amount.setScale(2, RoundingMode.UNNECESSARY);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("amount must have at most two decimal places: " + amount);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.wipro.fineservice.service;
+
+import com.wipro.common.outbox.AbstractOutboxService;
+import com.wipro.fineservice.entity.OutboxEvent;
+import com.wipro.fineservice.repository.OutboxEventRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Records notifications in the fine_outbox table, see {@link AbstractOutboxService}.
+ */
+@Service
+public class OutboxService extends AbstractOutboxService<OutboxEvent> {
+
+    public OutboxService(OutboxEventRepository outboxEventRepository, JdbcTemplate jdbcTemplate) {
+        super(outboxEventRepository, jdbcTemplate, "fine_outbox", OutboxEvent::new);
+    }
+}
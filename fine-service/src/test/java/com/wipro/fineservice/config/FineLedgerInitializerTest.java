@@ -0,0 +1,89 @@
+package com.wipro.fineservice.config;
+
+import com.wipro.fineservice.service.FineService;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FineLedgerInitializerTest {
+    private static final String ALTER = "ALTER TABLE fines MODIFY amount DECIMAL(12,2) NOT NULL";
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final FineService fineService = mock(FineService.class);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet lockResult = mock(ResultSet.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(lockResult);
+        when(lockResult.next()).thenReturn(true);
+        when(lockResult.getInt(1)).thenReturn(1);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+                .thenAnswer(invocation -> invocation.<ConnectionCallback<Object>>getArgument(0).doInConnection(connection));
+    }
+
+    @Test
+    void doubleColumnIsConvertedAndTheLedgerRebuilt() {
+        amountType("double");
+
+        initializer(true).initialize();
+
+        verify(jdbcTemplate).execute(ALTER);
+        verify(fineService).rebuildBalances();
+    }
+
+    @Test
+    void amountsWithMoreThanTwoDecimalsStopTheConversion() {
+        amountType("double");
+        when(jdbcTemplate.queryForList(contains("amount <> ROUND(amount, 2) ORDER BY id")))
+                .thenReturn(List.of(Map.of("id", 12L, "amount", 1.005)));
+        when(jdbcTemplate.queryForObject(contains("COUNT(*)"), eq(Long.class))).thenReturn(1L);
+
+        assertThatThrownBy(() -> initializer(true).initialize())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("more than two decimals");
+
+        verify(jdbcTemplate, never()).execute(ALTER);
+        verify(fineService, never()).rebuildBalances();
+    }
+
+    @Test
+    void decimalColumnIsLeftAloneAndTheRebuildCanBeTurnedOff() {
+        amountType("decimal");
+
+        initializer(false).initialize();
+
+        verify(jdbcTemplate, never()).execute(any(ConnectionCallback.class));
+        verify(jdbcTemplate, never()).execute(ALTER);
+        verify(fineService, never()).rebuildBalances();
+    }
+
+    private void amountType(String type) {
+        when(jdbcTemplate.queryForList(contains("information_schema.columns"), eq(String.class))).thenReturn(List.of(type));
+    }
+
+    private FineLedgerInitializer initializer(boolean rebuildOnStartup) {
+        return new FineLedgerInitializer(jdbcTemplate, fineService, mock(EntityManagerFactory.class), rebuildOnStartup);
+    }
+}
@@ -0,0 +1,108 @@
+package com.wipro.fineservice.controller;
+
+import com.wipro.common.idempotency.IdempotencyService;
+import com.wipro.fineservice.dto.FinePage;
+import com.wipro.fineservice.entity.Fine;
+import com.wipro.fineservice.repository.FineHistoryFilter;
+import com.wipro.fineservice.service.FineService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(FineController.class)
+class FineControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @MockitoBean
+    private FineService fineService;
+    @MockitoBean
+    private IdempotencyService idempotencyService;
+
+    @Test
+    void nextCursorResumesAfterThePaymentDateOfTheLastFine() throws Exception {
+        Fine first = fine(4L, "2025-08-01T09:00");
+        Fine last = fine(9L, "2025-08-02T09:00");
+        when(fineService.getHistoryPage(any(FineHistoryFilter.class), isNull(), isNull(), eq(2)))
+                .thenReturn(new FinePage(List.of(first, last), last));
+        when(fineService.getHistoryPage(any(FineHistoryFilter.class), eq(LocalDateTime.parse("2025-08-02T09:00")), eq(9L), eq(2)))
+                .thenReturn(new FinePage(List.of(fine(5L, "2025-08-03T09:00")), null));
+
+        String cursor = mockMvc.perform(get("/payments/history").param("dateField", "paymentDate").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andReturn().getResponse().getHeader("X-Next-Cursor");
+        assertThat(cursor).isNotBlank();
+
+        mockMvc.perform(get("/payments/history").param("dateField", "paymentDate").param("limit", "2")
+                        .param("after", cursor))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                .andExpect(jsonPath("$[0].id").value(5));
+    }
+
+    @Test
+    void malformedCursorIsRejected() throws Exception {
+        mockMvc.perform(get("/payments/history").param("after", "bm90LWEtY3Vyc29y"))
+                .andExpect(status().isBadRequest());
+
+        verify(fineService, never()).getHistoryPage(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void limitOutsideTheBoundsIsRejected() throws Exception {
+        mockMvc.perform(get("/payments/history").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/payments/history").param("limit", "1001"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void unknownDateFieldIsRejected() throws Exception {
+        mockMvc.perform(get("/payments/history").param("dateField", "createdAt"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void nullOrMissingFineIdsAreRejected() throws Exception {
+        mockMvc.perform(post("/payments/pay").contentType(MediaType.APPLICATION_JSON).content("[1, null]"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/payments/pay").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isBadRequest());
+
+        verify(fineService, never()).settleFines(any());
+        verify(idempotencyService, never()).execute(any(), any(), any(), any(), any());
+    }
+
+    private static Fine fine(Long id, String paymentDate) {
+        Fine fine = new Fine();
+        fine.setId(id);
+        fine.setUserId(7L);
+        fine.setBookId(100L + id);
+        fine.setAmount(new BigDecimal("2.50"));
+        fine.setPaid(true);
+        fine.setFineDate(LocalDateTime.parse("2025-07-20T09:00"));
+        fine.setPaymentDate(LocalDateTime.parse(paymentDate));
+        return fine;
+    }
+}
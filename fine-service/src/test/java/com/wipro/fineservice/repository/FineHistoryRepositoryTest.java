@@ -0,0 +1,59 @@
+package com.wipro.fineservice.repository;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class FineHistoryRepositoryTest {
+    private static final LocalDateTime FROM = LocalDateTime.parse("2025-08-01T00:00");
+    private static final LocalDateTime TO = LocalDateTime.parse("2025-08-31T23:59:59");
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final FineHistoryRepository repository = new FineHistoryRepository(jdbcTemplate);
+
+    @Test
+    void firstPageStartsAtTheBeginningOfTheRange() {
+        repository.findPage(new FineHistoryFilter(FineHistoryFilter.DateField.FINE_DATE, FROM, TO, null, null), null, null, 51);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).query(sql.capture(), any(RowMapper.class), args.capture());
+        assertThat(sql.getValue()).doesNotContain("id > ?").endsWith(" ORDER BY fine_date, id LIMIT ?");
+        assertThat(args.getValue()).containsExactly(Timestamp.valueOf(FROM), Timestamp.valueOf(TO), 51);
+    }
+
+    @Test
+    void cursorContinuesAfterTheLastDateAndId() {
+        LocalDateTime lastDate = LocalDateTime.parse("2025-08-10T12:00");
+        FineHistoryFilter filter = new FineHistoryFilter(FineHistoryFilter.DateField.PAYMENT_DATE, FROM, TO, 7L, true);
+
+        repository.findPage(filter, lastDate, 42L, 11);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).query(sql.capture(), any(RowMapper.class), args.capture());
+        // Ties on the date are broken by id, so rows sharing the last date are neither skipped nor repeated
+        assertThat(sql.getValue())
+                .contains("payment_date BETWEEN ? AND ? AND user_id = ? AND paid = ?")
+                .contains(" AND (payment_date > ? OR (payment_date = ? AND id > ?))")
+                .endsWith(" ORDER BY payment_date, id LIMIT ?");
+        assertThat(args.getValue()).containsExactly(Timestamp.valueOf(FROM), Timestamp.valueOf(TO), 7L, true,
+                Timestamp.valueOf(lastDate), Timestamp.valueOf(lastDate), 42L, 11);
+    }
+
+    @Test
+    void rangeEndingBeforeItStartsIsRejected() {
+        assertThatThrownBy(() -> new FineHistoryFilter(FineHistoryFilter.DateField.FINE_DATE, TO, FROM, null, null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
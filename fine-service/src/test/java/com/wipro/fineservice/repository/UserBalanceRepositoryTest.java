@@ -0,0 +1,38 @@
+package com.wipro.fineservice.repository;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class UserBalanceRepositoryTest {
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final UserBalanceRepository repository = new UserBalanceRepository(jdbcTemplate);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void balancesAreUpsertedOncePerUserInUserIdOrder() {
+        BalanceDelta delta = new BalanceDelta();
+        delta.fined(42L, new BigDecimal("5.00"));
+        delta.fined(7L, new BigDecimal("2.50"));
+        delta.fined(1000L, new BigDecimal("1.00"));
+        delta.paid(42L, new BigDecimal("5.00"));
+        delta.fined(7L, new BigDecimal("0.50"));
+
+        repository.apply(delta);
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), rows.capture());
+        assertThat(rows.getValue()).extracting(row -> row[0]).containsExactly(7L, 42L, 1000L);
+        assertThat(rows.getValue().get(0)[1]).isEqualTo(new BigDecimal("3.00"));
+        assertThat(rows.getValue().get(0)[2]).isEqualTo(2L);
+        assertThat(rows.getValue().get(1)[2]).isEqualTo(0L);
+    }
+}
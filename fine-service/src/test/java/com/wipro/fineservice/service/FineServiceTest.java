@@ -0,0 +1,96 @@
+package com.wipro.fineservice.service;
+
+import com.wipro.fineservice.dto.FinePage;
+import com.wipro.fineservice.entity.Fine;
+import com.wipro.fineservice.repository.FineHistoryFilter;
+import com.wipro.fineservice.repository.FineHistoryRepository;
+import com.wipro.fineservice.repository.FineRepository;
+import com.wipro.fineservice.repository.UserBalanceRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FineServiceTest {
+    private static final FineHistoryFilter FILTER =
+            new FineHistoryFilter(FineHistoryFilter.DateField.FINE_DATE, null, null, 7L, null);
+
+    private final FineRepository fineRepository = mock(FineRepository.class);
+    private final UserBalanceRepository userBalanceRepository = mock(UserBalanceRepository.class);
+    private final FineHistoryRepository fineHistoryRepository = mock(FineHistoryRepository.class);
+    private final FineService fineService = new FineService(fineRepository, userBalanceRepository,
+            fineHistoryRepository, mock(OutboxService.class), mock(TransactionTemplate.class), mock(JdbcTemplate.class));
+
+    @Test
+    void pageReadsOneExtraRowToKnowWhetherAnotherFollows() {
+        Fine first = fine(1L, "2025-08-01T10:00");
+        Fine second = fine(2L, "2025-08-01T10:00");
+        when(fineHistoryRepository.findPage(FILTER, null, null, 3))
+                .thenReturn(List.of(first, second, fine(3L, "2025-08-02T10:00")));
+
+        FinePage page = fineService.getHistoryPage(FILTER, null, null, 2);
+
+        assertThat(page.getItems()).containsExactly(first, second);
+        assertThat(page.getLast()).isSameAs(second);
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        LocalDateTime afterDate = LocalDateTime.parse("2025-08-01T10:00");
+        Fine only = fine(3L, "2025-08-02T10:00");
+        when(fineHistoryRepository.findPage(FILTER, afterDate, 2L, 3)).thenReturn(List.of(only));
+
+        FinePage page = fineService.getHistoryPage(FILTER, afterDate, 2L, 2);
+
+        assertThat(page.getItems()).containsExactly(only);
+        assertThat(page.getLast()).isNull();
+    }
+
+    @Test
+    void fullLastPageHasNoCursor() {
+        List<Fine> fines = List.of(fine(1L, "2025-08-01T10:00"), fine(2L, "2025-08-02T10:00"));
+        when(fineHistoryRepository.findPage(FILTER, null, null, 3)).thenReturn(fines);
+
+        FinePage page = fineService.getHistoryPage(FILTER, null, null, 2);
+
+        assertThat(page.getItems()).containsExactlyElementsOf(fines);
+        assertThat(page.getLast()).isNull();
+    }
+
+    @Test
+    void settlementRollsBackWhenNotEveryLockedFineIsPaid() {
+        Fine first = fine(1L, "2025-08-01T10:00");
+        Fine second = fine(2L, "2025-08-02T10:00");
+        when(fineRepository.lockByIds(Set.of(1L, 2L))).thenReturn(List.of(first, second));
+        when(fineRepository.markAllPaid(eq(List.of(1L, 2L)), any(LocalDateTime.class))).thenReturn(1);
+
+        assertThatThrownBy(() -> fineService.settleFines(List.of(1L, 2L)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Expected to pay 2 fines but paid 1");
+
+        verify(userBalanceRepository, never()).apply(any());
+    }
+
+    static Fine fine(Long id, String fineDate) {
+        Fine fine = new Fine();
+        fine.setId(id);
+        fine.setUserId(7L);
+        fine.setBookId(100L + id);
+        fine.setAmount(new BigDecimal("2.50"));
+        fine.setFineDate(LocalDateTime.parse(fineDate));
+        return fine;
+    }
+}
@@ -0,0 +1,75 @@
+package com.wipro.inventoryservice.config;
+
+import com.wipro.common.jdbc.NamedLock;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+/**
+ * Merges the duplicate inventory rows left by the former insert-only add-stock into one row
+ * per book, then adds uk_inventory_book_id if Hibernate could not create it because of those
+ * duplicates. The kept row is the oldest one; it takes the summed quantity of all the book's
+ * rows and a new version, so stale ETags are rejected. A no-op once the index exists.
+ * <p>
+ * Replicas starting together serialize on a named lock and check for the index again once
+ * they hold it, so only the first one merges and alters the table. Depends on the
+ * EntityManagerFactory so it runs after Hibernate has updated the table.
+ */
+@Component
+public class InventoryCompaction {
+    private static final Logger logger = LoggerFactory.getLogger(InventoryCompaction.class);
+    private static final String LOCK_NAME = "inventory-service.compaction";
+    private static final Duration LOCK_TIMEOUT = Duration.ofMinutes(5);
+    private static final String DUPLICATES = "SELECT book_id, MIN(id) AS keep_id, SUM(quantity) AS total, " +
+            "MAX(version) AS version FROM inventory WHERE book_id IS NOT NULL GROUP BY book_id HAVING COUNT(*) > 1";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final NamedLock namedLock;
+
+    public InventoryCompaction(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                               EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.namedLock = new NamedLock(jdbcTemplate);
+    }
+
+    @PostConstruct
+    public void compact() {
+        if (uniqueIndexExists()) {
+            return;
+        }
+        namedLock.runExclusively(LOCK_NAME, LOCK_TIMEOUT, () -> {
+            // Another replica may have compacted while this one waited for the lock
+            if (!uniqueIndexExists()) {
+                mergeAndConstrain();
+            }
+            return null;
+        });
+    }
+
+    private void mergeAndConstrain() {
+        Integer removed = transactionTemplate.execute(status -> {
+            jdbcTemplate.update("UPDATE inventory i JOIN (" + DUPLICATES + ") d ON i.id = d.keep_id " +
+                    "SET i.quantity = d.total, i.version = d.version + 1");
+            return jdbcTemplate.update("DELETE i FROM inventory i JOIN (" + DUPLICATES + ") d " +
+                    "ON i.book_id = d.book_id AND i.id <> d.keep_id");
+        });
+        // DDL commits implicitly, so it runs after the merge has committed
+        jdbcTemplate.execute("ALTER TABLE inventory ADD CONSTRAINT uk_inventory_book_id UNIQUE (book_id)");
+        logger.info("Merged {} duplicate inventory rows and added uk_inventory_book_id", removed);
+    }
+
+    private boolean uniqueIndexExists() {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.statistics " +
+                "WHERE table_schema = DATABASE() AND table_name = 'inventory' AND index_name = 'uk_inventory_book_id'",
+                Integer.class);
+        return count != null && count > 0;
+    }
+}
@@ -1,36 +1,50 @@
 package com.wipro.inventoryservice.controller;
 
+import com.wipro.common.dto.BatchLookupResult;
+import com.wipro.common.dto.StockChangeResult;
 import com.wipro.inventoryservice.entity.Inventory;
+import com.wipro.inventoryservice.entity.LowStockEvent;
+import com.wipro.inventoryservice.exception.PreconditionFailedException;
 import com.wipro.inventoryservice.service.InventoryService;
+import com.wipro.inventoryservice.service.LowStockEventStream;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/inventory")
 @Tag(name = "Inventory API", description = "Manage inventory stock for books")
 public class InventoryController {
 
+    private static final int MAX_BATCH_IDS = 500;
+    private static final int MAX_EVENTS = 1000;
+
     private final InventoryService inventoryService;
+    private final LowStockEventStream lowStockEventStream;
 
-    public InventoryController(InventoryService inventoryService) {
+    public InventoryController(InventoryService inventoryService, LowStockEventStream lowStockEventStream) {
         this.inventoryService = inventoryService;
+        this.lowStockEventStream = lowStockEventStream;
     }
 
     @Operation(
         summary = "Add stock for a book",
-        description = "Increase the stock quantity for a specific book",
+        description = "Increase the stock quantity for a specific book, creating its stock record on first use",
         responses = {
-            @ApiResponse(responseCode = "200", description = "Stock added successfully",
+            @ApiResponse(responseCode = "200", description = "Stock added successfully, returns the new stock",
                 content = @Content(schema = @Schema(implementation = Inventory.class))),
-            @ApiResponse(responseCode = "404", description = "Book not found")
+            @ApiResponse(responseCode = "400", description = "Negative quantity")
         }
     )
     @PostMapping
@@ -44,7 +58,9 @@ public class InventoryController {
 
     @Operation(
         summary = "Get all inventory stock",
-        description = "Fetch the list of all book stocks in inventory",
+        description = "Fetch the list of all book stocks in inventory. To find low stock, subscribe to " +
+                "/inventory/low-stock/stream instead of polling this list",
+        deprecated = true,
         responses = {
             @ApiResponse(responseCode = "200", description = "Inventory list retrieved successfully",
                 content = @Content(schema = @Schema(implementation = Inventory.class)))
@@ -55,20 +71,47 @@ public class InventoryController {
         return ResponseEntity.ok(inventoryService.getAllStock());
     }
 
+    @Operation(
+        summary = "Get stock for a list of book IDs",
+        description = "Fetches the stock of up to 500 books in one call. The result is keyed by book id in " +
+                "request order; books without inventory are marked NOT_FOUND",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Lookup results keyed by book id"),
+            @ApiResponse(responseCode = "400", description = "Too many ids")
+        }
+    )
+    @GetMapping("/batch")
+    public ResponseEntity<Map<Long, BatchLookupResult<Inventory>>> getStockByBookIds(
+            @Parameter(description = "Comma-separated book ids", example = "1,2,3")
+            @RequestParam List<Long> bookIds) {
+        if (bookIds.size() > MAX_BATCH_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_IDS + " ids can be requested at once");
+        }
+        return ResponseEntity.ok(inventoryService.getStockByBookIds(bookIds));
+    }
+
     @Operation(
         summary = "Get stock by book ID",
         description = "Fetch the inventory stock for a specific book",
         responses = {
             @ApiResponse(responseCode = "200", description = "Stock retrieved successfully",
                 content = @Content(schema = @Schema(implementation = Inventory.class))),
+            @ApiResponse(responseCode = "304", description = "Stock unchanged since the If-None-Match ETag"),
             @ApiResponse(responseCode = "404", description = "Book not found in inventory")
         }
     )
     @GetMapping("/{bookId}")
     public ResponseEntity<Inventory> getStockByBookId(
             @Parameter(description = "Book ID to fetch stock for", example = "1")
-            @PathVariable Long bookId) {
-        return ResponseEntity.ok(inventoryService.getStockByBookId(bookId));
+            @PathVariable Long bookId,
+            WebRequest request) {
+        Inventory inventory = inventoryService.getStockByBookId(bookId);
+        String etag = etag(inventory);
+        if (request.checkNotModified(etag)) {
+            // 304 with the ETag header, no body is serialized
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(inventory);
     }
 
     @Operation(
@@ -77,7 +120,8 @@ public class InventoryController {
         responses = {
             @ApiResponse(responseCode = "200", description = "Stock updated successfully",
                 content = @Content(schema = @Schema(implementation = Inventory.class))),
-            @ApiResponse(responseCode = "404", description = "Book not found in inventory")
+            @ApiResponse(responseCode = "404", description = "Book not found in inventory"),
+            @ApiResponse(responseCode = "412", description = "Stock changed since the If-Match ETag")
         }
     )
     @PutMapping("/{bookId}")
@@ -85,8 +129,169 @@ public class InventoryController {
             @Parameter(description = "Book ID to update stock for", example = "1")
             @PathVariable Long bookId,
             @Parameter(description = "New stock quantity", example = "15")
-            @RequestParam int quantity) {
-        return ResponseEntity.ok(inventoryService.updateStock(bookId, quantity));
+            @RequestParam int quantity,
+            @Parameter(description = "ETag of the version being replaced")
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        IfMatch expected = parseIfMatch(ifMatch);
+        Inventory inventory = expected == null
+                ? inventoryService.updateStock(bookId, quantity)
+                : inventoryService.updateStock(bookId, quantity, expected.id(), expected.version());
+        return ResponseEntity.ok().eTag(etag(inventory)).body(inventory);
+    }
+
+    @Operation(
+        summary = "Set the reorder threshold for a book",
+        description = "A low-stock event is emitted whenever the quantity falls from above the threshold to at or " +
+                "below it. Omit the threshold to clear it",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Threshold set, returns the stock",
+                content = @Content(schema = @Schema(implementation = Inventory.class))),
+            @ApiResponse(responseCode = "400", description = "Negative threshold"),
+            @ApiResponse(responseCode = "404", description = "Book not found in inventory")
+        }
+    )
+    @PutMapping("/{bookId}/threshold")
+    public ResponseEntity<Inventory> setReorderThreshold(
+            @Parameter(description = "Book ID to set the threshold for", example = "1")
+            @PathVariable Long bookId,
+            @Parameter(description = "Reorder threshold, omit to clear", example = "5")
+            @RequestParam(required = false) Integer threshold) {
+        Inventory inventory = inventoryService.setReorderThreshold(bookId, threshold);
+        return ResponseEntity.ok().eTag(etag(inventory)).body(inventory);
+    }
+
+    @Operation(
+        summary = "Stream low-stock events",
+        description = "Server-sent events, one per threshold crossing, named low-stock with the event's " +
+                "streamSequence as id and offset. " +
+                "Reconnect with Last-Event-ID (or after) to resume without gaps; without either only new events " +
+                "are sent",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Event stream")
+        }
+    )
+    @GetMapping(value = "/low-stock/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamLowStockEvents(
+            @Parameter(description = "Offset to resume after", example = "0")
+            @RequestParam(required = false) Long after,
+            @Parameter(description = "Id of the last event received, sent by EventSource on reconnect")
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return ResponseEntity.ok(lowStockEventStream.subscribe(lastEventId != null ? lastEventId : after));
+    }
+
+    @Operation(
+        summary = "Get low-stock events",
+        description = "Returns up to limit low-stock events after the given offset, in streamSequence order, for " +
+                "clients that pull instead of streaming. Pass the streamSequence of the last event received as the " +
+                "next offset",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Events after the offset",
+                content = @Content(schema = @Schema(implementation = LowStockEvent.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid limit")
+        }
+    )
+    @GetMapping("/low-stock/events")
+    public ResponseEntity<List<LowStockEvent>> getLowStockEvents(
+            @Parameter(description = "Offset to read after", example = "0")
+            @RequestParam(defaultValue = "0") long after,
+            @Parameter(description = "Maximum number of events, at most 1000", example = "100")
+            @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_EVENTS) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_EVENTS);
+        }
+        return ResponseEntity.ok(lowStockEventStream.getEvents(after, limit));
+    }
+
+    @Operation(
+        summary = "Adjust stock for a book",
+        description = "Atomically adds delta copies to the stock (negative to remove copies) and returns the new " +
+                "stock. Concurrent adjustments all apply, so no prior read or If-Match is needed",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Stock adjusted, returns the new stock",
+                content = @Content(schema = @Schema(implementation = Inventory.class))),
+            @ApiResponse(responseCode = "400", description = "Delta is zero"),
+            @ApiResponse(responseCode = "404", description = "Book not found in inventory"),
+            @ApiResponse(responseCode = "409", description = "Not enough copies to remove")
+        }
+    )
+    @PostMapping("/{bookId}/adjust")
+    public ResponseEntity<Inventory> adjustStock(
+            @Parameter(description = "Book ID to adjust stock for", example = "1")
+            @PathVariable Long bookId,
+            @Parameter(description = "Copies to add, negative to remove", example = "5")
+            @RequestParam int delta) {
+        if (delta == 0) {
+            throw new IllegalArgumentException("delta must not be zero");
+        }
+        Inventory inventory = inventoryService.adjustStock(bookId, delta);
+        return ResponseEntity.ok().eTag(etag(inventory)).body(inventory);
+    }
+
+    @Operation(
+        summary = "Reserve a copy of a book",
+        description = "Atomically decrements the stock by one if a copy is available. Used when a book is borrowed",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Copy reserved, returns the remaining stock",
+                content = @Content(schema = @Schema(implementation = Inventory.class))),
+            @ApiResponse(responseCode = "404", description = "Book not found in inventory"),
+            @ApiResponse(responseCode = "409", description = "No copies left")
+        }
+    )
+    @PostMapping("/{bookId}/reserve")
+    public ResponseEntity<Inventory> reserveStock(
+            @Parameter(description = "Book ID to reserve a copy of", example = "1")
+            @PathVariable Long bookId) {
+        return ResponseEntity.ok(inventoryService.reserveStock(bookId));
+    }
+
+    @Operation(
+        summary = "Release a copy of a book",
+        description = "Atomically increments the stock by one. Used when a book is returned",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Copy released, returns the new stock",
+                content = @Content(schema = @Schema(implementation = Inventory.class))),
+            @ApiResponse(responseCode = "404", description = "Book not found in inventory")
+        }
+    )
+    @PostMapping("/{bookId}/release")
+    public ResponseEntity<Inventory> releaseStock(
+            @Parameter(description = "Book ID to release a copy of", example = "1")
+            @PathVariable Long bookId) {
+        return ResponseEntity.ok(inventoryService.releaseStock(bookId));
+    }
+
+    @Operation(
+        summary = "Reserve copies of several books",
+        description = "Reserves one copy per listed book id (a repeated id reserves several copies), each with " +
+                "its own atomic decrement. Returns one result per element, in request order",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Per-book results"),
+            @ApiResponse(responseCode = "400", description = "Too many ids")
+        }
+    )
+    @PostMapping("/reserve")
+    public ResponseEntity<List<StockChangeResult>> reserveStock(@RequestBody List<Long> bookIds) {
+        if (bookIds.size() > MAX_BATCH_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_IDS + " ids can be reserved at once");
+        }
+        return ResponseEntity.ok(inventoryService.reserveStock(bookIds));
+    }
+
+    @Operation(
+        summary = "Release copies of several books",
+        description = "Releases one copy per listed book id, each with its own atomic increment. Returns one " +
+                "result per element, in request order",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Per-book results"),
+            @ApiResponse(responseCode = "400", description = "Too many ids")
+        }
+    )
+    @PostMapping("/release")
+    public ResponseEntity<List<StockChangeResult>> releaseStock(@RequestBody List<Long> bookIds) {
+        if (bookIds.size() > MAX_BATCH_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_IDS + " ids can be released at once");
+        }
+        return ResponseEntity.ok(inventoryService.releaseStock(bookIds));
     }
 
     @Operation(
@@ -104,4 +309,37 @@ public class InventoryController {
         inventoryService.removeStock(bookId);
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * The row id and version. The id tells a row recreated after a delete, whose version starts
+     * over, apart from the one it replaced.
+     */
+    private static String etag(Inventory inventory) {
+        return "\"" + inventory.getId() + "-" + inventory.getVersion() + "\"";
+    }
+
+    private record IfMatch(long id, long version) {
+    }
+
+    /**
+     * Returns the row named by a strong If-Match ETag, or null for a missing header or "*".
+     */
+    private static IfMatch parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String value = ifMatch.trim();
+        if (value.startsWith("W/") || value.length() < 2 || !value.startsWith("\"") || !value.endsWith("\"")) {
+            throw new PreconditionFailedException("If-Match must be a single strong ETag");
+        }
+        String[] parts = value.substring(1, value.length() - 1).split("-", -1);
+        if (parts.length != 2) {
+            throw new PreconditionFailedException("Unknown ETag: " + value);
+        }
+        try {
+            return new IfMatch(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException("Unknown ETag: " + value);
+        }
+    }
 }
@@ -1,19 +1,28 @@
 package com.wipro.inventoryservice.entity;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 
 @Entity
-@Table(name = "inventory")
+@Table(name = "inventory", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_inventory_book_id", columnNames = "bookId")
+})
 public class Inventory {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     private Long bookId;
     private int quantity;
+    private Integer reorderThreshold;
+    @Version
+    @Column(columnDefinition = "bigint not null default 0")
+    private long version;
 
     // Getters and Setters
     public Long getId() { return id; }
@@ -22,4 +31,8 @@ public class Inventory {
     public void setBookId(Long bookId) { this.bookId = bookId; }
     public int getQuantity() { return quantity; }
     public void setQuantity(int quantity) { this.quantity = quantity; }
+    public Integer getReorderThreshold() { return reorderThreshold; }
+    public void setReorderThreshold(Integer reorderThreshold) { this.reorderThreshold = reorderThreshold; }
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+package com.wipro.inventoryservice.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * Emitted when a book's quantity falls to or below its reorder threshold. The stream sequence,
+ * assigned in commit order by {@code LowStockEventRecorder}, is the offset subscribers resume
+ * from.
+ */
+@Entity
+@Table(name = "low_stock_events", indexes = {
+        @Index(name = "idx_low_stock_events_created", columnList = "createdAt"),
+        @Index(name = "uk_low_stock_events_stream_sequence", columnList = "streamSequence", unique = true)
+})
+public class LowStockEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private Long streamSequence;
+    private Long bookId;
+    private int quantity;
+    private int threshold;
+    private LocalDateTime createdAt;
+
+    public LowStockEvent() {
+    }
+
+    public LowStockEvent(Long bookId, int quantity, int threshold, LocalDateTime createdAt) {
+        this.bookId = bookId;
+        this.quantity = quantity;
+        this.threshold = threshold;
+        this.createdAt = createdAt;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getStreamSequence() { return streamSequence; }
+    public void setStreamSequence(Long streamSequence) { this.streamSequence = streamSequence; }
+    public Long getBookId() { return bookId; }
+    public void setBookId(Long bookId) { this.bookId = bookId; }
+    public int getQuantity() { return quantity; }
+    public void setQuantity(int quantity) { this.quantity = quantity; }
+    public int getThreshold() { return threshold; }
+    public void setThreshold(int threshold) { this.threshold = threshold; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -0,0 +1,17 @@
+package com.wipro.inventoryservice.entity;
+
+import com.wipro.common.outbox.AbstractOutboxEvent;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * A notification of inventory-service waiting in the inventory_outbox table, see {@link AbstractOutboxEvent}.
+ */
+@Entity
+@Table(name = "inventory_outbox", indexes = {
+        @Index(name = "idx_inventory_outbox_aggregate", columnList = "aggregateType, aggregateId, id"),
+        @Index(name = "idx_inventory_outbox_next_attempt", columnList = "nextAttemptAt, id")
+})
+public class OutboxEvent extends AbstractOutboxEvent {
+}
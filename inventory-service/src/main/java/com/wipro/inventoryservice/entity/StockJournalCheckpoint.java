@@ -0,0 +1,27 @@
+package com.wipro.inventoryservice.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Progress of the hot-stock write-behind of one journal: every record of journal
+ * {@code journalId} with a sequence number at or below {@code flushedSeq} is in the inventory
+ * table. Each process writes a journal of its own, so one process never moves the checkpoint
+ * past records of another.
+ */
+@Entity
+@Table(name = "stock_journal_checkpoints")
+public class StockJournalCheckpoint {
+    @Id
+    @Column(length = 64)
+    private String journalId;
+    private long flushedSeq;
+
+    // Getters and Setters
+    public String getJournalId() { return journalId; }
+    public void setJournalId(String journalId) { this.journalId = journalId; }
+    public long getFlushedSeq() { return flushedSeq; }
+    public void setFlushedSeq(long flushedSeq) { this.flushedSeq = flushedSeq; }
+}
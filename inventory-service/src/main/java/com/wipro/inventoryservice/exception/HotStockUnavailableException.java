@@ -0,0 +1,17 @@
+package com.wipro.inventoryservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Copies of a hot book were requested from a replica that does not hold its counters. The
+ * client should retry, ideally against the replica holding the hot stock lease.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class HotStockUnavailableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public HotStockUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -4,11 +4,49 @@ package com.wipro.inventoryservice.repository;
 
 import com.wipro.inventoryservice.entity.Inventory;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface InventoryRepository extends JpaRepository<Inventory, Long> {
     Optional<Inventory> findByBookId(Long bookId);
+
+    List<Inventory> findByBookIdIn(Collection<Long> bookIds);
+
+    /**
+     * Creates the stock row for the book, or adds to its quantity if one exists, in a single
+     * statement keyed on uk_inventory_book_id.
+     */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query(value = "INSERT INTO inventory (book_id, quantity, version) VALUES (:bookId, :quantity, 0) " +
+                   "ON DUPLICATE KEY UPDATE quantity = quantity + :quantity, version = version + 1", nativeQuery = true)
+    int upsertStock(Long bookId, int quantity);
+
+    /**
+     * Sets or clears the reorder threshold without touching the quantity.
+     */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query(value = "UPDATE inventory SET reorder_threshold = :threshold, version = version + 1 " +
+                   "WHERE book_id = :bookId", nativeQuery = true)
+    int updateReorderThreshold(Long bookId, Integer threshold);
+
+    /**
+     * Adds {@code delta} to the quantity unless that would take it below zero. The check and
+     * the write are a single statement, so concurrent adjustments neither overwrite each other
+     * nor drive the quantity negative. Returns the number of rows changed (0 when the stock is
+     * too low or the book is not stocked).
+     */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query(value = "UPDATE inventory SET quantity = quantity + :delta, version = version + 1 " +
+                   "WHERE book_id = :bookId AND quantity + :delta >= 0", nativeQuery = true)
+    int adjust(Long bookId, int delta);
 }
\ No newline at end of file
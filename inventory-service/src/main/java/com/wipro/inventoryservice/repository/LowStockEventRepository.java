@@ -0,0 +1,25 @@
+package com.wipro.inventoryservice.repository;
+
+import com.wipro.inventoryservice.entity.LowStockEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface LowStockEventRepository extends JpaRepository<LowStockEvent, Long> {
+    List<LowStockEvent> findByStreamSequenceGreaterThanOrderByStreamSequenceAsc(Long afterSequence, Pageable pageable);
+
+    Optional<LowStockEvent> findTopByOrderByStreamSequenceDesc();
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM LowStockEvent e WHERE e.createdAt < :before")
+    int deleteOlderThan(LocalDateTime before);
+}
@@ -0,0 +1,716 @@
+package com.wipro.inventoryservice.service;
+
+import com.wipro.common.jdbc.NamedLock;
+import com.wipro.inventoryservice.config.InventoryCompaction;
+import com.wipro.inventoryservice.entity.Inventory;
+import com.wipro.inventoryservice.entity.LowStockEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hot-key mode for the books listed in {@code inventory.hot.book-ids}.
+ * <p>
+ * The quantity of a hot book is held in memory, split over {@code inventory.hot.stripes}
+ * counters so that concurrent reservations rarely touch the same one, and reads and
+ * adjustments are answered without a database round trip. Every change is written to the
+ * {@link StockJournal} and acknowledged once it is on disk. The net delta per book is flushed
+ * to the inventory table every {@code inventory.hot.flush-interval} ms in one transaction,
+ * which also stores the last flushed journal sequence number.
+ * <p>
+ * Each process writes its own journal, in {@code <journal-dir>/<journal-id>}, with its own
+ * checkpoint row, and holds a named lock on the journal id for as long as it runs, so two
+ * processes never share one by mistake. On startup, with that lock held, the records past the
+ * checkpoint are applied to the table and the journal's segments are deleted, so acknowledged
+ * changes survive a crash once the process is back with the same journal id. A journal that
+ * never comes back keeps its unflushed changes out of the table.
+ * <p>
+ * Only the replica holding the {@value #LEASE_NAME} lease keeps counters and takes copies of
+ * hot books; the others reject reservations of those books (see {@link #isHotBook}), and the
+ * copies they add go straight to the table. Every flush reloads the hot rows and rebases the
+ * counters on them, which picks up those additions, threshold changes and replayed journals.
+ * The other replicas try to take the lease on every flush interval, so the counters move to
+ * one of them after the owner is gone. If the lease connection is lost and another replica
+ * has taken the lease, this one flushes and goes back to the database. Absolute updates and
+ * deletes of a hot book are rejected, since they would race with the unflushed deltas.
+ * <p>
+ * A flush that would take a quantity below zero stores zero instead and logs the shortfall.
+ * <p>
+ * Within a transaction, copies are taken at once and put back if it rolls back, while copies
+ * are only added once it commits, so a rolled back change never reaches the counters.
+ */
+@Component
+public class HotStockCounters {
+    private static final Logger logger = LoggerFactory.getLogger(HotStockCounters.class);
+    static final String LEASE_NAME = "inventory-service.hot-stock";
+    private static final String JOURNAL_LEASE_PREFIX = "inventory-service.journal.";
+    /** MySQL limits lock names to 64 characters. */
+    private static final int MAX_LOCK_NAME = 64;
+    private static final String UPSERT_DELTA = "INSERT INTO inventory (book_id, quantity, version) " +
+            "VALUES (?, GREATEST(?, 0), ?) " +
+            "ON DUPLICATE KEY UPDATE quantity = GREATEST(quantity + ?, 0), version = version + ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate newTransactionTemplate;
+    private final NamedLock namedLock;
+    private final Set<Long> hotBookIds;
+    private final int stripes;
+    private final long flushInterval;
+    private final String journalId;
+    private final Path journalDir;
+    private final Map<Long, HotStock> stocks = new ConcurrentHashMap<>();
+    // Shared by adjustments, exclusive while a flush takes its snapshot or rebases
+    private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+    private final AtomicLong lastSeq = new AtomicLong();
+    private volatile boolean owner;
+    private long flushedSeq;
+    private StockJournal journal;
+    private NamedLock.Lease journalLease;
+    private NamedLock.Lease lease;
+    private ScheduledExecutorService executor;
+
+    /**
+     * Takes the compaction as a dependency so that uk_inventory_book_id exists before the
+     * journal is replayed with upserts. A blank {@code journalId} stands for the host name.
+     */
+    public HotStockCounters(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                            InventoryCompaction inventoryCompaction,
+                            @Value("${inventory.hot.book-ids:}") List<Long> hotBookIds,
+                            @Value("${inventory.hot.stripes:16}") int stripes,
+                            @Value("${inventory.hot.flush-interval:1000}") long flushInterval,
+                            @Value("${inventory.hot.journal-dir:./data/stock-journal}") String journalDir,
+                            @Value("${inventory.hot.journal-id:}") String journalId) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.newTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.newTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.namedLock = new NamedLock(jdbcTemplate);
+        this.hotBookIds = new LinkedHashSet<>(hotBookIds);
+        this.stripes = stripes;
+        this.flushInterval = flushInterval;
+        this.journalId = journalId.isBlank() ? hostName() : journalId;
+        if (!this.journalId.matches("[A-Za-z0-9._-]+")) {
+            throw new IllegalArgumentException("inventory.hot.journal-id must be a plain file name: " + this.journalId);
+        }
+        this.journalDir = Path.of(journalDir).resolve(this.journalId);
+    }
+
+    /**
+     * Takes the lock on this process's journal and applies its unflushed records, also when
+     * hot mode has since been turned off. Then tries to take the lease and starts the thread
+     * that flushes, or keeps trying to take the lease.
+     */
+    @PostConstruct
+    public void recover() throws IOException, SQLException {
+        journalLease = namedLock.tryAcquireLease(journalLockName(journalId)).orElse(null);
+        if (journalLease == null) {
+            logger.error("Stock journal {} is in use by another process, give each replica its own " +
+                    "inventory.hot.journal-id; serving books {} from the database", journalId, hotBookIds);
+            return;
+        }
+        long seq = replay();
+        if (hotBookIds.isEmpty()) {
+            journalLease.close();
+            journalLease = null;
+            return;
+        }
+        lastSeq.set(seq);
+        flushedSeq = seq;
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hot-stock-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (!tryTakeOver()) {
+            logger.warn("Another replica holds the hot stock lease, books {} are reserved there", hotBookIds);
+        }
+        executor.scheduleWithFixedDelay(this::scheduledFlush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isHot(Long bookId) {
+        return owner && stocks.containsKey(bookId);
+    }
+
+    /**
+     * Returns whether the book is configured as hot, whichever replica holds its counters.
+     * Copies of a hot book may only be taken where {@link #isHot} is true.
+     */
+    public boolean isHotBook(Long bookId) {
+        return hotBookIds.contains(bookId);
+    }
+
+    /**
+     * Adds {@code delta} copies of a hot book, or returns false without a change when fewer
+     * than {@code -delta} copies are left. Returns once the change is journaled. Inside a
+     * transaction, added copies are deferred until it commits and taken copies are put back
+     * if it rolls back.
+     */
+    public boolean adjust(Long bookId, int delta) {
+        if (delta > 0 && TransactionSynchronizationManager.isSynchronizationActive()) {
+            transactionChanges().defer(bookId, delta);
+            return true;
+        }
+        if (!apply(bookId, delta)) {
+            return false;
+        }
+        if (delta < 0 && TransactionSynchronizationManager.isSynchronizationActive()) {
+            transactionChanges().taken(bookId, -delta);
+        }
+        return true;
+    }
+
+    /**
+     * Returns a copy of the row with the in-memory quantity and version when the book is hot,
+     * otherwise the row itself. Copies added earlier in the current transaction are included.
+     */
+    public Inventory overlay(Inventory inventory) {
+        HotStock stock = stocks.get(inventory.getBookId());
+        if (stock == null || !owner) {
+            return inventory;
+        }
+        long quantity = stock.quantity();
+        long version = stock.version.get();
+        TransactionChanges changes = (TransactionChanges) TransactionSynchronizationManager.getResource(this);
+        Long deferred = changes == null ? null : changes.deferred.get(inventory.getBookId());
+        if (deferred != null) {
+            quantity += deferred;
+            version++;
+        }
+        Inventory copy = new Inventory();
+        copy.setId(inventory.getId());
+        copy.setBookId(inventory.getBookId());
+        copy.setQuantity((int) quantity);
+        copy.setReorderThreshold(stock.threshold);
+        copy.setVersion(version);
+        return copy;
+    }
+
+    /**
+     * Mirrors a reorder threshold change of a hot book, whose row version was bumped with it.
+     * The next flush replaces both with the row as committed.
+     */
+    public void setThreshold(Long bookId, Integer threshold) {
+        HotStock stock = stocks.get(bookId);
+        stock.version.incrementAndGet();
+        stock.setThreshold(threshold);
+    }
+
+    /**
+     * Returns the event to record when the book's quantity is at or below its threshold and
+     * was not the last time this was checked, otherwise null. Check after every adjustment:
+     * the stripes are summed without a lock, so the low flag, not the delta, decides whether
+     * the threshold was crossed, and each crossing yields exactly one event.
+     */
+    public LowStockEvent lowStockCrossing(Long bookId) {
+        HotStock stock = stocks.get(bookId);
+        Integer threshold = stock.threshold;
+        if (threshold == null) {
+            return null;
+        }
+        long quantity = stock.quantity();
+        if (quantity > threshold) {
+            stock.low.set(false);
+            return null;
+        }
+        return stock.low.compareAndSet(false, true)
+                ? new LowStockEvent(bookId, (int) quantity, threshold, LocalDateTime.now()) : null;
+    }
+
+    void scheduledFlush() {
+        try {
+            if (!owner) {
+                tryTakeOver();
+                return;
+            }
+            if (!lease.isHeld() && !renewLease()) {
+                relinquish();
+                return;
+            }
+            flush();
+        } catch (Exception e) {
+            logger.error("Hot stock flush failed, the deltas are kept for the next flush: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the net delta of every hot book and the journal checkpoint in one transaction,
+     * then rebases the counters on the rows as committed. Only called on the owner, or right
+     * after it gave up the lease.
+     */
+    public synchronized void flush() throws IOException {
+        Map<Long, long[]> snapshot = new HashMap<>();
+        long seq;
+        snapshotLock.writeLock().lock();
+        try {
+            seq = lastSeq.get();
+            for (Map.Entry<Long, HotStock> stock : stocks.entrySet()) {
+                snapshot.put(stock.getKey(), new long[] {stock.getValue().pending.getAndSet(0),
+                        stock.getValue().pendingVersions.getAndSet(0)});
+            }
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+        boolean changed = seq != flushedSeq;
+        if (changed) {
+            journal.roll(seq + 1);
+        }
+        Map<Long, Map<String, Object>> rows;
+        try {
+            rows = transactionTemplate.execute(status -> {
+                if (changed) {
+                    writeDeltas(snapshot, readHotRows());
+                    saveCheckpoint(seq);
+                }
+                return readHotRows();
+            });
+        } catch (RuntimeException e) {
+            // The checkpoint did not move, so the journal still covers these deltas
+            for (Map.Entry<Long, long[]> entry : snapshot.entrySet()) {
+                HotStock stock = stocks.get(entry.getKey());
+                stock.pending.addAndGet(entry.getValue()[0]);
+                stock.pendingVersions.addAndGet(entry.getValue()[1]);
+            }
+            throw e;
+        }
+        if (changed) {
+            flushedSeq = seq;
+            journal.deleteUpTo(seq);
+        }
+        if (owner) {
+            rebase(rows);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException, InterruptedException {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+        try {
+            if (owner) {
+                try {
+                    flush();
+                } finally {
+                    journal.close();
+                    lease.close();
+                }
+            }
+        } finally {
+            journalLease.close();
+        }
+    }
+
+    /**
+     * Applies the records of this process's journal past its checkpoint to the table, then
+     * deletes the journal's segments. Runs while holding the journal lock, so the journal is
+     * not being written. Returns the last sequence number.
+     */
+    private long replay() throws IOException {
+        long checkpoint = readCheckpoint();
+        Map<Long, long[]> deltas = new HashMap<>();
+        long maxSeq = checkpoint;
+        for (StockJournal.Entry entry : StockJournal.readAll(journalDir)) {
+            if (entry.seq() > checkpoint) {
+                long[] delta = deltas.computeIfAbsent(entry.bookId(), bookId -> new long[2]);
+                delta[0] += entry.delta();
+                delta[1]++;
+                maxSeq = Math.max(maxSeq, entry.seq());
+            }
+        }
+        if (maxSeq > checkpoint) {
+            long replayedSeq = maxSeq;
+            transactionTemplate.executeWithoutResult(status -> {
+                writeDeltas(deltas, readRows(deltas.keySet()));
+                saveCheckpoint(replayedSeq);
+            });
+            logger.info("Replayed stock journal {} up to {} for {} books", journalId, replayedSeq, deltas.size());
+        }
+        StockJournal.deleteSegments(journalDir);
+        return maxSeq;
+    }
+
+    /**
+     * Takes the lease if no other replica holds it, then loads the counters from the rows and
+     * opens a fresh journal. Returns whether this replica owns the counters now.
+     */
+    private boolean tryTakeOver() throws IOException, SQLException {
+        NamedLock.Lease acquired = namedLock.tryAcquireLease(LEASE_NAME).orElse(null);
+        if (acquired == null) {
+            return false;
+        }
+        lease = acquired;
+        for (Long bookId : hotBookIds) {
+            jdbcTemplate.update("INSERT IGNORE INTO inventory (book_id, quantity, version) VALUES (?, 0, 0)", bookId);
+            stocks.computeIfAbsent(bookId, id -> new HotStock(stripes));
+        }
+        rebase(readHotRows());
+        journal = new StockJournal(journalDir, lastSeq.get() + 1);
+        owner = true;
+        logger.info("Hot stock mode enabled for books {}", hotBookIds);
+        return true;
+    }
+
+    /**
+     * Adds each book's (quantity, versions) delta to its row, which the caller has locked and
+     * read in {@code rows}. A delta that would leave a negative quantity stores zero instead:
+     * the copies below zero were handed out without being there, which is logged.
+     */
+    private void writeDeltas(Map<Long, long[]> deltas, Map<Long, Map<String, Object>> rows) {
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        for (Map.Entry<Long, long[]> entry : deltas.entrySet()) {
+            long delta = entry.getValue()[0];
+            long versions = entry.getValue()[1];
+            Map<String, Object> row = rows.get(entry.getKey());
+            long quantity = (row == null ? 0L : ((Number) row.get("quantity")).longValue()) + delta;
+            if (quantity < 0) {
+                logger.error("Flushing {} copies of book {} would leave {} in stock, storing 0 instead",
+                        delta, entry.getKey(), quantity);
+            }
+            args.add(new Object[] {entry.getKey(), delta, versions, delta, versions});
+        }
+        jdbcTemplate.batchUpdate(UPSERT_DELTA, args);
+    }
+
+    /**
+     * Replaces the counters with the committed rows plus the changes made since the flush
+     * snapshot, which the rows do not contain yet.
+     */
+    private void rebase(Map<Long, Map<String, Object>> rows) {
+        snapshotLock.writeLock().lock();
+        try {
+            for (Map.Entry<Long, HotStock> entry : stocks.entrySet()) {
+                Map<String, Object> row = rows.get(entry.getKey());
+                if (row == null) {
+                    // Deleted elsewhere; the next flush inserts it again with the pending delta
+                    continue;
+                }
+                HotStock stock = entry.getValue();
+                stock.reset(((Number) row.get("quantity")).longValue() + stock.pending.get());
+                stock.version.set(((Number) row.get("version")).longValue() + stock.pendingVersions.get());
+                Number threshold = (Number) row.get("reorder_threshold");
+                stock.setThreshold(threshold == null ? null : threshold.intValue());
+            }
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Locks the hot rows, so no other writer commits between this read and the end of the
+     * flush transaction.
+     */
+    private Map<Long, Map<String, Object>> readHotRows() {
+        return readRows(hotBookIds);
+    }
+
+    private Map<Long, Map<String, Object>> readRows(Collection<Long> bookIds) {
+        Map<Long, Map<String, Object>> rows = new HashMap<>();
+        if (bookIds.isEmpty()) {
+            return rows;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(bookIds.size(), "?"));
+        jdbcTemplate.query("SELECT book_id, quantity, version, reorder_threshold FROM inventory " +
+                "WHERE book_id IN (" + placeholders + ") FOR UPDATE",
+                rs -> {
+                    Map<String, Object> row = new HashMap<>();
+                    row.put("quantity", rs.getLong("quantity"));
+                    row.put("version", rs.getLong("version"));
+                    row.put("reorder_threshold", rs.getObject("reorder_threshold"));
+                    rows.put(rs.getLong("book_id"), row);
+                }, bookIds.toArray());
+        return rows;
+    }
+
+    /**
+     * Adds or takes copies in memory and journals the change.
+     *
+     * @throws IllegalStateException if this replica has given up the lease
+     */
+    private boolean apply(Long bookId, long delta) {
+        HotStock stock = stocks.get(bookId);
+        CompletableFuture<Void> journaled;
+        snapshotLock.readLock().lock();
+        try {
+            if (!owner) {
+                throw new IllegalStateException("Stock for book " + bookId + " is no longer held by this replica");
+            }
+            if (delta < 0 && !stock.take(-delta)) {
+                return false;
+            }
+            if (delta > 0) {
+                stock.add(delta);
+            }
+            long seq = lastSeq.incrementAndGet();
+            stock.pending.addAndGet(delta);
+            stock.pendingVersions.incrementAndGet();
+            stock.version.incrementAndGet();
+            journaled = journal.append(new StockJournal.Entry(seq, bookId, Math.toIntExact(delta)));
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+        try {
+            journaled.join();
+        } catch (CompletionException e) {
+            // The change stays applied and is flushed, but the caller cannot count on it
+            throw new IllegalStateException("Failed to journal stock change for book " + bookId, e.getCause());
+        }
+        return true;
+    }
+
+    /**
+     * Applies a committed change in memory, or to the table once the lease is gone.
+     */
+    private void applyCommitted(Long bookId, long delta) {
+        if (owner) {
+            try {
+                apply(bookId, delta);
+                return;
+            } catch (IllegalStateException e) {
+                if (owner) {
+                    throw e;
+                }
+            }
+        }
+        // Runs after the caller's transaction has completed, so it needs a transaction of its own
+        newTransactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.update(UPSERT_DELTA, bookId, delta, 1L, delta, 1L));
+    }
+
+    private TransactionChanges transactionChanges() {
+        TransactionChanges changes = (TransactionChanges) TransactionSynchronizationManager.getResource(this);
+        if (changes == null) {
+            changes = new TransactionChanges();
+            TransactionSynchronizationManager.bindResource(this, changes);
+            TransactionSynchronizationManager.registerSynchronization(changes);
+        }
+        return changes;
+    }
+
+    /**
+     * Takes the lease again on a new connection after the old one was lost. Returns false
+     * when another replica holds it by now.
+     */
+    private boolean renewLease() throws SQLException {
+        logger.warn("Lost the hot stock lease connection, trying to take the lease again");
+        lease.close();
+        NamedLock.Lease renewed = namedLock.tryAcquireLease(LEASE_NAME).orElse(null);
+        if (renewed == null) {
+            return false;
+        }
+        lease = renewed;
+        return true;
+    }
+
+    /**
+     * Stops serving the hot books from memory after another replica took the lease, and
+     * writes the remaining deltas to the table. The flush thread keeps running and takes the
+     * lease again once it is free.
+     */
+    private void relinquish() throws IOException {
+        snapshotLock.writeLock().lock();
+        try {
+            owner = false;
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+        logger.error("Another replica took the hot stock lease, serving books {} from the database", hotBookIds);
+        try {
+            flush();
+        } finally {
+            journal.close();
+        }
+    }
+
+    private long readCheckpoint() {
+        List<Long> seqs = jdbcTemplate.queryForList("SELECT flushed_seq FROM stock_journal_checkpoints WHERE journal_id = ?",
+                Long.class, journalId);
+        return seqs.isEmpty() ? 0L : seqs.get(0);
+    }
+
+    private void saveCheckpoint(long seq) {
+        jdbcTemplate.update("INSERT INTO stock_journal_checkpoints (journal_id, flushed_seq) VALUES (?, ?) " +
+                "ON DUPLICATE KEY UPDATE flushed_seq = ?", journalId, seq, seq);
+    }
+
+    private static String journalLockName(String journalId) {
+        String name = JOURNAL_LEASE_PREFIX + journalId;
+        return name.length() <= MAX_LOCK_NAME ? name
+                : JOURNAL_LEASE_PREFIX + UUID.nameUUIDFromBytes(journalId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException("Cannot resolve the host name, set inventory.hot.journal-id", e);
+        }
+    }
+
+    /**
+     * The hot-book changes of one transaction: copies to add once it commits and copies to
+     * put back if it rolls back.
+     */
+    private final class TransactionChanges implements TransactionSynchronization {
+        private final Map<Long, Long> deferred = new HashMap<>();
+        private final Map<Long, Long> taken = new HashMap<>();
+
+        void defer(Long bookId, long count) {
+            deferred.merge(bookId, count, Long::sum);
+        }
+
+        void taken(Long bookId, long count) {
+            taken.merge(bookId, count, Long::sum);
+        }
+
+        @Override
+        public void afterCommit() {
+            for (Map.Entry<Long, Long> entry : deferred.entrySet()) {
+                applyCommitted(entry.getKey(), entry.getValue());
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(HotStockCounters.this);
+            if (status == STATUS_COMMITTED) {
+                return;
+            }
+            if (status == STATUS_UNKNOWN) {
+                logger.error("Outcome of a transaction that took hot stock {} is unknown, keeping the copies taken", taken);
+                return;
+            }
+            for (Map.Entry<Long, Long> entry : taken.entrySet()) {
+                try {
+                    applyCommitted(entry.getKey(), entry.getValue());
+                } catch (RuntimeException e) {
+                    logger.error("Failed to put back {} copies of book {} after a rollback: {}",
+                            entry.getValue(), entry.getKey(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * The quantity of one hot book, split over independent counters. A reservation first
+     * tries the stripe picked by its thread and only moves on when that stripe runs dry.
+     */
+    static final class HotStock {
+        private final AtomicLong[] stripes;
+        // Quantity and version changes not flushed yet
+        private final AtomicLong pending = new AtomicLong();
+        private final AtomicLong pendingVersions = new AtomicLong();
+        private final AtomicLong version = new AtomicLong();
+        private final AtomicBoolean low = new AtomicBoolean();
+        private volatile Integer threshold;
+
+        HotStock(int stripeCount) {
+            this.stripes = new AtomicLong[stripeCount];
+            for (int i = 0; i < stripeCount; i++) {
+                stripes[i] = new AtomicLong();
+            }
+        }
+
+        /**
+         * Spreads {@code quantity} evenly over the stripes, the remainder on the first ones.
+         * Callers make sure no adjustment runs at the same time.
+         */
+        void reset(long quantity) {
+            long base = Math.floorDiv(quantity, stripes.length);
+            long remainder = Math.floorMod(quantity, stripes.length);
+            for (int i = 0; i < stripes.length; i++) {
+                stripes[i].set(base + (i < remainder ? 1 : 0));
+            }
+        }
+
+        void setThreshold(Integer threshold) {
+            this.threshold = threshold;
+            low.set(threshold != null && quantity() <= threshold);
+        }
+
+        long quantity() {
+            long total = 0;
+            for (AtomicLong stripe : stripes) {
+                total += stripe.get();
+            }
+            return total;
+        }
+
+        void add(long count) {
+            stripes[home()].addAndGet(count);
+        }
+
+        /**
+         * Takes {@code count} copies from the stripes, or none when fewer are left. Copies
+         * taken from some stripes before finding the total short are put back.
+         */
+        boolean take(long count) {
+            int home = home();
+            long needed = count;
+            long[] taken = new long[stripes.length];
+            for (int i = 0; i < stripes.length && needed > 0; i++) {
+                int index = (home + i) % stripes.length;
+                AtomicLong stripe = stripes[index];
+                long current = stripe.get();
+                while (current > 0) {
+                    long part = Math.min(current, needed);
+                    if (stripe.compareAndSet(current, current - part)) {
+                        taken[index] = part;
+                        needed -= part;
+                        break;
+                    }
+                    current = stripe.get();
+                }
+            }
+            if (needed == 0) {
+                return true;
+            }
+            for (int i = 0; i < stripes.length; i++) {
+                if (taken[i] > 0) {
+                    stripes[i].addAndGet(taken[i]);
+                }
+            }
+            return false;
+        }
+
+        private int home() {
+            return (int) (Thread.currentThread().getId() % stripes.length);
+        }
+    }
+}
@@ -2,63 +2,271 @@ package com.wipro.inventoryservice.service;
 
 
 
-import com.wipro.inventoryservice.dto.NotificationRequest;
+import com.wipro.common.dto.BatchLookupResult;
+import com.wipro.common.dto.StockChangeResult;
 import com.wipro.inventoryservice.entity.Inventory;
+import com.wipro.inventoryservice.entity.LowStockEvent;
 import com.wipro.inventoryservice.repository.InventoryRepository;
+import com.wipro.inventoryservice.exception.HotStockUnavailableException;
 import com.wipro.inventoryservice.exception.InventoryNotFoundException;
+import com.wipro.inventoryservice.exception.OutOfStockException;
+import com.wipro.inventoryservice.exception.PreconditionFailedException;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class InventoryService {
     private final InventoryRepository inventoryRepository;
-    private final RestTemplate restTemplate;
-    private final String notificationServiceUrl = "http://localhost:8085/notifications";
+    private final OutboxService outboxService;
+    private final HotStockCounters hotStockCounters;
+    private final LowStockEventRecorder lowStockEventRecorder;
+    private final TransactionTemplate transactionTemplate;
 
-    public InventoryService(InventoryRepository inventoryRepository, RestTemplate restTemplate) {
+    public InventoryService(InventoryRepository inventoryRepository, OutboxService outboxService,
+                            HotStockCounters hotStockCounters, LowStockEventRecorder lowStockEventRecorder,
+                            TransactionTemplate transactionTemplate) {
         this.inventoryRepository = inventoryRepository;
-        this.restTemplate = restTemplate;
-    }
-
-    private void sendNotification(String message) {
-        try {
-            restTemplate.postForObject(notificationServiceUrl, new NotificationRequest(message), Void.class);
-        } catch (Exception e) {
-            System.err.println("Failed to send notification: " + e.getMessage());
-        }
+        this.outboxService = outboxService;
+        this.hotStockCounters = hotStockCounters;
+        this.lowStockEventRecorder = lowStockEventRecorder;
+        this.transactionTemplate = transactionTemplate;
     }
 
+    /**
+     * Adds copies to the book's stock, creating its row on first use. Concurrent restocks of
+     * the same book all apply and never create a second row.
+     */
+    @Transactional
     public Inventory addStock(Long bookId, int quantity) {
-        Inventory inventory = new Inventory();
-        inventory.setBookId(bookId);
-        inventory.setQuantity(quantity);
-        Inventory savedInventory = inventoryRepository.save(inventory);
-        sendNotification("Stock added for book: " + bookId);
-        return savedInventory;
+        if (quantity < 0) {
+            throw new IllegalArgumentException("quantity must not be negative");
+        }
+        if (hotStockCounters.isHot(bookId)) {
+            adjustHot(bookId, quantity);
+        } else {
+            inventoryRepository.upsertStock(bookId, quantity);
+        }
+        outboxService.record("Inventory", bookId, "Stock added for book: " + bookId);
+        return getStockByBookId(bookId);
     }
 
     public List<Inventory> getAllStock() {
-        return inventoryRepository.findAll();
+        List<Inventory> stock = inventoryRepository.findAll();
+        stock.replaceAll(hotStockCounters::overlay);
+        return stock;
     }
 
     public Inventory getStockByBookId(Long bookId) {
         return inventoryRepository.findByBookId(bookId)
+                .map(hotStockCounters::overlay)
                 .orElseThrow(() -> new InventoryNotFoundException("Inventory not found for book id: " + bookId));
     }
 
+    public Map<Long, BatchLookupResult<Inventory>> getStockByBookIds(Collection<Long> bookIds) {
+        Set<Long> uniqueIds = new LinkedHashSet<>(bookIds);
+        Map<Long, Inventory> stock = new HashMap<>();
+        for (Inventory inventory : inventoryRepository.findByBookIdIn(uniqueIds)) {
+            stock.put(inventory.getBookId(), hotStockCounters.overlay(inventory));
+        }
+        Map<Long, BatchLookupResult<Inventory>> results = new LinkedHashMap<>();
+        for (Long bookId : uniqueIds) {
+            Inventory inventory = stock.get(bookId);
+            results.put(bookId, inventory == null ? BatchLookupResult.notFound() : BatchLookupResult.found(inventory));
+        }
+        return results;
+    }
+
     public Inventory updateStock(Long bookId, int quantity) {
+        return updateStock(bookId, quantity, null, null);
+    }
+
+    /**
+     * Overwrites the quantity if the current row is {@code expectedId} at
+     * {@code expectedVersion} (any row when both are null). A row deleted and stocked again
+     * has a new id, so a version of the old row never matches it. The version column also
+     * guards the write itself.
+     */
+    @Transactional
+    public Inventory updateStock(Long bookId, int quantity, Long expectedId, Long expectedVersion) {
+        rejectIfHot(bookId);
         Inventory inventory = getStockByBookId(bookId);
+        if (expectedId != null && !expectedId.equals(inventory.getId())) {
+            throw new PreconditionFailedException("Stock for book " + bookId + " was removed and added again");
+        }
+        if (expectedVersion != null && inventory.getVersion() != expectedVersion) {
+            throw new PreconditionFailedException("Stock for book " + bookId + " has changed (version " + inventory.getVersion() + ")");
+        }
+        boolean wasLow = isLow(inventory.getQuantity(), inventory.getReorderThreshold());
         inventory.setQuantity(quantity);
-        Inventory updatedInventory = inventoryRepository.save(inventory);
-        sendNotification("Stock updated for book: " + bookId);
+        Inventory updatedInventory = inventoryRepository.saveAndFlush(inventory);
+        if (!wasLow && isLow(quantity, inventory.getReorderThreshold())) {
+            lowStockEventRecorder.record(new LowStockEvent(bookId, quantity, inventory.getReorderThreshold(), LocalDateTime.now()));
+        }
+        outboxService.record("Inventory", bookId, "Stock updated for book: " + bookId);
         return updatedInventory;
     }
 
+    /**
+     * Sets the reorder threshold (null clears it). A low-stock event is emitted when the current
+     * quantity is at or below the new threshold but was not low before.
+     */
+    @Transactional
+    public Inventory setReorderThreshold(Long bookId, Integer threshold) {
+        if (threshold != null && threshold < 0) {
+            throw new IllegalArgumentException("threshold must not be negative");
+        }
+        Inventory before = getStockByBookId(bookId);
+        inventoryRepository.updateReorderThreshold(bookId, threshold);
+        if (hotStockCounters.isHot(bookId)) {
+            hotStockCounters.setThreshold(bookId, threshold);
+        } else if (!isLow(before.getQuantity(), before.getReorderThreshold()) && isLow(before.getQuantity(), threshold)) {
+            lowStockEventRecorder.record(new LowStockEvent(bookId, before.getQuantity(), threshold, LocalDateTime.now()));
+        }
+        return getStockByBookId(bookId);
+    }
+
+    /**
+     * Adds {@code delta} copies (negative to remove copies) with a single conditional UPDATE
+     * and returns the row as written. Unlike {@link #updateStock}, concurrent adjustments all
+     * apply, so restocks and corrections need no prior read.
+     */
+    @Transactional
+    public Inventory adjustStock(Long bookId, int delta) {
+        if (!applyDelta(bookId, delta)) {
+            Inventory inventory = getStockByBookId(bookId);
+            throw new OutOfStockException("Stock for book " + bookId + " is " + inventory.getQuantity()
+                    + ", cannot remove " + -delta + " copies");
+        }
+        outboxService.record("Inventory", bookId, "Stock adjusted by " + delta + " for book: " + bookId);
+        return getStockByBookId(bookId);
+    }
+
+    /**
+     * Atomically takes one copy of the book for a loan.
+     */
+    @Transactional
+    public Inventory reserveStock(Long bookId) {
+        if (!applyDelta(bookId, -1)) {
+            getStockByBookId(bookId);
+            throw new OutOfStockException("No copies left for book id: " + bookId);
+        }
+        return getStockByBookId(bookId);
+    }
+
+    /**
+     * Atomically puts one copy of the book back, on return or when a borrow is rolled back.
+     */
+    @Transactional
+    public Inventory releaseStock(Long bookId) {
+        if (!applyDelta(bookId, 1)) {
+            throw new InventoryNotFoundException("Inventory not found for book id: " + bookId);
+        }
+        return getStockByBookId(bookId);
+    }
+
+    /**
+     * Reserves one copy per element, in order; a book listed twice takes two copies. Each
+     * element is its own conditional UPDATE, so a shortage on one book does not affect the
+     * others. A hot book held by another replica fails the whole batch before anything is
+     * reserved.
+     */
+    public List<StockChangeResult> reserveStock(List<Long> bookIds) {
+        for (Long bookId : bookIds) {
+            rejectIfHeldElsewhere(bookId);
+        }
+        List<StockChangeResult> results = new ArrayList<>(bookIds.size());
+        for (Long bookId : bookIds) {
+            StockChangeResult.Status status = StockChangeResult.Status.DONE;
+            if (!applyDelta(bookId, -1)) {
+                status = inventoryRepository.findByBookId(bookId).isPresent()
+                        ? StockChangeResult.Status.OUT_OF_STOCK : StockChangeResult.Status.NOT_FOUND;
+            }
+            results.add(new StockChangeResult(bookId, status));
+        }
+        return results;
+    }
+
+    public List<StockChangeResult> releaseStock(List<Long> bookIds) {
+        List<StockChangeResult> results = new ArrayList<>(bookIds.size());
+        for (Long bookId : bookIds) {
+            results.add(new StockChangeResult(bookId, applyDelta(bookId, 1)
+                    ? StockChangeResult.Status.DONE : StockChangeResult.Status.NOT_FOUND));
+        }
+        return results;
+    }
+
+    @Transactional
     public void removeStock(Long bookId) {
+        rejectIfHot(bookId);
         Inventory inventory = getStockByBookId(bookId);
         inventoryRepository.delete(inventory);
-        sendNotification("Stock removed for book: " + bookId);
+        outboxService.record("Inventory", bookId, "Stock removed for book: " + bookId);
+    }
+
+    /**
+     * Adds {@code delta} copies in memory for hot books and with a conditional UPDATE
+     * otherwise. Returns false when the stock is too low or the book is not stocked.
+     */
+    private boolean applyDelta(Long bookId, int delta) {
+        if (hotStockCounters.isHot(bookId)) {
+            return adjustHot(bookId, delta);
+        }
+        if (delta < 0) {
+            rejectIfHeldElsewhere(bookId);
+        }
+        // The threshold check must see the row as this UPDATE left it, so both share a transaction
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (inventoryRepository.adjust(bookId, delta) == 0) {
+                return false;
+            }
+            if (delta < 0) {
+                lowStockEventRecorder.recordIfCrossed(bookId, delta);
+            }
+            return true;
+        }));
+    }
+
+    private boolean adjustHot(Long bookId, int delta) {
+        if (!hotStockCounters.adjust(bookId, delta)) {
+            return false;
+        }
+        LowStockEvent event = hotStockCounters.lowStockCrossing(bookId);
+        if (event != null) {
+            lowStockEventRecorder.record(event);
+        }
+        return true;
+    }
+
+    private static boolean isLow(int quantity, Integer threshold) {
+        return threshold != null && quantity <= threshold;
+    }
+
+    /**
+     * Copies of a hot book are only taken from the counters of the replica holding them; taken
+     * from the row here, they would not be seen there until the next flush and could be
+     * handed out twice. Adding copies to the row is safe, the next flush picks them up.
+     */
+    private void rejectIfHeldElsewhere(Long bookId) {
+        if (hotStockCounters.isHotBook(bookId) && !hotStockCounters.isHot(bookId)) {
+            throw new HotStockUnavailableException("Stock for book " + bookId
+                    + " is held by another replica (hot mode), retry the request");
+        }
+    }
+
+    private void rejectIfHot(Long bookId) {
+        if (hotStockCounters.isHotBook(bookId)) {
+            throw new IllegalArgumentException("Stock for book " + bookId + " is held in memory (hot mode), use adjust instead");
+        }
     }
 }
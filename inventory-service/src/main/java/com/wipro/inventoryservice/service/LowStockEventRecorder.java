@@ -0,0 +1,104 @@
+package com.wipro.inventoryservice.service;
+
+import com.wipro.inventoryservice.entity.LowStockEvent;
+import com.wipro.inventoryservice.repository.LowStockEventRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes low-stock events with their stream sequence.
+ * <p>
+ * The sequence is taken from the single row of low_stock_event_sequence. Incrementing it locks
+ * the row until the transaction ends, so a second transaction recording an event waits for the
+ * first to commit or roll back, and sequence order is commit order. A subscriber that has seen
+ * sequence n can therefore never miss a smaller one committed later, which ids allocated at
+ * insert time did not guarantee. Only transactions that emit an event take the lock.
+ */
+@Component
+public class LowStockEventRecorder {
+    private static final Logger logger = LoggerFactory.getLogger(LowStockEventRecorder.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LowStockEventRepository lowStockEventRepository;
+
+    /**
+     * Depends on the EntityManagerFactory so that Hibernate has added the stream_sequence
+     * column before existing events are numbered.
+     */
+    public LowStockEventRecorder(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                 LowStockEventRepository lowStockEventRepository,
+                                 EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.lowStockEventRepository = lowStockEventRepository;
+    }
+
+    /**
+     * Creates the sequence row and numbers the events that have no sequence yet. On the first
+     * start the existing events keep their id as sequence, so offsets held by subscribers stay
+     * valid; events written later by a replica still on the previous version are appended.
+     */
+    @PostConstruct
+    public void createSequence() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS low_stock_event_sequence (" +
+                "id TINYINT NOT NULL, last_sequence BIGINT NOT NULL, PRIMARY KEY (id))");
+        transactionTemplate.executeWithoutResult(status -> {
+            int created = jdbcTemplate.update("INSERT IGNORE INTO low_stock_event_sequence (id, last_sequence) " +
+                    "SELECT 1, COALESCE(MAX(id), 0) FROM low_stock_events");
+            if (created > 0) {
+                jdbcTemplate.update("UPDATE low_stock_events SET stream_sequence = id WHERE stream_sequence IS NULL");
+                return;
+            }
+            List<Long> unnumbered = jdbcTemplate.queryForList(
+                    "SELECT id FROM low_stock_events WHERE stream_sequence IS NULL ORDER BY id", Long.class);
+            for (Long id : unnumbered) {
+                jdbcTemplate.update("UPDATE low_stock_events SET stream_sequence = ? WHERE id = ?", nextSequence(), id);
+            }
+            if (!unnumbered.isEmpty()) {
+                logger.info("Numbered {} low-stock events written without a stream sequence", unnumbered.size());
+            }
+        });
+    }
+
+    @Transactional
+    public LowStockEvent record(LowStockEvent event) {
+        event.setStreamSequence(nextSequence());
+        return lowStockEventRepository.save(event);
+    }
+
+    /**
+     * Records an event if the change of {@code delta} just applied to the book moved its
+     * quantity from above the reorder threshold to at or below it. Must run in the transaction
+     * that applied the change, which still holds the row lock.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordIfCrossed(Long bookId, int delta) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT quantity, reorder_threshold FROM inventory WHERE book_id = ?", bookId);
+        if (rows.isEmpty() || rows.get(0).get("reorder_threshold") == null) {
+            return;
+        }
+        int quantity = ((Number) rows.get(0).get("quantity")).intValue();
+        int threshold = ((Number) rows.get(0).get("reorder_threshold")).intValue();
+        if (quantity <= threshold && quantity - delta > threshold) {
+            record(new LowStockEvent(bookId, quantity, threshold, LocalDateTime.now()));
+        }
+    }
+
+    private long nextSequence() {
+        jdbcTemplate.update("UPDATE low_stock_event_sequence SET last_sequence = last_sequence + 1 WHERE id = 1");
+        return jdbcTemplate.queryForObject("SELECT last_sequence FROM low_stock_event_sequence WHERE id = 1", Long.class);
+    }
+}
@@ -0,0 +1,252 @@
+package com.wipro.inventoryservice.service;
+
+import com.wipro.inventoryservice.entity.LowStockEvent;
+import com.wipro.inventoryservice.repository.LowStockEventRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes low-stock events to server-sent-event subscribers.
+ * <p>
+ * Events are read from the low_stock_events table in stream sequence order, so a subscriber
+ * sees the events of every replica and can resume after a disconnect from the last sequence it
+ * received. Sequences are assigned in commit order (see {@link LowStockEventRecorder}), so an
+ * event that becomes visible never has a smaller sequence than one already sent. One query per
+ * poll serves all subscribers, starting at the oldest subscriber offset.
+ * <p>
+ * Polling runs on its own thread and sends run on a pool of
+ * {@code inventory.low-stock.send-threads}, so a slow client never holds up the poll or other
+ * scheduled work. Each subscriber buffers at most {@code inventory.low-stock.subscriber-queue}
+ * events; one that falls further behind is completed and resumes from the table when it
+ * reconnects with Last-Event-ID.
+ */
+@Component
+public class LowStockEventStream {
+    private static final Logger logger = LoggerFactory.getLogger(LowStockEventStream.class);
+    private static final int KEEPALIVE_POLLS = 15;
+
+    private final LowStockEventRepository lowStockEventRepository;
+    private final long pollInterval;
+    private final int batchSize;
+    private final int sendThreads;
+    private final int subscriberQueue;
+    private final Duration emitterTimeout;
+    private final Duration retention;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private int idlePolls;
+    private ScheduledExecutorService poller;
+    private ExecutorService senders;
+
+    public LowStockEventStream(LowStockEventRepository lowStockEventRepository,
+                               @Value("${inventory.low-stock.poll-interval:1000}") long pollInterval,
+                               @Value("${inventory.low-stock.batch-size:500}") int batchSize,
+                               @Value("${inventory.low-stock.send-threads:4}") int sendThreads,
+                               @Value("${inventory.low-stock.subscriber-queue:1000}") int subscriberQueue,
+                               @Value("${inventory.low-stock.emitter-timeout:30m}") Duration emitterTimeout,
+                               @Value("${inventory.low-stock.retention:30d}") Duration retention) {
+        this.lowStockEventRepository = lowStockEventRepository;
+        this.pollInterval = pollInterval;
+        this.batchSize = batchSize;
+        this.sendThreads = sendThreads;
+        this.subscriberQueue = subscriberQueue;
+        this.emitterTimeout = emitterTimeout;
+        this.retention = retention;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (poller != null) {
+            return;
+        }
+        AtomicInteger senderCount = new AtomicInteger();
+        senders = Executors.newFixedThreadPool(sendThreads, runnable -> {
+            Thread thread = new Thread(runnable, "low-stock-sse-" + senderCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "low-stock-poll");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::scheduledDispatch, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (poller != null) {
+            poller.shutdownNow();
+            senders.shutdownNow();
+        }
+    }
+
+    /**
+     * Subscribes to the events after stream sequence {@code afterSequence}, or to new events
+     * only when null.
+     */
+    public SseEmitter subscribe(Long afterSequence) {
+        long offset = afterSequence != null ? afterSequence
+                : lowStockEventRepository.findTopByOrderByStreamSequenceDesc().map(LowStockEvent::getStreamSequence).orElse(0L);
+        SseEmitter emitter = new SseEmitter(emitterTimeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter, offset, subscriberQueue);
+        emitter.onCompletion(() -> close(subscriber));
+        // The client reconnects with Last-Event-ID
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> close(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    /**
+     * Returns up to {@code limit} events after stream sequence {@code afterSequence}, for
+     * clients that pull.
+     */
+    public List<LowStockEvent> getEvents(long afterSequence, int limit) {
+        return lowStockEventRepository.findByStreamSequenceGreaterThanOrderByStreamSequenceAsc(afterSequence,
+                PageRequest.of(0, limit));
+    }
+
+    void scheduledDispatch() {
+        try {
+            dispatch();
+        } catch (Exception e) {
+            logger.error("Low-stock event dispatch failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Queues the new events for every subscriber. Sends happen on the sender pool.
+     */
+    public synchronized void dispatch() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        long from = Long.MAX_VALUE;
+        for (Subscriber subscriber : subscribers) {
+            from = Math.min(from, subscriber.offset);
+        }
+        boolean sent = false;
+        List<LowStockEvent> events;
+        do {
+            events = getEvents(from, batchSize);
+            for (LowStockEvent event : events) {
+                long sequence = event.getStreamSequence();
+                for (Subscriber subscriber : subscribers) {
+                    if (sequence > subscriber.offset) {
+                        enqueue(subscriber, SseEmitter.event().id(String.valueOf(sequence)).name("low-stock").data(event));
+                        subscriber.offset = sequence;
+                        sent = true;
+                    }
+                }
+                from = sequence;
+            }
+        } while (events.size() == batchSize);
+
+        // Comments keep proxies from closing idle streams and detect clients that went away
+        idlePolls = sent ? 0 : idlePolls + 1;
+        if (idlePolls >= KEEPALIVE_POLLS) {
+            idlePolls = 0;
+            for (Subscriber subscriber : subscribers) {
+                enqueue(subscriber, SseEmitter.event().comment("keepalive"));
+            }
+        }
+    }
+
+    @Scheduled(cron = "${inventory.low-stock.cleanup-cron:0 15 3 * * *}")
+    public void deleteExpiredEvents() {
+        int deleted = lowStockEventRepository.deleteOlderThan(LocalDateTime.now().minus(retention));
+        if (deleted > 0) {
+            logger.info("Deleted {} low-stock events older than {}", deleted, retention);
+        }
+    }
+
+    private void enqueue(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        if (subscriber.closed) {
+            return;
+        }
+        if (!subscriber.queue.offer(event)) {
+            logger.warn("Low-stock subscriber fell {} events behind, closing its stream", subscriber.queue.size());
+            close(subscriber);
+            subscriber.emitter.complete();
+            return;
+        }
+        if (subscriber.draining.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                subscriber.draining.set(false);
+            }
+        }
+    }
+
+    /**
+     * Sends the subscriber's queued events in order. At most one drain per subscriber runs at
+     * a time.
+     */
+    private void drain(Subscriber subscriber) {
+        while (true) {
+            SseEmitter.SseEventBuilder event = subscriber.queue.poll();
+            if (event == null) {
+                subscriber.draining.set(false);
+                // An event queued after the poll but before the flag was cleared is picked up here
+                if (subscriber.queue.isEmpty() || !subscriber.draining.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+            if (subscriber.closed) {
+                subscriber.queue.clear();
+                continue;
+            }
+            try {
+                subscriber.emitter.send(event);
+            } catch (IOException | IllegalStateException e) {
+                close(subscriber);
+                subscriber.emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private void close(Subscriber subscriber) {
+        subscriber.closed = true;
+        subscribers.remove(subscriber);
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        // Only read and written by the poll thread
+        private long offset;
+        private volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, long offset, int queueCapacity) {
+            this.emitter = emitter;
+            this.offset = offset;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.wipro.inventoryservice.service;
+
+import com.wipro.common.outbox.AbstractOutboxRelay;
+import com.wipro.inventoryservice.entity.OutboxEvent;
+import com.wipro.inventoryservice.repository.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Delivers the inventory_outbox events to notification-service, see {@link AbstractOutboxRelay}.
+ */
+@Component
+public class OutboxRelay extends AbstractOutboxRelay<OutboxEvent> {
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository, RestTemplateBuilder restTemplateBuilder,
+                       JdbcTemplate jdbcTemplate,
+                       @Value("${spring.application.name}") String source,
+                       @Value("${outbox.relay.enabled:true}") boolean enabled,
+                       @Value("${outbox.relay.interval:1000}") long interval,
+                       @Value("${outbox.relay.batch-size:200}") int batchSize,
+                       @Value("${outbox.relay.initial-backoff:1s}") Duration initialBackoff,
+                       @Value("${outbox.relay.max-backoff:5m}") Duration maxBackoff,
+                       @Value("${outbox.relay.connect-timeout:2s}") Duration connectTimeout,
+                       @Value("${outbox.relay.read-timeout:10s}") Duration readTimeout) {
+        super(outboxEventRepository, restTemplateBuilder, jdbcTemplate, source, enabled, interval, batchSize,
+                initialBackoff, maxBackoff, connectTimeout, readTimeout);
+    }
+}
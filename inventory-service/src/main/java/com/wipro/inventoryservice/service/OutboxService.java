@@ -0,0 +1,18 @@
+package com.wipro.inventoryservice.service;
+
+import com.wipro.common.outbox.AbstractOutboxService;
+import com.wipro.inventoryservice.entity.OutboxEvent;
+import com.wipro.inventoryservice.repository.OutboxEventRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Records notifications in the inventory_outbox table, see {@link AbstractOutboxService}.
+ */
+@Service
+public class OutboxService extends AbstractOutboxService<OutboxEvent> {
+
+    public OutboxService(OutboxEventRepository outboxEventRepository, JdbcTemplate jdbcTemplate) {
+        super(outboxEventRepository, jdbcTemplate, "inventory_outbox", OutboxEvent::new);
+    }
+}
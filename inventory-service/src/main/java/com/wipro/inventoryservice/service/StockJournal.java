@@ -0,0 +1,219 @@
+package com.wipro.inventoryservice.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of hot-stock changes, stored as segment files in one directory.
+ * <p>
+ * Records have a fixed size: sequence number, book id, delta and a CRC32 of those fields.
+ * Writes are group-committed: {@link #append} queues a record and its future completes once
+ * a single writer thread has written and forced it, together with everything queued behind
+ * it. A torn or corrupt record ends its segment when reading, which only drops writes that
+ * were never acknowledged. {@link #roll} starts a new segment at each flush checkpoint, and
+ * {@link #deleteUpTo} removes closed segments whose records are all checkpointed.
+ */
+public class StockJournal implements Closeable {
+    static final int RECORD_SIZE = 24;
+    private static final int MAX_GROUP = 1024;
+    private static final String SEGMENT_GLOB = "stock-*.journal";
+
+    public record Entry(long seq, long bookId, int delta) {
+    }
+
+    private record PendingWrite(Entry entry, CompletableFuture<Void> done) {
+    }
+
+    private final Path dir;
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final Map<Path, Long> closedSegments = new LinkedHashMap<>();
+    private final Thread writer;
+    private FileChannel channel;
+    private Path segment;
+    private long segmentMaxSeq;
+    private volatile boolean closed;
+
+    public StockJournal(Path dir, long firstSeq) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+        open(firstSeq);
+        writer = new Thread(this::writeLoop, "stock-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Reads every record of every segment in the directory, in segment order.
+     */
+    public static List<Entry> readAll(Path dir) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        for (Path path : segments(dir)) {
+            try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+                while (true) {
+                    record.clear();
+                    while (record.hasRemaining() && in.read(record) >= 0) {
+                        // Keep reading until the record is complete or the file ends
+                    }
+                    if (record.hasRemaining()) {
+                        break;
+                    }
+                    record.flip();
+                    long seq = record.getLong();
+                    long bookId = record.getLong();
+                    int delta = record.getInt();
+                    if (record.getInt() != checksum(seq, bookId, delta)) {
+                        break;
+                    }
+                    entries.add(new Entry(seq, bookId, delta));
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Deletes every segment in the directory. Only valid while no journal is open on it.
+     */
+    public static void deleteSegments(Path dir) throws IOException {
+        for (Path path : segments(dir)) {
+            Files.delete(path);
+        }
+    }
+
+    public CompletableFuture<Void> append(Entry entry) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new IOException("Stock journal is closed"));
+        }
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        queue.add(new PendingWrite(entry, done));
+        return done;
+    }
+
+    /**
+     * Closes the current segment, if it holds any record, and continues in a new one.
+     */
+    public synchronized void roll(long nextSeq) throws IOException {
+        if (segmentMaxSeq == 0) {
+            return;
+        }
+        channel.close();
+        closedSegments.put(segment, segmentMaxSeq);
+        open(nextSeq);
+    }
+
+    /**
+     * Deletes the closed segments whose records all have a sequence number at or below
+     * {@code checkpointSeq}.
+     */
+    public synchronized void deleteUpTo(long checkpointSeq) throws IOException {
+        Iterator<Map.Entry<Path, Long>> it = closedSegments.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Path, Long> closedSegment = it.next();
+            if (closedSegment.getValue() <= checkpointSeq) {
+                Files.deleteIfExists(closedSegment.getKey());
+                it.remove();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            channel.close();
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingWrite> group = new ArrayList<>(MAX_GROUP);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(group, MAX_GROUP - 1);
+            try {
+                write(group);
+                for (PendingWrite pending : group) {
+                    pending.done().complete(null);
+                }
+            } catch (IOException | RuntimeException e) {
+                for (PendingWrite pending : group) {
+                    pending.done().completeExceptionally(e);
+                }
+            }
+            group.clear();
+        }
+    }
+
+    private synchronized void write(List<PendingWrite> group) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(group.size() * RECORD_SIZE);
+        long maxSeq = segmentMaxSeq;
+        for (PendingWrite pending : group) {
+            Entry entry = pending.entry();
+            buffer.putLong(entry.seq()).putLong(entry.bookId()).putInt(entry.delta())
+                    .putInt(checksum(entry.seq(), entry.bookId(), entry.delta()));
+            maxSeq = Math.max(maxSeq, entry.seq());
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        segmentMaxSeq = maxSeq;
+    }
+
+    private void open(long firstSeq) throws IOException {
+        segment = dir.resolve(String.format("stock-%020d.journal", firstSeq));
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentMaxSeq = 0;
+    }
+
+    private static List<Path> segments(Path dir) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return paths;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, SEGMENT_GLOB)) {
+            for (Path path : stream) {
+                paths.add(path);
+            }
+        }
+        // Names embed the zero-padded first sequence number, so they sort in write order
+        paths.sort(null);
+        return paths;
+    }
+
+    private static int checksum(long seq, long bookId, int delta) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(RECORD_SIZE - 4).putLong(seq).putLong(bookId).putInt(delta).flip());
+        return (int) crc.getValue();
+    }
+}
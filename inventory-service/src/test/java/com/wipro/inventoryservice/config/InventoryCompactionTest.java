@@ -0,0 +1,82 @@
+package com.wipro.inventoryservice.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InventoryCompactionTest {
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private InventoryCompaction compaction;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet lockResult = mock(ResultSet.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(lockResult);
+        when(lockResult.next()).thenReturn(true);
+        when(lockResult.getInt(1)).thenReturn(1);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+                .thenAnswer(invocation -> invocation.<ConnectionCallback<Object>>getArgument(0).doInConnection(connection));
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<Object>>getArgument(0).doInTransaction(null));
+        compaction = new InventoryCompaction(jdbcTemplate, transactionTemplate, mock(EntityManagerFactory.class));
+    }
+
+    @Test
+    void nothingHappensOnceTheIndexExists() {
+        indexCounts(1);
+
+        compaction.compact();
+
+        verify(jdbcTemplate, never()).execute(any(ConnectionCallback.class));
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void replicaThatWaitedForTheLockSkipsWhenTheIndexAppeared() {
+        indexCounts(0, 1);
+
+        compaction.compact();
+
+        verify(jdbcTemplate).execute(any(ConnectionCallback.class));
+        verify(jdbcTemplate, never()).update(anyString());
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void duplicatesAreMergedBeforeTheConstraintIsAdded() {
+        indexCounts(0, 0);
+        when(jdbcTemplate.update(contains("DELETE i FROM inventory"))).thenReturn(3);
+
+        compaction.compact();
+
+        verify(jdbcTemplate).update(contains("SET i.quantity = d.total"));
+        verify(jdbcTemplate).execute("ALTER TABLE inventory ADD CONSTRAINT uk_inventory_book_id UNIQUE (book_id)");
+    }
+
+    private void indexCounts(Integer first, Integer... rest) {
+        when(jdbcTemplate.queryForObject(contains("information_schema.statistics"), eq(Integer.class)))
+                .thenReturn(first, rest);
+    }
+}
@@ -0,0 +1,83 @@
+package com.wipro.inventoryservice.controller;
+
+import com.wipro.inventoryservice.entity.Inventory;
+import com.wipro.inventoryservice.exception.PreconditionFailedException;
+import com.wipro.inventoryservice.service.InventoryService;
+import com.wipro.inventoryservice.service.LowStockEventStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(InventoryController.class)
+class InventoryControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @MockitoBean
+    private InventoryService inventoryService;
+    @MockitoBean
+    private LowStockEventStream lowStockEventStream;
+
+    @Test
+    void etagNamesTheRowAndItsVersion() throws Exception {
+        when(inventoryService.getStockByBookId(7L)).thenReturn(inventory(3L, 4L));
+
+        mockMvc.perform(get("/inventory/7"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3-4\""));
+    }
+
+    @Test
+    void sameVersionOfARecreatedRowIsNotNotModified() throws Exception {
+        when(inventoryService.getStockByBookId(7L)).thenReturn(inventory(5L, 0L));
+
+        mockMvc.perform(get("/inventory/7").header("If-None-Match", "\"3-0\""))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/inventory/7").header("If-None-Match", "\"5-0\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void ifMatchPassesTheRowIdAndVersion() throws Exception {
+        when(inventoryService.updateStock(7L, 9, 3L, 4L)).thenReturn(inventory(3L, 5L));
+
+        mockMvc.perform(put("/inventory/7").param("quantity", "9").header("If-Match", "\"3-4\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3-5\""));
+    }
+
+    @Test
+    void ifMatchOfAnotherRowFails() throws Exception {
+        when(inventoryService.updateStock(7L, 9, 3L, 4L))
+                .thenThrow(new PreconditionFailedException("Stock for book 7 was removed and added again"));
+
+        mockMvc.perform(put("/inventory/7").param("quantity", "9").header("If-Match", "\"3-4\""))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void versionOnlyEtagIsRejected() throws Exception {
+        mockMvc.perform(put("/inventory/7").param("quantity", "9").header("If-Match", "\"4\""))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(inventoryService, never()).updateStock(7L, 9);
+    }
+
+    private static Inventory inventory(Long id, long version) {
+        Inventory inventory = new Inventory();
+        inventory.setId(id);
+        inventory.setBookId(7L);
+        inventory.setQuantity(9);
+        inventory.setVersion(version);
+        return inventory;
+    }
+}
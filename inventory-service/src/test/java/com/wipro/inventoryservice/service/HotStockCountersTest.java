@@ -0,0 +1,299 @@
+package com.wipro.inventoryservice.service;
+
+import com.wipro.inventoryservice.config.InventoryCompaction;
+import com.wipro.inventoryservice.entity.Inventory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HotStockCountersTest {
+    private static final long BOOK_ID = 7L;
+    private static final String JOURNAL_ID = "node-a";
+
+    @TempDir
+    private Path journalDir;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    // Named locks that another connection holds
+    private final Set<String> heldElsewhere = new HashSet<>();
+    private HotStockCounters counters;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet lockResult = mock(ResultSet.class);
+        AtomicReference<String> lockName = new AtomicReference<>();
+        when(jdbcTemplate.getDataSource()).thenReturn(dataSource);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        doAnswer(invocation -> {
+            lockName.set(invocation.getArgument(1));
+            return null;
+        }).when(statement).setString(eq(1), anyString());
+        when(statement.executeQuery()).thenReturn(lockResult);
+        when(lockResult.next()).thenReturn(true);
+        when(lockResult.getInt(1)).thenAnswer(invocation -> heldElsewhere.contains(lockName.get()) ? 0 : 1);
+        ResultSet row = mock(ResultSet.class);
+        when(row.getLong("book_id")).thenReturn(BOOK_ID);
+        when(row.getLong("quantity")).thenReturn(10L);
+        when(row.getLong("version")).thenReturn(4L);
+        doAnswer(invocation -> {
+            invocation.<RowCallbackHandler>getArgument(1).processRow(row);
+            return null;
+        }).when(jdbcTemplate).query(contains("FOR UPDATE"), any(RowCallbackHandler.class), any(Object[].class));
+        when(transactionTemplate.getTransactionManager()).thenReturn(mock(PlatformTransactionManager.class));
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<Object>>getArgument(0).doInTransaction(null));
+        counters = new HotStockCounters(jdbcTemplate, transactionTemplate, mock(InventoryCompaction.class),
+                List.of(BOOK_ID), 4, 60_000, journalDir.toString(), JOURNAL_ID);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.unbindResourceIfPossible(counters);
+        counters.shutdown();
+    }
+
+    @Test
+    void countersStartFromTheRow() throws Exception {
+        counters.recover();
+
+        Inventory inventory = counters.overlay(row());
+
+        assertThat(counters.isHot(BOOK_ID)).isTrue();
+        assertThat(inventory.getQuantity()).isEqualTo(10);
+        assertThat(inventory.getVersion()).isEqualTo(4L);
+    }
+
+    @Test
+    void anotherReplicaHoldingTheLeaseKeepsTheBookInTheDatabase() throws Exception {
+        heldElsewhere.add(HotStockCounters.LEASE_NAME);
+
+        counters.recover();
+
+        assertThat(counters.isHot(BOOK_ID)).isFalse();
+        assertThat(counters.isHotBook(BOOK_ID)).isTrue();
+        assertThat(counters.overlay(row()).getQuantity()).isEqualTo(3);
+    }
+
+    @Test
+    void replicaTakesTheCountersOverOnceTheLeaseIsFree() throws Exception {
+        heldElsewhere.add(HotStockCounters.LEASE_NAME);
+        counters.recover();
+
+        heldElsewhere.clear();
+        counters.scheduledFlush();
+
+        assertThat(counters.isHot(BOOK_ID)).isTrue();
+        assertThat(counters.overlay(row()).getQuantity()).isEqualTo(10);
+    }
+
+    @Test
+    void ownJournalIsReplayedPastItsOwnCheckpointAndOtherJournalsAreLeftAlone() throws Exception {
+        writeJournal(journalDir.resolve(JOURNAL_ID), List.of(new StockJournal.Entry(1, BOOK_ID, -1),
+                new StockJournal.Entry(2, BOOK_ID, -1), new StockJournal.Entry(3, BOOK_ID, -2)));
+        writeJournal(journalDir.resolve("node-b"), List.of(new StockJournal.Entry(1, BOOK_ID, -5)));
+        when(jdbcTemplate.queryForList(contains("FROM stock_journal_checkpoints"), eq(Long.class), eq(JOURNAL_ID)))
+                .thenReturn(List.of(1L));
+
+        counters.recover();
+
+        verify(jdbcTemplate).batchUpdate(contains("GREATEST"),
+                argThat((List<Object[]> args) -> args.size() == 1
+                        && List.of(args.get(0)).equals(List.of(BOOK_ID, -3L, 2L, -3L, 2L))));
+        verify(jdbcTemplate).update(contains("INSERT INTO stock_journal_checkpoints"), eq(JOURNAL_ID), eq(3L), eq(3L));
+        assertThat(StockJournal.readAll(journalDir.resolve(JOURNAL_ID))).isEmpty();
+        assertThat(StockJournal.readAll(journalDir.resolve("node-b"))).hasSize(1);
+    }
+
+    @Test
+    void journalLockedByAnotherProcessIsNeitherReplayedNorDeleted() throws Exception {
+        writeJournal(journalDir.resolve(JOURNAL_ID), List.of(new StockJournal.Entry(1, BOOK_ID, -1)));
+        heldElsewhere.add("inventory-service.journal." + JOURNAL_ID);
+
+        counters.recover();
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), any(List.class));
+        assertThat(StockJournal.readAll(journalDir.resolve(JOURNAL_ID))).hasSize(1);
+        assertThat(counters.isHot(BOOK_ID)).isFalse();
+    }
+
+    @Test
+    void journalIdMustBeAPlainFileName() {
+        assertThatThrownBy(() -> new HotStockCounters(jdbcTemplate, transactionTemplate, mock(InventoryCompaction.class),
+                List.of(BOOK_ID), 4, 60_000, journalDir.toString(), "../other"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rolledBackReservationPutsTheCopyBack() throws Exception {
+        counters.recover();
+        TransactionSynchronizationManager.initSynchronization();
+
+        assertThat(counters.adjust(BOOK_ID, -1)).isTrue();
+        assertThat(counters.overlay(row()).getQuantity()).isEqualTo(9);
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(counters.overlay(row()).getQuantity()).isEqualTo(10);
+    }
+
+    @Test
+    void addedCopiesAreAppliedOnlyOnCommit() throws Exception {
+        counters.recover();
+        TransactionSynchronizationManager.initSynchronization();
+
+        assertThat(counters.adjust(BOOK_ID, 3)).isTrue();
+        // The transaction sees its own restock before it commits
+        assertThat(counters.overlay(row()).getQuantity()).isEqualTo(13);
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        Inventory inventory = counters.overlay(row());
+        assertThat(inventory.getQuantity()).isEqualTo(13);
+        assertThat(inventory.getVersion()).isEqualTo(5L);
+    }
+
+    @Test
+    void rolledBackRestockIsNeverApplied() throws Exception {
+        counters.recover();
+        TransactionSynchronizationManager.initSynchronization();
+
+        counters.adjust(BOOK_ID, 3);
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(counters.overlay(row()).getQuantity()).isEqualTo(10);
+    }
+
+    @Test
+    void flushAddsTheDeltaAndVersionToTheRow() throws Exception {
+        counters.recover();
+        counters.adjust(BOOK_ID, -1);
+        counters.adjust(BOOK_ID, -2);
+
+        counters.flush();
+
+        verify(jdbcTemplate).batchUpdate(contains("quantity = GREATEST(quantity + ?, 0), version = version + ?"),
+                argThat((List<Object[]> args) -> args.size() == 1
+                        && List.of(args.get(0)).equals(List.of(BOOK_ID, -3L, 2L, -3L, 2L))));
+    }
+
+    @Test
+    void flushRebasesTheCountersOnTheRow() throws Exception {
+        counters.recover();
+        counters.adjust(BOOK_ID, -1);
+
+        // The row is read back with quantity 10, as if another replica put a copy back
+        counters.flush();
+
+        Inventory inventory = counters.overlay(row());
+        assertThat(inventory.getQuantity()).isEqualTo(10);
+        assertThat(inventory.getVersion()).isEqualTo(4L);
+    }
+
+    @Test
+    void stripesNeverOversell() throws Exception {
+        HotStockCounters.HotStock stock = new HotStockCounters.HotStock(4);
+        stock.reset(1000);
+        AtomicInteger taken = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(pool.submit(() -> {
+                    for (int j = 0; j < 200; j++) {
+                        if (stock.take(1)) {
+                            taken.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(taken).hasValue(1000);
+        assertThat(stock.quantity()).isZero();
+    }
+
+    @Test
+    void takeSpansStripesAndPutsBackWhenShort() {
+        HotStockCounters.HotStock stock = new HotStockCounters.HotStock(4);
+        stock.reset(6);
+
+        assertThat(stock.take(5)).isTrue();
+        assertThat(stock.quantity()).isEqualTo(1);
+        assertThat(stock.take(2)).isFalse();
+        assertThat(stock.quantity()).isEqualTo(1);
+    }
+
+    private static void writeJournal(Path dir, List<StockJournal.Entry> entries) throws Exception {
+        try (StockJournal journal = new StockJournal(dir, entries.get(0).seq())) {
+            for (StockJournal.Entry entry : entries) {
+                journal.append(entry).join();
+            }
+        }
+    }
+
+    private void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+
+    private static Inventory row() {
+        Inventory inventory = new Inventory();
+        inventory.setId(1L);
+        inventory.setBookId(BOOK_ID);
+        inventory.setQuantity(3);
+        inventory.setVersion(1L);
+        return inventory;
+    }
+}
@@ -0,0 +1,145 @@
+package com.wipro.inventoryservice.service;
+
+import com.wipro.common.dto.StockChangeResult;
+import com.wipro.inventoryservice.entity.Inventory;
+import com.wipro.inventoryservice.exception.HotStockUnavailableException;
+import com.wipro.inventoryservice.exception.OutOfStockException;
+import com.wipro.inventoryservice.repository.InventoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class InventoryServiceTest {
+    private final InventoryRepository inventoryRepository = mock(InventoryRepository.class);
+    private final OutboxService outboxService = mock(OutboxService.class);
+    private final HotStockCounters hotStockCounters = mock(HotStockCounters.class);
+    private final LowStockEventRecorder lowStockEventRecorder = mock(LowStockEventRecorder.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private InventoryService inventoryService;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<Object>>getArgument(0).doInTransaction(null));
+        when(hotStockCounters.overlay(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        inventoryService = new InventoryService(inventoryRepository, outboxService, hotStockCounters,
+                lowStockEventRecorder, transactionTemplate);
+    }
+
+    @Test
+    void adjustAppliesTheDeltaAndReturnsTheRowAsWritten() {
+        when(inventoryRepository.adjust(7L, -2)).thenReturn(1);
+        when(inventoryRepository.findByBookId(7L)).thenReturn(Optional.of(inventory(7L, 3)));
+
+        Inventory adjusted = inventoryService.adjustStock(7L, -2);
+
+        assertThat(adjusted.getQuantity()).isEqualTo(3);
+        verify(lowStockEventRecorder).recordIfCrossed(7L, -2);
+        verify(outboxService).record("Inventory", 7L, "Stock adjusted by -2 for book: 7");
+    }
+
+    @Test
+    void adjustBelowZeroIsRejectedWithTheCurrentQuantity() {
+        when(inventoryRepository.adjust(7L, -5)).thenReturn(0);
+        when(inventoryRepository.findByBookId(7L)).thenReturn(Optional.of(inventory(7L, 3)));
+
+        assertThatThrownBy(() -> inventoryService.adjustStock(7L, -5))
+                .isInstanceOf(OutOfStockException.class)
+                .hasMessageContaining("is 3, cannot remove 5 copies");
+        verify(lowStockEventRecorder, never()).recordIfCrossed(anyLong(), anyInt());
+        verify(outboxService, never()).record(anyString(), anyLong(), anyString());
+    }
+
+    @Test
+    void adjustOfAHotBookGoesThroughTheCounters() {
+        when(hotStockCounters.isHot(7L)).thenReturn(true);
+        when(hotStockCounters.adjust(7L, 4)).thenReturn(true);
+        when(inventoryRepository.findByBookId(7L)).thenReturn(Optional.of(inventory(7L, 9)));
+
+        inventoryService.adjustStock(7L, 4);
+
+        verify(inventoryRepository, never()).adjust(anyLong(), anyInt());
+    }
+
+    @Test
+    void batchReserveReportsEachBookOnItsOwn() {
+        when(inventoryRepository.adjust(1L, -1)).thenReturn(1);
+        when(inventoryRepository.adjust(2L, -1)).thenReturn(0);
+        when(inventoryRepository.adjust(3L, -1)).thenReturn(0);
+        when(inventoryRepository.findByBookId(2L)).thenReturn(Optional.of(inventory(2L, 0)));
+        when(inventoryRepository.findByBookId(3L)).thenReturn(Optional.empty());
+
+        List<StockChangeResult> results = inventoryService.reserveStock(List.of(1L, 2L, 3L));
+
+        assertThat(results).extracting(StockChangeResult::getStatus).containsExactly(
+                StockChangeResult.Status.DONE, StockChangeResult.Status.OUT_OF_STOCK, StockChangeResult.Status.NOT_FOUND);
+        verify(lowStockEventRecorder).recordIfCrossed(1L, -1);
+    }
+
+    @Test
+    void batchReserveTakesOneCopyPerListing() {
+        when(inventoryRepository.adjust(1L, -1)).thenReturn(1, 0);
+        when(inventoryRepository.findByBookId(1L)).thenReturn(Optional.of(inventory(1L, 0)));
+
+        List<StockChangeResult> results = inventoryService.reserveStock(List.of(1L, 1L));
+
+        assertThat(results).extracting(StockChangeResult::getStatus)
+                .containsExactly(StockChangeResult.Status.DONE, StockChangeResult.Status.OUT_OF_STOCK);
+    }
+
+    @Test
+    void batchReserveWithAHotBookHeldElsewhereReservesNothing() {
+        when(hotStockCounters.isHotBook(2L)).thenReturn(true);
+
+        assertThatThrownBy(() -> inventoryService.reserveStock(List.of(1L, 2L)))
+                .isInstanceOf(HotStockUnavailableException.class);
+        verifyNoInteractions(inventoryRepository);
+    }
+
+    @Test
+    void batchReleaseReportsBooksThatAreNotStocked() {
+        when(inventoryRepository.adjust(1L, 1)).thenReturn(1);
+        when(inventoryRepository.adjust(2L, 1)).thenReturn(0);
+
+        List<StockChangeResult> results = inventoryService.releaseStock(List.of(1L, 2L));
+
+        assertThat(results).extracting(StockChangeResult::getStatus)
+                .containsExactly(StockChangeResult.Status.DONE, StockChangeResult.Status.NOT_FOUND);
+        verify(lowStockEventRecorder, never()).recordIfCrossed(anyLong(), anyInt());
+    }
+
+    @Test
+    void batchReleaseOfAHotBookHeldElsewhereWritesTheRow() {
+        when(hotStockCounters.isHotBook(2L)).thenReturn(true);
+        when(inventoryRepository.adjust(2L, 1)).thenReturn(1);
+
+        List<StockChangeResult> results = inventoryService.releaseStock(List.of(2L));
+
+        assertThat(results).extracting(StockChangeResult::getStatus).containsExactly(StockChangeResult.Status.DONE);
+        verify(hotStockCounters, never()).adjust(anyLong(), anyInt());
+    }
+
+    private static Inventory inventory(Long bookId, int quantity) {
+        Inventory inventory = new Inventory();
+        inventory.setId(bookId + 100);
+        inventory.setBookId(bookId);
+        inventory.setQuantity(quantity);
+        return inventory;
+    }
+}
@@ -0,0 +1,94 @@
+package com.wipro.inventoryservice.service;
+
+import com.wipro.inventoryservice.entity.LowStockEvent;
+import com.wipro.inventoryservice.repository.LowStockEventRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LowStockEventRecorderTest {
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final LowStockEventRepository lowStockEventRepository = mock(LowStockEventRepository.class);
+    private LowStockEventRecorder recorder;
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(jdbcTemplate.queryForObject(contains("FROM low_stock_event_sequence"), eq(Long.class))).thenReturn(8L);
+        recorder = new LowStockEventRecorder(jdbcTemplate, transactionTemplate, lowStockEventRepository,
+                mock(EntityManagerFactory.class));
+    }
+
+    @Test
+    void eventTakesTheNextSequence() {
+        recorder.record(new LowStockEvent(7L, 2, 3, null));
+
+        verify(jdbcTemplate).update("UPDATE low_stock_event_sequence SET last_sequence = last_sequence + 1 WHERE id = 1");
+        verify(lowStockEventRepository).save(argThat(event -> event.getStreamSequence() == 8L));
+    }
+
+    @Test
+    void crossingTheThresholdRecordsAnEvent() {
+        row(2, 3);
+
+        recorder.recordIfCrossed(7L, -2);
+
+        verify(lowStockEventRepository).save(argThat(event -> event.getBookId() == 7L
+                && event.getQuantity() == 2 && event.getThreshold() == 3 && event.getStreamSequence() == 8L));
+    }
+
+    @Test
+    void stockThatWasAlreadyLowRecordsNothing() {
+        row(2, 3);
+
+        recorder.recordIfCrossed(7L, -1);
+
+        verify(lowStockEventRepository, never()).save(any());
+        verify(jdbcTemplate, never()).update(contains("low_stock_event_sequence"));
+    }
+
+    @Test
+    void firstStartKeepsTheIdsAsSequences() {
+        when(jdbcTemplate.update(contains("INSERT IGNORE INTO low_stock_event_sequence"))).thenReturn(1);
+
+        recorder.createSequence();
+
+        verify(jdbcTemplate).update("UPDATE low_stock_events SET stream_sequence = id WHERE stream_sequence IS NULL");
+    }
+
+    @Test
+    void laterStartsAppendUnnumberedEvents() {
+        when(jdbcTemplate.queryForList(contains("stream_sequence IS NULL"), eq(Long.class))).thenReturn(List.of(41L));
+
+        recorder.createSequence();
+
+        verify(jdbcTemplate).update("UPDATE low_stock_events SET stream_sequence = ? WHERE id = ?", 8L, 41L);
+        verify(jdbcTemplate, never()).update(eq("UPDATE low_stock_events SET stream_sequence = id WHERE stream_sequence IS NULL"));
+    }
+
+    private void row(int quantity, int threshold) {
+        when(jdbcTemplate.queryForList(anyString(), eq(7L)))
+                .thenReturn(List.of(Map.of("quantity", quantity, "reorder_threshold", threshold)));
+    }
+}
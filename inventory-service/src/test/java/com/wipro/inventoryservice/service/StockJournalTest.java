@@ -0,0 +1,96 @@
+package com.wipro.inventoryservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StockJournalTest {
+    @TempDir
+    private Path dir;
+
+    @Test
+    void appendedRecordsAreReadBackInOrder() throws IOException {
+        List<StockJournal.Entry> entries = List.of(new StockJournal.Entry(1, 7, -1),
+                new StockJournal.Entry(2, 7, 5), new StockJournal.Entry(3, 9, -2));
+
+        write(1, entries);
+
+        assertThat(StockJournal.readAll(dir)).containsExactlyElementsOf(entries);
+    }
+
+    @Test
+    void corruptRecordEndsItsSegment() throws IOException {
+        write(1, List.of(new StockJournal.Entry(1, 7, -1), new StockJournal.Entry(2, 7, -1),
+                new StockJournal.Entry(3, 7, -1)));
+        try (RandomAccessFile file = new RandomAccessFile(onlySegment().toFile(), "rw")) {
+            // Flip a bit in the delta of the second record
+            long offset = StockJournal.RECORD_SIZE + 16;
+            file.seek(offset);
+            int value = file.read();
+            file.seek(offset);
+            file.write(value ^ 1);
+        }
+
+        assertThat(StockJournal.readAll(dir)).containsExactly(new StockJournal.Entry(1, 7, -1));
+    }
+
+    @Test
+    void tornLastRecordIsIgnored() throws IOException {
+        write(1, List.of(new StockJournal.Entry(1, 7, -1), new StockJournal.Entry(2, 7, 3)));
+        try (RandomAccessFile file = new RandomAccessFile(onlySegment().toFile(), "rw")) {
+            file.setLength(StockJournal.RECORD_SIZE + 5);
+        }
+
+        assertThat(StockJournal.readAll(dir)).containsExactly(new StockJournal.Entry(1, 7, -1));
+    }
+
+    @Test
+    void checkpointedSegmentsAreDeletedAfterARoll() throws IOException {
+        try (StockJournal journal = new StockJournal(dir, 1)) {
+            journal.append(new StockJournal.Entry(1, 7, -1)).join();
+            journal.roll(2);
+            journal.append(new StockJournal.Entry(2, 7, 4)).join();
+            journal.roll(3);
+
+            journal.deleteUpTo(1);
+        }
+
+        assertThat(StockJournal.readAll(dir)).containsExactly(new StockJournal.Entry(2, 7, 4));
+    }
+
+    @Test
+    void appendAfterCloseFails() throws IOException {
+        StockJournal journal = new StockJournal(dir, 1);
+        journal.close();
+
+        assertThatThrownBy(() -> journal.append(new StockJournal.Entry(1, 7, -1)).join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(IOException.class);
+    }
+
+    private void write(long firstSeq, List<StockJournal.Entry> entries) throws IOException {
+        try (StockJournal journal = new StockJournal(dir, firstSeq)) {
+            for (StockJournal.Entry entry : entries) {
+                journal.append(entry).join();
+            }
+        }
+    }
+
+    private Path onlySegment() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> segments = files.toList();
+            assertThat(segments).hasSize(1);
+            return segments.get(0);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.wipro.common.dto;
+
+public class BatchLookupResult<T> {
+    public enum Status { FOUND, NOT_FOUND }
+
+    private Status status;
+    private T item;
+
+    public BatchLookupResult() {
+    }
+
+    public BatchLookupResult(Status status, T item) {
+        this.status = status;
+        this.item = item;
+    }
+
+    public static <T> BatchLookupResult<T> found(T item) {
+        return new BatchLookupResult<>(Status.FOUND, item);
+    }
+
+    public static <T> BatchLookupResult<T> notFound() {
+        return new BatchLookupResult<>(Status.NOT_FOUND, null);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public T getItem() {
+        return item;
+    }
+
+    public void setItem(T item) {
+        this.item = item;
+    }
+}
@@ -0,0 +1,37 @@
+package com.wipro.common.dto;
+
+public class NotificationRequest {
+    private String eventKey;
+    private String message;
+
+    public NotificationRequest() {
+    }
+
+    public NotificationRequest(String message) {
+        this.message = message;
+    }
+
+    public NotificationRequest(String eventKey, String message) {
+        this.eventKey = eventKey;
+        this.message = message;
+    }
+
+    /**
+     * Identifies the source event, so a redelivered event is stored only once. Optional.
+     */
+    public String getEventKey() {
+        return eventKey;
+    }
+
+    public void setEventKey(String eventKey) {
+        this.eventKey = eventKey;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
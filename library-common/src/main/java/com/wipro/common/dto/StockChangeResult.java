@@ -0,0 +1,32 @@
+package com.wipro.common.dto;
+
+public class StockChangeResult {
+    public enum Status { DONE, OUT_OF_STOCK, NOT_FOUND }
+
+    private Long bookId;
+    private Status status;
+
+    public StockChangeResult() {
+    }
+
+    public StockChangeResult(Long bookId, Status status) {
+        this.bookId = bookId;
+        this.status = status;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+}
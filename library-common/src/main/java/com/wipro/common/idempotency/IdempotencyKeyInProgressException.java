@@ -0,0 +1,18 @@
+package com.wipro.common.idempotency;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * The request that first used an {@code Idempotency-Key} was still running when a retry
+ * stopped waiting for it; the retry should be sent again later.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class IdempotencyKeyInProgressException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public IdempotencyKeyInProgressException(String message) {
+        super(message);
+    }
+}
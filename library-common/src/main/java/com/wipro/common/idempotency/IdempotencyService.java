@@ -0,0 +1,206 @@
+package com.wipro.common.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the response of each request sent with an {@code Idempotency-Key} header, so a
+ * retry returns the stored response without running the operation again, whichever replica it
+ * reaches.
+ * <p>
+ * The first request with a key claims it by inserting a row keyed on (operation, key) into the
+ * service's table, runs the operation and stores the response there as JSON. A retry that
+ * finds the row returns the stored response; while the first request is still running, the
+ * retry polls the row for up to {@code waitTimeout} and is then refused with 409. Reusing a
+ * key with different parameters is rejected with 422. A request that fails in any way, errors
+ * included, deletes its row so it can be retried; a retry waiting on it then runs the
+ * operation itself. A claim whose response never arrives (its
+ * replica stopped mid-request) is taken over after {@code abandonAfter}. Keys are kept for
+ * {@code ttl}; expired rows are replaced on their next use and purged every hour.
+ * <p>
+ * Each service creates one instance for its own table.
+ */
+public class IdempotencyService {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final int MAX_OPERATION_LENGTH = 32;
+    private static final long POLL_INTERVAL_MILLIS = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final String table;
+    private final Duration ttl;
+    private final Duration waitTimeout;
+    private final Duration abandonAfter;
+
+    public IdempotencyService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, String table, Duration ttl,
+                              Duration waitTimeout, Duration abandonAfter) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.table = table;
+        this.ttl = ttl;
+        this.waitTimeout = waitTimeout;
+        this.abandonAfter = abandonAfter;
+    }
+
+    @PostConstruct
+    public void createTable() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + table + " (" +
+                "operation VARCHAR(" + MAX_OPERATION_LENGTH + ") NOT NULL, " +
+                "idempotency_key VARCHAR(" + MAX_KEY_LENGTH + ") NOT NULL, " +
+                "fingerprint CHAR(64) NOT NULL, claim CHAR(36) NOT NULL, response MEDIUMTEXT NULL, " +
+                "claimed_at DATETIME(3) NOT NULL, expires_at DATETIME(3) NOT NULL, " +
+                "PRIMARY KEY (operation, idempotency_key), KEY idx_" + table + "_expires (expires_at))");
+    }
+
+    /**
+     * Runs {@code action} once per key and returns its response, read back as
+     * {@code responseType} on a retry. {@code fingerprint} describes the request parameters;
+     * reusing a key with different parameters is rejected.
+     */
+    public <T> T execute(String key, String operation, String fingerprint, TypeReference<T> responseType,
+                         Supplier<T> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+        String hash = hash(fingerprint);
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+        while (true) {
+            String claim = UUID.randomUUID().toString();
+            LocalDateTime now = LocalDateTime.now();
+            if (insertClaim(operation, key, hash, claim, now) == 1) {
+                return run(operation, key, claim, action);
+            }
+            List<Entry> entries = jdbcTemplate.query("SELECT fingerprint, claim, response, claimed_at, expires_at FROM " +
+                    table + " WHERE operation = ? AND idempotency_key = ?", (rs, rowNum) -> new Entry(
+                    rs.getString("fingerprint"), rs.getString("claim"), rs.getString("response"),
+                    rs.getTimestamp("claimed_at").toLocalDateTime(), rs.getTimestamp("expires_at").toLocalDateTime()),
+                    operation, key);
+            if (entries.isEmpty()) {
+                // The first request failed and was forgotten
+                continue;
+            }
+            Entry entry = entries.get(0);
+            if (entry.expiresAt().isBefore(now)) {
+                deleteClaim(operation, key, entry.claim());
+                continue;
+            }
+            if (!entry.fingerprint().equals(hash)) {
+                throw new IdempotencyKeyConflictException("Idempotency-Key " + key + " was already used with different parameters");
+            }
+            if (entry.response() != null) {
+                return read(entry.response(), responseType);
+            }
+            if (entry.claimedAt().plus(abandonAfter).isBefore(now)) {
+                if (jdbcTemplate.update("UPDATE " + table + " SET claim = ?, claimed_at = ? WHERE operation = ? " +
+                        "AND idempotency_key = ? AND claim = ?", claim, Timestamp.valueOf(now), operation, key,
+                        entry.claim()) == 1) {
+                    logger.warn("Taking over the abandoned {} request with Idempotency-Key {}", operation, key);
+                    return run(operation, key, claim, action);
+                }
+                continue;
+            }
+            if (System.nanoTime() > deadline) {
+                throw new IdempotencyKeyInProgressException("The request with Idempotency-Key " + key
+                        + " is still running, retry later");
+            }
+            try {
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IdempotencyKeyInProgressException("Interrupted while waiting for the request with Idempotency-Key " + key);
+            }
+        }
+    }
+
+    /**
+     * Deletes the keys that have expired.
+     */
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval:3600000}")
+    public void purgeExpired() {
+        try {
+            int purged = jdbcTemplate.update("DELETE FROM " + table + " WHERE expires_at < ?",
+                    Timestamp.valueOf(LocalDateTime.now()));
+            if (purged > 0) {
+                logger.info("Purged {} expired idempotency keys from {}", purged, table);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to purge expired idempotency keys from {}: {}", table, e.getMessage());
+        }
+    }
+
+    private int insertClaim(String operation, String key, String hash, String claim, LocalDateTime now) {
+        return jdbcTemplate.update("INSERT IGNORE INTO " + table + " (operation, idempotency_key, fingerprint, claim, " +
+                "claimed_at, expires_at) VALUES (?, ?, ?, ?, ?, ?)", operation, key, hash, claim,
+                Timestamp.valueOf(now), Timestamp.valueOf(now.plus(ttl)));
+    }
+
+    private <T> T run(String operation, String key, String claim, Supplier<T> action) {
+        T response;
+        try {
+            response = action.get();
+        } catch (Throwable e) {
+            // Errors too, or retries would wait for a response that never comes
+            deleteClaim(operation, key, claim);
+            throw e;
+        }
+        try {
+            jdbcTemplate.update("UPDATE " + table + " SET response = ? WHERE operation = ? AND idempotency_key = ? " +
+                    "AND claim = ?", objectMapper.writeValueAsString(response), operation, key, claim);
+        } catch (JsonProcessingException | RuntimeException e) {
+            // The operation has run; a retry taking the claim over later would run it again
+            logger.error("Failed to store the response of {} with Idempotency-Key {}: {}", operation, key, e.getMessage());
+        }
+        return response;
+    }
+
+    private void deleteClaim(String operation, String key, String claim) {
+        try {
+            jdbcTemplate.update("DELETE FROM " + table + " WHERE operation = ? AND idempotency_key = ? AND claim = ?",
+                    operation, key, claim);
+        } catch (RuntimeException e) {
+            logger.error("Failed to release Idempotency-Key {} of {}: {}", key, operation, e.getMessage());
+        }
+    }
+
+    private <T> T read(String response, TypeReference<T> responseType) {
+        try {
+            return objectMapper.readValue(response, responseType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored response for an idempotent request cannot be read", e);
+        }
+    }
+
+    private static String hash(String fingerprint) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(fingerprint.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Entry(String fingerprint, String claim, String response, LocalDateTime claimedAt,
+                         LocalDateTime expiresAt) {
+    }
+}
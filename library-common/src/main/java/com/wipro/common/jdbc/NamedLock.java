@@ -0,0 +1,148 @@
+package com.wipro.common.jdbc;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Runs work while holding a MySQL named lock (GET_LOCK), so replicas that start together or
+ * run the same maintenance job take turns instead of racing. The lock belongs to the
+ * connection that took it, which is kept for the duration of the work; the work itself may
+ * use any other connection or transaction. MySQL drops the lock if that connection is lost.
+ * <p>
+ * A {@link Lease} keeps the lock beyond a single piece of work, for a replica that owns
+ * some state until it shuts down.
+ */
+public class NamedLock {
+    private final JdbcTemplate jdbcTemplate;
+
+    public NamedLock(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Waits up to {@code timeout} for the lock, runs the action and releases the lock.
+     *
+     * @throws IllegalStateException if the lock was not acquired in time
+     */
+    public <T> T runExclusively(String name, Duration timeout, Supplier<T> action) {
+        return jdbcTemplate.execute((ConnectionCallback<T>) connection -> {
+            if (!acquire(connection, name, timeout.toSeconds())) {
+                throw new IllegalStateException("Timed out after " + timeout + " waiting for lock " + name);
+            }
+            try {
+                return action.get();
+            } finally {
+                release(connection, name);
+            }
+        });
+    }
+
+    /**
+     * Runs the action only if no other connection holds the lock. Returns false without
+     * running it otherwise.
+     */
+    public boolean tryRunExclusively(String name, Runnable action) {
+        Boolean ran = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            if (!acquire(connection, name, 0)) {
+                return false;
+            }
+            try {
+                action.run();
+                return true;
+            } finally {
+                release(connection, name);
+            }
+        });
+        return Boolean.TRUE.equals(ran);
+    }
+
+    /**
+     * Takes the lock on a connection of its own, if no other connection holds it, and keeps
+     * it until the returned lease is closed. Returns an empty Optional otherwise.
+     */
+    public Optional<Lease> tryAcquireLease(String name) throws SQLException {
+        Connection connection = jdbcTemplate.getDataSource().getConnection();
+        try {
+            if (acquire(connection, name, 0)) {
+                return Optional.of(new Lease(connection, name));
+            }
+        } catch (SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+        connection.close();
+        return Optional.empty();
+    }
+
+    static boolean acquire(Connection connection, String name, long timeoutSeconds) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            statement.setString(1, name);
+            statement.setLong(2, timeoutSeconds);
+            try (ResultSet rs = statement.executeQuery()) {
+                // 1 when acquired, 0 on timeout, NULL on error
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    static void release(Connection connection, String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            statement.setString(1, name);
+            statement.executeQuery().close();
+        }
+    }
+
+    /**
+     * A named lock held on a dedicated connection until {@link #close}.
+     */
+    public static final class Lease implements AutoCloseable {
+        private final Connection connection;
+        private final String name;
+
+        private Lease(Connection connection, String name) {
+            this.connection = connection;
+            this.name = name;
+        }
+
+        /**
+         * Returns whether the lease connection still holds the lock. False once the
+         * connection is lost, in which case another replica may have taken it.
+         */
+        public boolean isHeld() {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT IS_USED_LOCK(?) = CONNECTION_ID()")) {
+                statement.setString(1, name);
+                try (ResultSet rs = statement.executeQuery()) {
+                    return rs.next() && rs.getInt(1) == 1;
+                }
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Releases the lock and closes the connection.
+         */
+        @Override
+        public void close() {
+            try {
+                release(connection, name);
+            } catch (SQLException e) {
+                // A lost connection has already dropped the lock
+            } finally {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    // Nothing left to release
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.wipro.common.outbox;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A notification waiting to be delivered by the outbox relay. Rows are written in the same
+ * transaction as the change they describe and deleted once notification-service has them.
+ * Each service maps a subclass to its own outbox table.
+ * <p>
+ * The IDENTITY id orders the events of one aggregate for delivery (see
+ * {@link AbstractOutboxService}).
+ */
+@MappedSuperclass
+public abstract class AbstractOutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(nullable = false, length = 32)
+    private String aggregateType;
+    @Column(nullable = false)
+    private Long aggregateId;
+    @Column(nullable = false)
+    private String message;
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+    private int attempts;
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getAggregateType() { return aggregateType; }
+    public void setAggregateType(String aggregateType) { this.aggregateType = aggregateType; }
+    public Long getAggregateId() { return aggregateId; }
+    public void setAggregateId(Long aggregateId) { this.aggregateId = aggregateId; }
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+}
@@ -0,0 +1,141 @@
+package com.wipro.common.outbox;
+
+import com.wipro.common.dto.NotificationRequest;
+import com.wipro.common.jdbc.NamedLock;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers outbox events to notification-service in batches.
+ * <p>
+ * Each event is sent with the event key {@code <application name>:<outbox id>}, which
+ * notification-service stores only once, so an event resent after a lost response is not
+ * duplicated. Every batch holds at most the first remaining event of each aggregate (see
+ * {@link OutboxEventStore#findDeliverable}), so events arrive in the order their
+ * transactions committed. When a batch fails every event in it is retried with exponential
+ * backoff, and later events of the same aggregate wait for it.
+ * <p>
+ * The relay runs unless {@code outbox.relay.enabled} is set to false. It runs on its own
+ * thread with connect and read timeouts on its HTTP client, so a slow notification-service
+ * does not hold up other scheduled work, and each run holds a named lock, so only one replica
+ * relays at a time.
+ */
+public abstract class AbstractOutboxRelay<E extends AbstractOutboxEvent> {
+    private static final Logger logger = LoggerFactory.getLogger(AbstractOutboxRelay.class);
+
+    private final OutboxEventStore<E> outboxEventStore;
+    private final RestTemplate restTemplate;
+    private final NamedLock namedLock;
+    private final String source;
+    private final boolean enabled;
+    private final long interval;
+    private final int batchSize;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final String notificationServiceUrl = "http://localhost:8085/notifications";
+    private ScheduledExecutorService executor;
+
+    protected AbstractOutboxRelay(OutboxEventStore<E> outboxEventStore, RestTemplateBuilder restTemplateBuilder,
+                                  JdbcTemplate jdbcTemplate, String source, boolean enabled, long interval,
+                                  int batchSize, Duration initialBackoff, Duration maxBackoff,
+                                  Duration connectTimeout, Duration readTimeout) {
+        this.outboxEventStore = outboxEventStore;
+        this.restTemplate = restTemplateBuilder
+                .connectTimeout(connectTimeout)
+                .readTimeout(readTimeout)
+                .build();
+        this.namedLock = new NamedLock(jdbcTemplate);
+        this.source = source;
+        this.enabled = enabled;
+        this.interval = interval;
+        this.batchSize = batchSize;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, source + "-outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::scheduledRelay, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    void scheduledRelay() {
+        try {
+            namedLock.tryRunExclusively(source + ".outbox-relay", this::relay);
+        } catch (Exception e) {
+            logger.error("Outbox relay failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Sends due events until none are left or a batch fails. Returns the number delivered.
+     */
+    public synchronized int relay() {
+        int delivered = 0;
+        while (true) {
+            LocalDateTime now = LocalDateTime.now();
+            List<E> events = outboxEventStore.findDeliverable(now, PageRequest.of(0, batchSize));
+            if (events.isEmpty()) {
+                break;
+            }
+            List<NotificationRequest> requests = new ArrayList<>(events.size());
+            List<Long> ids = new ArrayList<>(events.size());
+            for (E event : events) {
+                requests.add(new NotificationRequest(source + ":" + event.getId(), event.getMessage()));
+                ids.add(event.getId());
+            }
+            try {
+                restTemplate.postForObject(notificationServiceUrl + "/batch", requests, Void.class);
+            } catch (Exception e) {
+                postpone(events, now);
+                logger.warn("Failed to deliver {} outbox events, will retry: {}", events.size(), e.getMessage());
+                break;
+            }
+            outboxEventStore.deleteAllByIdInBatch(ids);
+            delivered += events.size();
+        }
+        return delivered;
+    }
+
+    private void postpone(List<E> events, LocalDateTime now) {
+        for (E event : events) {
+            event.setAttempts(event.getAttempts() + 1);
+            event.setNextAttemptAt(now.plus(backoff(event.getAttempts())));
+        }
+        outboxEventStore.saveAll(events);
+    }
+
+    private Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+}
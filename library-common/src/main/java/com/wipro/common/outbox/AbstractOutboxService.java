@@ -0,0 +1,81 @@
+package com.wipro.common.outbox;
+
+import com.wipro.common.jdbc.NamedLock;
+import jakarta.annotation.PostConstruct;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.function.Supplier;
+
+/**
+ * Records notifications in the outbox table. Callers must already be in a transaction, so the
+ * event commits or rolls back together with the change it describes; the service's
+ * {@link AbstractOutboxRelay} delivers it afterwards.
+ * <p>
+ * Recording an event takes no lock beyond the insert itself, so it does not serialize the
+ * business transactions of a busy aggregate. Events are delivered in id order per aggregate
+ * (see {@link OutboxEventStore#findDeliverable}); changes that update the aggregate's own row
+ * already wait for each other on that row lock, so their ids are assigned in commit order.
+ */
+public abstract class AbstractOutboxService<E extends AbstractOutboxEvent> {
+    /** Length of the notifications.message column. */
+    private static final int MAX_MESSAGE_LENGTH = 255;
+
+    private final OutboxEventStore<E> outboxEventStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedLock namedLock;
+    private final String outboxTable;
+    private final Supplier<E> eventFactory;
+
+    protected AbstractOutboxService(OutboxEventStore<E> outboxEventStore, JdbcTemplate jdbcTemplate,
+                                    String outboxTable, Supplier<E> eventFactory) {
+        this.outboxEventStore = outboxEventStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedLock = new NamedLock(jdbcTemplate);
+        this.outboxTable = outboxTable;
+        this.eventFactory = eventFactory;
+    }
+
+    /**
+     * Removes the per-aggregate sequence counter that earlier versions kept in
+     * {@code <outbox table>_sequence} and in the aggregate_sequence column, which Hibernate's
+     * schema update leaves in place (NOT NULL, so inserts without it would fail).
+     */
+    @PostConstruct
+    public void dropAggregateSequence() {
+        namedLock.runExclusively(outboxTable + ".drop-sequence", Duration.ofMinutes(5), () -> {
+            Integer columns = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.columns " +
+                    "WHERE table_schema = DATABASE() AND table_name = ? AND column_name = 'aggregate_sequence'",
+                    Integer.class, outboxTable);
+            if (columns != null && columns > 0) {
+                jdbcTemplate.execute("ALTER TABLE " + outboxTable + " DROP COLUMN aggregate_sequence");
+            }
+            Integer indexes = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.statistics " +
+                    "WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?",
+                    Integer.class, outboxTable, "idx_" + outboxTable + "_aggregate_sequence");
+            if (indexes != null && indexes > 0) {
+                jdbcTemplate.execute("ALTER TABLE " + outboxTable + " DROP INDEX idx_" + outboxTable + "_aggregate_sequence");
+            }
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + outboxTable + "_sequence");
+            return null;
+        });
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(String aggregateType, Long aggregateId, String message) {
+        if (message.length() > MAX_MESSAGE_LENGTH) {
+            message = message.substring(0, MAX_MESSAGE_LENGTH - 3) + "...";
+        }
+        LocalDateTime now = LocalDateTime.now();
+        E event = eventFactory.get();
+        event.setAggregateType(aggregateType);
+        event.setAggregateId(aggregateId);
+        event.setMessage(message);
+        event.setCreatedAt(now);
+        event.setNextAttemptAt(now);
+        outboxEventStore.save(event);
+    }
+}
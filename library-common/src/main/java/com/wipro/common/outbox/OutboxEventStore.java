@@ -0,0 +1,30 @@
+package com.wipro.common.outbox;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Queries shared by the outbox tables of all services; each service declares a repository
+ * extending this one for its own event entity.
+ */
+@NoRepositoryBean
+public interface OutboxEventStore<E extends AbstractOutboxEvent> extends JpaRepository<E, Long> {
+
+    /**
+     * The first remaining event of each aggregate, in id order, when it is due. Later events of
+     * an aggregate are returned once the ones before them are delivered, and all of them wait
+     * while the first one waits for its retry. Only committed events are seen, so the order is
+     * commit order wherever ids are assigned in commit order (see {@link AbstractOutboxService}).
+     */
+    @Query("SELECT e FROM #{#entityName} e WHERE e.nextAttemptAt <= :now AND NOT EXISTS (" +
+           "SELECT p.id FROM #{#entityName} p WHERE p.aggregateType = e.aggregateType " +
+           "AND p.aggregateId = e.aggregateId AND p.id < e.id) " +
+           "ORDER BY e.id")
+    List<E> findDeliverable(@Param("now") LocalDateTime now, Pageable pageable);
+}
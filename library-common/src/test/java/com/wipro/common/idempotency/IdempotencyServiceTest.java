@@ -0,0 +1,287 @@
+package com.wipro.common.idempotency;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IdempotencyServiceTest {
+    private static final TypeReference<String> STRING = new TypeReference<>() {
+    };
+    private static final TypeReference<List<Long>> IDS = new TypeReference<>() {
+    };
+
+    private InMemoryKeyTable keyTable;
+    private IdempotencyService service;
+
+    @BeforeEach
+    void setUp() {
+        keyTable = new InMemoryKeyTable();
+        service = service(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void retryReturnsTheStoredResponseOnAnyReplica() {
+        IdempotencyService otherReplica = service(Duration.ofSeconds(5));
+        AtomicInteger calls = new AtomicInteger();
+
+        String first = service.execute("key-1", "borrow", "user=1,book=2", STRING,
+                () -> "response-" + calls.incrementAndGet());
+        String retry = otherReplica.execute("key-1", "borrow", "user=1,book=2", STRING,
+                () -> "response-" + calls.incrementAndGet());
+
+        assertThat(first).isEqualTo("response-1");
+        assertThat(retry).isEqualTo("response-1");
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void storedResponseIsReadBackAsTheRequestedType() {
+        service.execute("key-1", "borrow-batch", "user=1,books=[2, 3]", IDS, () -> List.of(2L, 3L));
+
+        List<Long> retry = service.execute("key-1", "borrow-batch", "user=1,books=[2, 3]", IDS, List::of);
+
+        assertThat(retry).containsExactly(2L, 3L);
+    }
+
+    @Test
+    void keysAreScopedByOperationAndIgnoredWhenBlank() {
+        AtomicInteger calls = new AtomicInteger();
+
+        service.execute("key-1", "borrow", "user=1", STRING, () -> "borrow-" + calls.incrementAndGet());
+        String other = service.execute("key-1", "return", "user=1", STRING, () -> "return-" + calls.incrementAndGet());
+        service.execute(" ", "borrow", "user=1", STRING, () -> "blank-" + calls.incrementAndGet());
+        service.execute(null, "borrow", "user=1", STRING, () -> "none-" + calls.incrementAndGet());
+
+        assertThat(other).isEqualTo("return-2");
+        assertThat(calls).hasValue(4);
+        assertThat(keyTable.rows).hasSize(2);
+    }
+
+    @Test
+    void reusingAKeyWithDifferentParametersIsRejected() {
+        service.execute("key-1", "borrow", "user=1,book=2", STRING, () -> "first");
+
+        assertThatThrownBy(() -> service.execute("key-1", "borrow", "user=1,book=3", STRING, () -> "second"))
+                .isInstanceOf(IdempotencyKeyConflictException.class);
+    }
+
+    @Test
+    void tooLongKeyIsRejected() {
+        assertThatThrownBy(() -> service.execute("k".repeat(256), "borrow", "user=1", STRING, () -> "first"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void failedRequestIsForgottenSoItCanBeRetried() {
+        assertThatThrownBy(() -> service.execute("key-1", "borrow", "user=1", STRING, () -> {
+            throw new IllegalStateException("Book not available");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> service.execute("key-2", "borrow", "user=1", STRING, () -> {
+            throw new StackOverflowError();
+        })).isInstanceOf(StackOverflowError.class);
+
+        assertThat(keyTable.rows).isEmpty();
+        assertThat(service.execute("key-1", "borrow", "user=1", STRING, () -> "second")).isEqualTo("second");
+        assertThat(service.execute("key-2", "borrow", "user=1", STRING, () -> "second")).isEqualTo("second");
+    }
+
+    @Test
+    void concurrentRetryWaitsForTheOriginalResponse() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> service.execute("key-1", "borrow", "user=1", STRING, () -> {
+                started.countDown();
+                await(release);
+                return "response-" + calls.incrementAndGet();
+            }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<String> retry = executor.submit(() -> service(Duration.ofSeconds(5))
+                    .execute("key-1", "borrow", "user=1", STRING, () -> "response-" + calls.incrementAndGet()));
+            Thread.sleep(100);
+            assertThat(retry.isDone()).isFalse();
+
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("response-1");
+            assertThat(retry.get(5, TimeUnit.SECONDS)).isEqualTo("response-1");
+            assertThat(calls).hasValue(1);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void retryIsRefusedWhileTheOriginalIsStillRunning() {
+        keyTable.claim("borrow", "key-1", "user=1", LocalDateTime.now(), LocalDateTime.now().plusDays(1));
+        IdempotencyService impatient = service(Duration.ofMillis(100));
+
+        assertThatThrownBy(() -> impatient.execute("key-1", "borrow", "user=1", STRING, () -> "second"))
+                .isInstanceOf(IdempotencyKeyInProgressException.class);
+    }
+
+    @Test
+    void abandonedClaimIsTakenOver() {
+        keyTable.claim("borrow", "key-1", "user=1", LocalDateTime.now().minusMinutes(10), LocalDateTime.now().plusDays(1));
+
+        String response = service.execute("key-1", "borrow", "user=1", STRING, () -> "second");
+
+        assertThat(response).isEqualTo("second");
+        assertThat(service.execute("key-1", "borrow", "user=1", STRING, () -> "third")).isEqualTo("second");
+    }
+
+    @Test
+    void expiredKeyIsReusedAndPurged() {
+        keyTable.claim("borrow", "key-1", "user=1", LocalDateTime.now().minusDays(2), LocalDateTime.now().minusDays(1));
+        keyTable.claim("borrow", "key-2", "user=2", LocalDateTime.now().minusDays(2), LocalDateTime.now().minusDays(1));
+
+        String response = service.execute("key-1", "borrow", "user=3", STRING, () -> "fresh");
+        service.purgeExpired();
+
+        assertThat(response).isEqualTo("fresh");
+        assertThat(keyTable.rows).containsOnlyKeys(List.of("borrow", "key-1"));
+    }
+
+    private IdempotencyService service(Duration waitTimeout) {
+        return new IdempotencyService(keyTable, new ObjectMapper(), "test_idempotency_keys", Duration.ofDays(1),
+                waitTimeout, Duration.ofMinutes(5));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The key table in memory, shared by every service instance created in a test like the
+     * database is shared by the replicas. Only the statements IdempotencyService issues are
+     * understood.
+     */
+    private static class InMemoryKeyTable extends JdbcTemplate {
+        private final Map<List<String>, Row> rows = new ConcurrentHashMap<>();
+
+        void claim(String operation, String key, String fingerprint, LocalDateTime claimedAt, LocalDateTime expiresAt) {
+            // Stored like the service stores it, so the fingerprint matches a request with the same parameters
+            rows.put(List.of(operation, key), new Row(sha256(fingerprint), "stale-claim", null, claimedAt, expiresAt));
+        }
+
+        @Override
+        public void execute(String sql) {
+        }
+
+        @Override
+        public synchronized int update(String sql, Object... args) {
+            if (sql.startsWith("INSERT IGNORE")) {
+                Row row = new Row((String) args[2], (String) args[3], null, time(args[4]), time(args[5]));
+                return rows.putIfAbsent(List.of((String) args[0], (String) args[1]), row) == null ? 1 : 0;
+            }
+            if (sql.contains("SET claim = ?")) {
+                return replace(args[2], args[3], args[4], row -> new Row(row.fingerprint(), (String) args[0],
+                        row.response(), time(args[1]), row.expiresAt()));
+            }
+            if (sql.contains("SET response = ?")) {
+                return replace(args[1], args[2], args[3], row -> new Row(row.fingerprint(), row.claim(),
+                        (String) args[0], row.claimedAt(), row.expiresAt()));
+            }
+            if (sql.contains("WHERE expires_at < ?")) {
+                int before = rows.size();
+                rows.values().removeIf(row -> row.expiresAt().isBefore(time(args[0])));
+                return before - rows.size();
+            }
+            if (sql.startsWith("DELETE")) {
+                return replace(args[0], args[1], args[2], row -> null);
+            }
+            throw new UnsupportedOperationException(sql);
+        }
+
+        @Override
+        public synchronized <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            Row row = rows.get(List.of((String) args[0], (String) args[1]));
+            List<T> result = new ArrayList<>();
+            if (row != null) {
+                try {
+                    result.add(rowMapper.mapRow(row.toResultSet(), 0));
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return result;
+        }
+
+        private int replace(Object operation, Object key, Object claim, UnaryOperator<Row> change) {
+            List<String> id = List.of((String) operation, (String) key);
+            Row row = rows.get(id);
+            if (row == null || !row.claim().equals(claim)) {
+                return 0;
+            }
+            Row changed = change.apply(row);
+            if (changed == null) {
+                rows.remove(id);
+            } else {
+                rows.put(id, changed);
+            }
+            return 1;
+        }
+
+        private static LocalDateTime time(Object timestamp) {
+            return ((Timestamp) timestamp).toLocalDateTime();
+        }
+
+        private static String sha256(String value) {
+            try {
+                return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                        .digest(value.getBytes(StandardCharsets.UTF_8)));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private record Row(String fingerprint, String claim, String response, LocalDateTime claimedAt,
+                       LocalDateTime expiresAt) {
+        ResultSet toResultSet() throws SQLException {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getString("fingerprint")).thenReturn(fingerprint);
+            when(rs.getString("claim")).thenReturn(claim);
+            when(rs.getString("response")).thenReturn(response);
+            when(rs.getTimestamp("claimed_at")).thenReturn(Timestamp.valueOf(claimedAt));
+            when(rs.getTimestamp("expires_at")).thenReturn(Timestamp.valueOf(expiresAt));
+            return rs;
+        }
+    }
+}
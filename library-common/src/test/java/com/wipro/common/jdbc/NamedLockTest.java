@@ -0,0 +1,143 @@
+package com.wipro.common.jdbc;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class NamedLockTest {
+    @Mock
+    private DataSource dataSource;
+    @Mock
+    private Connection connection;
+    @Mock
+    private PreparedStatement getLock;
+    @Mock
+    private PreparedStatement releaseLock;
+    @Mock
+    private ResultSet getLockResult;
+
+    private NamedLock namedLock;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement("SELECT GET_LOCK(?, ?)")).thenReturn(getLock);
+        when(getLock.executeQuery()).thenReturn(getLockResult);
+        namedLock = new NamedLock(new JdbcTemplate(dataSource));
+    }
+
+    @Test
+    void runsTheActionBetweenAcquireAndRelease() throws Exception {
+        lockResult(1);
+        when(connection.prepareStatement("SELECT RELEASE_LOCK(?)")).thenReturn(releaseLock);
+        when(releaseLock.executeQuery()).thenReturn(mock(ResultSet.class));
+
+        String result = namedLock.runExclusively("job", Duration.ofSeconds(30), () -> "done");
+
+        assertThat(result).isEqualTo("done");
+        InOrder order = inOrder(getLock, releaseLock);
+        order.verify(getLock).setString(1, "job");
+        order.verify(getLock).setLong(2, 30L);
+        order.verify(getLock).executeQuery();
+        order.verify(releaseLock).setString(1, "job");
+        order.verify(releaseLock).executeQuery();
+    }
+
+    @Test
+    void releasesTheLockWhenTheActionFails() throws Exception {
+        lockResult(1);
+        when(connection.prepareStatement("SELECT RELEASE_LOCK(?)")).thenReturn(releaseLock);
+        when(releaseLock.executeQuery()).thenReturn(mock(ResultSet.class));
+
+        assertThatThrownBy(() -> namedLock.runExclusively("job", Duration.ofSeconds(1), () -> {
+            throw new IllegalArgumentException("boom");
+        })).isInstanceOf(IllegalArgumentException.class);
+
+        verify(releaseLock).executeQuery();
+    }
+
+    @Test
+    void timeoutThrowsWithoutRunningTheAction() throws Exception {
+        lockResult(0);
+        AtomicBoolean ran = new AtomicBoolean();
+
+        assertThatThrownBy(() -> namedLock.runExclusively("job", Duration.ofSeconds(1), () -> {
+            ran.set(true);
+            return null;
+        })).isInstanceOf(IllegalStateException.class).hasMessageContaining("job");
+
+        assertThat(ran).isFalse();
+        verify(connection, never()).prepareStatement("SELECT RELEASE_LOCK(?)");
+    }
+
+    @Test
+    void tryRunSkipsTheActionWhenTheLockIsHeld() throws Exception {
+        lockResult(0);
+        AtomicBoolean ran = new AtomicBoolean();
+
+        assertThat(namedLock.tryRunExclusively("job", () -> ran.set(true))).isFalse();
+
+        assertThat(ran).isFalse();
+        verify(getLock).setLong(2, 0L);
+    }
+
+    @Test
+    void leaseKeepsItsConnectionUntilClosed() throws Exception {
+        lockResult(1);
+        when(connection.prepareStatement("SELECT RELEASE_LOCK(?)")).thenReturn(releaseLock);
+        when(releaseLock.executeQuery()).thenReturn(mock(ResultSet.class));
+
+        NamedLock.Lease lease = namedLock.tryAcquireLease("owner").orElseThrow();
+
+        verify(connection, never()).close();
+        lease.close();
+        InOrder order = inOrder(releaseLock, connection);
+        order.verify(releaseLock).executeQuery();
+        order.verify(connection).close();
+    }
+
+    @Test
+    void leaseIsNotGrantedWhileAnotherConnectionHoldsTheLock() throws Exception {
+        lockResult(0);
+
+        assertThat(namedLock.tryAcquireLease("owner")).isEmpty();
+
+        verify(connection).close();
+    }
+
+    @Test
+    void leaseIsNoLongerHeldOnceItsConnectionFails() throws Exception {
+        lockResult(1);
+        NamedLock.Lease lease = namedLock.tryAcquireLease("owner").orElseThrow();
+        when(connection.prepareStatement("SELECT IS_USED_LOCK(?) = CONNECTION_ID()"))
+                .thenThrow(new SQLException("Communications link failure"));
+
+        assertThat(lease.isHeld()).isFalse();
+    }
+
+    private void lockResult(int value) throws Exception {
+        when(getLockResult.next()).thenReturn(true);
+        when(getLockResult.getInt(1)).thenReturn(value);
+    }
+}
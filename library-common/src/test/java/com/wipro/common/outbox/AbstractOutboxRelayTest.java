@@ -0,0 +1,116 @@
+package com.wipro.common.outbox;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.test.web.client.MockServerRestTemplateCustomizer;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.client.MockRestServiceServer;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.content;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+@ExtendWith(MockitoExtension.class)
+class AbstractOutboxRelayTest {
+    private static final String BATCH_URL = "http://localhost:8085/notifications/batch";
+
+    @Mock
+    private OutboxEventStore<TestEvent> outboxEventStore;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private MockRestServiceServer server;
+    private TestRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        MockServerRestTemplateCustomizer customizer = new MockServerRestTemplateCustomizer();
+        relay = new TestRelay(outboxEventStore, new RestTemplateBuilder(customizer), jdbcTemplate);
+        server = customizer.getServer();
+    }
+
+    @Test
+    void deliversBatchesWithEventKeysUntilNoneAreDue() {
+        TestEvent first = event(1L, "Book added: A");
+        TestEvent second = event(2L, "Book added: B");
+        TestEvent next = event(3L, "Book updated: A");
+        when(outboxEventStore.findDeliverable(any(LocalDateTime.class), eq(PageRequest.of(0, 2))))
+                .thenReturn(List.of(first, second), List.of(next), List.of());
+        server.expect(requestTo(BATCH_URL)).andExpect(method(HttpMethod.POST))
+                .andExpect(content().json("[{\"eventKey\":\"book-service:1\",\"message\":\"Book added: A\"}," +
+                        "{\"eventKey\":\"book-service:2\",\"message\":\"Book added: B\"}]"))
+                .andRespond(withSuccess());
+        server.expect(requestTo(BATCH_URL))
+                .andExpect(content().json("[{\"eventKey\":\"book-service:3\"}]"))
+                .andRespond(withSuccess("", MediaType.APPLICATION_JSON));
+
+        assertThat(relay.relay()).isEqualTo(3);
+
+        server.verify();
+        verify(outboxEventStore).deleteAllByIdInBatch(List.of(1L, 2L));
+        verify(outboxEventStore).deleteAllByIdInBatch(List.of(3L));
+    }
+
+    @Test
+    void failedBatchIsPostponedWithBackoffAndStopsTheRun() {
+        TestEvent fresh = event(1L, "Fine paid: 1");
+        TestEvent retried = event(2L, "Fine paid: 2");
+        retried.setAttempts(2);
+        when(outboxEventStore.findDeliverable(any(LocalDateTime.class), eq(PageRequest.of(0, 2))))
+                .thenReturn(List.of(fresh, retried));
+        server.expect(requestTo(BATCH_URL)).andRespond(withServerError());
+        LocalDateTime before = LocalDateTime.now();
+
+        assertThat(relay.relay()).isZero();
+
+        assertThat(fresh.getAttempts()).isEqualTo(1);
+        assertThat(fresh.getNextAttemptAt()).isCloseTo(before.plusSeconds(1), within(500, ChronoUnit.MILLIS));
+        assertThat(retried.getAttempts()).isEqualTo(3);
+        // 1s doubled twice, capped at 3s
+        assertThat(retried.getNextAttemptAt()).isCloseTo(before.plusSeconds(3), within(500, ChronoUnit.MILLIS));
+        verify(outboxEventStore).saveAll(List.of(fresh, retried));
+        verify(outboxEventStore, never()).deleteAllByIdInBatch(any());
+    }
+
+    private static TestEvent event(Long id, String message) {
+        TestEvent event = new TestEvent();
+        event.setId(id);
+        event.setAggregateType("Book");
+        event.setAggregateId(id);
+        event.setMessage(message);
+        event.setCreatedAt(LocalDateTime.now());
+        event.setNextAttemptAt(LocalDateTime.now());
+        return event;
+    }
+
+    static class TestEvent extends AbstractOutboxEvent {
+    }
+
+    static class TestRelay extends AbstractOutboxRelay<TestEvent> {
+        TestRelay(OutboxEventStore<TestEvent> store, RestTemplateBuilder restTemplateBuilder, JdbcTemplate jdbcTemplate) {
+            super(store, restTemplateBuilder, jdbcTemplate, "book-service", true, 1000, 2,
+                    Duration.ofSeconds(1), Duration.ofSeconds(3), Duration.ofSeconds(2), Duration.ofSeconds(10));
+        }
+    }
+}
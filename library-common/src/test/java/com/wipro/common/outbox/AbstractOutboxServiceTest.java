@@ -0,0 +1,112 @@
+package com.wipro.common.outbox;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AbstractOutboxServiceTest {
+    @Mock
+    private OutboxEventStore<TestEvent> outboxEventStore;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private TestService outboxService;
+
+    @BeforeEach
+    void setUp() {
+        outboxService = new TestService(outboxEventStore, jdbcTemplate);
+    }
+
+    @Test
+    void eventIsSavedWithoutTouchingAnyCounterRow() {
+        outboxService.record("Book", 7L, "Book updated: Dune");
+
+        ArgumentCaptor<TestEvent> saved = ArgumentCaptor.forClass(TestEvent.class);
+        verify(outboxEventStore).save(saved.capture());
+        assertThat(saved.getValue().getAggregateType()).isEqualTo("Book");
+        assertThat(saved.getValue().getAggregateId()).isEqualTo(7L);
+        assertThat(saved.getValue().getMessage()).isEqualTo("Book updated: Dune");
+        assertThat(saved.getValue().getNextAttemptAt()).isEqualTo(saved.getValue().getCreatedAt());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void longMessagesAreTruncatedToTheColumnLength() {
+        outboxService.record("Book", 7L, "x".repeat(300));
+
+        ArgumentCaptor<TestEvent> saved = ArgumentCaptor.forClass(TestEvent.class);
+        verify(outboxEventStore).save(saved.capture());
+        assertThat(saved.getValue().getMessage()).hasSize(255).endsWith("...");
+    }
+
+    @Test
+    void leftoverSequenceColumnIndexAndTableAreDropped() throws Exception {
+        holdLock();
+        when(jdbcTemplate.queryForObject(contains("information_schema.columns"), eq(Integer.class), eq("book_outbox")))
+                .thenReturn(1);
+        when(jdbcTemplate.queryForObject(contains("information_schema.statistics"), eq(Integer.class),
+                eq("book_outbox"), eq("idx_book_outbox_aggregate_sequence"))).thenReturn(1);
+
+        outboxService.dropAggregateSequence();
+
+        verify(jdbcTemplate).execute("ALTER TABLE book_outbox DROP COLUMN aggregate_sequence");
+        verify(jdbcTemplate).execute("ALTER TABLE book_outbox DROP INDEX idx_book_outbox_aggregate_sequence");
+        verify(jdbcTemplate).execute("DROP TABLE IF EXISTS book_outbox_sequence");
+    }
+
+    @Test
+    void migratedTableIsLeftAlone() throws Exception {
+        holdLock();
+        when(jdbcTemplate.queryForObject(contains("information_schema"), eq(Integer.class), any(Object[].class)))
+                .thenReturn(0);
+
+        outboxService.dropAggregateSequence();
+
+        verify(jdbcTemplate, never()).execute(startsWith("ALTER TABLE"));
+        verify(jdbcTemplate).execute("DROP TABLE IF EXISTS book_outbox_sequence");
+    }
+
+    @SuppressWarnings("unchecked")
+    private void holdLock() throws Exception {
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getInt(1)).thenReturn(1);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+                .thenAnswer(invocation -> invocation.<ConnectionCallback<?>>getArgument(0).doInConnection(connection));
+    }
+
+    static class TestEvent extends AbstractOutboxEvent {
+    }
+
+    static class TestService extends AbstractOutboxService<TestEvent> {
+        TestService(OutboxEventStore<TestEvent> store, JdbcTemplate jdbcTemplate) {
+            super(store, jdbcTemplate, "book_outbox", TestEvent::new);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.wipro.notificationservice.controller;
 
+import com.wipro.notificationservice.dto.NotificationBatchResult;
 import com.wipro.notificationservice.dto.NotificationRequest;
 import com.wipro.notificationservice.entity.Notification;
 import com.wipro.notificationservice.service.NotificationService;
@@ -18,6 +19,7 @@ import java.util.List;
 @RequestMapping("/notifications")
 @Tag(name = "Notification API", description = "APIs for creating and retrieving notifications")
 public class NotificationController {
+    private static final int MAX_BATCH_SIZE = 500;
 
     private final NotificationService notificationService;
 
@@ -45,6 +47,24 @@ public class NotificationController {
         return ResponseEntity.ok(notificationService.createNotification(request.getMessage()));
     }
 
+    @Operation(
+        summary = "Create several notifications",
+        description = "Stores up to 500 notifications in one database transaction. Requests whose eventKey " +
+                "already exists are skipped, so a batch can be resent safely",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Number of notifications created and skipped",
+                content = @Content(schema = @Schema(implementation = NotificationBatchResult.class))),
+            @ApiResponse(responseCode = "400", description = "Too many notifications")
+        }
+    )
+    @PostMapping("/batch")
+    public ResponseEntity<NotificationBatchResult> createNotifications(@RequestBody List<NotificationRequest> requests) {
+        if (requests.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " notifications can be created at once");
+        }
+        return ResponseEntity.ok(notificationService.createNotifications(requests));
+    }
+
     @Operation(
         summary = "Get all notifications",
         description = "Retrieves a list of all notifications in the system",
@@ -0,0 +1,33 @@
+package com.wipro.notificationservice.dto;
+
+public class NotificationBatchResult {
+    private int created;
+    private int duplicates;
+
+    public NotificationBatchResult() {
+    }
+
+    public NotificationBatchResult(int created, int duplicates) {
+        this.created = created;
+        this.duplicates = duplicates;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public void setCreated(int created) {
+        this.created = created;
+    }
+
+    /**
+     * Requests skipped because a notification with the same eventKey already exists.
+     */
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    public void setDuplicates(int duplicates) {
+        this.duplicates = duplicates;
+    }
+}
@@ -1,6 +1,7 @@
 package com.wipro.notificationservice.dto;
 
 public class NotificationRequest {
+    private String eventKey;
     private String message;
 
     public NotificationRequest() {
@@ -10,6 +11,22 @@ public class NotificationRequest {
         this.message = message;
     }
 
+    public NotificationRequest(String eventKey, String message) {
+        this.eventKey = eventKey;
+        this.message = message;
+    }
+
+    /**
+     * Identifies the source event, so a redelivered event is stored only once. Optional.
+     */
+    public String getEventKey() {
+        return eventKey;
+    }
+
+    public void setEventKey(String eventKey) {
+        this.eventKey = eventKey;
+    }
+
     public String getMessage() {
         return message;
     }
@@ -17,4 +34,4 @@ public class NotificationRequest {
     public void setMessage(String message) {
         this.message = message;
     }
-}
\ No newline at end of file
+}
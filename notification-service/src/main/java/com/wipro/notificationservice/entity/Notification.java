@@ -6,13 +6,16 @@ import jakarta.persistence.*;
 
 
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_notifications_event_key", columnNames = "eventKey")
+})
 public class Notification {
 
 	
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
+    private String eventKey;
     private String message;
     private LocalDateTime createdAt;
 	public Long getId() {
@@ -21,6 +24,12 @@ public class Notification {
 	public void setId(Long id) {
 		this.id = id;
 	}
+	public String getEventKey() {
+		return eventKey;
+	}
+	public void setEventKey(String eventKey) {
+		this.eventKey = eventKey;
+	}
 	public String getMessage() {
 		return message;
 	}
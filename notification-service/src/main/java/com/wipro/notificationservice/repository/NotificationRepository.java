@@ -2,8 +2,16 @@ package com.wipro.notificationservice.repository;
 
 import com.wipro.notificationservice.entity.Notification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
+
+    @Query("SELECT n.eventKey FROM Notification n WHERE n.eventKey IN :eventKeys")
+    List<String> findExistingEventKeys(@Param("eventKeys") Collection<String> eventKeys);
 }
\ No newline at end of file
@@ -1,12 +1,18 @@
 package com.wipro.notificationservice.service;
 
+import com.wipro.notificationservice.dto.NotificationBatchResult;
+import com.wipro.notificationservice.dto.NotificationRequest;
 import com.wipro.notificationservice.entity.Notification;
 import com.wipro.notificationservice.repository.NotificationRepository;
 import com.wipro.notificationservice.exception.NotificationNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 public class NotificationService {
@@ -23,6 +29,36 @@ public class NotificationService {
         return notificationRepository.save(notification);
     }
 
+    /**
+     * Stores the notifications in one transaction. Requests whose eventKey is already stored,
+     * or appears earlier in the list, are skipped, so a relay can resend a batch safely.
+     */
+    @Transactional
+    public NotificationBatchResult createNotifications(List<NotificationRequest> requests) {
+        Set<String> eventKeys = new HashSet<>();
+        for (NotificationRequest request : requests) {
+            if (request.getEventKey() != null) {
+                eventKeys.add(request.getEventKey());
+            }
+        }
+        Set<String> seen = eventKeys.isEmpty()
+                ? new HashSet<>() : new HashSet<>(notificationRepository.findExistingEventKeys(eventKeys));
+        LocalDateTime now = LocalDateTime.now();
+        List<Notification> notifications = new ArrayList<>(requests.size());
+        for (NotificationRequest request : requests) {
+            if (request.getEventKey() != null && !seen.add(request.getEventKey())) {
+                continue;
+            }
+            Notification notification = new Notification();
+            notification.setEventKey(request.getEventKey());
+            notification.setMessage(request.getMessage());
+            notification.setCreatedAt(now);
+            notifications.add(notification);
+        }
+        notificationRepository.saveAll(notifications);
+        return new NotificationBatchResult(notifications.size(), requests.size() - notifications.size());
+    }
+
     public List<Notification> getAllNotifications() {
         return notificationRepository.findAll();
     }
@@ -0,0 +1,38 @@
+package com.wipro.transactionservice.config;
+
+import com.wipro.transactionservice.entity.ActiveLoan;
+import com.wipro.transactionservice.entity.Transaction;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the pooled id tables past the ids already handed out by the former AUTO_INCREMENT
+ * columns, so id blocks never collide with existing rows. The AUTO_INCREMENT counter is taken
+ * into account as well because archived transactions are no longer in the table. Depends on
+ * the EntityManagerFactory so it runs after Hibernate has created the tables.
+ */
+@Component
+public class IdSequenceInitializer {
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdSequenceInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void alignWithExistingIds() {
+        align("transactions", "transaction_seq", Transaction.ID_ALLOCATION_SIZE);
+        align("active_loans", "active_loan_seq", ActiveLoan.ID_ALLOCATION_SIZE);
+    }
+
+    private void align(String table, String sequence, int allocationSize) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        Long autoIncrement = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(AUTO_INCREMENT), 1) FROM information_schema.TABLES " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?", Long.class, table);
+        long floor = Math.max(maxId, autoIncrement - 1) + allocationSize;
+        jdbcTemplate.update("UPDATE " + sequence + " SET next_val = ? WHERE next_val <= ?", floor + 1, floor);
+    }
+}
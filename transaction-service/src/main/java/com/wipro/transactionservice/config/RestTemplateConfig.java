@@ -1,14 +1,27 @@
 package com.wipro.transactionservice.config;
 
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+
 @Configuration
 public class RestTemplateConfig {
+    /**
+     * Client for inventory-service and fine-service. Borrows and returns wait on it, so a slow
+     * peer fails them after the timeouts instead of holding request threads.
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(RestTemplateBuilder restTemplateBuilder,
+                                     @Value("${rest.client.connect-timeout:2s}") Duration connectTimeout,
+                                     @Value("${rest.client.read-timeout:10s}") Duration readTimeout) {
+        return restTemplateBuilder
+                .connectTimeout(connectTimeout)
+                .readTimeout(readTimeout)
+                .build();
     }
-}
\ No newline at end of file
+}
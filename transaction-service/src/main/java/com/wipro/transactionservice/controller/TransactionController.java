@@ -1,6 +1,18 @@
 package com.wipro.transactionservice.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.wipro.common.idempotency.IdempotencyService;
+import com.wipro.transactionservice.dto.BookCirculationStats;
+import com.wipro.transactionservice.dto.LoanRebuildResult;
+import com.wipro.transactionservice.dto.LoanRequest;
+import com.wipro.transactionservice.dto.LoanResult;
+import com.wipro.transactionservice.dto.OverdueRunResult;
+import com.wipro.transactionservice.dto.TransactionPage;
+import com.wipro.transactionservice.entity.ActiveLoan;
 import com.wipro.transactionservice.entity.Transaction;
+import com.wipro.transactionservice.service.ActiveLoanService;
+import com.wipro.transactionservice.service.CirculationStatsService;
+import com.wipro.transactionservice.service.OverdueService;
 import com.wipro.transactionservice.service.TransactionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,7 +24,11 @@ import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
 import java.util.List;
 
 @RestController
@@ -20,47 +36,116 @@ import java.util.List;
 @Tag(name = "Transaction API", description = "APIs for borrowing and returning books, and viewing transaction history")
 public class TransactionController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final TypeReference<Transaction> TRANSACTION = new TypeReference<>() {};
+    private static final TypeReference<List<LoanResult>> LOAN_RESULTS = new TypeReference<>() {};
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_ITEMS = 100;
+    private static final int MAX_TOP_BOOKS = 100;
+
     private final TransactionService transactionService;
+    private final ActiveLoanService activeLoanService;
+    private final IdempotencyService idempotencyService;
+    private final OverdueService overdueService;
+    private final CirculationStatsService circulationStatsService;
 
-    public TransactionController(TransactionService transactionService) {
+    public TransactionController(TransactionService transactionService, ActiveLoanService activeLoanService,
+                                 IdempotencyService idempotencyService, OverdueService overdueService,
+                                 CirculationStatsService circulationStatsService) {
         this.transactionService = transactionService;
+        this.activeLoanService = activeLoanService;
+        this.idempotencyService = idempotencyService;
+        this.overdueService = overdueService;
+        this.circulationStatsService = circulationStatsService;
     }
 
     @Operation(
         summary = "Borrow a book",
-        description = "Records a borrow transaction for a specific user and book",
+        description = "Reserves a copy in inventory and records a borrow transaction for a specific user and book",
         responses = {
             @ApiResponse(responseCode = "200", description = "Book borrowed successfully",
                 content = @Content(schema = @Schema(implementation = Transaction.class))),
-            @ApiResponse(responseCode = "404", description = "User or book not found")
+            @ApiResponse(responseCode = "404", description = "User or book not found"),
+            @ApiResponse(responseCode = "409", description = "No copies of the book are available")
         }
     )
     @PostMapping("/borrow")
     public ResponseEntity<Transaction> borrowBook(
             @Parameter(description = "User ID borrowing the book", example = "1") @RequestParam Long userId,
-            @Parameter(description = "Book ID being borrowed", example = "101") @RequestParam Long bookId) {
-        return ResponseEntity.ok(transactionService.borrowBook(userId, bookId));
+            @Parameter(description = "Book ID being borrowed", example = "101") @RequestParam Long bookId,
+            @Parameter(description = "Key identifying this request; a retry with the same key returns the first response")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return ResponseEntity.ok(idempotencyService.execute(idempotencyKey, "borrow", userId + ":" + bookId, TRANSACTION,
+                () -> transactionService.borrowBook(userId, bookId)));
     }
 
     @Operation(
         summary = "Return a book",
-        description = "Records a return transaction for a specific user and book",
+        description = "Releases the copy back to inventory and records a return transaction for a specific user and book",
         responses = {
             @ApiResponse(responseCode = "200", description = "Book returned successfully",
                 content = @Content(schema = @Schema(implementation = Transaction.class))),
-            @ApiResponse(responseCode = "404", description = "Transaction not found")
+            @ApiResponse(responseCode = "404", description = "The user has no active loan for the book"),
+            @ApiResponse(responseCode = "409", description = "The book is not stocked in inventory")
         }
     )
     @PostMapping("/return")
     public ResponseEntity<Transaction> returnBook(
             @Parameter(description = "User ID returning the book", example = "1") @RequestParam Long userId,
-            @Parameter(description = "Book ID being returned", example = "101") @RequestParam Long bookId) {
-        return ResponseEntity.ok(transactionService.returnBook(userId, bookId));
+            @Parameter(description = "Book ID being returned", example = "101") @RequestParam Long bookId,
+            @Parameter(description = "Key identifying this request; a retry with the same key returns the first response")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return ResponseEntity.ok(idempotencyService.execute(idempotencyKey, "return", userId + ":" + bookId, TRANSACTION,
+                () -> transactionService.returnBook(userId, bookId)));
+    }
+
+    @Operation(
+        summary = "Borrow several books",
+        description = "Borrows a list of (userId, bookId) pairs in one database transaction and sends a single " +
+                "notification. Returns one result per item in request order; books without a free copy are " +
+                "reported as UNAVAILABLE",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Per-item results"),
+            @ApiResponse(responseCode = "400", description = "Too many items")
+        }
+    )
+    @PostMapping("/borrow/batch")
+    public ResponseEntity<List<LoanResult>> borrowBooks(
+            @RequestBody List<LoanRequest> requests,
+            @Parameter(description = "Key identifying this request; a retry with the same key returns the first response")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        validateBatch(requests);
+        return ResponseEntity.ok(idempotencyService.execute(idempotencyKey, "borrow-batch", fingerprint(requests), LOAN_RESULTS,
+                () -> transactionService.borrowBooks(requests)));
+    }
+
+    @Operation(
+        summary = "Return several books",
+        description = "Returns a list of (userId, bookId) pairs in one database transaction and sends a single " +
+                "notification. Returns one result per item in request order; items the user does not hold are " +
+                "reported as NO_ACTIVE_LOAN",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Per-item results"),
+            @ApiResponse(responseCode = "400", description = "Too many items")
+        }
+    )
+    @PostMapping("/return/batch")
+    public ResponseEntity<List<LoanResult>> returnBooks(
+            @RequestBody List<LoanRequest> requests,
+            @Parameter(description = "Key identifying this request; a retry with the same key returns the first response")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        validateBatch(requests);
+        return ResponseEntity.ok(idempotencyService.execute(idempotencyKey, "return-batch", fingerprint(requests), LOAN_RESULTS,
+                () -> transactionService.returnBooks(requests)));
     }
 
     @Operation(
         summary = "Get transactions for a user",
-        description = "Fetches all transactions for a specific user, optionally filtered by date range",
+        description = "Fetches all transactions for a specific user, optionally filtered by date range. " +
+                "Passing limit or after switches to keyset pagination, newest first; the cursor for the " +
+                "next page is returned in the X-Next-Cursor header and is absent on the last page.",
         responses = {
             @ApiResponse(responseCode = "200", description = "Transactions retrieved successfully",
                 content = @Content(schema = @Schema(implementation = Transaction.class)))
@@ -72,8 +157,142 @@ public class TransactionController {
             @Parameter(description = "Start date (optional, ISO format)", example = "2025-08-01T00:00:00")
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @Parameter(description = "End date (optional, ISO format)", example = "2025-08-14T23:59:59")
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
-        return ResponseEntity.ok(transactionService.getTransactions(userId, startDate, endDate));
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @Parameter(description = "Page size (1-1000)", example = "50")
+            @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Opaque cursor from a previous X-Next-Cursor header")
+            @RequestParam(required = false) String after) {
+        if (limit == null && after == null) {
+            return ResponseEntity.ok(transactionService.getTransactions(userId, startDate, endDate));
+        }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        LocalDateTime beforeDate = null;
+        Long beforeId = null;
+        if (after != null) {
+            try {
+                String[] cursor = new String(Base64.getUrlDecoder().decode(after), StandardCharsets.UTF_8).split("\\|", 2);
+                beforeDate = LocalDateTime.parse(cursor[0]);
+                beforeId = Long.valueOf(cursor[1]);
+            } catch (IllegalArgumentException | DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + after);
+            }
+        }
+        TransactionPage page = transactionService.getTransactionsPage(userId, startDate, endDate, beforeDate, beforeId, pageSize);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getLast() != null) {
+            response.header(NEXT_CURSOR_HEADER, encodeCursor(page.getLast()));
+        }
+        return response.body(page.getItems());
+    }
+
+    @Operation(
+        summary = "Get the active loans of a user",
+        description = "Lists the books the user currently has checked out, oldest loan first",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Active loans retrieved successfully",
+                content = @Content(schema = @Schema(implementation = ActiveLoan.class)))
+        }
+    )
+    @GetMapping("/loans/user/{userId}")
+    public ResponseEntity<List<ActiveLoan>> getLoansByUser(
+            @Parameter(description = "User ID", example = "1") @PathVariable Long userId) {
+        return ResponseEntity.ok(activeLoanService.getLoansByUser(userId));
+    }
+
+    @Operation(
+        summary = "Get the active loans of a book",
+        description = "Lists the users currently holding a copy of the book, oldest loan first",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Active loans retrieved successfully",
+                content = @Content(schema = @Schema(implementation = ActiveLoan.class)))
+        }
+    )
+    @GetMapping("/loans/book/{bookId}")
+    public ResponseEntity<List<ActiveLoan>> getLoansByBook(
+            @Parameter(description = "Book ID", example = "101") @PathVariable Long bookId) {
+        return ResponseEntity.ok(activeLoanService.getLoansByBook(bookId));
+    }
+
+    @Operation(
+        summary = "Rebuild the active loans",
+        description = "Replays the whole borrow/return history and replaces the active loans with the result. " +
+                "Use it to backfill the view or recover it; run it while circulation is stopped, borrows and " +
+                "returns made during the rebuild may be missing from the result",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Active loans rebuilt",
+                content = @Content(schema = @Schema(implementation = LoanRebuildResult.class))),
+            @ApiResponse(responseCode = "409", description = "Another replica is rebuilding the active loans")
+        }
+    )
+    @PostMapping("/loans/rebuild")
+    public ResponseEntity<LoanRebuildResult> rebuildLoans() {
+        return ResponseEntity.ok(activeLoanService.rebuild());
+    }
+
+    @Operation(
+        summary = "Get the most borrowed books",
+        description = "Ranks books by borrows between two dates (inclusive, default the last 30 days), with " +
+                "returns and average loan duration over the same window. Reads the daily circulation rollup only",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Books ordered by borrows",
+                content = @Content(schema = @Schema(implementation = BookCirculationStats.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid window or limit")
+        }
+    )
+    @GetMapping("/stats/top")
+    public ResponseEntity<List<BookCirculationStats>> getTopBooks(
+            @Parameter(description = "First day (ISO date)", example = "2025-08-01")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Last day (ISO date)", example = "2025-08-31")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @Parameter(description = "Number of books (1-100)", example = "10")
+            @RequestParam(defaultValue = "10") int limit) {
+        LocalDate last = to == null ? LocalDate.now() : to;
+        LocalDate first = from == null ? last.minusDays(29) : from;
+        if (first.isAfter(last)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        if (limit < 1 || limit > MAX_TOP_BOOKS) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_TOP_BOOKS);
+        }
+        return ResponseEntity.ok(circulationStatsService.getTopBooks(first, last, limit));
+    }
+
+    @Operation(
+        summary = "Get circulation statistics of a book",
+        description = "All-time borrows, returns, average loan duration and last borrow of a book, plus its " +
+                "borrows over the last days. Reads the circulation rollup only",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Statistics retrieved successfully",
+                content = @Content(schema = @Schema(implementation = BookCirculationStats.class)))
+        }
+    )
+    @GetMapping("/stats/books/{bookId}")
+    public ResponseEntity<BookCirculationStats> getBookStats(
+            @Parameter(description = "Book ID", example = "101") @PathVariable Long bookId,
+            @Parameter(description = "Length of the recent window in days", example = "30")
+            @RequestParam(defaultValue = "30") int recentDays) {
+        if (recentDays < 1) {
+            throw new IllegalArgumentException("recentDays must be positive");
+        }
+        return ResponseEntity.ok(circulationStatsService.getBookStats(bookId, recentDays));
+    }
+
+    @Operation(
+        summary = "Run the overdue engine",
+        description = "Fines every active loan that fell due since the last run. The engine also runs nightly",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Run completed",
+                content = @Content(schema = @Schema(implementation = OverdueRunResult.class))),
+            @ApiResponse(responseCode = "409", description = "Another replica is running the engine")
+        }
+    )
+    @PostMapping("/overdue/run")
+    public ResponseEntity<OverdueRunResult> runOverdue() {
+        return ResponseEntity.ok(overdueService.run());
     }
 
     @Operation(
@@ -90,4 +309,31 @@ public class TransactionController {
             @Parameter(description = "Transaction ID", example = "5001") @PathVariable Long id) {
         return ResponseEntity.ok(transactionService.getTransactionById(id));
     }
+
+    private static void validateBatch(List<LoanRequest> requests) {
+        if (requests.size() > MAX_BATCH_ITEMS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_ITEMS + " items can be processed at once");
+        }
+        for (LoanRequest request : requests) {
+            if (request.getUserId() == null || request.getBookId() == null) {
+                throw new IllegalArgumentException("Every item needs a userId and a bookId");
+            }
+        }
+    }
+
+    private static String fingerprint(List<LoanRequest> requests) {
+        StringBuilder fingerprint = new StringBuilder();
+        for (LoanRequest request : requests) {
+            fingerprint.append(request.getUserId()).append(':').append(request.getBookId()).append(',');
+        }
+        return fingerprint.toString();
+    }
+
+    /**
+     * Encodes the (transactionDate, id) position of the last row as base64url("date|id").
+     */
+    private static String encodeCursor(Transaction last) {
+        String position = last.getTransactionDate() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
 }
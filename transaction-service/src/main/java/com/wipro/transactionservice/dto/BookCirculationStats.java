@@ -0,0 +1,79 @@
+package com.wipro.transactionservice.dto;
+
+import java.time.LocalDateTime;
+
+public class BookCirculationStats {
+    private Long bookId;
+    private long borrows;
+    private long returns;
+    private Double averageLoanDays;
+    private Long recentBorrows;
+    private LocalDateTime lastBorrowedAt;
+
+    public BookCirculationStats() {
+    }
+
+    public BookCirculationStats(Long bookId, long borrows, long returns, long loanSeconds) {
+        this.bookId = bookId;
+        this.borrows = borrows;
+        this.returns = returns;
+        this.averageLoanDays = returns == 0 ? null : loanSeconds / (double) returns / 86400;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public long getBorrows() {
+        return borrows;
+    }
+
+    public void setBorrows(long borrows) {
+        this.borrows = borrows;
+    }
+
+    public long getReturns() {
+        return returns;
+    }
+
+    public void setReturns(long returns) {
+        this.returns = returns;
+    }
+
+    /**
+     * Mean duration of the returned loans, null when none was returned.
+     */
+    public Double getAverageLoanDays() {
+        return averageLoanDays;
+    }
+
+    public void setAverageLoanDays(Double averageLoanDays) {
+        this.averageLoanDays = averageLoanDays;
+    }
+
+    /**
+     * Borrows in the recent window; only set on the per-book statistics.
+     */
+    public Long getRecentBorrows() {
+        return recentBorrows;
+    }
+
+    public void setRecentBorrows(Long recentBorrows) {
+        this.recentBorrows = recentBorrows;
+    }
+
+    /**
+     * Only set on the per-book statistics.
+     */
+    public LocalDateTime getLastBorrowedAt() {
+        return lastBorrowedAt;
+    }
+
+    public void setLastBorrowedAt(LocalDateTime lastBorrowedAt) {
+        this.lastBorrowedAt = lastBorrowedAt;
+    }
+}
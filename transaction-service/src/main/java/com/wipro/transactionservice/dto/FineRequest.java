@@ -0,0 +1,56 @@
+package com.wipro.transactionservice.dto;
+
+import java.math.BigDecimal;
+
+public class FineRequest {
+    private Long userId;
+    private Long bookId;
+    private BigDecimal amount;
+    private String externalRef;
+
+    public FineRequest() {
+    }
+
+    public FineRequest(Long userId, Long bookId, BigDecimal amount, String externalRef) {
+        this.userId = userId;
+        this.bookId = bookId;
+        this.amount = amount;
+        this.externalRef = externalRef;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    /**
+     * Caller-chosen reference that identifies the fine; a second fine with the same reference is
+     * not created.
+     */
+    public String getExternalRef() {
+        return externalRef;
+    }
+
+    public void setExternalRef(String externalRef) {
+        this.externalRef = externalRef;
+    }
+}
@@ -0,0 +1,40 @@
+package com.wipro.transactionservice.dto;
+
+public class LoanRebuildResult {
+    private long transactionsReplayed;
+    private long activeLoans;
+    private long unmatchedReturns;
+
+    public LoanRebuildResult() {
+    }
+
+    public LoanRebuildResult(long transactionsReplayed, long activeLoans, long unmatchedReturns) {
+        this.transactionsReplayed = transactionsReplayed;
+        this.activeLoans = activeLoans;
+        this.unmatchedReturns = unmatchedReturns;
+    }
+
+    public long getTransactionsReplayed() {
+        return transactionsReplayed;
+    }
+
+    public void setTransactionsReplayed(long transactionsReplayed) {
+        this.transactionsReplayed = transactionsReplayed;
+    }
+
+    public long getActiveLoans() {
+        return activeLoans;
+    }
+
+    public void setActiveLoans(long activeLoans) {
+        this.activeLoans = activeLoans;
+    }
+
+    public long getUnmatchedReturns() {
+        return unmatchedReturns;
+    }
+
+    public void setUnmatchedReturns(long unmatchedReturns) {
+        this.unmatchedReturns = unmatchedReturns;
+    }
+}
@@ -0,0 +1,57 @@
+package com.wipro.transactionservice.dto;
+
+import com.wipro.transactionservice.entity.Transaction;
+
+public class LoanResult {
+    public enum Status { DONE, UNAVAILABLE, NO_ACTIVE_LOAN }
+
+    private Long userId;
+    private Long bookId;
+    private Status status;
+    private Transaction transaction;
+
+    public LoanResult() {
+    }
+
+    public LoanResult(Long userId, Long bookId, Status status, Transaction transaction) {
+        this.userId = userId;
+        this.bookId = bookId;
+        this.status = status;
+        this.transaction = transaction;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    /**
+     * The recorded transaction when the status is DONE, otherwise null.
+     */
+    public Transaction getTransaction() {
+        return transaction;
+    }
+
+    public void setTransaction(Transaction transaction) {
+        this.transaction = transaction;
+    }
+}
@@ -0,0 +1,56 @@
+package com.wipro.transactionservice.dto;
+
+import java.time.LocalDateTime;
+
+public class OverdueRunResult {
+    private LocalDateTime checkedFrom;
+    private LocalDateTime checkedUntil;
+    private long overdueLoans;
+    private long finesCreated;
+
+    public OverdueRunResult() {
+    }
+
+    public OverdueRunResult(LocalDateTime checkedFrom, LocalDateTime checkedUntil, long overdueLoans, long finesCreated) {
+        this.checkedFrom = checkedFrom;
+        this.checkedUntil = checkedUntil;
+        this.overdueLoans = overdueLoans;
+        this.finesCreated = finesCreated;
+    }
+
+    public LocalDateTime getCheckedFrom() {
+        return checkedFrom;
+    }
+
+    public void setCheckedFrom(LocalDateTime checkedFrom) {
+        this.checkedFrom = checkedFrom;
+    }
+
+    public LocalDateTime getCheckedUntil() {
+        return checkedUntil;
+    }
+
+    public void setCheckedUntil(LocalDateTime checkedUntil) {
+        this.checkedUntil = checkedUntil;
+    }
+
+    public long getOverdueLoans() {
+        return overdueLoans;
+    }
+
+    public void setOverdueLoans(long overdueLoans) {
+        this.overdueLoans = overdueLoans;
+    }
+
+    /**
+     * Fines created by this run; lower than overdueLoans when an earlier, interrupted run had
+     * already fined some of the loans.
+     */
+    public long getFinesCreated() {
+        return finesCreated;
+    }
+
+    public void setFinesCreated(long finesCreated) {
+        this.finesCreated = finesCreated;
+    }
+}
@@ -0,0 +1,37 @@
+package com.wipro.transactionservice.dto;
+
+import com.wipro.transactionservice.entity.Transaction;
+
+import java.util.List;
+
+public class TransactionPage {
+    private List<Transaction> items;
+    private Transaction last;
+
+    public TransactionPage() {
+    }
+
+    public TransactionPage(List<Transaction> items, Transaction last) {
+        this.items = items;
+        this.last = last;
+    }
+
+    public List<Transaction> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Transaction> items) {
+        this.items = items;
+    }
+
+    /**
+     * The last transaction of this page when another page follows, otherwise null.
+     */
+    public Transaction getLast() {
+        return last;
+    }
+
+    public void setLast(Transaction last) {
+        this.last = last;
+    }
+}
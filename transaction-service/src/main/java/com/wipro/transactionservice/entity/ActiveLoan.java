@@ -0,0 +1,44 @@
+package com.wipro.transactionservice.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A book currently checked out: the BORROW transactions that have no matching RETURN yet.
+ * Maintained by {@code TransactionService} in the same database transaction as the
+ * transaction row, and rebuilt from the history by {@code ActiveLoanService#rebuild()}.
+ */
+@Entity
+@Table(name = "active_loans", indexes = {
+        @Index(name = "idx_active_loans_user", columnList = "userId, borrowedAt"),
+        @Index(name = "idx_active_loans_book", columnList = "bookId, borrowedAt"),
+        @Index(name = "idx_active_loans_due", columnList = "dueDate, id")
+})
+public class ActiveLoan {
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "active_loan_seq")
+    @SequenceGenerator(name = "active_loan_seq", sequenceName = "active_loan_seq", allocationSize = ID_ALLOCATION_SIZE)
+    private Long id;
+    private Long userId;
+    private Long bookId;
+    private Long borrowTransactionId;
+    private LocalDateTime borrowedAt;
+    private LocalDateTime dueDate;
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    public Long getBookId() { return bookId; }
+    public void setBookId(Long bookId) { this.bookId = bookId; }
+    public Long getBorrowTransactionId() { return borrowTransactionId; }
+    public void setBorrowTransactionId(Long borrowTransactionId) { this.borrowTransactionId = borrowTransactionId; }
+    public LocalDateTime getBorrowedAt() { return borrowedAt; }
+    public void setBorrowedAt(LocalDateTime borrowedAt) { this.borrowedAt = borrowedAt; }
+    public LocalDateTime getDueDate() { return dueDate; }
+    public void setDueDate(LocalDateTime dueDate) { this.dueDate = dueDate; }
+}
@@ -0,0 +1,62 @@
+package com.wipro.transactionservice.entity;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Borrow and return counters of one book on one day, maintained incrementally by
+ * {@code CirculationStatsRepository}.
+ */
+@Entity
+@Table(name = "book_circulation_daily", indexes = @Index(name = "idx_circulation_daily_date", columnList = "statDate, bookId"))
+@IdClass(BookCirculationDaily.Key.class)
+public class BookCirculationDaily {
+    @Id
+    private Long bookId;
+    @Id
+    private LocalDate statDate;
+    private long borrowCount;
+    private long returnCount;
+    // Summed duration of the loans returned that day
+    private long loanSeconds;
+
+    // Getters and Setters
+    public Long getBookId() { return bookId; }
+    public void setBookId(Long bookId) { this.bookId = bookId; }
+    public LocalDate getStatDate() { return statDate; }
+    public void setStatDate(LocalDate statDate) { this.statDate = statDate; }
+    public long getBorrowCount() { return borrowCount; }
+    public void setBorrowCount(long borrowCount) { this.borrowCount = borrowCount; }
+    public long getReturnCount() { return returnCount; }
+    public void setReturnCount(long returnCount) { this.returnCount = returnCount; }
+    public long getLoanSeconds() { return loanSeconds; }
+    public void setLoanSeconds(long loanSeconds) { this.loanSeconds = loanSeconds; }
+
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Long bookId;
+        private LocalDate statDate;
+
+        public Key() {
+        }
+
+        public Key(Long bookId, LocalDate statDate) {
+            this.bookId = bookId;
+            this.statDate = statDate;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key key && Objects.equals(bookId, key.bookId) && Objects.equals(statDate, key.statDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(bookId, statDate);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.wipro.transactionservice.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * All-time borrow and return counters of one book, maintained incrementally by
+ * {@code CirculationStatsRepository}.
+ */
+@Entity
+@Table(name = "book_circulation_totals")
+public class BookCirculationTotal {
+    @Id
+    private Long bookId;
+    private long borrowCount;
+    private long returnCount;
+    // Summed duration of all returned loans
+    private long loanSeconds;
+    private LocalDateTime lastBorrowedAt;
+
+    // Getters and Setters
+    public Long getBookId() { return bookId; }
+    public void setBookId(Long bookId) { this.bookId = bookId; }
+    public long getBorrowCount() { return borrowCount; }
+    public void setBorrowCount(long borrowCount) { this.borrowCount = borrowCount; }
+    public long getReturnCount() { return returnCount; }
+    public void setReturnCount(long returnCount) { this.returnCount = returnCount; }
+    public long getLoanSeconds() { return loanSeconds; }
+    public void setLoanSeconds(long loanSeconds) { this.loanSeconds = loanSeconds; }
+    public LocalDateTime getLastBorrowedAt() { return lastBorrowedAt; }
+    public void setLastBorrowedAt(LocalDateTime lastBorrowedAt) { this.lastBorrowedAt = lastBorrowedAt; }
+}
@@ -0,0 +1,17 @@
+package com.wipro.transactionservice.entity;
+
+import com.wipro.common.outbox.AbstractOutboxEvent;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * A notification of transaction-service waiting in the transaction_outbox table, see {@link AbstractOutboxEvent}.
+ */
+@Entity
+@Table(name = "transaction_outbox", indexes = {
+        @Index(name = "idx_transaction_outbox_aggregate", columnList = "aggregateType, aggregateId, id"),
+        @Index(name = "idx_transaction_outbox_next_attempt", columnList = "nextAttemptAt, id")
+})
+public class OutboxEvent extends AbstractOutboxEvent {
+}
@@ -0,0 +1,25 @@
+package com.wipro.transactionservice.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of the overdue engine: every loan due at or before {@code checkedUntil} has been
+ * fined. A single row with id {@link #ID}.
+ */
+@Entity
+@Table(name = "overdue_checkpoint")
+public class OverdueCheckpoint {
+    public static final long ID = 1L;
+
+    @Id
+    private Long id;
+    private LocalDateTime checkedUntil;
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public LocalDateTime getCheckedUntil() { return checkedUntil; }
+    public void setCheckedUntil(LocalDateTime checkedUntil) { this.checkedUntil = checkedUntil; }
+}
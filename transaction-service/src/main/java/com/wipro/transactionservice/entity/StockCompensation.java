@@ -0,0 +1,43 @@
+package com.wipro.transactionservice.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A compensating stock change (the release of a reservation whose loan was not saved, or the
+ * reservation of a copy whose return was not saved) that inventory-service did not accept when
+ * it was first sent. Retried by {@code StockCompensationService} until it is applied.
+ */
+@Entity
+@Table(name = "stock_compensations", indexes = {
+        @Index(name = "idx_stock_compensations_next_attempt", columnList = "nextAttemptAt, id")
+})
+public class StockCompensation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(nullable = false)
+    private Long bookId;
+    @Column(nullable = false, length = 16)
+    private String operation;
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+    private int attempts;
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getBookId() { return bookId; }
+    public void setBookId(Long bookId) { this.bookId = bookId; }
+    public String getOperation() { return operation; }
+    public void setOperation(String operation) { this.operation = operation; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+}
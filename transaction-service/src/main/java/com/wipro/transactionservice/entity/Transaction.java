@@ -5,16 +5,25 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        @Index(name = "idx_transactions_user_date", columnList = "userId, transactionDate, id"),
+        @Index(name = "idx_transactions_date", columnList = "transactionDate")
+})
 public class Transaction {
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // A pooled sequence (a table on MySQL) instead of IDENTITY so Hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_seq")
+    @SequenceGenerator(name = "transaction_seq", sequenceName = "transaction_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
     private Long userId;
     private Long bookId;
     @Enumerated(EnumType.STRING)
     private TransactionType transactionType;
     private LocalDateTime transactionDate;
+    // Set on BORROW transactions only
+    private LocalDateTime dueDate;
 
     // Getters and Setters
     public Long getId() { return id; }
@@ -27,4 +36,6 @@ public class Transaction {
     public void setTransactionType(TransactionType transactionType) { this.transactionType = transactionType; }
     public LocalDateTime getTransactionDate() { return transactionDate; }
     public void setTransactionDate(LocalDateTime transactionDate) { this.transactionDate = transactionDate; }
+    public LocalDateTime getDueDate() { return dueDate; }
+    public void setDueDate(LocalDateTime dueDate) { this.dueDate = dueDate; }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.wipro.transactionservice.exception;
+
+
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class BookUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public BookUnavailableException(String message) {
+        super(message);
+    }
+}
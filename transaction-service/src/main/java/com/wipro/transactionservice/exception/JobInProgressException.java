@@ -0,0 +1,17 @@
+package com.wipro.transactionservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * A maintenance job was started while another replica is running it.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class JobInProgressException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public JobInProgressException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,16 @@
+package com.wipro.transactionservice.exception;
+
+
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class LoanNotFoundException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public LoanNotFoundException(String message) {
+        super(message);
+    }
+}
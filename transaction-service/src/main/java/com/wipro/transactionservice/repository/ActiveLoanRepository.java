@@ -0,0 +1,55 @@
+package com.wipro.transactionservice.repository;
+
+import com.wipro.transactionservice.entity.ActiveLoan;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ActiveLoanRepository extends JpaRepository<ActiveLoan, Long> {
+    List<ActiveLoan> findByUserIdOrderByBorrowedAtAsc(Long userId);
+
+    List<ActiveLoan> findByBookIdOrderByBorrowedAtAsc(Long bookId);
+
+    Optional<ActiveLoan> findFirstByUserIdAndBookIdOrderByBorrowedAtAscIdAsc(Long userId, Long bookId);
+
+    List<ActiveLoan> findByUserIdInOrderByBorrowedAtAscIdAsc(Collection<Long> userIds);
+
+    /**
+     * Deletes the loan unless a concurrent return already did. Returns the number of rows
+     * deleted.
+     */
+    @Modifying
+    @Query("DELETE FROM ActiveLoan l WHERE l.id = :id")
+    int deleteLoan(Long id);
+
+    /**
+     * Loans due in (from, until] positioned after (afterDate, afterId), in (dueDate, id) order.
+     */
+    @Query("SELECT l FROM ActiveLoan l WHERE l.dueDate > :from AND l.dueDate <= :until " +
+           "AND l.dueDate >= :afterDate AND (l.dueDate > :afterDate OR l.id > :afterId) " +
+           "ORDER BY l.dueDate, l.id")
+    List<ActiveLoan> findDuePage(LocalDateTime from, LocalDateTime until, LocalDateTime afterDate, Long afterId,
+                                 Pageable pageable);
+
+    /**
+     * Gives loans recorded before due dates existed the standard loan period.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE active_loans SET due_date = borrowed_at + INTERVAL :periodSeconds SECOND " +
+                   "WHERE due_date IS NULL", nativeQuery = true)
+    int fillMissingDueDates(long periodSeconds);
+
+    @Modifying
+    @Query("DELETE FROM ActiveLoan l WHERE l.id IN :ids")
+    int deleteLoans(Collection<Long> ids);
+}
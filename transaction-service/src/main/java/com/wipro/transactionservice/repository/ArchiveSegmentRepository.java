@@ -0,0 +1,91 @@
+package com.wipro.transactionservice.repository;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.time.YearMonth;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * The archived months of the transaction history, stored in the transaction_archive_segments
+ * table so every replica can read them whatever its local disk holds. Each row keeps a month's
+ * index and segment file as written by {@code TransactionArchive}; a month is archived once its
+ * row exists. A segment is sent as a single packet, so MySQL's max_allowed_packet must exceed
+ * the largest month (64 MB by default).
+ */
+@Repository
+public class ArchiveSegmentRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public ArchiveSegmentRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void createTable() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS transaction_archive_segments (" +
+                "archive_month CHAR(7) NOT NULL, index_data MEDIUMBLOB NOT NULL, segment_data LONGBLOB NOT NULL, " +
+                "segment_length BIGINT NOT NULL, archived_at DATETIME NOT NULL, PRIMARY KEY (archive_month))");
+    }
+
+    /**
+     * The archived months, oldest first, with the length of their segment.
+     */
+    public NavigableMap<YearMonth, Long> findSegmentLengths() {
+        NavigableMap<YearMonth, Long> lengths = new TreeMap<>();
+        jdbcTemplate.query("SELECT archive_month, segment_length FROM transaction_archive_segments",
+                (RowCallbackHandler) rs -> lengths.put(YearMonth.parse(rs.getString("archive_month")),
+                        rs.getLong("segment_length")));
+        return lengths;
+    }
+
+    /**
+     * Stores the month's files unless the month is stored already; the first copy stays.
+     */
+    public void save(YearMonth month, Path indexFile, Path segmentFile) throws IOException {
+        try (InputStream index = Files.newInputStream(indexFile);
+             InputStream segment = Files.newInputStream(segmentFile)) {
+            long indexLength = Files.size(indexFile);
+            long segmentLength = Files.size(segmentFile);
+            jdbcTemplate.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement("INSERT IGNORE INTO transaction_archive_segments " +
+                        "(archive_month, index_data, segment_data, segment_length, archived_at) VALUES (?, ?, ?, ?, NOW())");
+                statement.setString(1, month.toString());
+                statement.setBinaryStream(2, index, indexLength);
+                statement.setBinaryStream(3, segment, segmentLength);
+                statement.setLong(4, segmentLength);
+                return statement;
+            });
+        }
+    }
+
+    /**
+     * Writes the month's stored files to the given paths. Returns false when the month is not
+     * stored.
+     */
+    public boolean copyTo(YearMonth month, Path indexFile, Path segmentFile) {
+        boolean[] found = {false};
+        jdbcTemplate.query("SELECT index_data, segment_data FROM transaction_archive_segments WHERE archive_month = ?",
+                (RowCallbackHandler) rs -> {
+                    try (InputStream index = rs.getBinaryStream("index_data");
+                         InputStream segment = rs.getBinaryStream("segment_data")) {
+                        Files.copy(index, indexFile, StandardCopyOption.REPLACE_EXISTING);
+                        Files.copy(segment, segmentFile, StandardCopyOption.REPLACE_EXISTING);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    found[0] = true;
+                }, month.toString());
+        return found[0];
+    }
+}
@@ -0,0 +1,43 @@
+package com.wipro.transactionservice.repository;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Changes to the circulation rollup, summed per book and day before they are written so a
+ * batch touching the same book several times issues one upsert per row.
+ */
+public class CirculationDelta {
+    final Map<List<Object>, long[]> daily = new HashMap<>();
+    final Map<Long, long[]> totals = new HashMap<>();
+    final Map<Long, LocalDateTime> lastBorrowedAt = new HashMap<>();
+
+    public void borrow(Long bookId, LocalDateTime borrowedAt) {
+        add(bookId, borrowedAt.toLocalDate(), 1, 0, 0);
+        lastBorrowedAt.merge(bookId, borrowedAt, (a, b) -> a.isAfter(b) ? a : b);
+    }
+
+    public void returned(Long bookId, LocalDateTime borrowedAt, LocalDateTime returnedAt) {
+        long loanSeconds = Math.max(0, Duration.between(borrowedAt, returnedAt).getSeconds());
+        add(bookId, returnedAt.toLocalDate(), 0, 1, loanSeconds);
+    }
+
+    public boolean isEmpty() {
+        return totals.isEmpty();
+    }
+
+    private void add(Long bookId, LocalDate date, long borrows, long returns, long loanSeconds) {
+        long[] day = daily.computeIfAbsent(List.of(bookId, date), key -> new long[3]);
+        day[0] += borrows;
+        day[1] += returns;
+        day[2] += loanSeconds;
+        long[] total = totals.computeIfAbsent(bookId, key -> new long[3]);
+        total[0] += borrows;
+        total[1] += returns;
+        total[2] += loanSeconds;
+    }
+}
@@ -0,0 +1,107 @@
+package com.wipro.transactionservice.repository;
+
+import com.wipro.transactionservice.dto.BookCirculationStats;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Reads and writes the per-book circulation rollup (book_circulation_daily and
+ * book_circulation_totals). Writes are additive upserts, so concurrent borrows and returns of
+ * the same book never overwrite each other and no row has to be read first.
+ */
+@Repository
+public class CirculationStatsRepository {
+    private static final String UPSERT_DAILY =
+            "INSERT INTO book_circulation_daily (book_id, stat_date, borrow_count, return_count, loan_seconds) " +
+            "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE borrow_count = borrow_count + VALUES(borrow_count), " +
+            "return_count = return_count + VALUES(return_count), loan_seconds = loan_seconds + VALUES(loan_seconds)";
+    private static final String UPSERT_TOTAL =
+            "INSERT INTO book_circulation_totals (book_id, borrow_count, return_count, loan_seconds, last_borrowed_at) " +
+            "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE borrow_count = borrow_count + VALUES(borrow_count), " +
+            "return_count = return_count + VALUES(return_count), loan_seconds = loan_seconds + VALUES(loan_seconds), " +
+            "last_borrowed_at = GREATEST(COALESCE(last_borrowed_at, VALUES(last_borrowed_at)), " +
+            "COALESCE(VALUES(last_borrowed_at), last_borrowed_at))";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CirculationStatsRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Adds the delta to the rollup. Call it inside the transaction that writes the
+     * corresponding transaction rows.
+     */
+    public void apply(CirculationDelta delta) {
+        if (delta.isEmpty()) {
+            return;
+        }
+        List<Object[]> dailyRows = new ArrayList<>(delta.daily.size());
+        for (Map.Entry<List<Object>, long[]> entry : delta.daily.entrySet()) {
+            long[] counts = entry.getValue();
+            dailyRows.add(new Object[] {entry.getKey().get(0), Date.valueOf((LocalDate) entry.getKey().get(1)),
+                    counts[0], counts[1], counts[2]});
+        }
+        List<Object[]> totalRows = new ArrayList<>(delta.totals.size());
+        for (Map.Entry<Long, long[]> entry : delta.totals.entrySet()) {
+            long[] counts = entry.getValue();
+            LocalDateTime lastBorrowedAt = delta.lastBorrowedAt.get(entry.getKey());
+            totalRows.add(new Object[] {entry.getKey(), counts[0], counts[1], counts[2],
+                    lastBorrowedAt == null ? null : Timestamp.valueOf(lastBorrowedAt)});
+        }
+        jdbcTemplate.batchUpdate(UPSERT_DAILY, dailyRows);
+        jdbcTemplate.batchUpdate(UPSERT_TOTAL, totalRows);
+    }
+
+    /**
+     * Replaces the whole rollup, used when it is rebuilt from the history.
+     */
+    public void replace(CirculationDelta delta) {
+        jdbcTemplate.update("DELETE FROM book_circulation_daily");
+        jdbcTemplate.update("DELETE FROM book_circulation_totals");
+        apply(delta);
+    }
+
+    /**
+     * Books with the most borrows in [from, to], read from the daily buckets only.
+     */
+    public List<BookCirculationStats> findTopBooks(LocalDate from, LocalDate to, int limit) {
+        return jdbcTemplate.query(
+                "SELECT book_id, SUM(borrow_count) AS borrows, SUM(return_count) AS returns_, SUM(loan_seconds) AS loan_seconds " +
+                "FROM book_circulation_daily WHERE stat_date BETWEEN ? AND ? " +
+                "GROUP BY book_id ORDER BY borrows DESC, book_id LIMIT ?",
+                (rs, rowNum) -> new BookCirculationStats(rs.getLong("book_id"), rs.getLong("borrows"),
+                        rs.getLong("returns_"), rs.getLong("loan_seconds")),
+                Date.valueOf(from), Date.valueOf(to), limit);
+    }
+
+    public Optional<BookCirculationStats> findTotals(Long bookId) {
+        return jdbcTemplate.query(
+                "SELECT book_id, borrow_count, return_count, loan_seconds, last_borrowed_at " +
+                "FROM book_circulation_totals WHERE book_id = ?",
+                (rs, rowNum) -> {
+                    BookCirculationStats stats = new BookCirculationStats(rs.getLong("book_id"), rs.getLong("borrow_count"),
+                            rs.getLong("return_count"), rs.getLong("loan_seconds"));
+                    Timestamp lastBorrowedAt = rs.getTimestamp("last_borrowed_at");
+                    stats.setLastBorrowedAt(lastBorrowedAt == null ? null : lastBorrowedAt.toLocalDateTime());
+                    return stats;
+                }, bookId).stream().findFirst();
+    }
+
+    public long countBorrows(Long bookId, LocalDate from, LocalDate to) {
+        Long borrows = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(borrow_count), 0) FROM book_circulation_daily " +
+                "WHERE book_id = ? AND stat_date BETWEEN ? AND ?",
+                Long.class, bookId, Date.valueOf(from), Date.valueOf(to));
+        return borrows == null ? 0 : borrows;
+    }
+}
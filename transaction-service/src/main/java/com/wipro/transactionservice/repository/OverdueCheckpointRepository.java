@@ -0,0 +1,9 @@
+package com.wipro.transactionservice.repository;
+
+import com.wipro.transactionservice.entity.OverdueCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OverdueCheckpointRepository extends JpaRepository<OverdueCheckpoint, Long> {
+}
@@ -0,0 +1,14 @@
+package com.wipro.transactionservice.repository;
+
+import com.wipro.transactionservice.entity.StockCompensation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StockCompensationRepository extends JpaRepository<StockCompensation, Long> {
+    List<StockCompensation> findByNextAttemptAtLessThanEqualOrderByIdAsc(LocalDateTime now, Pageable pageable);
+}
@@ -5,6 +5,7 @@ package com.wipro.transactionservice.repository;
 
 
 import com.wipro.transactionservice.entity.Transaction;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -14,9 +15,28 @@ import java.util.List;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+    /**
+     * Both bounds are required and inclusive; callers pass {@code TransactionService.MIN_DATE} /
+     * {@code MAX_DATE} for an open range so the predicate stays a plain range on
+     * idx_transactions_user_date.
+     */
     @Query("SELECT t FROM Transaction t WHERE t.userId = :userId " +
-           "AND (:startDate IS NULL OR t.transactionDate >= :startDate) " +
-           "AND (:endDate IS NULL OR t.transactionDate <= :endDate)")
+           "AND t.transactionDate >= :startDate AND t.transactionDate <= :endDate " +
+           "ORDER BY t.transactionDate, t.id")
     List<Transaction> findByUserIdAndDateRange(Long userId, LocalDateTime startDate, LocalDateTime endDate);
+
+    /**
+     * Newest-first page of a user's history strictly before the (beforeDate, beforeId) position
+     * and not earlier than startDate. The leading {@code <= :beforeDate} keeps the scan a single
+     * index range, so every page costs the same however deep the cursor is.
+     */
+    @Query("SELECT t FROM Transaction t WHERE t.userId = :userId " +
+           "AND t.transactionDate >= :startDate AND t.transactionDate <= :beforeDate " +
+           "AND (t.transactionDate < :beforeDate OR t.id < :beforeId) " +
+           "ORDER BY t.transactionDate DESC, t.id DESC")
+    List<Transaction> findPageByUserId(Long userId, LocalDateTime startDate, LocalDateTime beforeDate, Long beforeId,
+                                       Pageable pageable);
+
+    List<Transaction> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
 }
 
@@ -0,0 +1,79 @@
+package com.wipro.transactionservice.repository;
+
+import com.wipro.transactionservice.entity.Transaction;
+import com.wipro.transactionservice.entity.TransactionType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/**
+ * Bulk reads and deletes over whole date ranges of the transactions table, used by the
+ * archival job.
+ */
+@Repository
+public class TransactionStreamRepository {
+    // Makes MySQL Connector/J stream rows from the server instead of buffering the result set
+    private static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TransactionStreamRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Streams the transactions dated in [from, to) ordered by user, date and id.
+     */
+    public void streamByUser(LocalDateTime from, LocalDateTime to, Consumer<Transaction> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "SELECT id, user_id, book_id, transaction_type, transaction_date, due_date FROM transactions " +
+                    "WHERE transaction_date >= ? AND transaction_date < ? ORDER BY user_id, transaction_date, id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(STREAMING_FETCH_SIZE);
+            statement.setTimestamp(1, Timestamp.valueOf(from));
+            statement.setTimestamp(2, Timestamp.valueOf(to));
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(mapRow(rs)));
+    }
+
+    public LocalDateTime findOldestDateFrom(LocalDateTime from) {
+        Timestamp oldest = jdbcTemplate.queryForObject(
+                "SELECT MIN(transaction_date) FROM transactions WHERE transaction_date >= ?", Timestamp.class, Timestamp.valueOf(from));
+        return oldest == null ? null : oldest.toLocalDateTime();
+    }
+
+    /**
+     * Deletes every transaction dated before {@code before}, {@code batchSize} rows per
+     * statement so no single statement holds locks on a whole month. Returns the rows deleted.
+     */
+    public long deleteBefore(LocalDateTime before, int batchSize) {
+        long total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update("DELETE FROM transactions WHERE transaction_date < ? LIMIT ?",
+                    Timestamp.valueOf(before), batchSize);
+            total += deleted;
+        } while (deleted == batchSize);
+        return total;
+    }
+
+    private static Transaction mapRow(ResultSet rs) throws SQLException {
+        Transaction transaction = new Transaction();
+        transaction.setId(rs.getLong("id"));
+        transaction.setUserId(rs.getLong("user_id"));
+        transaction.setBookId(rs.getLong("book_id"));
+        transaction.setTransactionType(TransactionType.valueOf(rs.getString("transaction_type")));
+        transaction.setTransactionDate(rs.getTimestamp("transaction_date").toLocalDateTime());
+        Timestamp dueDate = rs.getTimestamp("due_date");
+        transaction.setDueDate(dueDate == null ? null : dueDate.toLocalDateTime());
+        return transaction;
+    }
+}
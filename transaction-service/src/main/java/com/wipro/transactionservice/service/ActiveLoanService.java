@@ -0,0 +1,183 @@
+package com.wipro.transactionservice.service;
+
+import com.wipro.common.jdbc.NamedLock;
+import com.wipro.transactionservice.dto.LoanRebuildResult;
+import com.wipro.transactionservice.entity.ActiveLoan;
+import com.wipro.transactionservice.entity.Transaction;
+import com.wipro.transactionservice.entity.TransactionType;
+import com.wipro.transactionservice.exception.JobInProgressException;
+import com.wipro.transactionservice.repository.ActiveLoanRepository;
+import com.wipro.transactionservice.repository.CirculationDelta;
+import com.wipro.transactionservice.repository.CirculationStatsRepository;
+import com.wipro.transactionservice.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reads and rebuilds the active-loans view. Day-to-day maintenance happens in
+ * {@link TransactionService#borrowBook} and {@link TransactionService#returnBook}.
+ */
+@Service
+public class ActiveLoanService {
+    private static final Logger logger = LoggerFactory.getLogger(ActiveLoanService.class);
+    private static final String LOCK_NAME = "transaction-service.loans-rebuild";
+
+    private final ActiveLoanRepository activeLoanRepository;
+    private final TransactionRepository transactionRepository;
+    private final CirculationStatsRepository circulationStatsRepository;
+    private final TransactionArchive transactionArchive;
+    private final TransactionTemplate transactionTemplate;
+    private final NamedLock namedLock;
+    private final int rebuildBatchSize;
+    private final Duration loanPeriod;
+
+    public ActiveLoanService(ActiveLoanRepository activeLoanRepository, TransactionRepository transactionRepository,
+                             CirculationStatsRepository circulationStatsRepository,
+                             TransactionArchive transactionArchive, TransactionTemplate transactionTemplate,
+                             JdbcTemplate jdbcTemplate,
+                             @Value("${transaction.loans.rebuild-batch-size:1000}") int rebuildBatchSize,
+                             @Value("${transaction.loan.period:14d}") Duration loanPeriod) {
+        this.activeLoanRepository = activeLoanRepository;
+        this.transactionRepository = transactionRepository;
+        this.circulationStatsRepository = circulationStatsRepository;
+        this.transactionArchive = transactionArchive;
+        this.transactionTemplate = transactionTemplate;
+        this.namedLock = new NamedLock(jdbcTemplate);
+        this.rebuildBatchSize = rebuildBatchSize;
+        this.loanPeriod = loanPeriod;
+    }
+
+    /**
+     * Backfills the due dates of loans recorded before they existed. An empty view next to a
+     * non-empty history is only reported: rebuilding it here could race with borrows and
+     * returns on other replicas, so the rebuild is left to an explicit request.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        try {
+            if (activeLoanRepository.count() == 0 && transactionRepository.count() > 0) {
+                logger.warn("The active loans are empty but transactions exist; stop circulation and " +
+                        "POST /transactions/loans/rebuild to fill them");
+            }
+            activeLoanRepository.fillMissingDueDates(loanPeriod.getSeconds());
+        } catch (Exception e) {
+            logger.error("Failed to backfill active loan due dates: {}", e.getMessage());
+        }
+    }
+
+    public List<ActiveLoan> getLoansByUser(Long userId) {
+        return activeLoanRepository.findByUserIdOrderByBorrowedAtAsc(userId);
+    }
+
+    public List<ActiveLoan> getLoansByBook(Long bookId) {
+        return activeLoanRepository.findByBookIdOrderByBorrowedAtAsc(bookId);
+    }
+
+    /**
+     * Replays the BORROW/RETURN history and replaces the active-loans table and the circulation
+     * rollup with the result: the archived months first, then the table in id order. A RETURN
+     * closes the oldest open loan of the same user and book, which only needs each user's
+     * history in order. Only the open loans and the per-book daily counters are kept in memory
+     * while the history is read.
+     * <p>
+     * Borrows and returns committed while the replacement runs may be lost from the view, so it
+     * only runs on explicit request, while circulation is stopped, or run it again afterwards.
+     * The rebuild holds a named lock, so two replicas asked at once do not both replace the view.
+     *
+     * @throws JobInProgressException if another replica is rebuilding the view
+     */
+    public synchronized LoanRebuildResult rebuild() {
+        LoanRebuildResult[] result = new LoanRebuildResult[1];
+        if (!namedLock.tryRunExclusively(LOCK_NAME, () -> result[0] = replayHistory())) {
+            throw new JobInProgressException("The active loans are already being rebuilt on another replica");
+        }
+        return result[0];
+    }
+
+    private LoanRebuildResult replayHistory() {
+        long started = System.currentTimeMillis();
+        Map<List<Long>, Deque<Transaction>> open = new HashMap<>();
+        long[] replayed = new long[1];
+        long[] unmatchedReturns = new long[1];
+        CirculationDelta circulation = new CirculationDelta();
+        Consumer<Transaction> replay = transaction -> {
+            List<Long> key = List.of(transaction.getUserId(), transaction.getBookId());
+            if (transaction.getTransactionType() == TransactionType.BORROW) {
+                open.computeIfAbsent(key, k -> new ArrayDeque<>()).addLast(transaction);
+                circulation.borrow(transaction.getBookId(), transaction.getTransactionDate());
+            } else {
+                Deque<Transaction> borrows = open.get(key);
+                if (borrows == null) {
+                    unmatchedReturns[0]++;
+                } else {
+                    circulation.returned(transaction.getBookId(), borrows.removeFirst().getTransactionDate(),
+                            transaction.getTransactionDate());
+                    if (borrows.isEmpty()) {
+                        open.remove(key);
+                    }
+                }
+            }
+            replayed[0]++;
+        };
+        LocalDateTime watermark = transactionArchive.getWatermark();
+        transactionArchive.forEach(replay);
+        long lastId = 0L;
+        List<Transaction> page;
+        do {
+            page = transactionRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, rebuildBatchSize));
+            for (Transaction transaction : page) {
+                // Rows of archived months not purged yet were already replayed from their segment
+                if (!transaction.getTransactionDate().isBefore(watermark)) {
+                    replay.accept(transaction);
+                }
+                lastId = transaction.getId();
+            }
+        } while (page.size() == rebuildBatchSize);
+
+        List<ActiveLoan> loans = new ArrayList<>();
+        for (Deque<Transaction> borrows : open.values()) {
+            for (Transaction borrow : borrows) {
+                if (borrow.getDueDate() == null) {
+                    // Borrowed before due dates were recorded
+                    borrow.setDueDate(borrow.getTransactionDate().plus(loanPeriod));
+                }
+                loans.add(toLoan(borrow));
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            activeLoanRepository.deleteAllInBatch();
+            activeLoanRepository.saveAll(loans);
+            circulationStatsRepository.replace(circulation);
+        });
+        logger.info("Rebuilt {} active loans from {} transactions in {} ms ({} returns without a borrow)",
+                loans.size(), replayed[0], System.currentTimeMillis() - started, unmatchedReturns[0]);
+        return new LoanRebuildResult(replayed[0], loans.size(), unmatchedReturns[0]);
+    }
+
+    static ActiveLoan toLoan(Transaction borrow) {
+        ActiveLoan loan = new ActiveLoan();
+        loan.setUserId(borrow.getUserId());
+        loan.setBookId(borrow.getBookId());
+        loan.setBorrowTransactionId(borrow.getId());
+        loan.setBorrowedAt(borrow.getTransactionDate());
+        loan.setDueDate(borrow.getDueDate());
+        return loan;
+    }
+}
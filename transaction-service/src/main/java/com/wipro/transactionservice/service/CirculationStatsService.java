@@ -0,0 +1,36 @@
+package com.wipro.transactionservice.service;
+
+import com.wipro.transactionservice.dto.BookCirculationStats;
+import com.wipro.transactionservice.repository.CirculationStatsRepository;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Answers circulation questions from the rollup that {@link TransactionService} maintains,
+ * never from the transaction history.
+ */
+@Service
+public class CirculationStatsService {
+    private final CirculationStatsRepository circulationStatsRepository;
+
+    public CirculationStatsService(CirculationStatsRepository circulationStatsRepository) {
+        this.circulationStatsRepository = circulationStatsRepository;
+    }
+
+    public List<BookCirculationStats> getTopBooks(LocalDate from, LocalDate to, int limit) {
+        return circulationStatsRepository.findTopBooks(from, to, limit);
+    }
+
+    /**
+     * All-time counters of the book plus its borrows over the last {@code recentDays} days.
+     */
+    public BookCirculationStats getBookStats(Long bookId, int recentDays) {
+        LocalDate today = LocalDate.now();
+        BookCirculationStats stats = circulationStatsRepository.findTotals(bookId)
+                .orElseGet(() -> new BookCirculationStats(bookId, 0, 0, 0));
+        stats.setRecentBorrows(circulationStatsRepository.countBorrows(bookId, today.minusDays(recentDays - 1L), today));
+        return stats;
+    }
+}
@@ -0,0 +1,18 @@
+package com.wipro.transactionservice.service;
+
+import com.wipro.common.outbox.AbstractOutboxService;
+import com.wipro.transactionservice.entity.OutboxEvent;
+import com.wipro.transactionservice.repository.OutboxEventRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Records notifications in the transaction_outbox table, see {@link AbstractOutboxService}.
+ */
+@Service
+public class OutboxService extends AbstractOutboxService<OutboxEvent> {
+
+    public OutboxService(OutboxEventRepository outboxEventRepository, JdbcTemplate jdbcTemplate) {
+        super(outboxEventRepository, jdbcTemplate, "transaction_outbox", OutboxEvent::new);
+    }
+}
@@ -0,0 +1,161 @@
+package com.wipro.transactionservice.service;
+
+import com.wipro.common.jdbc.NamedLock;
+import com.wipro.transactionservice.dto.FineBatchResult;
+import com.wipro.transactionservice.dto.FineRequest;
+import com.wipro.transactionservice.dto.OverdueRunResult;
+import com.wipro.transactionservice.entity.ActiveLoan;
+import com.wipro.transactionservice.entity.OverdueCheckpoint;
+import com.wipro.transactionservice.exception.JobInProgressException;
+import com.wipro.transactionservice.repository.ActiveLoanRepository;
+import com.wipro.transactionservice.repository.OverdueCheckpointRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fines loans that are not returned by their due date.
+ * <p>
+ * Each run only looks at active loans that fell due between the stored checkpoint and now,
+ * reading them in (dueDate, id) keyset chunks from idx_active_loans_due. Chunks are sent to the
+ * fine-service batch API on {@code transaction.overdue.threads} worker threads while the next
+ * chunk is read. The checkpoint only advances when every chunk succeeded. Each fine carries the
+ * borrow transaction id as its externalRef, so a rerun after a failure never fines a loan twice.
+ * <p>
+ * Every replica schedules the run, but it only proceeds while holding a named lock, so one
+ * replica fines the loans and the others skip that night's run.
+ */
+@Service
+public class OverdueService {
+    private static final Logger logger = LoggerFactory.getLogger(OverdueService.class);
+    private static final String LOCK_NAME = "transaction-service.overdue";
+
+    private final ActiveLoanRepository activeLoanRepository;
+    private final OverdueCheckpointRepository checkpointRepository;
+    private final RestTemplate restTemplate;
+    private final NamedLock namedLock;
+    private final String fineServiceUrl;
+    private final int chunkSize;
+    private final int threads;
+    private final BigDecimal fineAmount;
+    private final ExecutorService executor;
+
+    public OverdueService(ActiveLoanRepository activeLoanRepository, OverdueCheckpointRepository checkpointRepository,
+                          RestTemplate restTemplate, JdbcTemplate jdbcTemplate,
+                          @Value("${transaction.overdue.fine-service-url:http://localhost:8084/payments}") String fineServiceUrl,
+                          @Value("${transaction.overdue.chunk-size:500}") int chunkSize,
+                          @Value("${transaction.overdue.threads:4}") int threads,
+                          @Value("${transaction.overdue.fine-amount:50.00}") BigDecimal fineAmount) {
+        this.activeLoanRepository = activeLoanRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.restTemplate = restTemplate;
+        this.namedLock = new NamedLock(jdbcTemplate);
+        this.fineServiceUrl = fineServiceUrl;
+        this.chunkSize = chunkSize;
+        this.threads = threads;
+        this.fineAmount = fineAmount;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "overdue-fines-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Scheduled(cron = "${transaction.overdue.cron:0 0 1 * * *}")
+    public void scheduledRun() {
+        try {
+            run();
+        } catch (JobInProgressException e) {
+            logger.info("Skipping the overdue run, another replica holds {}", LOCK_NAME);
+        } catch (Exception e) {
+            logger.error("Overdue run failed, the next run resumes from the last checkpoint: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Fines the loans that fell due since the checkpoint, holding the named lock.
+     *
+     * @throws JobInProgressException if another replica is running it
+     */
+    public synchronized OverdueRunResult run() {
+        OverdueRunResult[] result = new OverdueRunResult[1];
+        if (!namedLock.tryRunExclusively(LOCK_NAME, () -> result[0] = fineOverdueLoans())) {
+            throw new JobInProgressException("The overdue engine is already running on another replica");
+        }
+        return result[0];
+    }
+
+    private OverdueRunResult fineOverdueLoans() {
+        long started = System.currentTimeMillis();
+        LocalDateTime until = LocalDateTime.now();
+        LocalDateTime from = checkpointRepository.findById(OverdueCheckpoint.ID)
+                .map(OverdueCheckpoint::getCheckedUntil)
+                .orElse(TransactionService.MIN_DATE);
+
+        // Bounds the chunks read ahead of the workers
+        Semaphore inFlight = new Semaphore(threads * 2);
+        List<CompletableFuture<Integer>> chunks = new ArrayList<>();
+        long overdueLoans = 0;
+        LocalDateTime afterDate = from;
+        long afterId = 0L;
+        List<ActiveLoan> page;
+        do {
+            page = activeLoanRepository.findDuePage(from, until, afterDate, afterId, PageRequest.of(0, chunkSize));
+            if (page.isEmpty()) {
+                break;
+            }
+            overdueLoans += page.size();
+            ActiveLoan last = page.get(page.size() - 1);
+            afterDate = last.getDueDate();
+            afterId = last.getId();
+            List<FineRequest> fines = new ArrayList<>(page.size());
+            for (ActiveLoan loan : page) {
+                fines.add(new FineRequest(loan.getUserId(), loan.getBookId(), fineAmount,
+                        "overdue:" + loan.getBorrowTransactionId()));
+            }
+            inFlight.acquireUninterruptibly();
+            chunks.add(CompletableFuture.supplyAsync(() -> createFines(fines), executor)
+                    .whenComplete((created, error) -> inFlight.release()));
+        } while (page.size() == chunkSize);
+
+        long finesCreated = 0;
+        for (CompletableFuture<Integer> chunk : chunks) {
+            // Rethrows the first chunk failure, leaving the checkpoint where it was
+            finesCreated += chunk.join();
+        }
+        OverdueCheckpoint checkpoint = new OverdueCheckpoint();
+        checkpoint.setId(OverdueCheckpoint.ID);
+        checkpoint.setCheckedUntil(until);
+        checkpointRepository.save(checkpoint);
+        logger.info("Overdue run fined {} of {} loans due in ({}, {}] in {} ms", finesCreated, overdueLoans, from, until,
+                System.currentTimeMillis() - started);
+        return new OverdueRunResult(from, until, overdueLoans, finesCreated);
+    }
+
+    private int createFines(List<FineRequest> fines) {
+        FineBatchResult result = restTemplate.postForObject(fineServiceUrl + "/batch", fines, FineBatchResult.class);
+        return result == null ? 0 : result.getCreated();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,197 @@
+package com.wipro.transactionservice.service;
+
+import com.wipro.common.dto.StockChangeResult;
+import com.wipro.common.jdbc.NamedLock;
+import com.wipro.transactionservice.entity.StockCompensation;
+import com.wipro.transactionservice.repository.StockCompensationRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Undoes a stock change in inventory-service when the loan or return it was made for could
+ * not be saved.
+ * <p>
+ * The change is sent at once. When inventory-service cannot be reached it is written to the
+ * stock_compensations table and retried with exponential backoff by a background thread, one
+ * replica at a time under a named lock, until inventory-service answers. A 4xx answer (the book
+ * was removed, or no copy is left to take back) cannot succeed on retry, so it is logged and
+ * the row dropped. A call that timed out after inventory-service applied it is applied again
+ * on retry; that miscounts one copy, where dropping it would miscount one on every failure.
+ */
+@Service
+public class StockCompensationService {
+    private static final Logger logger = LoggerFactory.getLogger(StockCompensationService.class);
+
+    private final StockCompensationRepository stockCompensationRepository;
+    private final RestTemplate restTemplate;
+    private final NamedLock namedLock;
+    private final long interval;
+    private final int batchSize;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final String inventoryServiceUrl = "http://localhost:8082/inventory";
+    private ScheduledExecutorService executor;
+
+    public StockCompensationService(StockCompensationRepository stockCompensationRepository, RestTemplate restTemplate,
+                                    JdbcTemplate jdbcTemplate,
+                                    @Value("${stock.compensation.interval:5000}") long interval,
+                                    @Value("${stock.compensation.batch-size:100}") int batchSize,
+                                    @Value("${stock.compensation.initial-backoff:1s}") Duration initialBackoff,
+                                    @Value("${stock.compensation.max-backoff:5m}") Duration maxBackoff) {
+        this.stockCompensationRepository = stockCompensationRepository;
+        this.restTemplate = restTemplate;
+        this.namedLock = new NamedLock(jdbcTemplate);
+        this.interval = interval;
+        this.batchSize = batchSize;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-compensation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::scheduledRetry, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Applies {@code operation} ("reserve" or "release") to the book, or records it for retry.
+     */
+    public void compensate(Long bookId, String operation) {
+        try {
+            restTemplate.postForObject(inventoryServiceUrl + "/" + bookId + "/" + operation, null, Void.class);
+        } catch (HttpClientErrorException e) {
+            logger.error("Inventory refused to {} stock for book {}, the count must be corrected by hand: {}",
+                    operation, bookId, e.getMessage());
+        } catch (Exception e) {
+            logger.warn("Failed to {} stock for book {}, will retry: {}", operation, bookId, e.getMessage());
+            record(List.of(bookId), operation);
+        }
+    }
+
+    /**
+     * Applies {@code operation} to every book with one batch call, or records them all for retry.
+     */
+    public void compensate(List<Long> bookIds, String operation) {
+        StockChangeResult[] results;
+        try {
+            results = restTemplate.postForObject(inventoryServiceUrl + "/" + operation, bookIds,
+                    StockChangeResult[].class);
+        } catch (HttpClientErrorException e) {
+            logger.error("Inventory refused to {} stock for books {}, the counts must be corrected by hand: {}",
+                    operation, bookIds, e.getMessage());
+            return;
+        } catch (Exception e) {
+            logger.warn("Failed to {} stock for books {}, will retry: {}", operation, bookIds, e.getMessage());
+            record(bookIds, operation);
+            return;
+        }
+        if (results == null || results.length != bookIds.size()) {
+            logger.warn("Unexpected response from inventory {} for books {}, will retry", operation, bookIds);
+            record(bookIds, operation);
+            return;
+        }
+        for (int i = 0; i < results.length; i++) {
+            if (results[i].getStatus() != StockChangeResult.Status.DONE) {
+                logger.error("Inventory could not {} stock for book {} ({}), the count must be corrected by hand",
+                        operation, bookIds.get(i), results[i].getStatus());
+            }
+        }
+    }
+
+    private void record(List<Long> bookIds, String operation) {
+        LocalDateTime now = LocalDateTime.now();
+        List<StockCompensation> compensations = new ArrayList<>(bookIds.size());
+        for (Long bookId : bookIds) {
+            StockCompensation compensation = new StockCompensation();
+            compensation.setBookId(bookId);
+            compensation.setOperation(operation);
+            compensation.setCreatedAt(now);
+            compensation.setNextAttemptAt(now.plus(initialBackoff));
+            compensations.add(compensation);
+        }
+        try {
+            stockCompensationRepository.saveAll(compensations);
+        } catch (Exception e) {
+            logger.error("Failed to record the {} of stock for books {}, the counts must be corrected by hand: {}",
+                    operation, bookIds, e.getMessage());
+        }
+    }
+
+    void scheduledRetry() {
+        try {
+            namedLock.tryRunExclusively("transaction-service.stock-compensation", this::retry);
+        } catch (Exception e) {
+            logger.error("Stock compensation retry failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Sends due compensations until none are left or inventory-service fails to answer. Returns
+     * the number applied.
+     */
+    public synchronized int retry() {
+        int applied = 0;
+        while (true) {
+            LocalDateTime now = LocalDateTime.now();
+            List<StockCompensation> compensations = stockCompensationRepository
+                    .findByNextAttemptAtLessThanEqualOrderByIdAsc(now, PageRequest.of(0, batchSize));
+            if (compensations.isEmpty()) {
+                return applied;
+            }
+            for (StockCompensation compensation : compensations) {
+                String url = inventoryServiceUrl + "/" + compensation.getBookId() + "/" + compensation.getOperation();
+                try {
+                    restTemplate.postForObject(url, null, Void.class);
+                    applied++;
+                } catch (HttpClientErrorException e) {
+                    logger.error("Inventory refused to {} stock for book {}, the count must be corrected by hand: {}",
+                            compensation.getOperation(), compensation.getBookId(), e.getMessage());
+                } catch (Exception e) {
+                    compensation.setAttempts(compensation.getAttempts() + 1);
+                    compensation.setNextAttemptAt(now.plus(backoff(compensation.getAttempts())));
+                    stockCompensationRepository.save(compensation);
+                    logger.warn("Failed to {} stock for book {}, will retry: {}", compensation.getOperation(),
+                            compensation.getBookId(), e.getMessage());
+                    return applied;
+                }
+                stockCompensationRepository.delete(compensation);
+            }
+        }
+    }
+
+    private Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+}
@@ -0,0 +1,509 @@
+package com.wipro.transactionservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wipro.common.jdbc.NamedLock;
+import com.wipro.transactionservice.entity.Transaction;
+import com.wipro.transactionservice.repository.ArchiveSegmentRepository;
+import com.wipro.transactionservice.repository.TransactionStreamRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Monthly cold storage for the transaction history.
+ * <p>
+ * The transactions table keeps the last {@code transaction.archive.hot-months} months. Each
+ * older, closed month is written once to an immutable segment file {@code yyyy-MM.ndjson.gz}
+ * holding that month's rows as NDJSON sorted by (userId, transactionDate, id). The segment is
+ * a sequence of independently gzipped blocks that never split a user, and the sidecar
+ * {@code yyyy-MM.idx} records the user range, offset and length of every block, so reading one
+ * user's month decompresses only the blocks that can contain them.
+ * <p>
+ * Both files are then stored in the database (see {@link ArchiveSegmentRepository}), which is
+ * what makes a month archived. Every replica lists the stored months, copies the files of any
+ * month it does not have into its own directory and from then on takes that month from the
+ * segment, ignoring any of its rows still in the table (the watermark). The directory is only a
+ * local copy and need not be shared. The rows themselves are deleted by the next archival run,
+ * which gives the other replicas time to pick the month up.
+ * <p>
+ * Archiving is off unless {@code transaction.archive.enabled} is set, and an archival run only
+ * proceeds while holding a named lock, so a second replica enabled by mistake skips its run
+ * instead of writing the same segments. The archiving replica also stores months found in its
+ * directory but not in the database, i.e. written before the months were stored there.
+ */
+@Component
+public class TransactionArchive {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionArchive.class);
+    private static final String SEGMENT_SUFFIX = ".ndjson.gz";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final int INDEX_FORMAT = 2;
+    private static final String LOCK_NAME = "transaction-service.archive";
+    private static final int DELETE_BATCH_SIZE = 5000;
+
+    private final TransactionStreamRepository streamRepository;
+    private final ArchiveSegmentRepository segmentRepository;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final int hotMonths;
+    private final int blockRecords;
+    private final boolean archivingEnabled;
+    private final NamedLock namedLock;
+
+    private final NavigableMap<YearMonth, Segment> segments = new ConcurrentSkipListMap<>();
+    private volatile LocalDateTime watermark = TransactionService.MIN_DATE;
+
+    public TransactionArchive(TransactionStreamRepository streamRepository, ArchiveSegmentRepository segmentRepository,
+                              ObjectMapper objectMapper, JdbcTemplate jdbcTemplate,
+                              @Value("${transaction.archive.dir:./data/transaction-archive}") String directory,
+                              @Value("${transaction.archive.hot-months:3}") int hotMonths,
+                              @Value("${transaction.archive.block-records:1000}") int blockRecords,
+                              @Value("${transaction.archive.enabled:false}") boolean archivingEnabled) {
+        this.streamRepository = streamRepository;
+        this.segmentRepository = segmentRepository;
+        this.objectMapper = objectMapper;
+        this.directory = Paths.get(directory);
+        this.hotMonths = hotMonths;
+        this.blockRecords = blockRecords;
+        this.archivingEnabled = archivingEnabled;
+        this.namedLock = new NamedLock(jdbcTemplate);
+    }
+
+    /**
+     * Start of the oldest month still served from the transactions table; everything dated
+     * before it is read from segments.
+     */
+    public LocalDateTime getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * Loads the months archived since the last call, including by other replicas, copying their
+     * files from the database when the directory does not hold them. Months that cannot be
+     * read are logged and skipped.
+     */
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${transaction.archive.refresh-interval:60000}")
+    public synchronized void refresh() {
+        NavigableMap<YearMonth, Long> stored;
+        try {
+            stored = segmentRepository.findSegmentLengths();
+        } catch (Exception e) {
+            logger.error("Failed to list the archived months: {}", e.getMessage());
+            return;
+        }
+        if (archivingEnabled) {
+            storeLocalMonths(stored);
+        }
+        for (Map.Entry<YearMonth, Long> entry : stored.entrySet()) {
+            YearMonth month = entry.getKey();
+            if (!segments.containsKey(month)) {
+                try {
+                    segments.put(month, loadSegment(month, entry.getValue()));
+                } catch (IOException | RuntimeException e) {
+                    logger.error("Skipping archived month {}: {}", month, e.getMessage());
+                }
+            }
+        }
+        if (!segments.isEmpty()) {
+            watermark = segments.lastKey().plusMonths(1).atDay(1).atStartOfDay();
+        }
+    }
+
+    /**
+     * Reads the month's index, first copying its files from the database unless the directory
+     * already holds a segment of the stored length.
+     */
+    private Segment loadSegment(YearMonth month, long segmentLength) throws IOException {
+        Path indexFile = directory.resolve(month + INDEX_SUFFIX);
+        Path segmentFile = directory.resolve(month + SEGMENT_SUFFIX);
+        if (!Files.exists(indexFile) || !Files.exists(segmentFile) || Files.size(segmentFile) != segmentLength) {
+            Files.createDirectories(directory);
+            Path indexTemp = directory.resolve(month + INDEX_SUFFIX + ".tmp");
+            Path segmentTemp = directory.resolve(month + SEGMENT_SUFFIX + ".tmp");
+            if (!segmentRepository.copyTo(month, indexTemp, segmentTemp)) {
+                throw new IOException("Archived month " + month + " is no longer stored");
+            }
+            Files.move(segmentTemp, segmentFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(indexTemp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Copied archived month {} from the database to {}", month, directory);
+        }
+        return readIndex(month);
+    }
+
+    /**
+     * Stores the months of the directory that are not in the database yet, skipping files that
+     * are not named after a month or cannot be read.
+     */
+    private void storeLocalMonths(NavigableMap<YearMonth, Long> stored) {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + INDEX_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                YearMonth month;
+                try {
+                    month = YearMonth.parse(name.substring(0, name.length() - INDEX_SUFFIX.length()));
+                } catch (DateTimeParseException e) {
+                    logger.warn("Ignoring {} in transaction archive {}: not a yyyy-MM index", name, directory);
+                    continue;
+                }
+                if (!stored.containsKey(month)) {
+                    try {
+                        readIndex(month);
+                        Path segmentFile = directory.resolve(month + SEGMENT_SUFFIX);
+                        segmentRepository.save(month, file, segmentFile);
+                        stored.put(month, Files.size(segmentFile));
+                        logger.info("Stored archived month {} from {} in the database", month, directory);
+                    } catch (IOException | RuntimeException e) {
+                        logger.error("Skipping archived month {}: {}", month, e.getMessage());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Failed to scan transaction archive {}: {}", directory, e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes the table rows of months archived by earlier runs, then archives every closed
+     * month older than the hot window.
+     */
+    @Scheduled(cron = "${transaction.archive.cron:0 30 2 * * *}")
+    public synchronized void archiveClosedMonths() {
+        if (!archivingEnabled) {
+            return;
+        }
+        try {
+            if (!namedLock.tryRunExclusively(LOCK_NAME, this::archive)) {
+                logger.warn("Skipping transaction archival, another replica holds {}", LOCK_NAME);
+            }
+        } catch (Exception e) {
+            logger.error("Could not take the transaction archive lock: {}", e.getMessage());
+        }
+    }
+
+    private void archive() {
+        try {
+            refresh();
+            long purged = streamRepository.deleteBefore(watermark, DELETE_BATCH_SIZE);
+            if (purged > 0) {
+                logger.info("Deleted {} archived transactions dated before {}", purged, watermark);
+            }
+            YearMonth cutoff = YearMonth.now().minusMonths(hotMonths);
+            LocalDateTime oldest = streamRepository.findOldestDateFrom(watermark);
+            if (oldest == null) {
+                return;
+            }
+            Files.createDirectories(directory);
+            for (YearMonth month = YearMonth.from(oldest); month.isBefore(cutoff); month = month.plusMonths(1)) {
+                archiveMonth(month);
+            }
+        } catch (Exception e) {
+            logger.error("Transaction archival failed: {}", e.getMessage());
+        }
+    }
+
+    private void archiveMonth(YearMonth month) throws IOException {
+        long started = System.currentTimeMillis();
+        Path segmentFile = directory.resolve(month + SEGMENT_SUFFIX);
+        Path segmentTemp = directory.resolve(month + SEGMENT_SUFFIX + ".tmp");
+        BlockWriter writer;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(segmentTemp))) {
+            writer = new BlockWriter(out);
+            streamRepository.streamByUser(month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay(),
+                    writer::add);
+            writer.finish();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(segmentTemp, segmentFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        segmentFile.toFile().setReadOnly();
+
+        Path indexFile = directory.resolve(month + INDEX_SUFFIX);
+        Path indexTemp = directory.resolve(month + INDEX_SUFFIX + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexTemp)))) {
+            out.writeInt(INDEX_FORMAT);
+            out.writeLong(writer.records);
+            out.writeLong(writer.minId);
+            out.writeLong(writer.maxId);
+            out.writeInt(writer.blocks.size());
+            for (Block block : writer.blocks) {
+                out.writeLong(block.firstUserId());
+                out.writeLong(block.lastUserId());
+                out.writeLong(block.offset());
+                out.writeInt(block.length());
+            }
+        }
+        Files.move(indexTemp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        indexFile.toFile().setReadOnly();
+        segmentRepository.save(month, indexFile, segmentFile);
+
+        segments.put(month, new Segment(segmentFile, writer.blocks, writer.records, writer.minId, writer.maxId));
+        watermark = segments.lastKey().plusMonths(1).atDay(1).atStartOfDay();
+        logger.info("Archived {} transactions of {} in {} blocks in {} ms", writer.records, month,
+                writer.blocks.size(), System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Returns the archived transactions of the user dated in [from, to], oldest first.
+     */
+    public List<Transaction> findByUser(long userId, LocalDateTime from, LocalDateTime to) {
+        if (from.isAfter(to) || !from.isBefore(watermark)) {
+            return List.of();
+        }
+        List<Transaction> result = new ArrayList<>();
+        for (Segment segment : segments.subMap(YearMonth.from(from), true, YearMonth.from(to), true).values()) {
+            readUser(segment, userId, transaction -> {
+                LocalDateTime date = transaction.getTransactionDate();
+                if (!date.isBefore(from) && !date.isAfter(to)) {
+                    result.add(transaction);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Returns up to {@code max} archived transactions of the user, newest first, dated no
+     * earlier than {@code from} and positioned strictly before (beforeDate, beforeId). Months
+     * are read newest first and reading stops once enough rows are found.
+     */
+    public List<Transaction> findPageByUser(long userId, LocalDateTime from, LocalDateTime beforeDate, long beforeId, int max) {
+        List<Transaction> result = new ArrayList<>();
+        if (from.isAfter(beforeDate) || !from.isBefore(watermark)) {
+            return result;
+        }
+        for (Segment segment : segments.subMap(YearMonth.from(from), true, YearMonth.from(beforeDate), true)
+                .descendingMap().values()) {
+            List<Transaction> month = new ArrayList<>();
+            readUser(segment, userId, transaction -> {
+                LocalDateTime date = transaction.getTransactionDate();
+                if (!date.isBefore(from) && (date.isBefore(beforeDate)
+                        || (date.isEqual(beforeDate) && transaction.getId() < beforeId))) {
+                    month.add(transaction);
+                }
+            });
+            Collections.reverse(month);
+            for (Transaction transaction : month) {
+                if (result.size() == max) {
+                    return result;
+                }
+                result.add(transaction);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Looks up an archived transaction by id. Only months whose id range covers the id are
+     * read, newest first; ids come from a sequence, so that is usually one month.
+     */
+    public Optional<Transaction> findById(long id) {
+        String idText = ":" + id;
+        for (Segment segment : segments.descendingMap().values()) {
+            if (id < segment.minId() || id > segment.maxId()) {
+                continue;
+            }
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(segment.file()), 64 * 1024)) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    // Only rows mentioning the number are parsed
+                    if (line.contains(idText)) {
+                        Transaction transaction = objectMapper.readValue(line, Transaction.class);
+                        if (transaction.getId() == id) {
+                            return Optional.of(transaction);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read " + segment.file(), e);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Passes every archived transaction to the consumer, month by month. Within a month rows
+     * come ordered by (userId, transactionDate, id), so the order per user and book is
+     * chronological.
+     */
+    public void forEach(Consumer<Transaction> consumer) {
+        for (Segment segment : segments.values()) {
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(segment.file()), 64 * 1024)) {
+                readLines(in, consumer);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read " + segment.file(), e);
+            }
+        }
+    }
+
+    private void readUser(Segment segment, long userId, Consumer<Transaction> consumer) {
+        List<Block> blocks = segment.blocks();
+        int low = 0;
+        int high = blocks.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (blocks.get(mid).lastUserId() < userId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        try (FileChannel channel = FileChannel.open(segment.file(), StandardOpenOption.READ)) {
+            for (int i = low; i < blocks.size() && blocks.get(i).firstUserId() <= userId; i++) {
+                Block block = blocks.get(i);
+                ByteBuffer buffer = ByteBuffer.allocate(block.length());
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, block.offset() + buffer.position()) < 0) {
+                        throw new IOException("Truncated segment " + segment.file());
+                    }
+                }
+                try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(buffer.array()))) {
+                    readLines(in, transaction -> {
+                        if (transaction.getUserId() == userId) {
+                            consumer.accept(transaction);
+                        }
+                    });
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + segment.file(), e);
+        }
+    }
+
+    private void readLines(InputStream in, Consumer<Transaction> consumer) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.isEmpty()) {
+                consumer.accept(objectMapper.readValue(line, Transaction.class));
+            }
+        }
+    }
+
+    private Segment readIndex(YearMonth month) throws IOException {
+        Path indexFile = directory.resolve(month + INDEX_SUFFIX);
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(indexFile))) {
+            int format = in.readInt();
+            if (format != 1 && format != INDEX_FORMAT) {
+                throw new IOException("Unsupported archive index format " + format + " in " + indexFile);
+            }
+            long records = in.readLong();
+            // Format 1 has no id range, so lookups by id read the whole month
+            long minId = format == 1 ? Long.MIN_VALUE : in.readLong();
+            long maxId = format == 1 ? Long.MAX_VALUE : in.readLong();
+            int count = in.readInt();
+            List<Block> blocks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                blocks.add(new Block(in.readLong(), in.readLong(), in.readLong(), in.readInt()));
+            }
+            return new Segment(directory.resolve(month + SEGMENT_SUFFIX), blocks, records, minId, maxId);
+        }
+    }
+
+    /**
+     * Appends rows to a segment, closing a gzip block once it holds at least
+     * {@code blockRecords} rows and the user changes.
+     */
+    private class BlockWriter {
+        private final OutputStream out;
+        private final List<Block> blocks = new ArrayList<>();
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private GZIPOutputStream gzip;
+        private long offset;
+        private long records;
+        private int blockCount;
+        private long firstUserId;
+        private long lastUserId;
+        private long minId = Long.MAX_VALUE;
+        private long maxId = Long.MIN_VALUE;
+
+        BlockWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        void add(Transaction transaction) {
+            try {
+                long userId = transaction.getUserId();
+                if (blockCount >= blockRecords && userId != lastUserId) {
+                    closeBlock();
+                }
+                if (blockCount == 0) {
+                    gzip = new GZIPOutputStream(buffer);
+                    firstUserId = userId;
+                }
+                gzip.write(objectMapper.writeValueAsBytes(transaction));
+                gzip.write('\n');
+                lastUserId = userId;
+                minId = Math.min(minId, transaction.getId());
+                maxId = Math.max(maxId, transaction.getId());
+                blockCount++;
+                records++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void finish() throws IOException {
+            if (blockCount > 0) {
+                closeBlock();
+            }
+        }
+
+        private void closeBlock() throws IOException {
+            gzip.finish();
+            byte[] bytes = buffer.toByteArray();
+            out.write(bytes);
+            blocks.add(new Block(firstUserId, lastUserId, offset, bytes.length));
+            offset += bytes.length;
+            buffer.reset();
+            blockCount = 0;
+        }
+    }
+
+    record Block(long firstUserId, long lastUserId, long offset, int length) {
+    }
+
+    record Segment(Path file, List<Block> blocks, long records, long minId, long maxId) {
+    }
+}
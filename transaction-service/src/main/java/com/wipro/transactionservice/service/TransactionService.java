@@ -4,33 +4,82 @@ package com.wipro.transactionservice.service;
 
 
 
-import com.wipro.transactionservice.dto.NotificationRequest;
+import com.wipro.common.dto.StockChangeResult;
+import com.wipro.transactionservice.dto.LoanRequest;
+import com.wipro.transactionservice.dto.LoanResult;
+import com.wipro.transactionservice.dto.TransactionPage;
+import com.wipro.transactionservice.entity.ActiveLoan;
 import com.wipro.transactionservice.entity.Transaction;
 import com.wipro.transactionservice.entity.TransactionType;
+import com.wipro.transactionservice.repository.ActiveLoanRepository;
+import com.wipro.transactionservice.repository.CirculationDelta;
+import com.wipro.transactionservice.repository.CirculationStatsRepository;
 import com.wipro.transactionservice.repository.TransactionRepository;
+import com.wipro.transactionservice.exception.BookUnavailableException;
+import com.wipro.transactionservice.exception.LoanNotFoundException;
 import com.wipro.transactionservice.exception.TransactionNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class TransactionService {
+    /** Bounds used for an open date range; the DATETIME range MySQL supports. */
+    public static final LocalDateTime MIN_DATE = LocalDateTime.of(1000, 1, 1, 0, 0);
+    public static final LocalDateTime MAX_DATE = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
     private final TransactionRepository transactionRepository;
+    private final ActiveLoanRepository activeLoanRepository;
+    private final CirculationStatsRepository circulationStatsRepository;
+    private final TransactionArchive transactionArchive;
+    private final OutboxService outboxService;
+    private final StockCompensationService stockCompensationService;
+    private final TransactionTemplate transactionTemplate;
     private final RestTemplate restTemplate;
-    private final String notificationServiceUrl = "http://localhost:8085/notifications";
+    private final Duration loanPeriod;
+    private final String inventoryServiceUrl = "http://localhost:8082/inventory";
 
-    public TransactionService(TransactionRepository transactionRepository, RestTemplate restTemplate) {
+    public TransactionService(TransactionRepository transactionRepository, ActiveLoanRepository activeLoanRepository,
+                              CirculationStatsRepository circulationStatsRepository, TransactionArchive transactionArchive, OutboxService outboxService,
+                              StockCompensationService stockCompensationService, TransactionTemplate transactionTemplate,
+                              RestTemplate restTemplate, @Value("${transaction.loan.period:14d}") Duration loanPeriod) {
         this.transactionRepository = transactionRepository;
+        this.activeLoanRepository = activeLoanRepository;
+        this.circulationStatsRepository = circulationStatsRepository;
+        this.transactionArchive = transactionArchive;
+        this.outboxService = outboxService;
+        this.stockCompensationService = stockCompensationService;
+        this.transactionTemplate = transactionTemplate;
         this.restTemplate = restTemplate;
+        this.loanPeriod = loanPeriod;
     }
 
-    private void sendNotification(String message) {
+    /**
+     * Calls the inventory reserve/release endpoint. Each is a single conditional UPDATE in
+     * inventory-service, so no lock is held while waiting on this call.
+     */
+    private void changeStock(Long bookId, String operation) {
         try {
-            restTemplate.postForObject(notificationServiceUrl, new NotificationRequest(message), Void.class);
-        } catch (Exception e) {
-            System.err.println("Failed to send notification: " + e.getMessage());
+            restTemplate.postForObject(inventoryServiceUrl + "/" + bookId + "/" + operation, null, Void.class);
+        } catch (HttpClientErrorException.Conflict e) {
+            throw new BookUnavailableException("No copies of book " + bookId + " are available");
+        } catch (HttpClientErrorException.NotFound e) {
+            throw new BookUnavailableException("Book " + bookId + " is not stocked in inventory");
         }
     }
 
@@ -40,8 +89,24 @@ public class TransactionService {
         transaction.setBookId(bookId);
         transaction.setTransactionType(TransactionType.BORROW);
         transaction.setTransactionDate(LocalDateTime.now());
-        Transaction savedTransaction = transactionRepository.save(transaction);
-        sendNotification("Book borrowed: " + bookId + " by user: " + userId);
+        transaction.setDueDate(transaction.getTransactionDate().plus(loanPeriod));
+        changeStock(bookId, "reserve");
+        Transaction savedTransaction;
+        try {
+            // The transaction row, the active loan, the rollup and the notification event commit together
+            savedTransaction = transactionTemplate.execute(status -> {
+                Transaction saved = transactionRepository.save(transaction);
+                activeLoanRepository.save(ActiveLoanService.toLoan(saved));
+                CirculationDelta delta = new CirculationDelta();
+                delta.borrow(bookId, saved.getTransactionDate());
+                circulationStatsRepository.apply(delta);
+                outboxService.record("Book", bookId, "Book borrowed: " + bookId + " by user: " + userId);
+                return saved;
+            });
+        } catch (RuntimeException e) {
+            stockCompensationService.compensate(bookId, "release");
+            throw e;
+        }
         return savedTransaction;
     }
 
@@ -51,17 +116,240 @@ public class TransactionService {
         transaction.setBookId(bookId);
         transaction.setTransactionType(TransactionType.RETURN);
         transaction.setTransactionDate(LocalDateTime.now());
-        Transaction savedTransaction = transactionRepository.save(transaction);
-        sendNotification("Book returned: " + bookId + " by user: " + userId);
+        ActiveLoan loan = activeLoanRepository.findFirstByUserIdAndBookIdOrderByBorrowedAtAscIdAsc(userId, bookId)
+                .orElseThrow(() -> new LoanNotFoundException("User " + userId + " has no active loan for book " + bookId));
+        changeStock(bookId, "release");
+        Transaction savedTransaction;
+        try {
+            savedTransaction = transactionTemplate.execute(status -> {
+                if (activeLoanRepository.deleteLoan(loan.getId()) == 0) {
+                    throw new LoanNotFoundException("Loan " + loan.getId() + " was already returned");
+                }
+                CirculationDelta delta = new CirculationDelta();
+                delta.returned(bookId, loan.getBorrowedAt(), transaction.getTransactionDate());
+                circulationStatsRepository.apply(delta);
+                outboxService.record("Book", bookId, "Book returned: " + bookId + " by user: " + userId);
+                return transactionRepository.save(transaction);
+            });
+        } catch (RuntimeException e) {
+            stockCompensationService.compensate(bookId, "reserve");
+            throw e;
+        }
         return savedTransaction;
     }
 
+    /**
+     * Borrows every requested book with one inventory call, one database transaction with
+     * batched inserts and one notification. Books that cannot be reserved are reported as
+     * UNAVAILABLE and do not affect the others.
+     */
+    public List<LoanResult> borrowBooks(List<LoanRequest> requests) {
+        if (requests.isEmpty()) {
+            return List.of();
+        }
+        List<Long> bookIds = new ArrayList<>(requests.size());
+        for (LoanRequest request : requests) {
+            bookIds.add(request.getBookId());
+        }
+        StockChangeResult[] reservations = changeStock(bookIds, "reserve");
+        List<LoanResult> results = new ArrayList<>(requests.size());
+        List<Transaction> transactions = new ArrayList<>();
+        List<Long> reservedBookIds = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < requests.size(); i++) {
+            LoanRequest request = requests.get(i);
+            if (reservations[i].getStatus() != StockChangeResult.Status.DONE) {
+                results.add(new LoanResult(request.getUserId(), request.getBookId(), LoanResult.Status.UNAVAILABLE, null));
+                continue;
+            }
+            Transaction transaction = newTransaction(request, TransactionType.BORROW, now);
+            transactions.add(transaction);
+            reservedBookIds.add(request.getBookId());
+            results.add(new LoanResult(request.getUserId(), request.getBookId(), LoanResult.Status.DONE, transaction));
+        }
+        if (!transactions.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    transactionRepository.saveAll(transactions);
+                    List<ActiveLoan> loans = new ArrayList<>(transactions.size());
+                    CirculationDelta delta = new CirculationDelta();
+                    for (Transaction transaction : transactions) {
+                        loans.add(ActiveLoanService.toLoan(transaction));
+                        delta.borrow(transaction.getBookId(), transaction.getTransactionDate());
+                    }
+                    activeLoanRepository.saveAll(loans);
+                    circulationStatsRepository.apply(delta);
+                    outboxService.record("TransactionBatch", transactions.get(0).getId(),
+                            "Books borrowed: " + summarize(transactions));
+                });
+            } catch (RuntimeException e) {
+                stockCompensationService.compensate(reservedBookIds, "release");
+                throw e;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns every requested book with one inventory call, one database transaction with
+     * batched writes and one notification. Items without a matching active loan are reported as
+     * NO_ACTIVE_LOAN; a pair listed twice closes two loans.
+     */
+    public List<LoanResult> returnBooks(List<LoanRequest> requests) {
+        Set<Long> userIds = new LinkedHashSet<>();
+        for (LoanRequest request : requests) {
+            userIds.add(request.getUserId());
+        }
+        Map<List<Long>, Deque<ActiveLoan>> openLoans = new HashMap<>();
+        for (ActiveLoan loan : activeLoanRepository.findByUserIdInOrderByBorrowedAtAscIdAsc(userIds)) {
+            openLoans.computeIfAbsent(List.of(loan.getUserId(), loan.getBookId()), key -> new ArrayDeque<>()).addLast(loan);
+        }
+        Map<Integer, ActiveLoan> loansByItem = new LinkedHashMap<>();
+        List<Long> bookIds = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            LoanRequest request = requests.get(i);
+            Deque<ActiveLoan> loans = openLoans.get(List.of(request.getUserId(), request.getBookId()));
+            if (loans != null && !loans.isEmpty()) {
+                loansByItem.put(i, loans.removeFirst());
+                bookIds.add(request.getBookId());
+            }
+        }
+        StockChangeResult[] releases = bookIds.isEmpty() ? new StockChangeResult[0] : changeStock(bookIds, "release");
+
+        List<LoanResult> results = new ArrayList<>(requests.size());
+        List<Transaction> transactions = new ArrayList<>();
+        List<Long> loanIds = new ArrayList<>();
+        CirculationDelta delta = new CirculationDelta();
+        List<Long> releasedBookIds = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        int release = 0;
+        for (int i = 0; i < requests.size(); i++) {
+            LoanRequest request = requests.get(i);
+            ActiveLoan loan = loansByItem.get(i);
+            if (loan == null) {
+                results.add(new LoanResult(request.getUserId(), request.getBookId(), LoanResult.Status.NO_ACTIVE_LOAN, null));
+            } else if (releases[release++].getStatus() != StockChangeResult.Status.DONE) {
+                results.add(new LoanResult(request.getUserId(), request.getBookId(), LoanResult.Status.UNAVAILABLE, null));
+            } else {
+                Transaction transaction = newTransaction(request, TransactionType.RETURN, now);
+                transactions.add(transaction);
+                loanIds.add(loan.getId());
+                delta.returned(request.getBookId(), loan.getBorrowedAt(), now);
+                releasedBookIds.add(request.getBookId());
+                results.add(new LoanResult(request.getUserId(), request.getBookId(), LoanResult.Status.DONE, transaction));
+            }
+        }
+        if (!transactions.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (activeLoanRepository.deleteLoans(loanIds) != loanIds.size()) {
+                        throw new LoanNotFoundException("Some of the loans were returned concurrently, retry the batch");
+                    }
+                    transactionRepository.saveAll(transactions);
+                    circulationStatsRepository.apply(delta);
+                    outboxService.record("TransactionBatch", transactions.get(0).getId(),
+                            "Books returned: " + summarize(transactions));
+                });
+            } catch (RuntimeException e) {
+                stockCompensationService.compensate(releasedBookIds, "reserve");
+                throw e;
+            }
+        }
+        return results;
+    }
+
+    private StockChangeResult[] changeStock(List<Long> bookIds, String operation) {
+        StockChangeResult[] results = restTemplate.postForObject(inventoryServiceUrl + "/" + operation, bookIds,
+                StockChangeResult[].class);
+        if (results == null || results.length != bookIds.size()) {
+            throw new IllegalStateException("Unexpected response from inventory " + operation);
+        }
+        return results;
+    }
+
+    private Transaction newTransaction(LoanRequest request, TransactionType type, LocalDateTime date) {
+        Transaction transaction = new Transaction();
+        transaction.setUserId(request.getUserId());
+        transaction.setBookId(request.getBookId());
+        transaction.setTransactionType(type);
+        transaction.setTransactionDate(date);
+        if (type == TransactionType.BORROW) {
+            transaction.setDueDate(date.plus(loanPeriod));
+        }
+        return transaction;
+    }
+
+    /**
+     * Formats the books per user, e.g. "user 1: [101, 102]; user 2: [7]".
+     */
+    private static String summarize(List<Transaction> transactions) {
+        Map<Long, List<Long>> booksByUser = new LinkedHashMap<>();
+        for (Transaction transaction : transactions) {
+            booksByUser.computeIfAbsent(transaction.getUserId(), key -> new ArrayList<>()).add(transaction.getBookId());
+        }
+        StringBuilder summary = new StringBuilder();
+        booksByUser.forEach((userId, bookIds) -> {
+            if (summary.length() > 0) {
+                summary.append("; ");
+            }
+            summary.append("user ").append(userId).append(": ").append(bookIds);
+        });
+        return summary.toString();
+    }
+
+    /**
+     * Returns the user's transactions in the range, oldest first, reading archived months from
+     * their segments and the rest from the table.
+     */
     public List<Transaction> getTransactions(Long userId, LocalDateTime startDate, LocalDateTime endDate) {
-        return transactionRepository.findByUserIdAndDateRange(userId, startDate, endDate);
+        LocalDateTime from = startDate == null ? MIN_DATE : startDate;
+        LocalDateTime to = endDate == null ? MAX_DATE : endDate;
+        LocalDateTime watermark = transactionArchive.getWatermark();
+        List<Transaction> transactions = new ArrayList<>(transactionArchive.findByUser(userId, from, to));
+        if (!to.isBefore(watermark)) {
+            transactions.addAll(transactionRepository.findByUserIdAndDateRange(userId,
+                    from.isBefore(watermark) ? watermark : from, to));
+        }
+        return transactions;
+    }
+
+    /**
+     * Returns up to {@code limit} transactions of the user, newest first, that come after the
+     * (beforeDate, beforeId) cursor position; a null cursor starts at {@code endDate}.
+     */
+    public TransactionPage getTransactionsPage(Long userId, LocalDateTime startDate, LocalDateTime endDate,
+                                               LocalDateTime beforeDate, Long beforeId, int limit) {
+        LocalDateTime upper = endDate == null ? MAX_DATE : endDate;
+        long upperId = Long.MAX_VALUE;
+        if (beforeDate != null && !beforeDate.isAfter(upper)) {
+            upper = beforeDate;
+            upperId = beforeId;
+        }
+        LocalDateTime from = startDate == null ? MIN_DATE : startDate;
+        LocalDateTime watermark = transactionArchive.getWatermark();
+        List<Transaction> transactions = new ArrayList<>(limit + 1);
+        if (!upper.isBefore(watermark)) {
+            transactions.addAll(transactionRepository.findPageByUserId(userId,
+                    from.isBefore(watermark) ? watermark : from, upper, upperId, PageRequest.of(0, limit + 1)));
+        }
+        if (transactions.size() <= limit && from.isBefore(watermark)) {
+            // The page continues into archived months
+            transactions.addAll(transactionArchive.findPageByUser(userId, from, upper, upperId,
+                    limit + 1 - transactions.size()));
+        }
+        if (transactions.size() <= limit) {
+            return new TransactionPage(transactions, null);
+        }
+        List<Transaction> items = transactions.subList(0, limit);
+        return new TransactionPage(items, items.get(items.size() - 1));
     }
 
+    /**
+     * Looks the transaction up in the table first and then in the archived months.
+     */
     public Transaction getTransactionById(Long id) {
         return transactionRepository.findById(id)
+                .or(() -> transactionArchive.findById(id))
                 .orElseThrow(() -> new TransactionNotFoundException("Transaction not found with id: " + id));
     }
 }
@@ -0,0 +1,93 @@
+package com.wipro.transactionservice.controller;
+
+import com.wipro.common.idempotency.IdempotencyService;
+import com.wipro.transactionservice.dto.TransactionPage;
+import com.wipro.transactionservice.entity.Transaction;
+import com.wipro.transactionservice.entity.TransactionType;
+import com.wipro.transactionservice.service.ActiveLoanService;
+import com.wipro.transactionservice.service.CirculationStatsService;
+import com.wipro.transactionservice.service.OverdueService;
+import com.wipro.transactionservice.service.TransactionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(TransactionController.class)
+class TransactionControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @MockitoBean
+    private TransactionService transactionService;
+    @MockitoBean
+    private ActiveLoanService activeLoanService;
+    @MockitoBean
+    private IdempotencyService idempotencyService;
+    @MockitoBean
+    private OverdueService overdueService;
+    @MockitoBean
+    private CirculationStatsService circulationStatsService;
+
+    @Test
+    void nextCursorResumesBeforeTheLastTransaction() throws Exception {
+        Transaction newest = transaction(9L, "2025-08-03T10:00");
+        Transaction last = transaction(8L, "2025-08-02T10:00");
+        when(transactionService.getTransactionsPage(7L, null, null, null, null, 2))
+                .thenReturn(new TransactionPage(List.of(newest, last), last));
+        when(transactionService.getTransactionsPage(7L, null, null, LocalDateTime.parse("2025-08-02T10:00"), 8L, 2))
+                .thenReturn(new TransactionPage(List.of(transaction(3L, "2025-08-01T10:00")), null));
+
+        String cursor = mockMvc.perform(get("/transactions").param("userId", "7").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andReturn().getResponse().getHeader("X-Next-Cursor");
+        assertThat(cursor).isNotBlank();
+
+        mockMvc.perform(get("/transactions").param("userId", "7").param("limit", "2").param("after", cursor))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                .andExpect(jsonPath("$[0].id").value(3));
+    }
+
+    @Test
+    void malformedCursorIsRejected() throws Exception {
+        mockMvc.perform(get("/transactions").param("userId", "7").param("after", "bm90LWEtY3Vyc29y"))
+                .andExpect(status().isBadRequest());
+
+        verify(transactionService, never()).getTransactionsPage(anyLong(), isNull(), isNull(), isNull(), isNull(), anyInt());
+    }
+
+    @Test
+    void limitOutsideTheBoundsIsRejected() throws Exception {
+        mockMvc.perform(get("/transactions").param("userId", "7").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/transactions").param("userId", "7").param("limit", "1001"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static Transaction transaction(Long id, String date) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setUserId(7L);
+        transaction.setBookId(100L + id);
+        transaction.setTransactionType(TransactionType.BORROW);
+        transaction.setTransactionDate(LocalDateTime.parse(date));
+        return transaction;
+    }
+}
@@ -0,0 +1,168 @@
+package com.wipro.transactionservice.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CirculationStatsRepositoryTest {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 1, 10, 0);
+
+    private final InMemoryRollup incremental = new InMemoryRollup();
+    private final InMemoryRollup recomputed = new InMemoryRollup();
+    private final List<Event> history = new ArrayList<>();
+
+    @Test
+    void incrementalRollupMatchesAFullRecompute() {
+        borrow(1L, START);
+        borrow(2L, START.plusHours(1));
+        returned(1L, START, START.plusDays(3));
+        borrow(1L, START.plusDays(3).plusHours(2));
+        borrowBatch(START.plusDays(4), 2L, 3L, 3L);
+        returned(2L, START.plusHours(1), START.plusDays(10));
+        returned(3L, START.plusDays(4), START.plusDays(4).plusHours(5));
+
+        assertThat(incremental.daily).isEqualTo(recompute().daily);
+        assertThat(incremental.totals).isEqualTo(recomputed.totals);
+        assertThat(incremental.totals.get(List.of(3L))).containsExactly(2L, 1L, 5 * 3600L, Timestamp.valueOf(START.plusDays(4)));
+    }
+
+    @Test
+    void rebuildLeavesTheRollupUnchangedAndLaterUpdatesStillMatch() {
+        borrow(1L, START);
+        borrowBatch(START.plusDays(1), 1L, 2L);
+        returned(1L, START, START.plusDays(2));
+        Map<List<Object>, List<Object>> beforeDaily = new HashMap<>(incremental.daily);
+        Map<List<Object>, List<Object>> beforeTotals = new HashMap<>(incremental.totals);
+
+        new CirculationStatsRepository(incremental).replace(replayHistory());
+
+        assertThat(incremental.daily).isEqualTo(beforeDaily);
+        assertThat(incremental.totals).isEqualTo(beforeTotals);
+
+        returned(2L, START.plusDays(1), START.plusDays(6));
+        borrow(2L, START.plusDays(7));
+        returned(1L, START.plusDays(1), START.plusDays(7));
+
+        assertThat(incremental.daily).isEqualTo(recompute().daily);
+        assertThat(incremental.totals).isEqualTo(recomputed.totals);
+    }
+
+    @Test
+    void borrowsOutOfOrderKeepTheLatestBorrowDate() {
+        borrow(1L, START.plusDays(5));
+        borrow(1L, START);
+        returned(1L, START, START.plusDays(1));
+
+        assertThat(incremental.totals.get(List.of(1L)).get(3)).isEqualTo(Timestamp.valueOf(START.plusDays(5)));
+        assertThat(incremental.totals).isEqualTo(recompute().totals);
+    }
+
+    // Each helper writes the rollup the way TransactionService does and records the history
+    // the rebuild replays.
+
+    private void borrow(Long bookId, LocalDateTime at) {
+        borrowBatch(at, bookId);
+    }
+
+    private void borrowBatch(LocalDateTime at, Long... bookIds) {
+        CirculationDelta delta = new CirculationDelta();
+        for (Long bookId : bookIds) {
+            delta.borrow(bookId, at);
+            history.add(new Event(bookId, at, null));
+        }
+        new CirculationStatsRepository(incremental).apply(delta);
+    }
+
+    private void returned(Long bookId, LocalDateTime borrowedAt, LocalDateTime returnedAt) {
+        CirculationDelta delta = new CirculationDelta();
+        delta.returned(bookId, borrowedAt, returnedAt);
+        history.add(new Event(bookId, borrowedAt, returnedAt));
+        new CirculationStatsRepository(incremental).apply(delta);
+    }
+
+    private InMemoryRollup recompute() {
+        new CirculationStatsRepository(recomputed).replace(replayHistory());
+        return recomputed;
+    }
+
+    private CirculationDelta replayHistory() {
+        CirculationDelta delta = new CirculationDelta();
+        for (Event event : history) {
+            if (event.returnedAt() == null) {
+                delta.borrow(event.bookId(), event.borrowedAt());
+            } else {
+                delta.returned(event.bookId(), event.borrowedAt(), event.returnedAt());
+            }
+        }
+        return delta;
+    }
+
+    private record Event(Long bookId, LocalDateTime borrowedAt, LocalDateTime returnedAt) {
+    }
+
+    /**
+     * The two rollup tables in memory, applying the repository's upserts with MySQL's
+     * ON DUPLICATE KEY UPDATE semantics: counters are added and last_borrowed_at keeps the
+     * latest non-null value.
+     */
+    private static class InMemoryRollup extends JdbcTemplate {
+        private final Map<List<Object>, List<Object>> daily = new HashMap<>();
+        private final Map<List<Object>, List<Object>> totals = new HashMap<>();
+
+        @Override
+        public int update(String sql) {
+            if (sql.equals("DELETE FROM book_circulation_daily")) {
+                daily.clear();
+            } else if (sql.equals("DELETE FROM book_circulation_totals")) {
+                totals.clear();
+            } else {
+                throw new UnsupportedOperationException(sql);
+            }
+            return 0;
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            for (Object[] args : batchArgs) {
+                if (sql.startsWith("INSERT INTO book_circulation_daily")) {
+                    upsert(daily, List.of(args[0], args[1]), args, 2);
+                } else if (sql.startsWith("INSERT INTO book_circulation_totals")) {
+                    upsert(totals, List.of(args[0]), args, 1);
+                } else {
+                    throw new UnsupportedOperationException(sql);
+                }
+            }
+            return new int[batchArgs.size()];
+        }
+
+        private static void upsert(Map<List<Object>, List<Object>> table, List<Object> key, Object[] args, int first) {
+            List<Object> values = new ArrayList<>(Arrays.asList(args).subList(first, args.length));
+            List<Object> existing = table.get(key);
+            if (existing != null) {
+                for (int i = 0; i < 3; i++) {
+                    values.set(i, (Long) existing.get(i) + (Long) values.get(i));
+                }
+                if (values.size() > 3) {
+                    values.set(3, latest((Timestamp) existing.get(3), (Timestamp) values.get(3)));
+                }
+            }
+            table.put(key, values);
+        }
+
+        private static Timestamp latest(Timestamp a, Timestamp b) {
+            if (a == null || b == null) {
+                return a == null ? b : a;
+            }
+            return a.after(b) ? a : b;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.wipro.transactionservice.service;
+
+import com.wipro.transactionservice.dto.LoanRebuildResult;
+import com.wipro.transactionservice.entity.ActiveLoan;
+import com.wipro.transactionservice.entity.Transaction;
+import com.wipro.transactionservice.entity.TransactionType;
+import com.wipro.transactionservice.exception.JobInProgressException;
+import com.wipro.transactionservice.repository.ActiveLoanRepository;
+import com.wipro.transactionservice.repository.CirculationStatsRepository;
+import com.wipro.transactionservice.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static com.wipro.transactionservice.service.TransactionServiceTest.transaction;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ActiveLoanServiceTest {
+    private static final LocalDateTime WATERMARK = LocalDateTime.of(2025, 6, 1, 0, 0);
+
+    private final ActiveLoanRepository activeLoanRepository = mock(ActiveLoanRepository.class);
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final CirculationStatsRepository circulationStatsRepository = mock(CirculationStatsRepository.class);
+    private final TransactionArchive transactionArchive = mock(TransactionArchive.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ResultSet lockResult = mock(ResultSet.class);
+    private ActiveLoanService activeLoanService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(lockResult);
+        when(lockResult.next()).thenReturn(true);
+        when(lockResult.getInt(1)).thenReturn(1);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+                .thenAnswer(invocation -> invocation.<ConnectionCallback<Object>>getArgument(0).doInConnection(connection));
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        activeLoanService = new ActiveLoanService(activeLoanRepository, transactionRepository, circulationStatsRepository,
+                transactionArchive, transactionTemplate, jdbcTemplate, 2, Duration.ofDays(14));
+    }
+
+    @Test
+    void rebuildMergesTheArchiveWithTheTableAboveTheWatermark() {
+        Transaction firstBorrow = history(1L, 7L, 101L, TransactionType.BORROW, "2025-05-01T10:00");
+        Transaction secondBorrow = history(2L, 7L, 101L, TransactionType.BORROW, "2025-05-02T10:00");
+        archived(firstBorrow, secondBorrow);
+        // Rows of an archived month stay in the table until the next archival run purges them
+        Transaction notPurged = history(2L, 7L, 101L, TransactionType.BORROW, "2025-05-02T10:00");
+        Transaction live = history(10L, 9L, 103L, TransactionType.BORROW, "2025-06-03T10:00");
+        table(List.of(notPurged, live), List.of());
+
+        LoanRebuildResult result = activeLoanService.rebuild();
+
+        assertThat(result.getTransactionsReplayed()).isEqualTo(3);
+        assertThat(savedLoans()).extracting(ActiveLoan::getBorrowTransactionId).containsExactlyInAnyOrder(1L, 2L, 10L);
+        verify(activeLoanRepository).deleteAllInBatch();
+        verify(circulationStatsRepository).replace(any());
+    }
+
+    @Test
+    void returnClosesTheOldestOpenLoanOfTheSameUserAndBook() {
+        archived(history(1L, 7L, 101L, TransactionType.BORROW, "2025-05-01T10:00"),
+                history(2L, 7L, 101L, TransactionType.BORROW, "2025-05-02T10:00"),
+                history(3L, 8L, 101L, TransactionType.BORROW, "2025-05-03T10:00"));
+        table(List.of(history(10L, 7L, 101L, TransactionType.RETURN, "2025-06-03T10:00")), null);
+
+        LoanRebuildResult result = activeLoanService.rebuild();
+
+        assertThat(result.getActiveLoans()).isEqualTo(2);
+        assertThat(result.getUnmatchedReturns()).isZero();
+        assertThat(savedLoans()).extracting(ActiveLoan::getBorrowTransactionId).containsExactlyInAnyOrder(2L, 3L);
+    }
+
+    @Test
+    void returnsWithoutABorrowAreCountedAndSkipped() {
+        archived(history(1L, 7L, 101L, TransactionType.RETURN, "2025-05-01T10:00"));
+        table(List.of(history(10L, 7L, 102L, TransactionType.BORROW, "2025-06-03T10:00"),
+                history(11L, 8L, 102L, TransactionType.RETURN, "2025-06-04T10:00")), List.of());
+
+        LoanRebuildResult result = activeLoanService.rebuild();
+
+        assertThat(result.getTransactionsReplayed()).isEqualTo(3);
+        assertThat(result.getUnmatchedReturns()).isEqualTo(2);
+        assertThat(savedLoans()).extracting(ActiveLoan::getBorrowTransactionId).containsExactly(10L);
+    }
+
+    @Test
+    void loanBorrowedBeforeDueDatesGetsTheLoanPeriod() {
+        archived();
+        Transaction borrow = history(10L, 7L, 101L, TransactionType.BORROW, "2025-06-03T10:00");
+        borrow.setDueDate(null);
+        table(List.of(borrow), null);
+
+        activeLoanService.rebuild();
+
+        assertThat(savedLoans()).extracting(ActiveLoan::getDueDate)
+                .containsExactly(LocalDateTime.parse("2025-06-17T10:00"));
+    }
+
+    @Test
+    void rebuildIsRefusedWhileAnotherReplicaRunsIt() throws Exception {
+        when(lockResult.getInt(1)).thenReturn(0);
+
+        assertThatThrownBy(() -> activeLoanService.rebuild()).isInstanceOf(JobInProgressException.class);
+        verifyNoInteractions(transactionArchive, activeLoanRepository, circulationStatsRepository);
+    }
+
+    @Test
+    void startupDoesNotRebuildAnEmptyView() {
+        when(activeLoanRepository.count()).thenReturn(0L);
+        when(transactionRepository.count()).thenReturn(5L);
+
+        activeLoanService.backfill();
+
+        verify(activeLoanRepository).fillMissingDueDates(Duration.ofDays(14).getSeconds());
+        verify(activeLoanRepository, never()).deleteAllInBatch();
+        verify(transactionRepository, never()).findByIdGreaterThanOrderByIdAsc(anyLong(), any());
+    }
+
+    private void archived(Transaction... transactions) {
+        when(transactionArchive.getWatermark()).thenReturn(WATERMARK);
+        doAnswer(invocation -> {
+            Consumer<Transaction> consumer = invocation.getArgument(0);
+            for (Transaction transaction : transactions) {
+                consumer.accept(transaction);
+            }
+            return null;
+        }).when(transactionArchive).forEach(any());
+    }
+
+    /**
+     * Serves the table in pages of two; {@code nextPage} is read after a full first page.
+     */
+    private void table(List<Transaction> firstPage, List<Transaction> nextPage) {
+        when(transactionRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 2))).thenReturn(firstPage);
+        if (nextPage != null) {
+            Long lastId = firstPage.get(firstPage.size() - 1).getId();
+            when(transactionRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, 2))).thenReturn(nextPage);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ActiveLoan> savedLoans() {
+        ArgumentCaptor<List<ActiveLoan>> loans = ArgumentCaptor.forClass(List.class);
+        verify(activeLoanRepository).saveAll(loans.capture());
+        return loans.getValue();
+    }
+
+    private static Transaction history(Long id, Long userId, Long bookId, TransactionType type, String date) {
+        Transaction transaction = transaction(id, date);
+        transaction.setUserId(userId);
+        transaction.setBookId(bookId);
+        transaction.setTransactionType(type);
+        if (type == TransactionType.BORROW) {
+            transaction.setDueDate(transaction.getTransactionDate().plusDays(14));
+        }
+        return transaction;
+    }
+}
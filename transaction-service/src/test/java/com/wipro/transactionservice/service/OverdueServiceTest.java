@@ -0,0 +1,164 @@
+package com.wipro.transactionservice.service;
+
+import com.wipro.transactionservice.dto.FineBatchResult;
+import com.wipro.transactionservice.dto.FineRequest;
+import com.wipro.transactionservice.dto.OverdueRunResult;
+import com.wipro.transactionservice.entity.ActiveLoan;
+import com.wipro.transactionservice.entity.OverdueCheckpoint;
+import com.wipro.transactionservice.exception.JobInProgressException;
+import com.wipro.transactionservice.repository.ActiveLoanRepository;
+import com.wipro.transactionservice.repository.OverdueCheckpointRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class OverdueServiceTest {
+    private static final String FINES = "http://fines/payments/batch";
+    private static final LocalDateTime CHECKPOINT = LocalDateTime.of(2025, 8, 1, 1, 0);
+
+    private final ActiveLoanRepository activeLoanRepository = mock(ActiveLoanRepository.class);
+    private final OverdueCheckpointRepository checkpointRepository = mock(OverdueCheckpointRepository.class);
+    private final RestTemplate restTemplate = mock(RestTemplate.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ResultSet lockResult = mock(ResultSet.class);
+    private OverdueService overdueService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(lockResult);
+        when(lockResult.next()).thenReturn(true);
+        when(lockResult.getInt(1)).thenReturn(1);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+                .thenAnswer(invocation -> invocation.<ConnectionCallback<Object>>getArgument(0).doInConnection(connection));
+        overdueService = new OverdueService(activeLoanRepository, checkpointRepository, restTemplate, jdbcTemplate,
+                "http://fines/payments", 2, 2, new BigDecimal("50.00"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        overdueService.shutdown();
+    }
+
+    @Test
+    void loansAreReadInKeysetChunksFromTheCheckpointAndTheCheckpointAdvances() {
+        when(checkpointRepository.findById(OverdueCheckpoint.ID)).thenReturn(Optional.of(checkpoint(CHECKPOINT)));
+        ActiveLoan first = loan(1L, 31L, "2025-08-02T10:00");
+        ActiveLoan second = loan(4L, 34L, "2025-08-03T10:00");
+        ActiveLoan third = loan(2L, 32L, "2025-08-03T10:00");
+        when(activeLoanRepository.findDuePage(eq(CHECKPOINT), any(), eq(CHECKPOINT), eq(0L), eq(PageRequest.of(0, 2))))
+                .thenReturn(List.of(first, second));
+        when(activeLoanRepository.findDuePage(eq(CHECKPOINT), any(), eq(second.getDueDate()), eq(4L), eq(PageRequest.of(0, 2))))
+                .thenReturn(List.of(third));
+        when(restTemplate.postForObject(eq(FINES), any(), eq(FineBatchResult.class)))
+                .thenReturn(new FineBatchResult(2, 0), new FineBatchResult(0, 1));
+
+        OverdueRunResult result = overdueService.run();
+
+        assertThat(result.getCheckedFrom()).isEqualTo(CHECKPOINT);
+        assertThat(result.getOverdueLoans()).isEqualTo(3);
+        assertThat(result.getFinesCreated()).isEqualTo(2);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<FineRequest>> chunks = ArgumentCaptor.forClass(List.class);
+        verify(restTemplate, times(2)).postForObject(eq(FINES), chunks.capture(), eq(FineBatchResult.class));
+        assertThat(chunks.getAllValues()).flatExtracting(chunk -> chunk).extracting(FineRequest::getExternalRef)
+                .containsExactlyInAnyOrder("overdue:31", "overdue:34", "overdue:32");
+        ArgumentCaptor<OverdueCheckpoint> saved = ArgumentCaptor.forClass(OverdueCheckpoint.class);
+        verify(checkpointRepository).save(saved.capture());
+        assertThat(saved.getValue().getCheckedUntil()).isEqualTo(result.getCheckedUntil());
+    }
+
+    @Test
+    void firstRunStartsAtTheBeginningAndAFullLastChunkIsFollowedByAnEmptyRead() {
+        when(checkpointRepository.findById(OverdueCheckpoint.ID)).thenReturn(Optional.empty());
+        ActiveLoan first = loan(1L, 31L, "2025-08-02T10:00");
+        ActiveLoan second = loan(2L, 32L, "2025-08-02T11:00");
+        LocalDateTime start = TransactionService.MIN_DATE;
+        when(activeLoanRepository.findDuePage(eq(start), any(), eq(start), eq(0L), any()))
+                .thenReturn(List.of(first, second));
+        when(activeLoanRepository.findDuePage(eq(start), any(), eq(second.getDueDate()), eq(2L), any()))
+                .thenReturn(List.of());
+        when(restTemplate.postForObject(eq(FINES), any(), eq(FineBatchResult.class)))
+                .thenReturn(new FineBatchResult(2, 0));
+
+        OverdueRunResult result = overdueService.run();
+
+        assertThat(result.getCheckedFrom()).isEqualTo(start);
+        assertThat(result.getOverdueLoans()).isEqualTo(2);
+        verify(checkpointRepository).save(any());
+    }
+
+    @Test
+    void failedChunkLeavesTheCheckpointWhereItWas() {
+        when(checkpointRepository.findById(OverdueCheckpoint.ID)).thenReturn(Optional.of(checkpoint(CHECKPOINT)));
+        when(activeLoanRepository.findDuePage(eq(CHECKPOINT), any(), eq(CHECKPOINT), eq(0L), any()))
+                .thenReturn(List.of(loan(1L, 31L, "2025-08-02T10:00")));
+        when(restTemplate.postForObject(eq(FINES), any(), eq(FineBatchResult.class)))
+                .thenThrow(new ResourceAccessException("Connection refused"));
+
+        assertThatThrownBy(() -> overdueService.run()).hasRootCauseInstanceOf(ResourceAccessException.class);
+        verify(checkpointRepository, never()).save(any());
+    }
+
+    @Test
+    void runIsRefusedWhileAnotherReplicaHoldsTheLock() throws Exception {
+        when(lockResult.getInt(1)).thenReturn(0);
+
+        assertThatThrownBy(() -> overdueService.run()).isInstanceOf(JobInProgressException.class);
+        verifyNoInteractions(checkpointRepository, activeLoanRepository, restTemplate);
+    }
+
+    @Test
+    void scheduledRunSkipsWhileAnotherReplicaHoldsTheLock() throws Exception {
+        when(lockResult.getInt(1)).thenReturn(0);
+
+        overdueService.scheduledRun();
+
+        verifyNoInteractions(checkpointRepository, activeLoanRepository, restTemplate);
+    }
+
+    private static OverdueCheckpoint checkpoint(LocalDateTime checkedUntil) {
+        OverdueCheckpoint checkpoint = new OverdueCheckpoint();
+        checkpoint.setId(OverdueCheckpoint.ID);
+        checkpoint.setCheckedUntil(checkedUntil);
+        return checkpoint;
+    }
+
+    private static ActiveLoan loan(Long id, Long borrowTransactionId, String dueDate) {
+        ActiveLoan loan = new ActiveLoan();
+        loan.setId(id);
+        loan.setUserId(7L);
+        loan.setBookId(100L + id);
+        loan.setBorrowTransactionId(borrowTransactionId);
+        loan.setDueDate(LocalDateTime.parse(dueDate));
+        return loan;
+    }
+}
@@ -0,0 +1,127 @@
+package com.wipro.transactionservice.service;
+
+import com.wipro.common.dto.StockChangeResult;
+import com.wipro.transactionservice.entity.StockCompensation;
+import com.wipro.transactionservice.repository.StockCompensationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StockCompensationServiceTest {
+    private static final String INVENTORY = "http://localhost:8082/inventory";
+
+    @Mock
+    private StockCompensationRepository stockCompensationRepository;
+    @Mock
+    private RestTemplate restTemplate;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private StockCompensationService stockCompensationService;
+
+    @BeforeEach
+    void setUp() {
+        stockCompensationService = new StockCompensationService(stockCompensationRepository, restTemplate,
+                jdbcTemplate, 5000, 100, Duration.ofSeconds(1), Duration.ofMinutes(5));
+    }
+
+    @Test
+    void appliedCompensationIsNotRecorded() {
+        stockCompensationService.compensate(101L, "release");
+
+        verify(restTemplate).postForObject(INVENTORY + "/101/release", null, Void.class);
+        verify(stockCompensationRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void unreachableInventoryRecordsEveryBookForRetry() {
+        when(restTemplate.postForObject(INVENTORY + "/release", List.of(101L, 102L), StockChangeResult[].class))
+                .thenThrow(new ResourceAccessException("Connection refused"));
+
+        stockCompensationService.compensate(List.of(101L, 102L), "release");
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<StockCompensation>> saved = ArgumentCaptor.forClass(List.class);
+        verify(stockCompensationRepository).saveAll(saved.capture());
+        assertThat(saved.getValue()).extracting(StockCompensation::getBookId).containsExactly(101L, 102L);
+        assertThat(saved.getValue()).allSatisfy(compensation -> {
+            assertThat(compensation.getOperation()).isEqualTo("release");
+            assertThat(compensation.getNextAttemptAt()).isAfter(compensation.getCreatedAt());
+        });
+    }
+
+    @Test
+    void refusedCompensationIsNotRetried() {
+        when(restTemplate.postForObject(INVENTORY + "/101/reserve", null, Void.class))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.CONFLICT, "Conflict", HttpHeaders.EMPTY, null, null));
+
+        stockCompensationService.compensate(101L, "reserve");
+
+        verify(stockCompensationRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void retryDeletesAppliedCompensationsAndBacksOffFromTheFirstFailure() {
+        StockCompensation applied = compensation(1L, 101L, 0);
+        StockCompensation failing = compensation(2L, 102L, 2);
+        StockCompensation waiting = compensation(3L, 103L, 0);
+        when(stockCompensationRepository.findByNextAttemptAtLessThanEqualOrderByIdAsc(any(), any()))
+                .thenReturn(List.of(applied, failing, waiting));
+        when(restTemplate.postForObject(INVENTORY + "/102/release", null, Void.class))
+                .thenThrow(new ResourceAccessException("Read timed out"));
+        LocalDateTime before = LocalDateTime.now();
+
+        assertThat(stockCompensationService.retry()).isEqualTo(1);
+
+        verify(stockCompensationRepository).delete(applied);
+        verify(stockCompensationRepository).save(failing);
+        assertThat(failing.getAttempts()).isEqualTo(3);
+        assertThat(failing.getNextAttemptAt()).isAfterOrEqualTo(before.plusSeconds(4));
+        verify(restTemplate, never()).postForObject(INVENTORY + "/103/release", null, Void.class);
+        verify(stockCompensationRepository, never()).delete(waiting);
+    }
+
+    @Test
+    void retryDropsACompensationInventoryRefuses() {
+        StockCompensation refused = compensation(1L, 101L, 0);
+        when(stockCompensationRepository.findByNextAttemptAtLessThanEqualOrderByIdAsc(any(), any()))
+                .thenReturn(List.of(refused), List.of());
+        when(restTemplate.postForObject(INVENTORY + "/101/release", null, Void.class))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", HttpHeaders.EMPTY, null, null));
+
+        assertThat(stockCompensationService.retry()).isZero();
+
+        verify(stockCompensationRepository).delete(refused);
+    }
+
+    private static StockCompensation compensation(Long id, Long bookId, int attempts) {
+        StockCompensation compensation = new StockCompensation();
+        compensation.setId(id);
+        compensation.setBookId(bookId);
+        compensation.setOperation("release");
+        compensation.setAttempts(attempts);
+        compensation.setCreatedAt(LocalDateTime.now().minusMinutes(1));
+        compensation.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+        return compensation;
+    }
+}
@@ -0,0 +1,214 @@
+package com.wipro.transactionservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.wipro.transactionservice.entity.Transaction;
+import com.wipro.transactionservice.repository.ArchiveSegmentRepository;
+import com.wipro.transactionservice.repository.TransactionStreamRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import static com.wipro.transactionservice.service.TransactionServiceTest.transaction;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class TransactionArchiveTest {
+    private static final YearMonth MONTH = YearMonth.now().minusMonths(6);
+
+    @TempDir
+    Path directory;
+    @TempDir
+    Path otherDirectory;
+
+    private final TransactionStreamRepository streamRepository = mock(TransactionStreamRepository.class);
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final DataSource dataSource = mock(DataSource.class);
+    private final ResultSet lockResult = mock(ResultSet.class);
+    private final InMemorySegmentRepository segmentRepository = new InMemorySegmentRepository();
+    private final List<Transaction> rows = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(lockResult);
+        when(lockResult.next()).thenReturn(true);
+        when(lockResult.getInt(1)).thenReturn(1);
+
+        // Sorted by (userId, transactionDate, id) as the stream query returns them
+        rows.add(row(11L, 1L, 2));
+        rows.add(row(12L, 1L, 5));
+        rows.add(row(13L, 2L, 3));
+        rows.add(row(14L, 2L, 9));
+        rows.add(row(15L, 2L, 20));
+        rows.add(row(16L, 3L, 1));
+        when(streamRepository.deleteBefore(any(), anyInt())).thenReturn(0L);
+        when(streamRepository.findOldestDateFrom(TransactionService.MIN_DATE)).thenReturn(rows.get(5).getTransactionDate());
+        doAnswer(invocation -> {
+            LocalDateTime from = invocation.getArgument(0);
+            Consumer<Transaction> consumer = invocation.getArgument(2);
+            if (YearMonth.from(from).equals(MONTH)) {
+                rows.forEach(consumer);
+            }
+            return null;
+        }).when(streamRepository).streamByUser(any(), any(), any());
+    }
+
+    @Test
+    void archivedMonthsAreReadBackByUserPageAndId() {
+        TransactionArchive archive = archive(true);
+
+        archive.archiveClosedMonths();
+
+        assertThat(archive.getWatermark()).isEqualTo(YearMonth.now().minusMonths(3).atDay(1).atStartOfDay());
+        assertThat(archive.findByUser(2L, TransactionService.MIN_DATE, TransactionService.MAX_DATE))
+                .extracting(Transaction::getId).containsExactly(13L, 14L, 15L);
+        assertThat(archive.findPageByUser(2L, TransactionService.MIN_DATE, TransactionService.MAX_DATE, Long.MAX_VALUE, 2))
+                .extracting(Transaction::getId).containsExactly(15L, 14L);
+        assertThat(archive.findPageByUser(2L, TransactionService.MIN_DATE, MONTH.atDay(9).atTime(10, 0), 14L, 2))
+                .extracting(Transaction::getId).containsExactly(13L);
+        assertThat(archive.findById(16L)).get().extracting(Transaction::getUserId).isEqualTo(3L);
+        assertThat(archive.findById(1L)).isEmpty();
+        assertThat(archive.findById(99L)).isEmpty();
+        assertThat(segmentRepository.findSegmentLengths()).containsOnlyKeys(MONTH);
+    }
+
+    @Test
+    void anotherReplicaCopiesTheSegmentsFromTheDatabaseIntoItsOwnDirectory() {
+        archive(true).archiveClosedMonths();
+        TransactionArchive reader = archive(false, otherDirectory);
+
+        reader.refresh();
+
+        assertThat(reader.getWatermark()).isEqualTo(YearMonth.now().minusMonths(3).atDay(1).atStartOfDay());
+        assertThat(reader.findByUser(1L, TransactionService.MIN_DATE, TransactionService.MAX_DATE))
+                .extracting(Transaction::getId).containsExactly(11L, 12L);
+        assertThat(reader.findById(14L)).isPresent();
+        assertThat(otherDirectory.resolve(MONTH + ".ndjson.gz")).exists();
+    }
+
+    @Test
+    void replicaDoesNotServeAMonthOnlyFoundInItsDirectory() {
+        archive(true, otherDirectory).archiveClosedMonths();
+        segmentRepository.months.clear();
+        TransactionArchive reader = archive(false, otherDirectory);
+
+        reader.refresh();
+
+        assertThat(reader.getWatermark()).isEqualTo(TransactionService.MIN_DATE);
+    }
+
+    @Test
+    void archivingReplicaStoresMonthsWrittenBeforeTheDatabaseHeldThem() throws Exception {
+        archive(true).archiveClosedMonths();
+        segmentRepository.months.clear();
+        Files.writeString(directory.resolve("notes.idx"), "not an index");
+        Files.write(directory.resolve("2001-01.idx"), new byte[] {0, 0, 0, 9});
+
+        archive(true).refresh();
+        TransactionArchive reader = archive(false, otherDirectory);
+        reader.refresh();
+
+        assertThat(segmentRepository.findSegmentLengths()).containsOnlyKeys(MONTH);
+        assertThat(reader.getWatermark()).isEqualTo(YearMonth.now().minusMonths(3).atDay(1).atStartOfDay());
+        assertThat(reader.findById(11L)).isPresent();
+    }
+
+    @Test
+    void archivingIsOffUnlessEnabled() {
+        archive(false).archiveClosedMonths();
+
+        verifyNoInteractions(dataSource);
+        assertThat(directory.toFile().list()).isEmpty();
+    }
+
+    @Test
+    void runIsSkippedWhileAnotherReplicaHoldsTheLock() throws Exception {
+        when(lockResult.getInt(1)).thenReturn(0);
+
+        archive(true).archiveClosedMonths();
+
+        verifyNoInteractions(streamRepository);
+        assertThat(directory.toFile().list()).isEmpty();
+    }
+
+    private TransactionArchive archive(boolean enabled) {
+        return archive(enabled, directory);
+    }
+
+    private TransactionArchive archive(boolean enabled, Path directory) {
+        return new TransactionArchive(streamRepository, segmentRepository, objectMapper, new JdbcTemplate(dataSource),
+                directory.toString(), 3, 2, enabled);
+    }
+
+    private static Transaction row(Long id, Long userId, int day) {
+        Transaction transaction = transaction(id, MONTH.atDay(day).atTime(10, 0).toString());
+        transaction.setUserId(userId);
+        return transaction;
+    }
+
+    /**
+     * Keeps the stored months in memory instead of the transaction_archive_segments table.
+     */
+    private static class InMemorySegmentRepository extends ArchiveSegmentRepository {
+        private final Map<YearMonth, byte[][]> months = new TreeMap<>();
+
+        InMemorySegmentRepository() {
+            super(null);
+        }
+
+        @Override
+        public NavigableMap<YearMonth, Long> findSegmentLengths() {
+            NavigableMap<YearMonth, Long> lengths = new TreeMap<>();
+            months.forEach((month, files) -> lengths.put(month, (long) files[1].length));
+            return lengths;
+        }
+
+        @Override
+        public void save(YearMonth month, Path indexFile, Path segmentFile) throws IOException {
+            months.putIfAbsent(month, new byte[][] {Files.readAllBytes(indexFile), Files.readAllBytes(segmentFile)});
+        }
+
+        @Override
+        public boolean copyTo(YearMonth month, Path indexFile, Path segmentFile) {
+            byte[][] files = months.get(month);
+            if (files == null) {
+                return false;
+            }
+            try {
+                Files.write(indexFile, files[0]);
+                Files.write(segmentFile, files[1]);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        }
+    }
+}
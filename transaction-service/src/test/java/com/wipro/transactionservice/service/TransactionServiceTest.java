@@ -0,0 +1,360 @@
+package com.wipro.transactionservice.service;
+
+import com.wipro.common.dto.StockChangeResult;
+import com.wipro.transactionservice.dto.LoanRequest;
+import com.wipro.transactionservice.dto.LoanResult;
+import com.wipro.transactionservice.dto.TransactionPage;
+import com.wipro.transactionservice.entity.ActiveLoan;
+import com.wipro.transactionservice.entity.Transaction;
+import com.wipro.transactionservice.entity.TransactionType;
+import com.wipro.transactionservice.exception.BookUnavailableException;
+import com.wipro.transactionservice.exception.LoanNotFoundException;
+import com.wipro.transactionservice.exception.TransactionNotFoundException;
+import com.wipro.transactionservice.repository.ActiveLoanRepository;
+import com.wipro.transactionservice.repository.CirculationStatsRepository;
+import com.wipro.transactionservice.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static com.wipro.transactionservice.service.TransactionService.MAX_DATE;
+import static com.wipro.transactionservice.service.TransactionService.MIN_DATE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionServiceTest {
+    private static final String INVENTORY = "http://localhost:8082/inventory";
+    private static final LocalDateTime WATERMARK = LocalDateTime.of(2025, 6, 1, 0, 0);
+
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private ActiveLoanRepository activeLoanRepository;
+    @Mock
+    private CirculationStatsRepository circulationStatsRepository;
+    @Mock
+    private TransactionArchive transactionArchive;
+    @Mock
+    private OutboxService outboxService;
+    @Mock
+    private StockCompensationService stockCompensationService;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private RestTemplate restTemplate;
+
+    private TransactionService transactionService;
+
+    @BeforeEach
+    void setUp() {
+        transactionService = new TransactionService(transactionRepository, activeLoanRepository,
+                circulationStatsRepository, transactionArchive, outboxService, stockCompensationService, transactionTemplate,
+                restTemplate,
+                Duration.ofDays(14));
+    }
+
+    @Test
+    void firstPageStartsAtTheNewestRowAndEndsWithACursor() {
+        when(transactionArchive.getWatermark()).thenReturn(MIN_DATE);
+        Transaction newest = transaction(9L, "2025-08-03T10:00");
+        Transaction second = transaction(8L, "2025-08-02T10:00");
+        when(transactionRepository.findPageByUserId(7L, MIN_DATE, MAX_DATE, Long.MAX_VALUE, PageRequest.of(0, 3)))
+                .thenReturn(List.of(newest, second, transaction(3L, "2025-08-01T10:00")));
+
+        TransactionPage page = transactionService.getTransactionsPage(7L, null, null, null, null, 2);
+
+        assertThat(page.getItems()).containsExactly(newest, second);
+        assertThat(page.getLast()).isSameAs(second);
+        verify(transactionArchive, never()).findPageByUser(anyLong(), any(), any(), anyLong(), anyInt());
+    }
+
+    @Test
+    void cursorContinuesStrictlyBeforeItsPositionAndTheLastPageHasNoCursor() {
+        when(transactionArchive.getWatermark()).thenReturn(MIN_DATE);
+        LocalDateTime beforeDate = LocalDateTime.parse("2025-08-02T10:00");
+        Transaction older = transaction(3L, "2025-08-01T10:00");
+        when(transactionRepository.findPageByUserId(7L, MIN_DATE, beforeDate, 8L, PageRequest.of(0, 3)))
+                .thenReturn(List.of(older));
+
+        TransactionPage page = transactionService.getTransactionsPage(7L, null, null, beforeDate, 8L, 2);
+
+        assertThat(page.getItems()).containsExactly(older);
+        assertThat(page.getLast()).isNull();
+    }
+
+    @Test
+    void cursorAfterTheEndDateStartsAtTheEndDate() {
+        when(transactionArchive.getWatermark()).thenReturn(MIN_DATE);
+        LocalDateTime endDate = LocalDateTime.parse("2025-07-31T23:59:59");
+        when(transactionRepository.findPageByUserId(7L, MIN_DATE, endDate, Long.MAX_VALUE, PageRequest.of(0, 3)))
+                .thenReturn(List.of());
+
+        TransactionPage page = transactionService.getTransactionsPage(7L, null, endDate,
+                LocalDateTime.parse("2025-08-02T10:00"), 8L, 2);
+
+        assertThat(page.getItems()).isEmpty();
+    }
+
+    @Test
+    void pageContinuesIntoArchivedMonths() {
+        when(transactionArchive.getWatermark()).thenReturn(WATERMARK);
+        Transaction live = transaction(9L, "2025-06-03T10:00");
+        Transaction archived = transaction(4L, "2025-05-20T10:00");
+        when(transactionRepository.findPageByUserId(7L, WATERMARK, MAX_DATE, Long.MAX_VALUE, PageRequest.of(0, 3)))
+                .thenReturn(List.of(live));
+        when(transactionArchive.findPageByUser(7L, MIN_DATE, MAX_DATE, Long.MAX_VALUE, 2))
+                .thenReturn(List.of(archived, transaction(2L, "2025-05-10T10:00")));
+
+        TransactionPage page = transactionService.getTransactionsPage(7L, null, null, null, null, 2);
+
+        assertThat(page.getItems()).containsExactly(live, archived);
+        assertThat(page.getLast()).isSameAs(archived);
+    }
+
+    @Test
+    void cursorInsideTheArchiveDoesNotQueryTheTable() {
+        when(transactionArchive.getWatermark()).thenReturn(WATERMARK);
+        LocalDateTime beforeDate = LocalDateTime.parse("2025-05-20T10:00");
+        Transaction archived = transaction(2L, "2025-05-10T10:00");
+        when(transactionArchive.findPageByUser(7L, MIN_DATE, beforeDate, 4L, 3)).thenReturn(List.of(archived));
+
+        TransactionPage page = transactionService.getTransactionsPage(7L, null, null, beforeDate, 4L, 2);
+
+        assertThat(page.getItems()).containsExactly(archived);
+        assertThat(page.getLast()).isNull();
+        verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    void transactionByIdFallsBackToTheArchive() {
+        Transaction archived = transaction(4L, "2025-05-20T10:00");
+        when(transactionRepository.findById(4L)).thenReturn(Optional.empty());
+        when(transactionArchive.findById(4L)).thenReturn(Optional.of(archived));
+
+        assertThat(transactionService.getTransactionById(4L)).isSameAs(archived);
+    }
+
+    @Test
+    void unknownTransactionIsNotFound() {
+        when(transactionRepository.findById(4L)).thenReturn(Optional.empty());
+        when(transactionArchive.findById(4L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> transactionService.getTransactionById(4L))
+                .isInstanceOf(TransactionNotFoundException.class);
+    }
+
+    @Test
+    void borrowReservesACopyBeforeSavingTheLoan() {
+        runTransactions();
+        when(transactionRepository.save(any())).thenAnswer(invocation -> saved(invocation.getArgument(0), 11L));
+
+        Transaction borrowed = transactionService.borrowBook(7L, 101L);
+
+        assertThat(borrowed.getId()).isEqualTo(11L);
+        assertThat(borrowed.getDueDate()).isEqualTo(borrowed.getTransactionDate().plusDays(14));
+        verify(restTemplate).postForObject(INVENTORY + "/101/reserve", null, Void.class);
+        verify(activeLoanRepository).save(any(ActiveLoan.class));
+        verify(circulationStatsRepository).apply(any());
+        verify(outboxService).record(eq("Book"), eq(101L), anyString());
+        verifyNoInteractions(stockCompensationService);
+    }
+
+    @Test
+    void borrowOfABookWithoutCopiesSavesNothing() {
+        when(restTemplate.postForObject(INVENTORY + "/101/reserve", null, Void.class))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.CONFLICT, "Conflict", HttpHeaders.EMPTY, null, null));
+
+        assertThatThrownBy(() -> transactionService.borrowBook(7L, 101L))
+                .isInstanceOf(BookUnavailableException.class);
+        verifyNoInteractions(transactionTemplate, transactionRepository, stockCompensationService);
+    }
+
+    @Test
+    void borrowThatFailsToSaveReleasesTheReservation() {
+        runTransactions();
+        when(transactionRepository.save(any())).thenThrow(new DataAccessResourceFailureException("down"));
+
+        assertThatThrownBy(() -> transactionService.borrowBook(7L, 101L))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+        verify(stockCompensationService).compensate(101L, "release");
+        verify(outboxService, never()).record(anyString(), anyLong(), anyString());
+    }
+
+    @Test
+    void returnReleasesTheCopyAndClosesTheOldestLoan() {
+        runTransactions();
+        ActiveLoan loan = loan(5L, 7L, 101L, "2025-08-01T10:00");
+        when(activeLoanRepository.findFirstByUserIdAndBookIdOrderByBorrowedAtAscIdAsc(7L, 101L))
+                .thenReturn(Optional.of(loan));
+        when(activeLoanRepository.deleteLoan(5L)).thenReturn(1);
+        when(transactionRepository.save(any())).thenAnswer(invocation -> saved(invocation.getArgument(0), 12L));
+
+        Transaction returned = transactionService.returnBook(7L, 101L);
+
+        assertThat(returned.getTransactionType()).isEqualTo(TransactionType.RETURN);
+        verify(restTemplate).postForObject(INVENTORY + "/101/release", null, Void.class);
+        verifyNoInteractions(stockCompensationService);
+    }
+
+    @Test
+    void returnWithoutALoanDoesNotTouchTheStock() {
+        when(activeLoanRepository.findFirstByUserIdAndBookIdOrderByBorrowedAtAscIdAsc(7L, 101L))
+                .thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> transactionService.returnBook(7L, 101L))
+                .isInstanceOf(LoanNotFoundException.class);
+        verifyNoInteractions(restTemplate, transactionTemplate);
+    }
+
+    @Test
+    void returnOfALoanReturnedConcurrentlyTakesTheCopyBack() {
+        runTransactions();
+        when(activeLoanRepository.findFirstByUserIdAndBookIdOrderByBorrowedAtAscIdAsc(7L, 101L))
+                .thenReturn(Optional.of(loan(5L, 7L, 101L, "2025-08-01T10:00")));
+        when(activeLoanRepository.deleteLoan(5L)).thenReturn(0);
+
+        assertThatThrownBy(() -> transactionService.returnBook(7L, 101L))
+                .isInstanceOf(LoanNotFoundException.class);
+        verify(stockCompensationService).compensate(101L, "reserve");
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void batchBorrowSavesOnlyTheReservedBooks() {
+        runTransactionsWithoutResult();
+        when(restTemplate.postForObject(INVENTORY + "/reserve", List.of(101L, 102L), StockChangeResult[].class))
+                .thenReturn(new StockChangeResult[]{
+                        new StockChangeResult(101L, StockChangeResult.Status.DONE),
+                        new StockChangeResult(102L, StockChangeResult.Status.OUT_OF_STOCK)});
+        when(transactionRepository.saveAll(any())).thenAnswer(invocation -> {
+            List<Transaction> transactions = invocation.getArgument(0);
+            transactions.forEach(transaction -> transaction.setId(20L));
+            return transactions;
+        });
+
+        List<LoanResult> results = transactionService.borrowBooks(
+                List.of(new LoanRequest(7L, 101L), new LoanRequest(8L, 102L)));
+
+        assertThat(results).extracting(LoanResult::getStatus)
+                .containsExactly(LoanResult.Status.DONE, LoanResult.Status.UNAVAILABLE);
+        assertThat(results.get(0).getTransaction().getId()).isEqualTo(20L);
+        verify(activeLoanRepository).saveAll(any());
+        verify(outboxService).record(eq("TransactionBatch"), eq(20L), eq("Books borrowed: user 7: [101]"));
+        verifyNoInteractions(stockCompensationService);
+    }
+
+    @Test
+    void batchBorrowThatFailsToSaveReleasesEveryReservation() {
+        runTransactionsWithoutResult();
+        when(restTemplate.postForObject(INVENTORY + "/reserve", List.of(101L, 102L), StockChangeResult[].class))
+                .thenReturn(new StockChangeResult[]{
+                        new StockChangeResult(101L, StockChangeResult.Status.DONE),
+                        new StockChangeResult(102L, StockChangeResult.Status.DONE)});
+        when(transactionRepository.saveAll(any())).thenThrow(new DataAccessResourceFailureException("down"));
+
+        assertThatThrownBy(() -> transactionService.borrowBooks(
+                List.of(new LoanRequest(7L, 101L), new LoanRequest(8L, 102L))))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+        verify(stockCompensationService).compensate(List.of(101L, 102L), "release");
+    }
+
+    @Test
+    void batchReturnClosesTheOldestLoansAndReportsItemsWithoutOne() {
+        runTransactionsWithoutResult();
+        when(activeLoanRepository.findByUserIdInOrderByBorrowedAtAscIdAsc(any())).thenReturn(List.of(
+                loan(5L, 7L, 101L, "2025-08-01T10:00"),
+                loan(6L, 7L, 101L, "2025-08-02T10:00")));
+        when(restTemplate.postForObject(INVENTORY + "/release", List.of(101L, 101L), StockChangeResult[].class))
+                .thenReturn(new StockChangeResult[]{
+                        new StockChangeResult(101L, StockChangeResult.Status.DONE),
+                        new StockChangeResult(101L, StockChangeResult.Status.DONE)});
+        when(activeLoanRepository.deleteLoans(List.of(5L, 6L))).thenReturn(2);
+
+        List<LoanResult> results = transactionService.returnBooks(List.of(
+                new LoanRequest(7L, 101L), new LoanRequest(7L, 102L), new LoanRequest(7L, 101L)));
+
+        assertThat(results).extracting(LoanResult::getStatus).containsExactly(
+                LoanResult.Status.DONE, LoanResult.Status.NO_ACTIVE_LOAN, LoanResult.Status.DONE);
+        verify(transactionRepository).saveAll(any());
+        verifyNoInteractions(stockCompensationService);
+    }
+
+    @Test
+    void batchReturnOfLoansReturnedConcurrentlyTakesTheCopiesBack() {
+        runTransactionsWithoutResult();
+        when(activeLoanRepository.findByUserIdInOrderByBorrowedAtAscIdAsc(any()))
+                .thenReturn(List.of(loan(5L, 7L, 101L, "2025-08-01T10:00")));
+        when(restTemplate.postForObject(INVENTORY + "/release", List.of(101L), StockChangeResult[].class))
+                .thenReturn(new StockChangeResult[]{new StockChangeResult(101L, StockChangeResult.Status.DONE)});
+        when(activeLoanRepository.deleteLoans(List.of(5L))).thenReturn(0);
+
+        assertThatThrownBy(() -> transactionService.returnBooks(List.of(new LoanRequest(7L, 101L))))
+                .isInstanceOf(LoanNotFoundException.class);
+        verify(stockCompensationService).compensate(List.of(101L), "reserve");
+        verify(transactionRepository, never()).saveAll(any());
+    }
+
+    private void runTransactions() {
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<Object>>getArgument(0).doInTransaction(null));
+    }
+
+    private void runTransactionsWithoutResult() {
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    private static Transaction saved(Transaction transaction, Long id) {
+        transaction.setId(id);
+        return transaction;
+    }
+
+    private static ActiveLoan loan(Long id, Long userId, Long bookId, String borrowedAt) {
+        ActiveLoan loan = new ActiveLoan();
+        loan.setId(id);
+        loan.setUserId(userId);
+        loan.setBookId(bookId);
+        loan.setBorrowedAt(LocalDateTime.parse(borrowedAt));
+        return loan;
+    }
+
+    static Transaction transaction(Long id, String date) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setUserId(7L);
+        transaction.setBookId(100L + id);
+        transaction.setTransactionType(TransactionType.BORROW);
+        transaction.setTransactionDate(LocalDateTime.parse(date));
+        return transaction;
+    }
+}